@@ -20,6 +20,7 @@ package com.thinkbiganalytics.rest;
  * #L%
  */
 
+import org.glassfish.jersey.client.spi.ConnectorProvider;
 
 /**
  * Configuration class used by the {@link JerseyRestClient}
@@ -54,6 +55,41 @@ public class JerseyClientConfig {
      **/
     private boolean useConnectionPooling = false;
 
+    /**
+     * the maximum number of pooled connections to each host when connection pooling is used
+     */
+    private int maxConnectionsPerRoute = 100;
+
+    /**
+     * the maximum number of pooled connections to all hosts when connection pooling is used
+     */
+    private int maxConnections = 200;
+
+    /**
+     * milliseconds to wait for a pooled connection to be available.  Null waits indefinitely
+     */
+    private Integer connectionRequestTimeout = null;
+
+    /**
+     * milliseconds a pooled connection is kept alive for reuse.  Null keeps it alive for as long as the server allows
+     */
+    private Long connectionTimeToLive = null;
+
+    /**
+     * milliseconds a pooled connection can be idle before it is checked before being reused
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * the maximum number of asynchronous requests in progress at the same time.  Callers wait for a request to complete when this is reached.  0 does not limit the requests
+     */
+    private int maxAsyncRequests = 0;
+
+    /**
+     * the connector used to send the requests, replacing the default connector chosen by {@link #useConnectionPooling}
+     */
+    private ConnectorProvider connectorProvider;
+
 
     public JerseyClientConfig() {
 
@@ -226,4 +262,60 @@ public class JerseyClientConfig {
     public void setKeystoreType(String keystoreType) {
         this.keystoreType = keystoreType;
     }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Integer getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(Integer connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public Long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    public void setConnectionTimeToLive(Long connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public int getMaxAsyncRequests() {
+        return maxAsyncRequests;
+    }
+
+    public void setMaxAsyncRequests(int maxAsyncRequests) {
+        this.maxAsyncRequests = maxAsyncRequests;
+    }
+
+    public ConnectorProvider getConnectorProvider() {
+        return connectorProvider;
+    }
+
+    public void setConnectorProvider(ConnectorProvider connectorProvider) {
+        this.connectorProvider = connectorProvider;
+    }
 }
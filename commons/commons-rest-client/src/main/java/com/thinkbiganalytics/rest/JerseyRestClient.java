@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.ByteStreams;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
@@ -32,12 +33,14 @@ import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.glassfish.jersey.SslConfigurator;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
-import org.glassfish.jersey.client.HttpUrlConnectorProvider;
 import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.media.multipart.Boundary;
@@ -50,18 +53,26 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Form;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
 
 /**
  * Generic JerseyRestClient
@@ -105,6 +116,16 @@ public class JerseyRestClient {
      */
     private boolean useConnectionPooling = false;
 
+    /**
+     * the pool of connections when connection pooling is used
+     */
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * permits for the asynchronous requests in progress, or null if they are not limited
+     */
+    private Semaphore asyncRequests;
+
 
     public JerseyRestClient(JerseyClientConfig config) {
         useConnectionPooling = config.isUseConnectionPooling();
@@ -170,7 +191,8 @@ public class JerseyRestClient {
 
         if (useConnectionPooling) {
 
-            PoolingHttpClientConnectionManager connectionManager = null;
+            RegistryBuilder<ConnectionSocketFactory> registryBuilder = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory());
             if (sslContext != null) {
 
                 HostnameVerifier defaultHostnameVerifier = new DefaultHostnameVerifier();
@@ -179,22 +201,36 @@ public class JerseyRestClient {
                     sslContext,
                     defaultHostnameVerifier);
 
-                final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
-                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                    .register("https", sslSocketFactory)
-                    .build();
-
-                connectionManager = new PoolingHttpClientConnectionManager(registry);
+                registryBuilder.register("https", sslSocketFactory);
             } else {
-                connectionManager = new PoolingHttpClientConnectionManager();
+                registryBuilder.register("https", SSLConnectionSocketFactory.getSocketFactory());
             }
-            connectionManager.setDefaultMaxPerRoute(100); // # of connections allowed per host/address
-            connectionManager.setMaxTotal(200); // number of connections allowed in total
+            final Registry<ConnectionSocketFactory> registry = registryBuilder.build();
+
+            long timeToLive = config.getConnectionTimeToLive() != null ? config.getConnectionTimeToLive() : -1;
+            connectionManager = new PoolingHttpClientConnectionManager(registry, null, null, null, timeToLive, TimeUnit.MILLISECONDS);
+            connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute()); // # of connections allowed per host/address
+            connectionManager.setMaxTotal(config.getMaxConnections()); // number of connections allowed in total
+            connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
 
             clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
-            HttpUrlConnectorProvider connectorProvider = new HttpUrlConnectorProvider();
-            clientConfig.connectorProvider(connectorProvider);
+            if (config.getConnectionRequestTimeout() != null) {
+                clientConfig.property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom().setConnectionRequestTimeout(config.getConnectionRequestTimeout()).build());
+            }
+            // Chunked requests are not accepted by all of the endpoints so buffer them to send the Content-Length header
+            clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+            clientConfig.connectorProvider(new ApacheConnectorProvider());
+            clientConfig.register(ConsumeEntityInterceptor.class);
+
+        }
+        if (config.getConnectorProvider() != null) {
+            clientConfig.connectorProvider(config.getConnectorProvider());
+        }
 
+        // Limit the asynchronous requests
+        if (config.getMaxAsyncRequests() > 0) {
+            asyncRequests = new Semaphore(config.getMaxAsyncRequests());
+            clientConfig.property(ClientProperties.ASYNC_THREADPOOL_SIZE, config.getMaxAsyncRequests());
         }
 
         clientConfig.register(MultiPartFeature.class);
@@ -247,6 +283,24 @@ public class JerseyRestClient {
         return username;
     }
 
+    /**
+     * Gets the number of leased, pending and available connections in the pool when connection pooling is used.
+     *
+     * @return the statistics of the connection pool, or null if connection pooling is not used
+     */
+    public PoolStats getConnectionPoolStats() {
+        return connectionManager != null ? connectionManager.getTotalStats() : null;
+    }
+
+    /**
+     * Gets the number of asynchronous requests that can be started before callers have to wait.
+     *
+     * @return the available asynchronous requests, or -1 if they are not limited
+     */
+    public int getAvailableAsyncRequests() {
+        return asyncRequests != null ? asyncRequests.availablePermits() : -1;
+    }
+
 
     /**
      * The base target that will be used upon each request.
@@ -298,9 +352,10 @@ public class JerseyRestClient {
      * @param clazz  the returned class type
      * @return a Future of type T
      */
-    public <T> Future<T> getAsync(String path, Map<String, Object> params, Class<T> clazz) {
+    public <T> CompletableFuture<T> getAsync(String path, Map<String, Object> params, Class<T> clazz) {
         WebTarget target = buildTarget(path, params);
-        return target.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE).async().get(clazz);
+        return async(callback -> target.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE).async().get(callback),
+                     response -> response.readEntity(clazz));
     }
 
 
@@ -312,9 +367,10 @@ public class JerseyRestClient {
      * @param type   the returned class type
      * @return a Future of type T
      */
-    public <T> Future<T> getAsync(String path, Map<String, Object> params, GenericType<T> type) {
+    public <T> CompletableFuture<T> getAsync(String path, Map<String, Object> params, GenericType<T> type) {
         WebTarget target = buildTarget(path, params);
-        return target.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE).async().get(type);
+        return async(callback -> target.request(MediaType.APPLICATION_JSON_TYPE).accept(MediaType.APPLICATION_JSON_TYPE).async().get(callback),
+                     response -> response.readEntity(type));
 
     }
 
@@ -511,9 +567,70 @@ public class JerseyRestClient {
      * @param returnType the class to return
      * @return a Future of type T
      */
-    public <T> Future<T> postAsync(String path, Object object, Class<T> returnType) {
+    public <T> CompletableFuture<T> postAsync(String path, Object object, Class<T> returnType) {
         WebTarget target = buildTarget(path, null);
-        return target.request().async().post(Entity.entity(object, MediaType.APPLICATION_JSON), returnType);
+        return async(callback -> target.request().async().post(Entity.entity(object, MediaType.APPLICATION_JSON), callback), response -> response.readEntity(returnType));
+    }
+
+    /**
+     * Sends an asynchronous request, waiting first for another request to complete if {@link JerseyClientConfig#getMaxAsyncRequests()} are already in progress.
+     *
+     * @param request sends the request notifying the supplied callback of the response
+     * @param reader  reads the entity of a successful response
+     * @return a Future of type T that fails with a {@link WebApplicationException} if the response is not successful
+     */
+    private <T> CompletableFuture<T> async(Function<InvocationCallback<Response>, Future<Response>> request, Function<Response, T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (asyncRequests != null) {
+            try {
+                asyncRequests.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return result;
+            }
+        }
+
+        try {
+            request.apply(new InvocationCallback<Response>() {
+                @Override
+                public void completed(Response response) {
+                    try {
+                        if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+                            try {
+                                result.complete(reader.apply(response));
+                            } finally {
+                                response.close();
+                            }
+                        } else {
+                            // read the entity to release the connection while keeping it available to the caller
+                            response.bufferEntity();
+                            result.completeExceptionally(new WebApplicationException(response));
+                        }
+                    } catch (Exception e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        releaseAsyncRequest();
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                    releaseAsyncRequest();
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            releaseAsyncRequest();
+        }
+        return result;
+    }
+
+    private void releaseAsyncRequest() {
+        if (asyncRequests != null) {
+            asyncRequests.release();
+        }
     }
 
     /**
@@ -546,5 +663,18 @@ public class JerseyRestClient {
         return obj;
     }
 
+    /**
+     * Reads the rest of a response after its entity is read.
+     *
+     * The Apache connector closes pooled connections instead of reusing them unless the whole response was read, which the JSON readers do not always do.
+     */
+    private static class ConsumeEntityInterceptor implements ReaderInterceptor {
 
+        @Override
+        public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+            Object entity = context.proceed();
+            ByteStreams.copy(context.getInputStream(), ByteStreams.nullOutputStream());
+            return entity;
+        }
+    }
 }
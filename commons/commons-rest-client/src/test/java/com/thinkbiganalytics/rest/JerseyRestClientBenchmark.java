@@ -0,0 +1,155 @@
+package com.thinkbiganalytics.rest;
+
+/*-
+ * #%L
+ * thinkbig-commons-rest-client
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the {@link JerseyRestClient} with and without connection pooling against a local HTTP stub.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=JerseyRestClientBenchmark}.
+ */
+public class JerseyRestClientBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(JerseyRestClientBenchmark.class);
+
+    private static final int REQUESTS = 2000;
+
+    private static final int MAX_ASYNC_REQUESTS = 16;
+
+    /**
+     * The time the stub takes to answer each request
+     */
+    private static final long LATENCY_MILLIS = 1;
+
+    private static final byte[] BODY = "{\"id\":\"1\",\"name\":\"benchmark\"}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The most requests the stub was answering at the same time
+     */
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    @Before
+    public void setup() throws IOException {
+        //the stub otherwise delays each response on a kept-alive connection until the client acknowledges its headers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newFixedThreadPool(64);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        for (boolean pooled : new boolean[]{false, true}) {
+            JerseyRestClient client = new JerseyRestClient(config(pooled));
+            //warm up the client before timing it
+            getSequential(client, 100);
+
+            long start = System.nanoTime();
+            getSequential(client, REQUESTS);
+            long sequential = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            maxInFlight.set(0);
+            start = System.nanoTime();
+            List<CompletableFuture<Map>> responses = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(client.getAsync("/entity", null, Map.class));
+                Assert.assertTrue(inFlight.get() <= MAX_ASYNC_REQUESTS);
+            }
+            CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get();
+            long async = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertTrue(maxInFlight.get() <= MAX_ASYNC_REQUESTS);
+
+            PoolStats stats = client.getConnectionPoolStats();
+            log.info("{} requests with {}: sequential {} ms, async {} ms with at most {} in flight, pool {}", REQUESTS, pooled ? "connection pooling" : "the default connector",
+                     sequential, async, maxInFlight.get(), stats);
+        }
+    }
+
+    private void getSequential(JerseyRestClient client, int requests) {
+        for (int i = 0; i < requests; i++) {
+            Assert.assertEquals("benchmark", client.get("/entity", null, Map.class).get("name"));
+        }
+    }
+
+    private JerseyClientConfig config(boolean pooled) {
+        JerseyClientConfig config = new JerseyClientConfig();
+        config.setHost("localhost");
+        config.setPort(server.getAddress().getPort());
+        config.setUseConnectionPooling(pooled);
+        config.setMaxConnectionsPerRoute(MAX_ASYNC_REQUESTS);
+        config.setMaxAsyncRequests(MAX_ASYNC_REQUESTS);
+        config.setConnectionRequestTimeout(10000);
+        return config;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
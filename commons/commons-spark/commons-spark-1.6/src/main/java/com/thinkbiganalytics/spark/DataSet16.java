@@ -21,6 +21,7 @@ package com.thinkbiganalytics.spark;
  */
 
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.DataFrame;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
@@ -58,6 +59,11 @@ public class DataSet16 implements DataSet {
         return new DataSet16(dataframe.drop(condition));
     }
 
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet16(dataframe.select(columns));
+    }
+
     @Override
     public DataSet toDF() {
         return new DataSet16(dataframe.toDF());
@@ -22,6 +22,7 @@ package com.thinkbiganalytics.spark;
 
 
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SaveMode;
@@ -59,6 +60,11 @@ public class DataSet20 implements DataSet {
         return new DataSet20(dataset.drop(condition));
     }
 
+    @Override
+    public DataSet select(Column... columns) {
+        return new DataSet20(dataset.select(columns));
+    }
+
     @Override
     public DataSet toDF() {
         return new DataSet20(dataset.toDF());
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.spark;
  */
 
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.StructType;
 
@@ -54,6 +55,14 @@ public interface DataSet {
      */
     DataSet drop(String condition);
 
+    /**
+     * Selects a set of column-based expressions.
+     *
+     * @param columns the column expressions
+     * @return the selected data set
+     */
+    DataSet select(Column... columns);
+
     /**
      * Converts this strongly-typed data set to a generic data set.
      *
@@ -38,6 +38,20 @@ public interface NifiFeedProcessorStatisticsProvider {
      */
     NifiFeedProcessorStats create(NifiFeedProcessorStats t);
 
+    /**
+     * Save new stats records and add them to the minute, hour and day rollups used when querying larger time frames
+     *
+     * @return the saved stats records
+     */
+    List<? extends NifiFeedProcessorStats> create(List<NifiFeedProcessorStats> stats);
+
+    /**
+     * Delete the stats records and rollups that are older than their configured retention
+     *
+     * @return the number of records deleted
+     */
+    int deleteExpiredStatistics();
+
     /**
      * find statistics within a given start and end time
      *
@@ -135,6 +149,10 @@ public interface NifiFeedProcessorStatisticsProvider {
             return displayName;
         }
 
+        public Long getMillis() {
+            return millis;
+        }
+
         public DateTime startTime() {
             return DateTime.now().minus(millis);
         }
@@ -20,7 +20,10 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
  * #L%
  */
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Striped;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.CaseBuilder;
@@ -50,11 +53,13 @@ import com.thinkbiganalytics.metadata.jpa.support.CommonFilterTranslations;
 import com.thinkbiganalytics.metadata.jpa.support.GenericQueryDslFilter;
 import com.thinkbiganalytics.metadata.jpa.support.QueryDslFetchJoin;
 import com.thinkbiganalytics.metadata.jpa.support.QueryDslPagingSupport;
+import com.thinkbiganalytics.metadata.jpa.support.TransactionLocks;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.support.FeedNameUtil;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.LockAcquisitionException;
 import org.joda.time.DateTime;
 import org.joda.time.ReadablePeriod;
 import org.slf4j.Logger;
@@ -68,6 +73,7 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -75,6 +81,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.persistence.OptimisticLockException;
@@ -90,6 +98,28 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     private static String PARAM_TB_JOB_TYPE = "tb.jobType";
 
+    /**
+     * The number of locks shared by the job flow files
+     */
+    private static final int JOB_FLOW_FILE_LOCK_STRIPES = 64;
+
+    /**
+     * Max time to wait for the lock of a job flow file before failing the event so it is retried
+     */
+    private static final long JOB_FLOW_FILE_LOCK_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Locks keyed by the job flow file id so events for the same job are applied one at a time while events for different jobs run in parallel
+     */
+    private final Striped<Lock> jobFlowFileLocks = Striped.lock(JOB_FLOW_FILE_LOCK_STRIPES);
+
+    /**
+     * The job execution id of the running jobs keyed by the job flow file id.
+     * The job execution is loaded by its id so events for a job already loaded in the current transaction do not query the database again.
+     * Jobs are removed when they finish.
+     */
+    private final Cache<String, Long> runningJobExecutionIds = CacheBuilder.newBuilder().maximumSize(10000).expireAfterAccess(1, TimeUnit.HOURS).build();
+
 
     @Autowired
     private JPAQueryFactory factory;
@@ -344,55 +374,117 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     }
 
     public JpaBatchJobExecution findJobExecution(ProvenanceEventRecordDTO event) {
-        return jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
+        return findJobExecutionByFlowFile(event.getJobFlowFileId());
+    }
+
+    /**
+     * Find the job execution for the job flow file, using the id of the running job if it is known
+     *
+     * @param jobFlowFileId the flow file that started the job
+     * @return the job execution, or null if there is not one
+     */
+    private JpaBatchJobExecution findJobExecutionByFlowFile(String jobFlowFileId) {
+        Long jobExecutionId = runningJobExecutionIds.getIfPresent(jobFlowFileId);
+        JpaBatchJobExecution jobExecution = jobExecutionId != null ? jobExecutionRepository.findOne(jobExecutionId) : null;
+        if (jobExecution == null) {
+            jobExecution = jobExecutionRepository.findByFlowFile(jobFlowFileId);
+            cacheRunningJob(jobFlowFileId, jobExecution);
+        } else if (jobExecution.isFinished()) {
+            runningJobExecutionIds.invalidate(jobFlowFileId);
+        }
+        return jobExecution;
+    }
+
+    private void cacheRunningJob(String jobFlowFileId, JpaBatchJobExecution jobExecution) {
+        if (jobExecution != null && jobExecution.getJobExecutionId() != null && !jobExecution.isFinished()) {
+            runningJobExecutionIds.put(jobFlowFileId, jobExecution.getJobExecutionId());
+        } else {
+            runningJobExecutionIds.invalidate(jobFlowFileId);
+        }
     }
 
 
     /**
      * Get or Create the JobExecution for a given ProvenanceEvent
+     *
+     * Events are locked by their job flow file.  When a new job execution is created the lock is held until the transaction completes so other threads will find the new job rather than
+     * create another one.
      */
     @Override
-    public synchronized JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
-        JpaBatchJobExecution jobExecution = null;
-        boolean isNew = false;
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
+        Lock lock = lockJobFlowFile(event.getJobFlowFileId());
+        boolean releaseLock = true;
         try {
-            jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
-            if (jobExecution == null) {
-                jobExecution = createNewJobExecution(event);
-                isNew = true;
+            JpaBatchJobExecution jobExecution = null;
+            boolean isNew = false;
+            try {
+                jobExecution = findJobExecutionByFlowFile(event.getJobFlowFileId());
+                if (jobExecution == null) {
+                    jobExecution = createNewJobExecution(event);
+                    isNew = true;
+                    releaseLock = !TransactionLocks.holdUntilTransactionCompletes(lock);
+                    //if the transaction rolls back the id will not be found and the job is looked up by its flow file again
+                    cacheRunningJob(event.getJobFlowFileId(), jobExecution);
+                }
+            } catch (OptimisticLockException e) {
+                //read
+                jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
             }
-        } catch (OptimisticLockException e) {
-            //read
-            jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
-        }
 
-        //if the attrs coming in change the type to a CHECK job then update the entity
-        boolean updatedJobType = updateJobType(jobExecution, event);
-        boolean save = isNew || updatedJobType;
-        if (event.isEndOfJob()) {
-            finishJob(event, jobExecution);
-            save = true;
-        }
-
-        //if the event is the start of the Job, but the job execution was created from another downstream event, ensure the start time and event are related correctly
-        if (event.isStartOfJob() && !isNew) {
-            jobExecution.getNifiEventJobExecution().setEventId(event.getEventId());
-            jobExecution.setStartTime(DateTimeUtil.convertToUTC(event.getEventTime()));
-            //create the job params
-            Map<String, Object> jobParameters = new HashMap<>();
-            if (event.isStartOfJob() && event.getAttributeMap() != null) {
-                jobParameters = new HashMap<>(event.getAttributeMap());
-            } else {
-                jobParameters = new HashMap<>();
+            //if the attrs coming in change the type to a CHECK job then update the entity
+            boolean updatedJobType = updateJobType(jobExecution, event);
+            boolean save = isNew || updatedJobType;
+            if (event.isEndOfJob()) {
+                finishJob(event, jobExecution);
+                save = true;
             }
 
-            this.jobParametersRepository.save(addJobParameters(jobExecution, jobParameters));
-            save = true;
+            //if the event is the start of the Job, but the job execution was created from another downstream event, ensure the start time and event are related correctly
+            if (event.isStartOfJob() && !isNew) {
+                jobExecution.getNifiEventJobExecution().setEventId(event.getEventId());
+                jobExecution.setStartTime(DateTimeUtil.convertToUTC(event.getEventTime()));
+                //create the job params
+                Map<String, Object> jobParameters = new HashMap<>();
+                if (event.isStartOfJob() && event.getAttributeMap() != null) {
+                    jobParameters = new HashMap<>(event.getAttributeMap());
+                } else {
+                    jobParameters = new HashMap<>();
+                }
+
+                this.jobParametersRepository.save(addJobParameters(jobExecution, jobParameters));
+                save = true;
+            }
+            if (save) {
+                jobExecutionRepository.save(jobExecution);
+            }
+            if (jobExecution.isFinished()) {
+                runningJobExecutionIds.invalidate(event.getJobFlowFileId());
+            }
+            return jobExecution;
+        } finally {
+            if (releaseLock) {
+                lock.unlock();
+            }
         }
-        if (save) {
-            jobExecutionRepository.save(jobExecution);
+    }
+
+    /**
+     * Creating the job without the lock could create it twice, so if the lock is not acquired in time a {@link LockAcquisitionException} is thrown for the caller to retry the event.
+     *
+     * @return the lock for the job flow file
+     */
+    private Lock lockJobFlowFile(String jobFlowFileId) {
+        Lock lock = jobFlowFileLocks.get(jobFlowFileId);
+        String message = "Unable to lock the job flow file " + jobFlowFileId + " after " + JOB_FLOW_FILE_LOCK_TIMEOUT_SECONDS + " seconds";
+        try {
+            if (lock.tryLock(JOB_FLOW_FILE_LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return lock;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            message = "Interrupted while locking the job flow file " + jobFlowFileId;
         }
-        return jobExecution;
+        throw new LockAcquisitionException(message, new SQLException(message));
     }
 
     @Override
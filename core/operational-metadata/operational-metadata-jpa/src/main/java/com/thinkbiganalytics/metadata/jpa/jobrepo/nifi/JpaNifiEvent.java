@@ -26,6 +26,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
 import org.hibernate.annotations.Parameter;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
+import org.springframework.data.domain.Persistable;
 
 import java.io.Serializable;
 
@@ -33,14 +34,19 @@ import javax.persistence.Column;
 import javax.persistence.Embeddable;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 /**
  * Entity to store the NiFi Provenance Events
+ *
+ * The primary key is assigned from the event so this is {@link Persistable} allowing new events to be inserted without first selecting them.
  */
 @Entity
 @Table(name = "NIFI_EVENT")
-public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
+public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent, Persistable<JpaNifiEvent.NiFiEventPK> {
 
     @Column(name = "CLUSTER_NODE_ID")
     protected String clusterNodeId;
@@ -103,6 +109,8 @@ public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
     private Long eventId;
     @Column(name = "FLOW_FILE_ID", insertable = false, updatable = false)
     private String flowFileId;
+    @Transient
+    private boolean isNew = true;
 
 
     public JpaNifiEvent() {
@@ -117,6 +125,22 @@ public class JpaNifiEvent extends AbstractAuditedEntity implements NifiEvent {
         this.eventPK = eventPK;
     }
 
+    @Override
+    public NiFiEventPK getId() {
+        return eventPK;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     @Override
     public Long getEventId() {
         return eventPK.getEventId();
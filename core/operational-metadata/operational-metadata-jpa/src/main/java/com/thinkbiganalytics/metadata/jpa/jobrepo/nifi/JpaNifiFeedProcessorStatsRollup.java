@@ -0,0 +1,322 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Persistable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Sum of the {@link JpaNifiFeedProcessorStats} for a feed and processor over a minute, hour or day.
+ *
+ * The id is derived from the resolution, bucket time, feed and processor so the rollup for a new stats record can be found by its primary key.  There is also a unique key on
+ * those columns, so two Kylo instances creating the same rollup cannot both insert it.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROCESSOR_STATS_ROLLUP",
+       uniqueConstraints = @UniqueConstraint(name = "NIFI_FEED_PROC_STATS_ROLLUP_UK1", columnNames = {"RESOLUTION", "BUCKET_TIME", "FM_FEED_NAME", "NIFI_PROCESSOR_ID"}))
+public class JpaNifiFeedProcessorStatsRollup implements Persistable<String> {
+
+    @Id
+    @Column(name = "id", unique = true)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "RESOLUTION", length = 10)
+    private Resolution resolution;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "BUCKET_TIME")
+    private DateTime bucketTime;
+
+    @Column(name = "FM_FEED_NAME")
+    private String feedName;
+
+    @Column(name = "NIFI_PROCESSOR_ID")
+    private String processorId;
+
+    @Column(name = "PROCESSOR_NAME")
+    private String processorName;
+
+    @Column(name = "NIFI_FEED_PROCESS_GROUP_ID")
+    private String feedProcessGroupId;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Column(name = "DURATION_MILLIS")
+    private Long duration = 0L;
+
+    @Column(name = "BYTES_IN")
+    private Long bytesIn = 0L;
+
+    @Column(name = "BYTES_OUT")
+    private Long bytesOut = 0L;
+
+    @Column(name = "TOTAL_EVENTS")
+    private Long totalCount = 0L;
+
+    @Column(name = "JOBS_STARTED")
+    private Long jobsStarted = 0L;
+
+    @Column(name = "JOBS_FINISHED")
+    private Long jobsFinished = 0L;
+
+    @Column(name = "JOBS_FAILED")
+    private Long jobsFailed = 0L;
+
+    @Column(name = "JOB_DURATION")
+    private Long jobDuration = 0L;
+
+    @Column(name = "SUCCESSFUL_JOB_DURATION")
+    private Long successfulJobDuration = 0L;
+
+    @Column(name = "PROCESSORS_FAILED")
+    private Long processorsFailed = 0L;
+
+    @Column(name = "FLOW_FILES_STARTED")
+    private Long flowFilesStarted = 0L;
+
+    @Column(name = "FLOW_FILES_FINISHED")
+    private Long flowFilesFinished = 0L;
+
+    @Column(name = "MAX_EVENT_ID")
+    private Long maxEventId = 0L;
+
+    /**
+     * The number of {@link JpaNifiFeedProcessorStats} records added to this rollup
+     */
+    @Column(name = "STATS_COUNT")
+    private Long statsCount = 0L;
+
+    @Transient
+    private boolean isNew = true;
+
+    public JpaNifiFeedProcessorStatsRollup() {
+
+    }
+
+    public JpaNifiFeedProcessorStatsRollup(Resolution resolution, NifiFeedProcessorStats stats) {
+        this.resolution = resolution;
+        this.bucketTime = resolution.bucketTime(stats.getMaxEventTime());
+        this.id = rollupId(resolution, bucketTime, stats.getFeedName(), stats.getProcessorId());
+        this.feedName = stats.getFeedName();
+        this.processorId = stats.getProcessorId();
+        this.feedProcessGroupId = stats.getFeedProcessGroupId();
+    }
+
+    /**
+     * @return the id of the rollup holding the stats record for the given resolution
+     */
+    public static String rollupId(Resolution resolution, NifiFeedProcessorStats stats) {
+        return rollupId(resolution, resolution.bucketTime(stats.getMaxEventTime()), stats.getFeedName(), stats.getProcessorId());
+    }
+
+    private static String rollupId(Resolution resolution, DateTime bucketTime, String feedName, String processorId) {
+        String key = resolution.name() + "|" + bucketTime.getMillis() + "|" + feedName + "|" + processorId;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Add the values of the stats record to this rollup
+     */
+    public void add(NifiFeedProcessorStats stats) {
+        if (stats.getProcessorName() != null) {
+            processorName = stats.getProcessorName();
+        }
+        if (stats.getMinEventTime() != null && (minEventTime == null || stats.getMinEventTime().isBefore(minEventTime))) {
+            minEventTime = stats.getMinEventTime();
+        }
+        if (maxEventTime == null || stats.getMaxEventTime().isAfter(maxEventTime)) {
+            maxEventTime = stats.getMaxEventTime();
+        }
+        duration = sum(duration, stats.getDuration());
+        bytesIn = sum(bytesIn, stats.getBytesIn());
+        bytesOut = sum(bytesOut, stats.getBytesOut());
+        totalCount = sum(totalCount, stats.getTotalCount());
+        jobsStarted = sum(jobsStarted, stats.getJobsStarted());
+        jobsFinished = sum(jobsFinished, stats.getJobsFinished());
+        jobsFailed = sum(jobsFailed, stats.getJobsFailed());
+        jobDuration = sum(jobDuration, stats.getJobDuration());
+        successfulJobDuration = sum(successfulJobDuration, stats.getSuccessfulJobDuration());
+        processorsFailed = sum(processorsFailed, stats.getProcessorsFailed());
+        flowFilesStarted = sum(flowFilesStarted, stats.getFlowFilesStarted());
+        flowFilesFinished = sum(flowFilesFinished, stats.getFlowFilesFinished());
+        if (stats.getMaxEventId() != null && (maxEventId == null || stats.getMaxEventId() > maxEventId)) {
+            maxEventId = stats.getMaxEventId();
+        }
+        statsCount = sum(statsCount, 1L);
+    }
+
+    private static Long sum(Long total, Long value) {
+        return (total != null ? total : 0L) + (value != null ? value : 0L);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public DateTime getBucketTime() {
+        return bucketTime;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public String getProcessorId() {
+        return processorId;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public String getFeedProcessGroupId() {
+        return feedProcessGroupId;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public Long getBytesIn() {
+        return bytesIn;
+    }
+
+    public Long getBytesOut() {
+        return bytesOut;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public Long getJobsStarted() {
+        return jobsStarted;
+    }
+
+    public Long getJobsFinished() {
+        return jobsFinished;
+    }
+
+    public Long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    public Long getJobDuration() {
+        return jobDuration;
+    }
+
+    public Long getSuccessfulJobDuration() {
+        return successfulJobDuration;
+    }
+
+    public Long getProcessorsFailed() {
+        return processorsFailed;
+    }
+
+    public Long getFlowFilesStarted() {
+        return flowFilesStarted;
+    }
+
+    public Long getFlowFilesFinished() {
+        return flowFilesFinished;
+    }
+
+    public Long getMaxEventId() {
+        return maxEventId;
+    }
+
+    public Long getStatsCount() {
+        return statsCount;
+    }
+
+    /**
+     * The length of time summed by each rollup
+     */
+    public enum Resolution {
+        MINUTE(1000L * 60), HOUR(MINUTE.millis * 60), DAY(HOUR.millis * 24);
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return the start of the bucket holding the time
+         */
+        public DateTime bucketTime(DateTime time) {
+            long millis = time.getMillis();
+            return new DateTime(millis - Math.floorMod(millis, this.millis));
+        }
+    }
+}
@@ -29,12 +29,24 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
  * Provider creating and accessing the {@link JpaNifiEvent}
  */
 @Service
 public class NifiEventProvider {
 
+    /**
+     * The max number of event ids to put in a single IN clause when checking for existing events
+     */
+    private static final int EXISTS_QUERY_BATCH_SIZE = 500;
+
     @Autowired
     private JPAQueryFactory factory;
 
@@ -82,8 +94,36 @@ public class NifiEventProvider {
         return this.create(toNifiEvent(t));
     }
 
+    /**
+     * Create the events.  The inserts are sent to the database in JDBC batches when the transaction is flushed
+     */
+    public List<? extends NifiEvent> create(List<ProvenanceEventRecordDTO> events) {
+        return repository.save(events.stream().map(event -> (JpaNifiEvent) toNifiEvent(event)).collect(Collectors.toList()));
+    }
+
     public boolean exists(ProvenanceEventRecordDTO eventRecordDTO) {
         return repository.exists(new JpaNifiEvent.NiFiEventPK(eventRecordDTO.getEventId(), eventRecordDTO.getFlowFileUuid()));
     }
 
+    /**
+     * Find the events that have not already been saved using a query per {@link #EXISTS_QUERY_BATCH_SIZE} events rather than a query for each event
+     *
+     * @param events the events to check
+     * @return the events that are not yet saved, in the order they were given
+     */
+    public List<ProvenanceEventRecordDTO> findNewEvents(Collection<ProvenanceEventRecordDTO> events) {
+        List<Long> eventIds = events.stream().map(ProvenanceEventRecordDTO::getEventId).distinct().collect(Collectors.toList());
+        Set<JpaNifiEvent.NiFiEventPK> existing = new HashSet<>();
+        for (int i = 0; i < eventIds.size(); i += EXISTS_QUERY_BATCH_SIZE) {
+            existing.addAll(repository.findEventPKs(eventIds.subList(i, Math.min(eventIds.size(), i + EXISTS_QUERY_BATCH_SIZE))));
+        }
+        List<ProvenanceEventRecordDTO> newEvents = new ArrayList<>(events.size());
+        for (ProvenanceEventRecordDTO event : events) {
+            if (!existing.contains(new JpaNifiEvent.NiFiEventPK(event.getEventId(), event.getFlowFileUuid()))) {
+                newEvents.add(event);
+            }
+        }
+        return newEvents;
+    }
+
 }
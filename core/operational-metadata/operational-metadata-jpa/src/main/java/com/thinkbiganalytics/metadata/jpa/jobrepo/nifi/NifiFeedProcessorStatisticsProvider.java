@@ -21,42 +21,218 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  */
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Resolution;
+import com.thinkbiganalytics.metadata.jpa.support.TransactionLocks;
 
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Provider for accessing the statstics for a feed and processor
+ *
+ * New stats are added to minute, hour and day rollups as they are saved.  Queries over larger time ranges use the coarsest rollup that still has enough buckets
+ * for the range rather than aggregating the raw stats.
  */
 @Service
 public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider {
 
+    private static final Logger log = LoggerFactory.getLogger(NifiFeedProcessorStatisticsProvider.class);
+
+    /**
+     * A rollup is only used for a time range covering at least this many of its buckets
+     */
+    private static final int MIN_ROLLUP_BUCKETS = 60;
+
+    /**
+     * The number of locks shared by the rollups
+     */
+    private static final int ROLLUP_LOCK_STRIPES = 64;
+
+    /**
+     * Locks keyed by the rollup id so concurrent stats messages do not overwrite each others updates to the same rollup
+     */
+    private final Striped<Lock> rollupLocks = Striped.lock(ROLLUP_LOCK_STRIPES);
+
     @Autowired
     private JPAQueryFactory factory;
 
+    /**
+     * Days to keep the stats records. 0 keeps them forever, which is the default as they were never deleted before the rollups
+     */
+    @Value("${kylo.ops.mgr.stats.retention.raw.days:0}")
+    private int rawRetentionDays;
+
+    /**
+     * Days to keep the minute rollups. 0 keeps them forever
+     */
+    @Value("${kylo.ops.mgr.stats.retention.minute.days:7}")
+    private int minuteRetentionDays;
+
+    /**
+     * Days to keep the hour rollups. 0 keeps them forever
+     */
+    @Value("${kylo.ops.mgr.stats.retention.hour.days:90}")
+    private int hourRetentionDays;
+
+    /**
+     * Days to keep the day rollups. 0 keeps them forever
+     */
+    @Value("${kylo.ops.mgr.stats.retention.day.days:0}")
+    private int dayRetentionDays;
+
     private NifiFeedProcessorStatisticsRepository statisticsRepository;
 
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
     private NifiEventRepository nifiEventRepository;
 
     @Autowired
-    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository) {
+    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiFeedProcessorStatsRollupRepository rollupRepository,
+                                               NifiEventRepository nifiEventRepository) {
         this.statisticsRepository = repository;
+        this.rollupRepository = rollupRepository;
         this.nifiEventRepository = nifiEventRepository;
     }
 
 
     @Override
     public NifiFeedProcessorStats create(NifiFeedProcessorStats t) {
-        return statisticsRepository.save((JpaNifiFeedProcessorStats) t);
+        return create(Collections.singletonList(t)).get(0);
+    }
+
+    @Override
+    public List<? extends JpaNifiFeedProcessorStats> create(List<NifiFeedProcessorStats> stats) {
+        List<JpaNifiFeedProcessorStats> saved = new ArrayList<>(stats.size());
+        for (NifiFeedProcessorStats stat : stats) {
+            saved.add((JpaNifiFeedProcessorStats) stat);
+        }
+        saved = statisticsRepository.save(saved);
+        rollup(saved);
+        return saved;
+    }
+
+    /**
+     * Add the stats to the minute, hour and day rollups.
+     * The rollups are locked until the transaction completes so updates from other threads are applied after this one is committed.  The striped locks only cover this
+     * JVM so the existing rollup rows are also locked in the database.  If another Kylo instance inserts a new rollup first, the unique key on the rollup fails this
+     * transaction and the stats should be saved again.
+     */
+    private void rollup(List<? extends NifiFeedProcessorStats> stats) {
+        Map<String, List<NifiFeedProcessorStats>> statsByRollup = new LinkedHashMap<>();
+        Map<String, JpaNifiFeedProcessorStatsRollup> rollups = new LinkedHashMap<>();
+        for (NifiFeedProcessorStats stat : stats) {
+            if (stat.getMaxEventTime() == null) {
+                continue;
+            }
+            for (Resolution resolution : Resolution.values()) {
+                String id = JpaNifiFeedProcessorStatsRollup.rollupId(resolution, stat);
+                statsByRollup.computeIfAbsent(id, rollupId -> new ArrayList<>()).add(stat);
+                rollups.computeIfAbsent(id, rollupId -> new JpaNifiFeedProcessorStatsRollup(resolution, stat));
+            }
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        //the locks are returned in a consistent order so threads locking overlapping rollups do not deadlock
+        List<Lock> locks = new ArrayList<>();
+        for (Lock lock : rollupLocks.bulkGet(rollups.keySet())) {
+            lock.lock();
+            locks.add(lock);
+        }
+        boolean releaseLocks = !TransactionLocks.holdUntilTransactionCompletes(locks);
+        try {
+            for (JpaNifiFeedProcessorStatsRollup existing : rollupRepository.findAllForUpdate(rollups.keySet())) {
+                rollups.put(existing.getId(), existing);
+            }
+            rollups.forEach((id, rollup) -> statsByRollup.get(id).forEach(rollup::add));
+            rollupRepository.save(rollups.values());
+        } finally {
+            if (releaseLocks) {
+                locks.forEach(Lock::unlock);
+            }
+        }
+    }
+
+    @Override
+    public int deleteExpiredStatistics() {
+        int deleted = 0;
+        DateTime now = DateTime.now();
+        if (rawRetentionDays > 0) {
+            //keep the latest stats for each cluster node as they hold the max event id processed by that node
+            List<Long> keepEventIds = new ArrayList<>(statisticsRepository.findMaxEventIdByClusterNode());
+            keepEventIds.removeIf(eventId -> eventId == null);
+            if (keepEventIds.isEmpty()) {
+                keepEventIds.add(-1L);
+            }
+            deleted += statisticsRepository.deleteBefore(now.minusDays(rawRetentionDays), keepEventIds);
+        }
+        for (Resolution resolution : Resolution.values()) {
+            int retentionDays = getRetentionDays(resolution);
+            if (retentionDays > 0) {
+                deleted += rollupRepository.deleteBefore(resolution, resolution.bucketTime(now.minusDays(retentionDays)));
+            }
+        }
+        log.info("Deleted {} expired feed processor statistics", deleted);
+        return deleted;
+    }
+
+    private int getRetentionDays(Resolution resolution) {
+        switch (resolution) {
+            case MINUTE:
+                return minuteRetentionDays;
+            case HOUR:
+                return hourRetentionDays;
+            default:
+                return dayRetentionDays;
+        }
+    }
+
+    private boolean isRetained(DateTime time, int retentionDays) {
+        return retentionDays <= 0 || !time.isBefore(DateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * Find the rollup to query for the time range.
+     * This is the coarsest rollup with at least {@link #MIN_ROLLUP_BUCKETS} buckets in the range that has not been purged.
+     *
+     * @return the rollup resolution, or null to query the stats records
+     */
+    Resolution getResolution(DateTime start, DateTime end) {
+        long range = end.getMillis() - start.getMillis();
+        for (Resolution resolution : new Resolution[]{Resolution.DAY, Resolution.HOUR, Resolution.MINUTE}) {
+            if (range / resolution.getMillis() >= MIN_ROLLUP_BUCKETS && isRetained(resolution.bucketTime(start), getRetentionDays(resolution))) {
+                return resolution;
+            }
+        }
+        if (isRetained(start, rawRetentionDays)) {
+            return null;
+        }
+        //the stats records have been purged for part of the range so use the finest rollup that has not
+        for (Resolution resolution : Resolution.values()) {
+            if (isRetained(resolution.bucketTime(start), getRetentionDays(resolution))) {
+                return resolution;
+            }
+        }
+        return Resolution.DAY;
     }
 
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, TimeFrame timeFrame) {
@@ -99,6 +275,16 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     }
 
 
+    /**
+     * Rollups for the feed with buckets overlapping the start and end times
+     */
+    private Predicate withinRollup(QJpaNifiFeedProcessorStatsRollup rollup, String feedName, Resolution resolution, DateTime start, DateTime end) {
+        return rollup.feedName.eq(feedName)
+            .and(rollup.resolution.eq(resolution))
+            .and(rollup.bucketTime.goe(resolution.bucketTime(start)))
+            .and(rollup.bucketTime.loe(end));
+    }
+
     /**
      * Find stats for a given feed between the two dates not grouped
      */
@@ -114,6 +300,26 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = getResolution(start, end);
+        if (resolution != null) {
+            QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+            JPAQuery
+                query = factory.select(
+                Projections.bean(JpaNifiFeedProcessorStats.class,
+                                 rollup.feedName, rollup.processorId, rollup.processorName,
+                                 rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                                 rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                                 rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                                 rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                                 rollup.statsCount.sum().as("resultSetCount"))
+            )
+                .from(rollup)
+                .where(withinRollup(rollup, feedName, resolution, start, end))
+                .groupBy(rollup.feedName, rollup.processorId, rollup.processorName)
+                .orderBy(rollup.processorName.asc());
+
+            return (List<JpaNifiFeedProcessorStats>) query.fetch();
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         JPAQuery
             query = factory.select(
@@ -138,6 +344,26 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = getResolution(start, end);
+        if (resolution != null) {
+            QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+            JPAQuery
+                query = factory.select(
+                Projections.bean(JpaNifiFeedProcessorStats.class,
+                                 rollup.feedName, rollup.processorName,
+                                 rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                                 rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                                 rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                                 rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                                 rollup.statsCount.sum().as("resultSetCount"))
+            )
+                .from(rollup)
+                .where(withinRollup(rollup, feedName, resolution, start, end))
+                .groupBy(rollup.feedName, rollup.processorName)
+                .orderBy(rollup.processorName.asc());
+
+            return (List<JpaNifiFeedProcessorStats>) query.fetch();
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         JPAQuery
             query = factory.select(
@@ -160,6 +386,27 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
     }
 
     public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
+        Resolution resolution = getResolution(start, end);
+        if (resolution != null) {
+            QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+            JPAQuery
+                query = factory.select(
+                Projections.bean(JpaNifiFeedProcessorStats.class,
+                                 rollup.feedName,
+                                 rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                                 rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                                 rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"),
+                                 rollup.bucketTime.as("maxEventTime"),
+                                 rollup.jobsFailed.sum().as("jobsFailed"), rollup.totalCount.sum().as("totalCount"),
+                                 rollup.statsCount.sum().as("resultSetCount"))
+            )
+                .from(rollup)
+                .where(withinRollup(rollup, feedName, resolution, start, end))
+                .groupBy(rollup.feedName, rollup.bucketTime)
+                .orderBy(rollup.bucketTime.asc());
+
+            return (List<JpaNifiFeedProcessorStats>) query.fetch();
+        }
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         JPAQuery
             query = factory.select(
@@ -22,6 +22,7 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
 
 import org.joda.time.DateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
@@ -42,4 +43,11 @@ public interface NifiFeedProcessorStatisticsRepository extends JpaRepository<Jpa
     @Query(value = "select max(stats.maxEventId) from JpaNifiFeedProcessorStats as stats where stats.clusterNodeId = :clusterNodeId")
     Long findMaxEventId(@Param("clusterNodeId") String clusterNodeId);
 
+    @Query(value = "select max(stats.maxEventId) from JpaNifiFeedProcessorStats as stats group by stats.clusterNodeId")
+    List<Long> findMaxEventIdByClusterNode();
+
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStats as stats where stats.maxEventTime < :maxEventTime and (stats.maxEventId is null or stats.maxEventId not in (:keepEventIds))")
+    int deleteBefore(@Param("maxEventTime") DateTime maxEventTime, @Param("keepEventIds") List<Long> keepEventIds);
+
 }
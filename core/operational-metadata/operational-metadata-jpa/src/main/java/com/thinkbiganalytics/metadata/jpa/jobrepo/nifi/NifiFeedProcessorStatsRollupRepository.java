@@ -0,0 +1,53 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring data repository for {@link JpaNifiFeedProcessorStatsRollup}
+ */
+public interface NifiFeedProcessorStatsRollupRepository extends JpaRepository<JpaNifiFeedProcessorStatsRollup, String>, QueryDslPredicateExecutor<JpaNifiFeedProcessorStatsRollup> {
+
+    /**
+     * Find the rollups and lock them until the transaction completes so concurrent updates from other Kylo instances wait for this one.
+     * The rollups are locked in order of their id to avoid deadlocks.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select rollup from JpaNifiFeedProcessorStatsRollup as rollup where rollup.id in :ids order by rollup.id")
+    List<JpaNifiFeedProcessorStatsRollup> findAllForUpdate(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Query(value = "delete from JpaNifiFeedProcessorStatsRollup as rollup where rollup.resolution = :resolution and rollup.bucketTime < :bucketTime")
+    int deleteBefore(@Param("resolution") JpaNifiFeedProcessorStatsRollup.Resolution resolution, @Param("bucketTime") DateTime bucketTime);
+
+}
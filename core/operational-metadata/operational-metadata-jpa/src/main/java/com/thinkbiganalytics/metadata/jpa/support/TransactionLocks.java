@@ -0,0 +1,64 @@
+package com.thinkbiganalytics.metadata.jpa.support;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Helper class to hold locks until the current transaction completes, so other threads only see the changes made under the locks once they are committed
+ */
+public class TransactionLocks {
+
+    private TransactionLocks() {
+    }
+
+    /**
+     * Release the lock when the current transaction completes
+     *
+     * @return true if the lock will be released by the transaction, false if there is no transaction
+     */
+    public static boolean holdUntilTransactionCompletes(Lock lock) {
+        return holdUntilTransactionCompletes(Collections.singletonList(lock));
+    }
+
+    /**
+     * Release the locks when the current transaction completes
+     *
+     * @return true if the locks will be released by the transaction, false if there is no transaction
+     */
+    public static boolean holdUntilTransactionCompletes(Collection<? extends Lock> locks) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    locks.forEach(Lock::unlock);
+                }
+            });
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,159 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobExecutionRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobInstanceRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobParametersRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiRelatedRootFlowFilesRepository;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the jobs per second created by the {@link JpaBatchJobExecutionProvider} for 1, 4 and 8 concurrent feeds, with a simulated latency for each database call.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=JpaBatchJobExecutionProviderBenchmark}.
+ */
+public class JpaBatchJobExecutionProviderBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaBatchJobExecutionProviderBenchmark.class);
+
+    /**
+     * Simulated time for each database call
+     */
+    private static final long DB_LATENCY_MILLIS = 5L;
+
+    private static final int JOBS_PER_FEED = 20;
+
+    private static final int[] FEEDS = {1, 4, 8};
+
+    private final Map<String, JpaBatchJobExecution> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger jobsCreated = new AtomicInteger();
+
+    private final AtomicLong jobExecutionIds = new AtomicLong();
+
+    @Test
+    public void benchmark() throws Exception {
+        // Warm up before measuring
+        run(FEEDS[FEEDS.length - 1]);
+        for (int feeds : FEEDS) {
+            long elapsedMillis = run(feeds);
+            log.info(String.format("%d concurrent feeds: created %d jobs in %,d ms (%,d jobs/sec)", feeds, jobsCreated.get(), elapsedMillis, jobsCreated.get() * 1000L / elapsedMillis));
+        }
+    }
+
+    /**
+     * Creates {@link #JOBS_PER_FEED} jobs for each feed, with a thread per feed
+     *
+     * @return the elapsed milliseconds
+     */
+    private long run(int feeds) throws Exception {
+        JpaBatchJobExecutionProvider provider = createProvider();
+        jobs.clear();
+        jobsCreated.set(0);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(feeds);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < feeds; t++) {
+                final String feed = "feed-" + t;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < JOBS_PER_FEED; i++) {
+                        provider.getOrCreateJobExecution(event(feed + "-job-" + i, i));
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedMillis = Math.max(1L, (System.nanoTime() - startNanos) / 1000000L);
+
+            Assert.assertEquals(feeds * JOBS_PER_FEED, jobsCreated.get());
+            return elapsedMillis;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a provider with repositories that keep the jobs in memory and sleep for {@link #DB_LATENCY_MILLIS} on each call
+     */
+    private JpaBatchJobExecutionProvider createProvider() {
+        BatchJobExecutionRepository jobExecutionRepository = Mockito.mock(BatchJobExecutionRepository.class);
+        Map<Long, JpaBatchJobExecution> jobsById = new ConcurrentHashMap<>();
+        Mockito.when(jobExecutionRepository.findByFlowFile(Mockito.anyString())).thenAnswer(invocation -> {
+            Thread.sleep(DB_LATENCY_MILLIS);
+            return jobs.get((String) invocation.getArguments()[0]);
+        });
+        Mockito.when(jobExecutionRepository.save(Mockito.any(JpaBatchJobExecution.class))).thenAnswer(invocation -> {
+            Thread.sleep(DB_LATENCY_MILLIS);
+            JpaBatchJobExecution jobExecution = (JpaBatchJobExecution) invocation.getArguments()[0];
+            if (jobExecution.getJobExecutionId() == null) {
+                ReflectionTestUtils.setField(jobExecution, "jobExecutionId", jobExecutionIds.incrementAndGet());
+                jobsCreated.incrementAndGet();
+            }
+            jobs.put(jobExecution.getNifiEventJobExecution().getFlowFileId(), jobExecution);
+            jobsById.put(jobExecution.getJobExecutionId(), jobExecution);
+            return jobExecution;
+        });
+        Mockito.when(jobExecutionRepository.findOne(Mockito.anyLong())).thenAnswer(invocation -> jobsById.get((Long) invocation.getArguments()[0]));
+
+        return new JpaBatchJobExecutionProvider(jobExecutionRepository, Mockito.mock(BatchJobInstanceRepository.class), Mockito.mock(NifiRelatedRootFlowFilesRepository.class),
+                                                Mockito.mock(BatchJobParametersRepository.class), Mockito.mock(OpsManagerFeedRepository.class));
+    }
+
+    private ProvenanceEventRecordDTO event(String jobFlowFileId, long eventId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setFeedName("category.feed");
+        event.setEventTime(DateTime.now());
+        return event;
+    }
+}
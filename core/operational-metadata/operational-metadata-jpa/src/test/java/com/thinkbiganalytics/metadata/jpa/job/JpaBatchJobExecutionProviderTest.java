@@ -0,0 +1,263 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.Striped;
+import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobExecutionRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobInstanceRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobParametersRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiRelatedRootFlowFilesRepository;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+
+/**
+ * Checks job executions are created once per job flow file, events for the same job are applied one at a time, and jobs for different feeds are created in parallel
+ */
+public class JpaBatchJobExecutionProviderTest {
+
+    /**
+     * Simulated time for each database call
+     */
+    private static final long DB_LATENCY_MILLIS = 5L;
+
+    /**
+     * Max time to wait for another thread before failing the test
+     */
+    private static final long LATCH_TIMEOUT_SECONDS = 10L;
+
+    @Mock
+    private BatchJobExecutionRepository jobExecutionRepository;
+
+    @Mock
+    private BatchJobInstanceRepository jobInstanceRepository;
+
+    @Mock
+    private NifiRelatedRootFlowFilesRepository relatedRootFlowFilesRepository;
+
+    @Mock
+    private BatchJobParametersRepository jobParametersRepository;
+
+    @Mock
+    private OpsManagerFeedRepository opsManagerFeedRepository;
+
+    private JpaBatchJobExecutionProvider provider;
+
+    private final Map<String, JpaBatchJobExecution> jobs = new ConcurrentHashMap<>();
+
+    private final Map<Long, JpaBatchJobExecution> jobsById = new ConcurrentHashMap<>();
+
+    private final AtomicInteger jobsCreated = new AtomicInteger();
+
+    private final AtomicLong jobExecutionIds = new AtomicLong();
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        provider = new JpaBatchJobExecutionProvider(jobExecutionRepository, jobInstanceRepository, relatedRootFlowFilesRepository, jobParametersRepository, opsManagerFeedRepository);
+        Mockito.when(jobExecutionRepository.findByFlowFile(Mockito.anyString())).thenAnswer(invocation -> {
+            Thread.sleep(DB_LATENCY_MILLIS);
+            return jobs.get((String) invocation.getArguments()[0]);
+        });
+        Mockito.when(jobExecutionRepository.save(Mockito.any(JpaBatchJobExecution.class))).thenAnswer(invocation -> {
+            Thread.sleep(DB_LATENCY_MILLIS);
+            JpaBatchJobExecution jobExecution = (JpaBatchJobExecution) invocation.getArguments()[0];
+            if (jobExecution.getJobExecutionId() == null) {
+                ReflectionTestUtils.setField(jobExecution, "jobExecutionId", jobExecutionIds.incrementAndGet());
+                jobsCreated.incrementAndGet();
+            }
+            jobs.put(jobExecution.getNifiEventJobExecution().getFlowFileId(), jobExecution);
+            jobsById.put(jobExecution.getJobExecutionId(), jobExecution);
+            return jobExecution;
+        });
+        Mockito.when(jobExecutionRepository.findOne(Mockito.anyLong())).thenAnswer(invocation -> jobsById.get((Long) invocation.getArguments()[0]));
+    }
+
+    @Test
+    public void testRunningJobIsCached() {
+        for (int i = 0; i < 10; i++) {
+            provider.getOrCreateJobExecution(event("running-job", i));
+        }
+        Mockito.verify(jobExecutionRepository, Mockito.times(1)).findByFlowFile("running-job");
+        Assert.assertEquals(1, jobsCreated.get());
+
+        //finishing the job removes it from the cache
+        ProvenanceEventRecordDTO endOfJob = event("running-job", 10);
+        endOfJob.setIsEndOfJob(true);
+        Assert.assertTrue(provider.getOrCreateJobExecution(endOfJob).isFinished());
+        provider.getOrCreateJobExecution(event("running-job", 11));
+        Mockito.verify(jobExecutionRepository, Mockito.times(2)).findByFlowFile("running-job");
+
+        //a cached job that no longer exists is looked up again
+        provider.getOrCreateJobExecution(event("removed-job", 0));
+        jobsById.clear();
+        jobs.clear();
+        provider.getOrCreateJobExecution(event("removed-job", 1));
+        Assert.assertEquals(3, jobsCreated.get());
+    }
+
+    @Test
+    public void testJobIsCreatedOnce() throws Exception {
+        int threads = 8;
+        runConcurrently(threads, 20, thread -> "same-job-flow-file");
+        Assert.assertEquals(1, jobsCreated.get());
+    }
+
+    /**
+     * Jobs for different feeds are looked up in the repository at the same time
+     */
+    @Test
+    public void testConcurrentFeeds() throws Exception {
+        String feed1Job = "feed1-job";
+        String feed2Job = jobWithDifferentLock(feed1Job);
+        CountDownLatch bothInside = new CountDownLatch(2);
+        Mockito.doAnswer(invocation -> {
+            bothInside.countDown();
+            if (!bothInside.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Jobs for different feeds were not created in parallel");
+            }
+            return jobs.get((String) invocation.getArguments()[0]);
+        }).when(jobExecutionRepository).findByFlowFile(Mockito.anyString());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<JpaBatchJobExecution> feed1 = executorService.submit(() -> provider.getOrCreateJobExecution(event(feed1Job, 0)));
+            Future<JpaBatchJobExecution> feed2 = executorService.submit(() -> provider.getOrCreateJobExecution(event(feed2Job, 0)));
+            Assert.assertNotEquals(feed1.get().getJobExecutionId(), feed2.get().getJobExecutionId());
+            Assert.assertEquals(2, jobsCreated.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * A second event for the same job waits while the first one is inside the provider
+     */
+    @Test
+    public void testSameJobIsSerialized() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        CountDownLatch firstInside = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            try {
+                firstInside.countDown();
+                releaseFirst.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return jobs.get((String) invocation.getArguments()[0]);
+            } finally {
+                inside.decrementAndGet();
+            }
+        }).when(jobExecutionRepository).findByFlowFile(Mockito.anyString());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<JpaBatchJobExecution> first = executorService.submit(() -> provider.getOrCreateJobExecution(event("feed-job", 0)));
+            Assert.assertTrue(firstInside.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Future<JpaBatchJobExecution> second = executorService.submit(() -> provider.getOrCreateJobExecution(event("feed-job", 1)));
+            try {
+                second.get(200, TimeUnit.MILLISECONDS);
+                Assert.fail("The second event for the job was not blocked by the first");
+            } catch (TimeoutException e) {
+                //expected
+            }
+            releaseFirst.countDown();
+            Assert.assertEquals(first.get().getJobExecutionId(), second.get().getJobExecutionId());
+            Assert.assertEquals(1, maxInside.get());
+            Assert.assertEquals(1, jobsCreated.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds a job flow file id that does not share a lock stripe with the given one, so the jobs can only block each other if the provider serializes them
+     */
+    @SuppressWarnings("unchecked")
+    private String jobWithDifferentLock(String jobFlowFileId) {
+        Striped<Lock> locks = (Striped<Lock>) ReflectionTestUtils.getField(provider, "jobFlowFileLocks");
+        for (int i = 0; ; i++) {
+            String candidate = "feed2-job-" + i;
+            if (locks.get(candidate) != locks.get(jobFlowFileId)) {
+                return candidate;
+            }
+        }
+    }
+
+    private void runConcurrently(int threads, int eventsPerThread, IntFunction<String> jobFlowFileId) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        provider.getOrCreateJobExecution(event(jobFlowFileId.apply(thread), i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ProvenanceEventRecordDTO event(String jobFlowFileId, long eventId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFlowFileUuid(jobFlowFileId);
+        event.setFeedName("category.feed");
+        event.setEventTime(DateTime.now());
+        return event;
+    }
+}
@@ -0,0 +1,142 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.Resolution;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties", properties = "kylo.ops.mgr.stats.retention.raw.days=7")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class NifiFeedProcessorStatisticsProviderTest {
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider statisticsProvider;
+
+    @Inject
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Test
+    public void testResolution() {
+        DateTime now = DateTime.now();
+        Assert.assertNull(statisticsProvider.getResolution(now.minusMinutes(30), now));
+        Assert.assertEquals(Resolution.MINUTE, statisticsProvider.getResolution(now.minusHours(1), now));
+        Assert.assertEquals(Resolution.MINUTE, statisticsProvider.getResolution(now.minusDays(1), now));
+        Assert.assertEquals(Resolution.HOUR, statisticsProvider.getResolution(now.minusDays(7), now));
+        Assert.assertEquals(Resolution.HOUR, statisticsProvider.getResolution(now.minusDays(30), now));
+        Assert.assertEquals(Resolution.DAY, statisticsProvider.getResolution(now.minusDays(365), now));
+
+        //the stats records are purged after 7 days so a short range before that uses the minute rollups, then the hour rollups
+        Assert.assertEquals(Resolution.HOUR, statisticsProvider.getResolution(now.minusDays(10), now.minusDays(10).plusMinutes(30)));
+        Assert.assertEquals(Resolution.DAY, statisticsProvider.getResolution(now.minusDays(100), now.minusDays(100).plusHours(1)));
+    }
+
+    @Test
+    public void testRollups() {
+        String feedName = "rollup.feed";
+        DateTime hour = Resolution.HOUR.bucketTime(DateTime.now().minusDays(2));
+        metadataAccess.commit(() -> {
+            List<NifiFeedProcessorStats> stats = new ArrayList<>();
+            stats.add(stats(feedName, "processor-1", hour.plusMinutes(1), 10L));
+            stats.add(stats(feedName, "processor-1", hour.plusMinutes(1).plusSeconds(30), 20L));
+            stats.add(stats(feedName, "processor-2", hour.plusMinutes(2), 30L));
+            return statisticsProvider.create(stats);
+        }, MetadataAccess.SERVICE);
+        metadataAccess.commit(() -> statisticsProvider.create(stats(feedName, "processor-1", hour.plusHours(1), 40L)), MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            String minuteRollup = JpaNifiFeedProcessorStatsRollup.rollupId(Resolution.MINUTE, stats(feedName, "processor-1", hour.plusMinutes(1), 0L));
+            JpaNifiFeedProcessorStatsRollup rollup = rollupRepository.findOne(minuteRollup);
+            Assert.assertEquals(Long.valueOf(30L), rollup.getBytesIn());
+            Assert.assertEquals(Long.valueOf(2L), rollup.getStatsCount());
+            Assert.assertEquals(hour.plusMinutes(1).getMillis(), rollup.getBucketTime().getMillis());
+
+            //a week is queried by the hour
+            List<? extends JpaNifiFeedProcessorStats> byTime = statisticsProvider.findForFeedStatisticsGroupedByTime(feedName, DateTime.now().minusDays(7), DateTime.now());
+            Assert.assertEquals(2, byTime.size());
+            Assert.assertEquals(Long.valueOf(60L), byTime.get(0).getBytesIn());
+            Assert.assertEquals(Long.valueOf(40L), byTime.get(1).getBytesIn());
+
+            List<? extends JpaNifiFeedProcessorStats> byProcessor = statisticsProvider.findFeedProcessorStatisticsByProcessorId(feedName, DateTime.now().minusDays(7), DateTime.now());
+            Assert.assertEquals(2, byProcessor.size());
+            Assert.assertEquals(Long.valueOf(70L), byProcessor.get(0).getBytesIn());
+            Assert.assertEquals(Long.valueOf(30L), byProcessor.get(1).getBytesIn());
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    @Test
+    public void testDeleteExpiredStatistics() {
+        String feedName = "retention.feed";
+        DateTime expired = DateTime.now().minusDays(30);
+        NifiFeedProcessorStats expiredStats = stats(feedName, "processor-1", expired, 10L);
+        expiredStats.setMaxEventId(1L);
+        NifiFeedProcessorStats latestStats = stats(feedName, "processor-1", expired.plusMinutes(1), 10L);
+        latestStats.setMaxEventId(2L);
+        metadataAccess.commit(() -> {
+            List<NifiFeedProcessorStats> stats = new ArrayList<>();
+            stats.add(expiredStats);
+            stats.add(latestStats);
+            return statisticsProvider.create(stats);
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.commit(() -> statisticsProvider.deleteExpiredStatistics(), MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            //the stats holding the max event id are kept
+            Assert.assertEquals(Long.valueOf(2L), statisticsProvider.findMaxEventId());
+            Assert.assertTrue(statisticsProvider.findWithinTimeWindow(expired.minusMinutes(1), expired.plusMinutes(2)).stream().noneMatch(stats -> stats.getMaxEventId() == 1L));
+            Assert.assertNull(rollupRepository.findOne(JpaNifiFeedProcessorStatsRollup.rollupId(Resolution.MINUTE, expiredStats)));
+            Assert.assertNotNull(rollupRepository.findOne(JpaNifiFeedProcessorStatsRollup.rollupId(Resolution.HOUR, expiredStats)));
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    private NifiFeedProcessorStats stats(String feedName, String processorId, DateTime eventTime, Long bytesIn) {
+        JpaNifiFeedProcessorStats stats = new JpaNifiFeedProcessorStats(feedName, processorId);
+        stats.setProcessorName(processorId);
+        stats.setMinEventTime(eventTime);
+        stats.setMaxEventTime(eventTime);
+        stats.setCollectionTime(eventTime);
+        stats.setBytesIn(bytesIn);
+        return stats;
+    }
+}
@@ -0,0 +1,64 @@
+use kylo;
+
+CREATE TABLE IF NOT EXISTS `NIFI_FEED_PROCESSOR_STATS_ROLLUP` (
+  `id` varchar(45) NOT NULL,
+  `RESOLUTION` varchar(10) NOT NULL,
+  `BUCKET_TIME` datetime NOT NULL,
+  `FM_FEED_NAME` varchar(255) DEFAULT NULL,
+  `NIFI_PROCESSOR_ID` varchar(45) DEFAULT NULL,
+  `PROCESSOR_NAME` varchar(255) DEFAULT NULL,
+  `NIFI_FEED_PROCESS_GROUP_ID` varchar(45) DEFAULT NULL,
+  `MIN_EVENT_TIME` datetime DEFAULT NULL,
+  `MAX_EVENT_TIME` datetime DEFAULT NULL,
+  `DURATION_MILLIS` bigint(20) DEFAULT NULL,
+  `BYTES_IN` bigint(20) DEFAULT NULL,
+  `BYTES_OUT` bigint(20) DEFAULT NULL,
+  `TOTAL_EVENTS` bigint(20) DEFAULT NULL,
+  `JOBS_STARTED` bigint(20) DEFAULT NULL,
+  `JOBS_FINISHED` bigint(20) DEFAULT NULL,
+  `JOBS_FAILED` bigint(20) DEFAULT NULL,
+  `JOB_DURATION` bigint(20) DEFAULT NULL,
+  `SUCCESSFUL_JOB_DURATION` bigint(20) DEFAULT NULL,
+  `PROCESSORS_FAILED` bigint(20) DEFAULT NULL,
+  `FLOW_FILES_STARTED` bigint(20) DEFAULT NULL,
+  `FLOW_FILES_FINISHED` bigint(20) DEFAULT NULL,
+  `MAX_EVENT_ID` bigint(20) DEFAULT NULL,
+  `STATS_COUNT` bigint(20) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `NIFI_FEED_PROC_STATS_ROLLUP_UK1` (`RESOLUTION`, `BUCKET_TIME`, `FM_FEED_NAME`, `NIFI_PROCESSOR_ID`),
+  KEY `NIFI_FEED_PROC_STATS_ROLLUP_IDX1` (`FM_FEED_NAME`, `RESOLUTION`, `BUCKET_TIME`),
+  KEY `NIFI_FEED_PROC_STATS_ROLLUP_IDX2` (`RESOLUTION`, `BUCKET_TIME`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+ALTER TABLE `NIFI_FEED_PROCESSOR_STATS`
+ADD INDEX `NIFI_FEED_PROC_STATS_IDX1` (`MAX_EVENT_TIME` ASC);
+
+-- Build the rollups from the existing statistics.
+-- The ids are the ones Kylo derives for each rollup, a name based UUID of 'RESOLUTION|bucket millis|feed|processor', so new statistics for the current buckets are
+-- added to these rows.
+INSERT INTO NIFI_FEED_PROCESSOR_STATS_ROLLUP
+SELECT CONCAT(SUBSTR(h.HASH, 1, 8), '-', SUBSTR(h.HASH, 9, 4), '-3', SUBSTR(h.HASH, 14, 3), '-',
+              LOWER(HEX((CONV(SUBSTR(h.HASH, 17, 1), 16, 10) & 3) | 8)), SUBSTR(h.HASH, 18, 3), '-', SUBSTR(h.HASH, 21, 12)),
+  h.RESOLUTION, FROM_UNIXTIME(h.BUCKET_SECONDS), h.FM_FEED_NAME, h.NIFI_PROCESSOR_ID, h.PROCESSOR_NAME, h.NIFI_FEED_PROCESS_GROUP_ID,
+  h.MIN_EVENT_TIME, h.MAX_EVENT_TIME, h.DURATION_MILLIS, h.BYTES_IN, h.BYTES_OUT, h.TOTAL_EVENTS,
+  h.JOBS_STARTED, h.JOBS_FINISHED, h.JOBS_FAILED, h.JOB_DURATION, h.SUCCESSFUL_JOB_DURATION,
+  h.PROCESSORS_FAILED, h.FLOW_FILES_STARTED, h.FLOW_FILES_FINISHED, h.MAX_EVENT_ID, h.STATS_COUNT
+FROM (
+  SELECT MD5(CONCAT(b.RESOLUTION, '|', b.BUCKET_SECONDS * 1000, '|', COALESCE(b.FM_FEED_NAME, 'null'), '|', COALESCE(b.NIFI_PROCESSOR_ID, 'null'))) AS HASH, b.*
+  FROM (
+    SELECT r.RESOLUTION, FLOOR(UNIX_TIMESTAMP(s.MAX_EVENT_TIME) / r.SECONDS) * r.SECONDS AS BUCKET_SECONDS,
+      s.FM_FEED_NAME, s.NIFI_PROCESSOR_ID, MAX(s.PROCESSOR_NAME) AS PROCESSOR_NAME, MAX(s.NIFI_FEED_PROCESS_GROUP_ID) AS NIFI_FEED_PROCESS_GROUP_ID,
+      MIN(s.MIN_EVENT_TIME) AS MIN_EVENT_TIME, MAX(s.MAX_EVENT_TIME) AS MAX_EVENT_TIME,
+      SUM(s.DURATION_MILLIS) AS DURATION_MILLIS, SUM(s.BYTES_IN) AS BYTES_IN, SUM(s.BYTES_OUT) AS BYTES_OUT, SUM(s.TOTAL_EVENTS) AS TOTAL_EVENTS,
+      SUM(s.JOBS_STARTED) AS JOBS_STARTED, SUM(s.JOBS_FINISHED) AS JOBS_FINISHED, SUM(s.JOBS_FAILED) AS JOBS_FAILED, SUM(s.JOB_DURATION) AS JOB_DURATION,
+      SUM(s.SUCCESSFUL_JOB_DURATION) AS SUCCESSFUL_JOB_DURATION, SUM(s.PROCESSORS_FAILED) AS PROCESSORS_FAILED,
+      SUM(s.FLOW_FILES_STARTED) AS FLOW_FILES_STARTED, SUM(s.FLOW_FILES_FINISHED) AS FLOW_FILES_FINISHED, MAX(s.MAX_EVENT_ID) AS MAX_EVENT_ID, COUNT(*) AS STATS_COUNT
+    FROM NIFI_FEED_PROCESSOR_STATS s
+     INNER JOIN (SELECT 'MINUTE' AS RESOLUTION, 60 AS SECONDS
+                 UNION ALL SELECT 'HOUR', 3600
+                 UNION ALL SELECT 'DAY', 86400) r
+    WHERE s.MAX_EVENT_TIME IS NOT NULL
+     AND NOT EXISTS (SELECT 1 FROM NIFI_FEED_PROCESSOR_STATS_ROLLUP)
+    GROUP BY r.RESOLUTION, BUCKET_SECONDS, s.FM_FEED_NAME, s.NIFI_PROCESSOR_ID
+  ) b
+) h;
@@ -0,0 +1,6 @@
+#!/bin/bash
+
+MY_DIR=$(dirname $0)
+mysql -f -h $1 -u$2 --password=$3 < ${MY_DIR}/create-feed-processor-stats-rollup.sql
+mysql -f -h $1 -u$2 --password=$3 < ${MY_DIR}/delete-feed-jobs.sql
+echo "Updated to 0.8.0 release";
@@ -0,0 +1,620 @@
+package com.thinkbiganalytics.nifi.activemq;
+
+/*-
+ * #%L
+ * thinkbig-nifi-jms
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.JmsObjectCodec;
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary codec for the {@link ProvenanceEventRecordDTOHolder} and {@link AggregatedFeedProcessorStatisticsHolder} objects sent from NiFi to Kylo.
+ *
+ * Each message is written as a 3 byte header (format version, payload type, flags) followed by the body.  The body starts with a dictionary of every distinct string in the batch, followed by the
+ * fields of the payload in a fixed order.  Strings are written as their index in the dictionary so repeated feed names, processor ids and attribute keys are only sent once per batch.  Numbers are
+ * written as variable length integers and dates as epoch millis.  The body can optionally be compressed with {@link Deflater}.
+ *
+ * The {@link ProvenanceEventRecordDTO#getFeedFlowFile()} graph and {@link ProvenanceEventRecordDTO#getAdditionalProperties()} are not sent as they are not used by Kylo.
+ */
+public class ProvenanceEventBinaryCodec implements JmsObjectCodec {
+
+    /**
+     * The name of this codec, sent as the JMS header
+     */
+    public static final String NAME = "kylo-provenance-binary";
+
+    /**
+     * The value of the kylo.provenance.jms.codec property that enables this codec
+     */
+    public static final String FORMAT = "binary";
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_EVENTS = 1;
+
+    private static final byte TYPE_STATS = 2;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    private static final int HEADER_LENGTH = 3;
+
+    /**
+     * Flag to indicate the body should be compressed
+     */
+    private final boolean compress;
+
+    public ProvenanceEventBinaryCodec() {
+        this(false);
+    }
+
+    public ProvenanceEventBinaryCodec(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    @Override
+    public boolean canEncode(Object obj) {
+        return obj instanceof ProvenanceEventRecordDTOHolder || obj instanceof AggregatedFeedProcessorStatisticsHolder;
+    }
+
+    @Override
+    public byte[] encode(Object obj) throws IOException {
+        Writer writer = new Writer();
+        byte type;
+        if (obj instanceof ProvenanceEventRecordDTOHolder) {
+            type = TYPE_EVENTS;
+            writeEvents(writer, (ProvenanceEventRecordDTOHolder) obj);
+        } else if (obj instanceof AggregatedFeedProcessorStatisticsHolder) {
+            type = TYPE_STATS;
+            writeStats(writer, (AggregatedFeedProcessorStatisticsHolder) obj);
+        } else {
+            throw new IOException("Unable to encode object of type " + (obj != null ? obj.getClass().getName() : "null"));
+        }
+        byte[] body = writer.toByteArray();
+        byte flags = 0;
+        if (compress) {
+            body = deflate(body);
+            flags |= FLAG_COMPRESSED;
+        }
+        byte[] message = new byte[HEADER_LENGTH + body.length];
+        message[0] = FORMAT_VERSION;
+        message[1] = type;
+        message[2] = flags;
+        System.arraycopy(body, 0, message, HEADER_LENGTH, body.length);
+        return message;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length < HEADER_LENGTH) {
+            throw new IOException("Unable to decode message.  The message is too short");
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            throw new IOException("Unable to decode message.  Unsupported format version " + bytes[0]);
+        }
+        byte[] body = new byte[bytes.length - HEADER_LENGTH];
+        System.arraycopy(bytes, HEADER_LENGTH, body, 0, body.length);
+        if ((bytes[2] & FLAG_COMPRESSED) != 0) {
+            body = inflate(body);
+        }
+        Reader reader = new Reader(body);
+        switch (bytes[1]) {
+            case TYPE_EVENTS:
+                return readEvents(reader);
+            case TYPE_STATS:
+                return readStats(reader);
+            default:
+                throw new IOException("Unable to decode message.  Unknown payload type " + bytes[1]);
+        }
+    }
+
+    private void writeEvents(Writer writer, ProvenanceEventRecordDTOHolder holder) {
+        writer.writeString(holder.getBatchId());
+        List<ProvenanceEventRecordDTO> events = holder.getEvents();
+        writer.writeSize(events);
+        if (events != null) {
+            events.stream().forEach(event -> writeEvent(writer, event));
+        }
+    }
+
+    private ProvenanceEventRecordDTOHolder readEvents(Reader reader) throws IOException {
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setBatchId(reader.readString());
+        int size = reader.readSize();
+        if (size >= 0) {
+            List<ProvenanceEventRecordDTO> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                events.add(readEvent(reader));
+            }
+            holder.setEvents(events);
+        }
+        return holder;
+    }
+
+    private void writeEvent(Writer writer, ProvenanceEventRecordDTO event) {
+        int flags = 0;
+        flags |= event.isStartOfJob() ? 1 : 0;
+        flags |= event.isEndOfJob() ? 1 << 1 : 0;
+        flags |= event.isFinalJobEvent() ? 1 << 2 : 0;
+        flags |= event.isBatchJob() ? 1 << 3 : 0;
+        flags |= event.isHasFailedEvents() ? 1 << 4 : 0;
+        flags |= event.isStartOfFlowFile() ? 1 << 5 : 0;
+        flags |= event.isFailure() ? 1 << 6 : 0;
+        flags |= event.isStream() ? 1 << 7 : 0;
+        writer.writeVarLong(flags);
+
+        writer.writeLong(event.getEventId());
+        writer.writeString(event.getId());
+        writer.writeString(event.getEventType());
+        writer.writeDate(event.getEventTime());
+        writer.writeDate(event.getStartTime());
+        writer.writeLong(event.getEventDuration());
+        writer.writeString(event.getFlowFileUuid());
+        writer.writeString(event.getFileSize());
+        writer.writeLong(event.getFileSizeBytes());
+        writer.writeString(event.getClusterNodeId());
+        writer.writeString(event.getClusterNodeAddress());
+        writer.writeString(event.getGroupId());
+        writer.writeString(event.getComponentId());
+        writer.writeString(event.getComponentType());
+        writer.writeString(event.getComponentName());
+        writer.writeString(event.getDetails());
+        writer.writeString(event.getSourceConnectionIdentifier());
+        writer.writeLong(event.getInputContentClaimFileSizeBytes());
+        writer.writeString(event.getInputContentClaimFileSize());
+        writer.writeLong(event.getOutputContentClaimFileSizeBytes());
+        writer.writeString(event.getOutputContentClaimFileSize());
+        writer.writeString(event.getProcessorType() != null ? event.getProcessorType().name() : null);
+        writer.writeString(event.getJobFlowFileId());
+        writer.writeLong(event.getJobEventId());
+        writer.writeString(event.getFeedName());
+        writer.writeString(event.getFeedProcessGroupId());
+        writer.writeString(event.getBatchId());
+        writer.writeString(event.getRelationship());
+        writer.writeLong(event.getPreviousEventId());
+        writer.writeString(event.getPreviousFlowfileId());
+        writer.writeDate(event.getPreviousEventTime());
+        writer.writeStrings(event.getParentUuids());
+        writer.writeStrings(event.getChildUuids());
+        writer.writeStrings(event.getRelatedRootFlowFiles());
+        writer.writeMap(event.getUpdatedAttributes());
+        writer.writeMap(event.getPreviousAttributes());
+        writer.writeMap(event.getAttributeMap());
+    }
+
+    private ProvenanceEventRecordDTO readEvent(Reader reader) throws IOException {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        int flags = (int) reader.readVarLong();
+
+        event.setEventId(reader.readLong());
+        event.setId(reader.readString());
+        event.setEventType(reader.readString());
+        event.setEventTime(reader.readDate());
+        event.setStartTime(reader.readDate());
+        event.setEventDuration(reader.readLong());
+        event.setFlowFileUuid(reader.readString());
+        event.setFileSize(reader.readString());
+        event.setFileSizeBytes(reader.readLong());
+        event.setClusterNodeId(reader.readString());
+        event.setClusterNodeAddress(reader.readString());
+        event.setGroupId(reader.readString());
+        event.setComponentId(reader.readString());
+        event.setComponentType(reader.readString());
+        event.setComponentName(reader.readString());
+        event.setDetails(reader.readString());
+        event.setSourceConnectionIdentifier(reader.readString());
+        event.setInputContentClaimFileSizeBytes(reader.readLong());
+        event.setInputContentClaimFileSize(reader.readString());
+        event.setOutputContentClaimFileSizeBytes(reader.readLong());
+        event.setOutputContentClaimFileSize(reader.readString());
+        String processorType = reader.readString();
+        event.setProcessorType(processorType != null ? KyloProcessorFlowType.valueOf(processorType) : null);
+        event.setJobFlowFileId(reader.readString());
+        event.setJobEventId(reader.readLong());
+        event.setFeedName(reader.readString());
+        event.setFeedProcessGroupId(reader.readString());
+        event.setBatchId(reader.readString());
+        event.setRelationship(reader.readString());
+        event.setPreviousEventId(reader.readLong());
+        event.setPreviousFlowfileId(reader.readString());
+        event.setPreviousEventTime(reader.readDate());
+        event.setParentUuids(reader.readStrings());
+        event.setChildUuids(reader.readStrings());
+        List<String> relatedRootFlowFiles = reader.readStrings();
+        event.setRelatedRootFlowFiles(relatedRootFlowFiles != null ? new HashSet<>(relatedRootFlowFiles) : null);
+        event.setUpdatedAttributes(reader.readMap());
+        event.setPreviousAttributes(reader.readMap());
+        event.setAttributeMap(reader.readMap());
+
+        event.setIsStartOfJob((flags & 1) != 0);
+        event.setIsEndOfJob((flags & 1 << 1) != 0);
+        event.setIsFinalJobEvent((flags & 1 << 2) != 0);
+        event.setIsBatchJob((flags & 1 << 3) != 0);
+        event.setHasFailedEvents((flags & 1 << 4) != 0);
+        event.setStartOfFlowFile((flags & 1 << 5) != 0);
+        event.setIsFailure((flags & 1 << 6) != 0);
+        event.setStream((flags & 1 << 7) != 0);
+        return event;
+    }
+
+    private void writeStats(Writer writer, AggregatedFeedProcessorStatisticsHolder holder) {
+        writer.writeString(holder.getCollectionId());
+        writer.writeDate(holder.getMinTime());
+        writer.writeDate(holder.getMaxTime());
+        writer.writeLong(holder.getEventCount().get());
+        writer.writeLong(holder.getMinEventId());
+        writer.writeLong(holder.getMaxEventId());
+        Collection<AggregatedFeedProcessorStatistics> feedStatistics = holder.getFeedStatistics().values();
+        writer.writeSize(feedStatistics);
+        for (AggregatedFeedProcessorStatistics feedStats : feedStatistics) {
+            writer.writeString(feedStats.getFeedName());
+            writer.writeString(feedStats.getProcessGroup());
+            writer.writeLong(feedStats.getTotalEvents());
+            writer.writeLong(feedStats.getMinEventId());
+            writer.writeLong(feedStats.getMaxEventId());
+            Collection<AggregatedProcessorStatistics> processorStatistics = feedStats.getProcessorStats().values();
+            writer.writeSize(processorStatistics);
+            for (AggregatedProcessorStatistics processorStats : processorStatistics) {
+                writer.writeString(processorStats.getProcessorId());
+                writer.writeString(processorStats.getProcessorName());
+                writeGroupedStats(writer, processorStats.getStats());
+            }
+        }
+    }
+
+    private AggregatedFeedProcessorStatisticsHolder readStats(Reader reader) throws IOException {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        String collectionId = reader.readString();
+        holder.setCollectionId(collectionId);
+        holder.setMinTime(reader.readDate());
+        holder.setMaxTime(reader.readDate());
+        holder.getEventCount().set(reader.readLong());
+        holder.setMinEventId(reader.readLong());
+        holder.setMaxEventId(reader.readLong());
+        int feedCount = reader.readSize();
+        for (int i = 0; i < feedCount; i++) {
+            AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics(reader.readString(), collectionId);
+            feedStats.setProcessGroup(reader.readString());
+            feedStats.setTotalEvents(reader.readLong());
+            feedStats.setMinEventId(reader.readLong());
+            feedStats.setMaxEventId(reader.readLong());
+            int processorCount = reader.readSize();
+            for (int j = 0; j < processorCount; j++) {
+                String processorId = reader.readString();
+                AggregatedProcessorStatistics processorStats = new AggregatedProcessorStatistics(processorId, reader.readString(), collectionId);
+                processorStats.setStats(readGroupedStats(reader));
+                feedStats.getProcessorStats().put(processorId, processorStats);
+            }
+            holder.getFeedStatistics().put(feedStats.getFeedName(), feedStats);
+        }
+        return holder;
+    }
+
+    private void writeGroupedStats(Writer writer, GroupedStats stats) {
+        writer.writeString(stats.getGroupKey());
+        writer.writeDate(stats.getTime());
+        writer.writeDate(stats.getMinTime());
+        writer.writeDate(stats.getMaxTime());
+        writer.writeVarLong(stats.getBytesIn());
+        writer.writeVarLong(stats.getBytesOut());
+        writer.writeVarLong(stats.getDuration());
+        writer.writeVarLong(stats.getTotalCount());
+        writer.writeVarLong(stats.getJobsStarted());
+        writer.writeVarLong(stats.getJobsFinished());
+        writer.writeVarLong(stats.getProcessorsFailed());
+        writer.writeVarLong(stats.getFlowFilesStarted());
+        writer.writeVarLong(stats.getFlowFilesFinished());
+        writer.writeVarLong(stats.getJobsFailed());
+        writer.writeVarLong(stats.getSuccessfulJobDuration());
+        writer.writeVarLong(stats.getJobDuration());
+        writer.writeVarLong(stats.getMaxEventId());
+        writer.writeString(stats.getClusterNodeId());
+        writer.writeString(stats.getClusterNodeAddress());
+    }
+
+    private GroupedStats readGroupedStats(Reader reader) throws IOException {
+        GroupedStats stats = new GroupedStats();
+        stats.setGroupKey(reader.readString());
+        stats.setTime(reader.readDate());
+        stats.setMinTime(reader.readDate());
+        stats.setMaxTime(reader.readDate());
+        stats.setBytesIn(reader.readVarLong());
+        stats.setBytesOut(reader.readVarLong());
+        stats.setDuration(reader.readVarLong());
+        stats.setTotalCount(reader.readVarLong());
+        stats.setJobsStarted(reader.readVarLong());
+        stats.setJobsFinished(reader.readVarLong());
+        stats.setProcessorsFailed(reader.readVarLong());
+        stats.setFlowFilesStarted(reader.readVarLong());
+        stats.setFlowFilesFinished(reader.readVarLong());
+        stats.setJobsFailed(reader.readVarLong());
+        stats.setSuccessfulJobDuration(reader.readVarLong());
+        stats.setJobDuration(reader.readVarLong());
+        stats.setMaxEventId(reader.readVarLong());
+        stats.setClusterNodeId(reader.readString());
+        stats.setClusterNodeAddress(reader.readString());
+        return stats;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Unable to decode message.  The compressed body is truncated");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Unable to decode message.  The compressed body is invalid", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the payload while collecting the dictionary of strings
+     */
+    private static class Writer {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        private final List<String> strings = new ArrayList<>();
+
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+
+        void writeVarLong(long value) {
+            writeVarLong(payload, value);
+        }
+
+        /**
+         * Write a nullable Long using zig-zag encoding so small negative values stay small
+         */
+        void writeLong(Long value) {
+            if (value == null) {
+                payload.write(0);
+            } else {
+                payload.write(1);
+                writeVarLong((value << 1) ^ (value >> 63));
+            }
+        }
+
+        void writeDate(DateTime dateTime) {
+            writeLong(dateTime != null ? dateTime.getMillis() : null);
+        }
+
+        /**
+         * Write the index of the string in the dictionary. 0 is reserved for null
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+            } else {
+                Integer index = dictionary.get(value);
+                if (index == null) {
+                    index = strings.size();
+                    strings.add(value);
+                    dictionary.put(value, index);
+                }
+                writeVarLong(index + 1);
+            }
+        }
+
+        /**
+         * Write the size of a collection. 0 is reserved for null
+         */
+        void writeSize(Collection<?> collection) {
+            writeVarLong(collection == null ? 0 : collection.size() + 1);
+        }
+
+        void writeStrings(Collection<String> values) {
+            writeSize(values);
+            if (values != null) {
+                values.stream().forEach(this::writeString);
+            }
+        }
+
+        void writeMap(Map<String, String> map) {
+            writeVarLong(map == null ? 0 : map.size() + 1);
+            if (map != null) {
+                map.entrySet().stream().forEach(entry -> {
+                    writeString(entry.getKey());
+                    writeString(entry.getValue());
+                });
+            }
+        }
+
+        /**
+         * @return the dictionary followed by the payload
+         */
+        byte[] toByteArray() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.size() + strings.size() * 16 + 8);
+            writeVarLong(out, strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            byte[] payloadBytes = payload.toByteArray();
+            out.write(payloadBytes, 0, payloadBytes.length);
+            return out.toByteArray();
+        }
+
+        private static void writeVarLong(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    /**
+     * Reads the dictionary and then the payload
+     */
+    private static class Reader {
+
+        private final byte[] bytes;
+
+        private final String[] strings;
+
+        private int position = 0;
+
+        Reader(byte[] bytes) throws IOException {
+            this.bytes = bytes;
+            int size = (int) readVarLong();
+            strings = new String[size];
+            for (int i = 0; i < size; i++) {
+                int length = (int) readVarLong();
+                if (position + length > bytes.length) {
+                    throw new IOException("Unable to decode message.  The string dictionary is truncated");
+                }
+                strings[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0L;
+            int shift = 0;
+            while (shift < 64) {
+                if (position >= bytes.length) {
+                    throw new IOException("Unable to decode message.  The message is truncated");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+            throw new IOException("Unable to decode message.  Invalid variable length number");
+        }
+
+        Long readLong() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Unable to decode message.  The message is truncated");
+            }
+            if (bytes[position++] == 0) {
+                return null;
+            }
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        DateTime readDate() throws IOException {
+            Long millis = readLong();
+            return millis != null ? new DateTime(millis) : null;
+        }
+
+        String readString() throws IOException {
+            int index = (int) readVarLong();
+            if (index == 0) {
+                return null;
+            }
+            if (index > strings.length) {
+                throw new IOException("Unable to decode message.  Invalid string reference " + index);
+            }
+            return strings[index - 1];
+        }
+
+        /**
+         * @return the size of the collection, or -1 if it was null
+         */
+        int readSize() throws IOException {
+            return (int) readVarLong() - 1;
+        }
+
+        List<String> readStrings() throws IOException {
+            int size = readSize();
+            if (size < 0) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        Map<String, String> readMap() throws IOException {
+            int size = readSize();
+            if (size < 0) {
+                return null;
+            }
+            Map<String, String> map = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.thinkbiganalytics.nifi.activemq;
+
+/*-
+ * #%L
+ * thinkbig-nifi-jms
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Checks the binary codec round trips the JMS payloads and logs the size and speed compared to Java serialization
+ */
+public class ProvenanceEventBinaryCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvenanceEventBinaryCodecTest.class);
+
+    @Test
+    public void testEventsRoundTrip() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = events(50);
+        for (boolean compress : new boolean[]{false, true}) {
+            ProvenanceEventBinaryCodec codec = new ProvenanceEventBinaryCodec(compress);
+            Assert.assertTrue(codec.canEncode(holder));
+            ProvenanceEventRecordDTOHolder decoded = (ProvenanceEventRecordDTOHolder) codec.decode(codec.encode(holder));
+            Assert.assertEquals(holder.getBatchId(), decoded.getBatchId());
+            Assert.assertEquals(holder.getEvents().size(), decoded.getEvents().size());
+            for (int i = 0; i < holder.getEvents().size(); i++) {
+                ProvenanceEventRecordDTO expected = holder.getEvents().get(i);
+                ProvenanceEventRecordDTO actual = decoded.getEvents().get(i);
+                Assert.assertEquals(expected.getEventId(), actual.getEventId());
+                Assert.assertEquals(expected.getEventTime(), actual.getEventTime());
+                Assert.assertEquals(expected.getStartTime(), actual.getStartTime());
+                Assert.assertEquals(expected.getEventDuration(), actual.getEventDuration());
+                Assert.assertEquals(expected.getFlowFileUuid(), actual.getFlowFileUuid());
+                Assert.assertEquals(expected.getComponentId(), actual.getComponentId());
+                Assert.assertEquals(expected.getFeedName(), actual.getFeedName());
+                Assert.assertEquals(expected.getJobFlowFileId(), actual.getJobFlowFileId());
+                Assert.assertEquals(expected.getJobEventId(), actual.getJobEventId());
+                Assert.assertEquals(expected.getProcessorType(), actual.getProcessorType());
+                Assert.assertEquals(expected.getParentUuids(), actual.getParentUuids());
+                Assert.assertEquals(expected.getChildUuids(), actual.getChildUuids());
+                Assert.assertEquals(expected.getUpdatedAttributes(), actual.getUpdatedAttributes());
+                Assert.assertEquals(expected.getAttributeMap(), actual.getAttributeMap());
+                Assert.assertEquals(expected.isStartOfJob(), actual.isStartOfJob());
+                Assert.assertEquals(expected.isEndOfJob(), actual.isEndOfJob());
+                Assert.assertEquals(expected.isFailure(), actual.isFailure());
+                Assert.assertEquals(expected.isStream(), actual.isStream());
+            }
+        }
+    }
+
+    @Test
+    public void testStatsRoundTrip() throws Exception {
+        AggregatedFeedProcessorStatisticsHolder holder = stats();
+        ProvenanceEventBinaryCodec codec = new ProvenanceEventBinaryCodec(true);
+        AggregatedFeedProcessorStatisticsHolder decoded = (AggregatedFeedProcessorStatisticsHolder) codec.decode(codec.encode(holder));
+        Assert.assertEquals(holder.getCollectionId(), decoded.getCollectionId());
+        Assert.assertEquals(holder.getEventCount().get(), decoded.getEventCount().get());
+        Assert.assertEquals(holder.getMinEventId(), decoded.getMinEventId());
+        Assert.assertEquals(holder.getMaxEventId(), decoded.getMaxEventId());
+        Assert.assertEquals(holder.getFeedStatistics().keySet(), decoded.getFeedStatistics().keySet());
+        GroupedStats expected = holder.getFeedStatistics().get("feed1").getProcessorStats().get("processor1").getStats();
+        GroupedStats actual = decoded.getFeedStatistics().get("feed1").getProcessorStats().get("processor1").getStats();
+        Assert.assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        Assert.assertEquals(expected.getBytesIn(), actual.getBytesIn());
+        Assert.assertEquals(expected.getJobsFinished(), actual.getJobsFinished());
+        Assert.assertEquals(expected.getMinTime(), actual.getMinTime());
+        Assert.assertEquals(expected.getMaxTime(), actual.getMaxTime());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidMessage() throws Exception {
+        new ProvenanceEventBinaryCodec().decode(new byte[]{1, 1, 0, 5});
+    }
+
+    /**
+     * Logs the bytes per event and the encode/decode time per event compared to Java serialization
+     */
+    @Test
+    public void testCompareToJavaSerialization() throws Exception {
+        int eventCount = 500;
+        int iterations = 20;
+        ProvenanceEventRecordDTOHolder holder = events(eventCount);
+        ProvenanceEventBinaryCodec codec = new ProvenanceEventBinaryCodec();
+        ProvenanceEventBinaryCodec compressedCodec = new ProvenanceEventBinaryCodec(true);
+
+        //warm up
+        for (int i = 0; i < 5; i++) {
+            deserialize(serialize(holder));
+            codec.decode(codec.encode(holder));
+            compressedCodec.decode(compressedCodec.encode(holder));
+        }
+
+        byte[] serialized = serialize(holder);
+        byte[] binary = codec.encode(holder);
+        byte[] compressed = compressedCodec.encode(holder);
+        Assert.assertTrue(binary.length < serialized.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            serialize(holder);
+        }
+        long serializeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            deserialize(serialized);
+        }
+        long deserializeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.encode(holder);
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.decode(binary);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        long total = (long) eventCount * iterations;
+        log.info("Java serialization: {} bytes/event, encode {} ns/event, decode {} ns/event", serialized.length / eventCount, serializeNanos / total, deserializeNanos / total);
+        log.info("Binary codec: {} bytes/event, encode {} ns/event, decode {} ns/event", binary.length / eventCount, encodeNanos / total, decodeNanos / total);
+        log.info("Binary codec compressed: {} bytes/event", compressed.length / eventCount);
+    }
+
+    private ProvenanceEventRecordDTOHolder events(int count) {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>(count);
+        DateTime now = DateTime.now();
+        String jobFlowFile = UUID.randomUUID().toString();
+        for (int i = 0; i < count; i++) {
+            ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+            event.setEventId((long) i);
+            event.setEventType(i == 0 ? "CREATE" : "ATTRIBUTES_MODIFIED");
+            event.setEventTime(now.plusMillis(i));
+            event.setStartTime(now.plusMillis(i - 3));
+            event.setEventDuration(3L);
+            event.setFlowFileUuid(UUID.randomUUID().toString());
+            event.setJobFlowFileId(jobFlowFile);
+            event.setJobEventId(0L);
+            event.setComponentId("processor" + (i % 5));
+            event.setComponentName("Processor " + (i % 5));
+            event.setComponentType("UpdateAttribute");
+            event.setFeedName("category.feed");
+            event.setFeedProcessGroupId("feed-process-group");
+            event.setProcessorType(i % 7 == 0 ? KyloProcessorFlowType.FAILURE : null);
+            event.setParentUuids(Collections.emptyList());
+            event.setChildUuids(i % 10 == 0 ? Arrays.asList(UUID.randomUUID().toString(), UUID.randomUUID().toString()) : Collections.emptyList());
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("filename", "file" + i + ".csv");
+            attributes.put("path", "./");
+            attributes.put("feed", "category.feed");
+            event.setAttributeMap(attributes);
+            event.setUpdatedAttributes(Collections.singletonMap("filename", "file" + i + ".csv"));
+            event.setPreviousAttributes(new HashMap<>());
+            event.setIsStartOfJob(i == 0);
+            event.setIsEndOfJob(i == count - 1);
+            event.setIsFailure(i % 7 == 0);
+            event.setStream(false);
+            events.add(event);
+        }
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events);
+        return holder;
+    }
+
+    private AggregatedFeedProcessorStatisticsHolder stats() {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        holder.getEventCount().set(10L);
+        holder.setMinEventId(1L);
+        holder.setMaxEventId(10L);
+        AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics("feed1", holder.getCollectionId());
+        GroupedStats stats = new GroupedStats();
+        stats.setTotalCount(10L);
+        stats.setBytesIn(1024L);
+        stats.setJobsFinished(2L);
+        stats.setMinTime(DateTime.now().minusMinutes(1));
+        stats.setMaxTime(DateTime.now());
+        AggregatedProcessorStatistics processorStats = new AggregatedProcessorStatistics("processor1", "Processor 1", holder.getCollectionId());
+        processorStats.setStats(stats);
+        feedStats.getProcessorStats().put("processor1", processorStats);
+        holder.getFeedStatistics().put("feed1", feedStats);
+        return holder;
+    }
+
+    private byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(obj);
+        }
+        return out.toByteArray();
+    }
+
+    private Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
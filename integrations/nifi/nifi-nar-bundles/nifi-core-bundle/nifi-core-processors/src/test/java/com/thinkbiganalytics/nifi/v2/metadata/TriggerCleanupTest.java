@@ -216,6 +216,11 @@ public class TriggerCleanupTest {
             Assert.assertEquals(runner.getProcessor(), listener);
         }
 
+        @Override
+        public void addListener(@Nonnull final CleanupListener listener) {
+            Assert.fail("Unexpected listener for all feeds: " + listener);
+        }
+
         @Override
         public void removeListener(@Nonnull final CleanupListener listener) {
             Assert.assertEquals(runner.getProcessor(), listener);
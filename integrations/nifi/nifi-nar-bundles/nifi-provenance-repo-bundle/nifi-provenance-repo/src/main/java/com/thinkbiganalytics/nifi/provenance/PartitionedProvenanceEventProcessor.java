@@ -0,0 +1,276 @@
+package com.thinkbiganalytics.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileGuavaCache;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes a window of provenance events across a fixed number of workers (shards).
+ *
+ * Events are grouped by the root {@link FeedFlowFile} they belong to.  Any events in the window that share a flow file (either directly, through their parent/child flow files, or through a root
+ * flow file already in the {@link FeedFlowFileGuavaCache}) are placed in the same group, and each group is assigned to a single shard.  Each shard is backed by a single thread so the events for a
+ * given root flow file are always processed in event id order, while unrelated flow files are processed in parallel.
+ *
+ * The {@link #process(List)} call blocks until every shard has finished the window so the caller can safely send the results to JMS and record the last event id.
+ */
+public class PartitionedProvenanceEventProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedProvenanceEventProcessor.class);
+
+    @Autowired
+    private ProvenanceEventCollector provenanceEventCollector;
+
+    @Autowired
+    private FeedFlowFileGuavaCache flowFileGuavaCache;
+
+    /**
+     * The single threaded executors, one per shard
+     */
+    private List<ExecutorService> shards = Collections.emptyList();
+
+    /**
+     * The counters for each shard
+     */
+    private List<ProvenanceEventShardStats> shardStats = Collections.emptyList();
+
+    /**
+     * the number of shards currently running
+     */
+    private int workers = 1;
+
+    /**
+     * Set the number of workers used to process the events.  If the number changes the existing workers are shut down and new ones are created.
+     *
+     * @param workers the number of workers.  A value of 1 or less disables the partitioned processing
+     */
+    public synchronized void setWorkers(int workers) {
+        int newWorkers = workers < 1 ? 1 : workers;
+        if (newWorkers != this.workers || (newWorkers > 1 && shards.isEmpty())) {
+            shutdown();
+            this.workers = newWorkers;
+            if (newWorkers > 1) {
+                List<ExecutorService> newShards = new ArrayList<>(newWorkers);
+                List<ProvenanceEventShardStats> newStats = new ArrayList<>(newWorkers);
+                for (int i = 0; i < newWorkers; i++) {
+                    newShards.add(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("kylo-provenance-shard-" + i).build()));
+                    newStats.add(new ProvenanceEventShardStats(i));
+                }
+                this.shards = newShards;
+                this.shardStats = newStats;
+                log.info("Created {} provenance event processing shards ", newWorkers);
+            }
+        }
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return true if the events should be processed across multiple workers, false if they should be processed on the calling thread
+     */
+    public boolean isPartitioned() {
+        return workers > 1;
+    }
+
+    /**
+     * @return the counters for each shard
+     */
+    public List<ProvenanceEventShardStats> getShardStats() {
+        return Collections.unmodifiableList(shardStats);
+    }
+
+    /**
+     * Shut down the workers
+     */
+    public synchronized void shutdown() {
+        if (!shards.isEmpty()) {
+            shards.stream().forEach(ExecutorService::shutdownNow);
+            log.info("Shut down {} provenance event processing shards ", shards.size());
+        }
+        shards = Collections.emptyList();
+        shardStats = Collections.emptyList();
+    }
+
+    /**
+     * Process the window of events, blocking until all of them are processed.
+     *
+     * @param events the events, sorted by event id
+     */
+    public void process(List<ProvenanceEventRecordDTO> events) throws InterruptedException, ExecutionException {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        final List<ExecutorService> currentShards;
+        final List<ProvenanceEventShardStats> currentStats;
+        synchronized (this) {
+            currentShards = shards;
+            currentStats = shardStats;
+        }
+        if (currentShards.isEmpty()) {
+            events.stream().forEach(event -> provenanceEventCollector.process(event));
+            return;
+        }
+
+        List<List<ProvenanceEventRecordDTO>> partitions = partition(events, currentShards.size());
+        List<Future<?>> futures = new ArrayList<>(currentShards.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            List<ProvenanceEventRecordDTO> partition = partitions.get(i);
+            if (!partition.isEmpty()) {
+                ProvenanceEventShardStats stats = currentStats.get(i);
+                stats.enqueued(partition.size());
+                futures.add(currentShards.get(i).submit(() -> processPartition(partition, stats)));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Processed {} events across {} shards. {} ", events.size(), futures.size(), currentStats);
+        }
+    }
+
+    /**
+     * Process the events assigned to a shard in order
+     */
+    private void processPartition(List<ProvenanceEventRecordDTO> events, ProvenanceEventShardStats stats) {
+        long start = System.nanoTime();
+        for (ProvenanceEventRecordDTO event : events) {
+            try {
+                provenanceEventCollector.process(event);
+            } finally {
+                stats.processed();
+            }
+        }
+        stats.windowFinished(events.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Split the events into {@code partitionCount} lists keeping all events related to the same root flow file in the same list and in their original order.
+     *
+     * @param events         the events to partition
+     * @param partitionCount the number of partitions
+     * @return the partitioned events
+     */
+    List<List<ProvenanceEventRecordDTO>> partition(List<ProvenanceEventRecordDTO> events, int partitionCount) {
+        FlowFileGroups groups = new FlowFileGroups();
+        for (ProvenanceEventRecordDTO event : events) {
+            String flowFileId = event.getFlowFileUuid();
+            groups.link(flowFileId, rootFlowFileId(flowFileId));
+            if (event.getParentUuids() != null) {
+                for (String parent : event.getParentUuids()) {
+                    groups.link(flowFileId, parent);
+                    groups.link(parent, rootFlowFileId(parent));
+                }
+            }
+            if (event.getChildUuids() != null) {
+                for (String child : event.getChildUuids()) {
+                    groups.link(flowFileId, child);
+                }
+            }
+        }
+
+        List<List<ProvenanceEventRecordDTO>> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (ProvenanceEventRecordDTO event : events) {
+            String group = groups.find(event.getFlowFileUuid());
+            partitions.get((group.hashCode() & Integer.MAX_VALUE) % partitionCount).add(event);
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the id of the root flow file cached for the given flow file, or null if it is not cached
+     */
+    private String rootFlowFileId(String flowFileId) {
+        if (flowFileId == null) {
+            return null;
+        }
+        FeedFlowFile feedFlowFile = flowFileGuavaCache.getEntry(flowFileId);
+        return feedFlowFile != null ? feedFlowFile.getId() : null;
+    }
+
+    /**
+     * Union-find of the flow file ids in a window of events
+     */
+    static class FlowFileGroups {
+
+        private final Map<String, String> parents = new HashMap<>();
+
+        /**
+         * Place the two flow files into the same group
+         */
+        void link(String flowFileId, String otherFlowFileId) {
+            if (flowFileId == null || otherFlowFileId == null) {
+                if (flowFileId != null) {
+                    find(flowFileId);
+                }
+                return;
+            }
+            String root = find(flowFileId);
+            String otherRoot = find(otherFlowFileId);
+            if (!root.equals(otherRoot)) {
+                parents.put(otherRoot, root);
+            }
+        }
+
+        /**
+         * @return the id representing the group the flow file belongs to
+         */
+        String find(String flowFileId) {
+            String root = flowFileId;
+            String parent;
+            while ((parent = parents.get(root)) != null) {
+                root = parent;
+            }
+            if (!flowFileId.equals(root)) {
+                //compress the path so later lookups are direct
+                String current = flowFileId;
+                while (!current.equals(root)) {
+                    String next = parents.get(current);
+                    parents.put(current, root);
+                    current = next;
+                }
+            }
+            return root;
+        }
+    }
+
+}
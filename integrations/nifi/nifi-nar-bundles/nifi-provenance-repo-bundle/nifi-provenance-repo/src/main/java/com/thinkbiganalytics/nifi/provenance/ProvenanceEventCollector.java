@@ -160,10 +160,12 @@ public class ProvenanceEventCollector {
      */
     private boolean batchEvent(ProvenanceEventRecordDTO event) {
         if (event != null) {
-            return groupedBatchEventsByFeed.computeIfAbsent(mapKey(event), mapKey -> new BatchFeedProcessorEvents(event.getFeedName(),
-                                                                                                                  event
-                                                                                                                      .getComponentId(), getMaxBatchFeedJobEventsPerSecond())).setMaxEventsPerSecond(
-                getMaxBatchFeedJobEventsPerSecond()).add(event);
+            BatchFeedProcessorEvents feedProcessorEvents =
+                groupedBatchEventsByFeed.computeIfAbsent(mapKey(event), mapKey -> new BatchFeedProcessorEvents(event.getFeedName(), event.getComponentId(), getMaxBatchFeedJobEventsPerSecond()));
+            //events for the same feed and processor may be processed by different workers
+            synchronized (feedProcessorEvents) {
+                return feedProcessorEvents.setMaxEventsPerSecond(getMaxBatchFeedJobEventsPerSecond()).add(event);
+            }
         }
         return false;
     }
@@ -176,7 +178,11 @@ public class ProvenanceEventCollector {
     public void sendToJms() {
         //update the collection time
         List<ProvenanceEventRecordDTO> eventsSentToJms = groupedBatchEventsByFeed.values().stream()
-            .flatMap(feedProcessorEventAggregate -> feedProcessorEventAggregate.collectEventsToBeSentToJmsQueue().stream())
+            .flatMap(feedProcessorEventAggregate -> {
+                synchronized (feedProcessorEventAggregate) {
+                    return feedProcessorEventAggregate.collectEventsToBeSentToJmsQueue().stream();
+                }
+            })
             .collect(Collectors.toList());
         sendBatchFeedEvents(eventsSentToJms);
         statsCalculator.sendStats();
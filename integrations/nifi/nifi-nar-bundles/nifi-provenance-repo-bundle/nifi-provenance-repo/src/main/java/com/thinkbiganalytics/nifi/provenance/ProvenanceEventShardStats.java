@@ -0,0 +1,126 @@
+package com.thinkbiganalytics.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for a single worker (shard) of the {@link PartitionedProvenanceEventProcessor}
+ */
+public class ProvenanceEventShardStats {
+
+    /**
+     * the index of the shard
+     */
+    private final int shard;
+
+    /**
+     * Total number of events processed by this shard
+     */
+    private final AtomicLong eventsProcessed = new AtomicLong(0L);
+
+    /**
+     * Total time, in nanoseconds, this shard has spent processing events
+     */
+    private final AtomicLong processingTimeNanos = new AtomicLong(0L);
+
+    /**
+     * Number of events assigned to this shard that have not been processed yet
+     */
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+
+    /**
+     * The events/sec of the last window of events processed by this shard
+     */
+    private volatile double lastEventsPerSecond = 0d;
+
+    public ProvenanceEventShardStats(int shard) {
+        this.shard = shard;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Mark the events as waiting to be processed by this shard
+     *
+     * @param events the number of events queued
+     */
+    public void enqueued(int events) {
+        queueDepth.addAndGet(events);
+    }
+
+    /**
+     * Mark a single event as processed
+     */
+    public void processed() {
+        queueDepth.decrementAndGet();
+        eventsProcessed.incrementAndGet();
+    }
+
+    /**
+     * Record the time spent processing a window of events
+     *
+     * @param events        the number of events in the window
+     * @param durationNanos the time spent processing the window
+     */
+    public void windowFinished(int events, long durationNanos) {
+        processingTimeNanos.addAndGet(durationNanos);
+        lastEventsPerSecond = durationNanos > 0 ? events / (durationNanos / 1000000000d) : 0d;
+    }
+
+    public long getEventsProcessed() {
+        return eventsProcessed.get();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return the events/sec this shard has averaged over all the time it has spent processing
+     */
+    public double getEventsPerSecond() {
+        long nanos = processingTimeNanos.get();
+        return nanos > 0 ? eventsProcessed.get() / (nanos / 1000000000d) : 0d;
+    }
+
+    /**
+     * @return the events/sec of the last window processed by this shard
+     */
+    public double getLastEventsPerSecond() {
+        return lastEventsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ProvenanceEventShardStats{");
+        sb.append("shard=").append(shard);
+        sb.append(", eventsProcessed=").append(eventsProcessed.get());
+        sb.append(", queueDepth=").append(queueDepth.get());
+        sb.append(", eventsPerSecond=").append(String.format("%.1f", getEventsPerSecond()));
+        sb.append(", lastEventsPerSecond=").append(String.format("%.1f", lastEventsPerSecond));
+        sb.append('}');
+        return sb.toString();
+    }
+}
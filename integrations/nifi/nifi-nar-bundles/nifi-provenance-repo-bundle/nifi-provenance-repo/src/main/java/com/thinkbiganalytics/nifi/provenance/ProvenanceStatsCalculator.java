@@ -23,13 +23,20 @@ package com.thinkbiganalytics.nifi.provenance;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.stats.StatsAccumulatorEpoch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Calculate Statistics pertaining to each Feed and Processor and send them off to JMS
+ *
+ * Events may be processed by multiple workers at the same time (see {@link PartitionedProvenanceEventProcessor}).  The statistics are collected into a {@link StatsAccumulatorEpoch} of lock free
+ * counters.  Two epochs are used.  When the stats are sent the current epoch is atomically swapped with the spare one, the old epoch is drained of in flight writers, merged into an {@link
+ * AggregatedFeedProcessorStatisticsHolder} and then reset to become the spare for the next send.
  */
 
 public class ProvenanceStatsCalculator {
@@ -37,9 +44,14 @@ public class ProvenanceStatsCalculator {
     private static final Logger log = LoggerFactory.getLogger(ProvenanceStatsCalculator.class);
 
     /**
-     * Object to hold onto the {@link com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics} for each feed and send them onto Kylo via JMS ({@link this#sendStats()}
+     * The epoch currently collecting statistics
      */
-    private AggregatedFeedProcessorStatisticsHolder statsHolder;
+    private final AtomicReference<StatsAccumulatorEpoch> currentEpoch = new AtomicReference<>(new StatsAccumulatorEpoch());
+
+    /**
+     * The epoch that will be swapped in on the next {@link #sendStats()}
+     */
+    private StatsAccumulatorEpoch spareEpoch = new StatsAccumulatorEpoch();
 
 
     /**
@@ -49,7 +61,7 @@ public class ProvenanceStatsCalculator {
     private ProvenanceEventActiveMqWriter provenanceEventActiveMqWriter;
 
     public ProvenanceStatsCalculator() {
-        statsHolder = new AggregatedFeedProcessorStatisticsHolder();
+
     }
 
 
@@ -57,15 +69,27 @@ public class ProvenanceStatsCalculator {
      * Send the stats to JMS
      */
     public void sendStats() {
-        if (statsHolder != null) {
-            if (provenanceEventActiveMqWriter != null) {
-                provenanceEventActiveMqWriter.writeStats(statsHolder);
-                //reset the statsHolder to get new Statistics
-                statsHolder = new AggregatedFeedProcessorStatisticsHolder();
-            }
+        if (provenanceEventActiveMqWriter != null) {
+            provenanceEventActiveMqWriter.writeStats(swapStats());
         }
     }
 
+    /**
+     * Swap out the current epoch and merge its statistics.
+     * Only one thread can swap at a time.  Threads calculating stats are never blocked.
+     *
+     * @return the statistics collected since the last swap
+     */
+    synchronized AggregatedFeedProcessorStatisticsHolder swapStats() {
+        StatsAccumulatorEpoch epoch = currentEpoch.getAndSet(spareEpoch);
+        epoch.close();
+        epoch.awaitWriters();
+        AggregatedFeedProcessorStatisticsHolder statsHolder = epoch.toStatisticsHolder();
+        epoch.reset();
+        spareEpoch = epoch;
+        return statsHolder;
+    }
+
 
     /**
      * Group the incoming provenance event and gather statistics from it.
@@ -76,7 +100,12 @@ public class ProvenanceStatsCalculator {
         String feedName = event.getFeedName();
         if (feedName != null) {
             try {
-                statsHolder.addStat(event);
+                StatsAccumulatorEpoch epoch = enterCurrentEpoch();
+                try {
+                    epoch.add(event);
+                } finally {
+                    epoch.exit();
+                }
             } catch (Exception e) {
                 log.error("Unable to add Statistics for Event {}.  Exception: {} ", event, e.getMessage(), e);
             }
@@ -85,5 +114,24 @@ public class ProvenanceStatsCalculator {
         }
     }
 
+    /**
+     * Register with the current epoch.
+     * The epoch read may be swapped out, reset and parked as the spare before the writer registers with it, which would reopen it.  The epoch is checked to still be current after registering,
+     * otherwise the writer leaves it and retries.  A writer that is registered with the current epoch is always awaited by the next swap.
+     *
+     * @return the current epoch, which the caller must {@link StatsAccumulatorEpoch#exit() exit}
+     */
+    private StatsAccumulatorEpoch enterCurrentEpoch() {
+        while (true) {
+            StatsAccumulatorEpoch epoch = currentEpoch.get();
+            if (epoch.enter()) {
+                if (currentEpoch.get() == epoch) {
+                    return epoch;
+                }
+                epoch.exit();
+            }
+        }
+    }
+
 
 }
@@ -46,6 +46,9 @@ public class FeedFlowFileCacheUtil {
     @Autowired
     FeedFlowFileGuavaCache flowFileGuavaCache;
 
+    @Autowired
+    FeedFlowFileJournal flowFileJournal;
+
     // internal counters for general stats
     AtomicLong eventCounter = new AtomicLong(0L);
 
@@ -172,6 +175,11 @@ public class FeedFlowFileCacheUtil {
             event.setIsFinalJobEvent(true);
             log.info("Ending the Job for Feed {} and flowfile: {}.  Event: {}  ", event.getFeedName(), event.getFlowFileUuid(), event);
         }
+        //record the changes so they are written to disk on the next checkpoint
+        flowFileJournal.markDirty(feedFlowFile);
+        if (parentFlowFile != null && parentFlowFile != feedFlowFile) {
+            flowFileJournal.markDirty(parentFlowFile);
+        }
 
         eventCounter.incrementAndGet();
 
@@ -45,9 +45,9 @@ import java.util.stream.Collectors;
 /**
  * As a feed runs through NiFi the root {@link FeedFlowFile} keeps track of its progress and the status of its child flow files {@link FeedFlowFile#activeChildFlowFiles} and last processed
  * ProvenanceEvent {@link FeedFlowFile#flowFileLastEventTime} When a {@link FeedFlowFile} is marked as the complete {@link FeedFlowFile#isFeedComplete()} it will be removed from this cache via the
- * {@link this#expire()} thread When NiFi shuts down the cache is persisted to disk via the {@link FeedFlowFileMapDbCache#persistFlowFiles()} called by the {@link
+ * {@link this#expire()} thread. The changes to the cache are written to disk by the {@link FeedFlowFileJournal} after each window of events is processed, and on {@link
  * com.thinkbiganalytics.nifi.provenance.reporting.KyloProvenanceEventReportingTask#onShutdown(ConfigurationContext)} This is to ensure that on startup of NiFi the tracking of the running flow files
- * is kept in tact When NiFi starts the persisted disk cache is checked and loaded back into this cache via the {@link KyloProvenanceEventReportingTask#onConfigurationRestored()}
+ * is kept in tact When NiFi starts the journal is replayed and loaded back into this cache via the {@link KyloProvenanceEventReportingTask#onConfigurationRestored()}
  */
 public class FeedFlowFileGuavaCache {
 
@@ -82,7 +82,7 @@ public class FeedFlowFileGuavaCache {
 
     /**
      * A listener can subscribe to the invalidate calls on the cache.
-     * the {@link FeedFlowFileMapDbCache} subscribes to this cache to get messages and invalidate the files persisted on disk when they are completed.
+     * the {@link FeedFlowFileJournal} subscribes to this cache to get messages and invalidate the files persisted on disk when they are completed.
      */
     public void subscribe(FeedFlowFileCacheListener listener) {
         listeners.add(listener);
@@ -0,0 +1,389 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFileSerializer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Append only journal of the running root {@link FeedFlowFile} objects so the tracking of running flows survives a restart or a crash of NiFi.
+ *
+ * As events are processed the root flow files they touch are marked as dirty.  At each {@link #checkpoint()} (after a window of events is processed and before the last event id is saved) a
+ * snapshot of each dirty flow file is appended to the journal, along with a removal record for each flow file that completed.  On startup the journal is replayed into the {@link
+ * FeedFlowFileGuavaCache}.
+ *
+ * Each record is written as a type byte, the payload length, a CRC32 of the payload and then the payload (the flow file id followed by the serialized flow file).  If NiFi stops in the middle of
+ * a write the partial record at the end of the journal fails the length or CRC check and is discarded on recovery.  When the journal grows to more than {@link #compactionRatio} times the size of the live records it is rewritten with only the live records.
+ */
+public class FeedFlowFileJournal implements FeedFlowFileCacheListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedFlowFileJournal.class);
+
+    private static final byte RECORD_PUT = 1;
+
+    private static final byte RECORD_REMOVE = 2;
+
+    /**
+     * type, length and crc
+     */
+    private static final int RECORD_HEADER_LENGTH = 9;
+
+    @Autowired
+    private FeedFlowFileGuavaCache cache;
+
+    /**
+     * The journal file
+     */
+    private final File journalFile;
+
+    /**
+     * Root flow files changed since the last checkpoint
+     */
+    private final Map<String, FeedFlowFile> dirtyFlowFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Root flow files completed since the last checkpoint, with a flag indicating if the flow file was loaded from the journal
+     */
+    private final Map<String, Boolean> removedFlowFiles = new ConcurrentHashMap<>();
+
+    /**
+     * The size in bytes of the latest record of each flow file in the journal.  Used to determine when to compact
+     */
+    private final Map<String, Integer> liveRecordSizes = new HashMap<>();
+
+    private long liveBytes = 0L;
+
+    private long journalBytes = 0L;
+
+    /**
+     * Compact the journal when it is this many times larger than the live records
+     */
+    private int compactionRatio = 4;
+
+    /**
+     * Do not compact journals smaller than this
+     */
+    private long compactionMinBytes = 16 * 1024 * 1024L;
+
+    /**
+     * Force the journal to disk on each checkpoint
+     */
+    private boolean sync = true;
+
+    private DataOutputStream out;
+
+    private FileOutputStream fileOut;
+
+    public FeedFlowFileJournal(String fileLocation) {
+        this.journalFile = new File(fileLocation);
+        log.info("Initialize FeedFlowFileJournal at: {} ", journalFile.getAbsolutePath());
+    }
+
+    @PostConstruct
+    private void init() {
+        cache.subscribe(this);
+    }
+
+    public void setCompactionRatio(int compactionRatio) {
+        this.compactionRatio = compactionRatio;
+    }
+
+    public void setCompactionMinBytes(long compactionMinBytes) {
+        this.compactionMinBytes = compactionMinBytes;
+    }
+
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Mark the root flow file as changed so it is written on the next checkpoint
+     */
+    public void markDirty(FeedFlowFile feedFlowFile) {
+        if (feedFlowFile != null) {
+            dirtyFlowFiles.put(feedFlowFile.getId(), feedFlowFile);
+        }
+    }
+
+    /**
+     * When the {@link FeedFlowFileGuavaCache} is invalidated the flow file is removed from the journal on the next checkpoint
+     */
+    public void onInvalidate(FeedFlowFile flowFile) {
+        dirtyFlowFiles.remove(flowFile.getId());
+        removedFlowFiles.put(flowFile.getId(), flowFile.isBuiltFromJournal());
+    }
+
+    /**
+     * Read the journal and load the running flow files into the {@link FeedFlowFileGuavaCache}
+     *
+     * @return the number of root flow files loaded
+     */
+    public synchronized int recover() throws IOException {
+        Map<String, FeedFlowFile> flowFiles = readJournal();
+        flowFiles.values().stream().forEach(feedFlowFile -> {
+            feedFlowFile.setBuiltFromJournal(true);
+            cache.add(feedFlowFile.getId(), feedFlowFile);
+            if (feedFlowFile.getActiveChildFlowFiles() != null) {
+                feedFlowFile.getActiveChildFlowFiles().stream().forEach(feedFlowFileId -> cache.add(feedFlowFileId, feedFlowFile));
+            }
+        });
+        return flowFiles.size();
+    }
+
+    /**
+     * Append the changes since the last checkpoint to the journal
+     *
+     * @return the number of records written
+     */
+    public synchronized int checkpoint() throws IOException {
+        if (dirtyFlowFiles.isEmpty() && removedFlowFiles.isEmpty()) {
+            return 0;
+        }
+        ensureOpen();
+        int records = 0;
+        for (Map.Entry<String, Boolean> removed : removedFlowFiles.entrySet()) {
+            String flowFileId = removed.getKey();
+            removedFlowFiles.remove(flowFileId);
+            if (liveRecordSizes.containsKey(flowFileId) || removed.getValue()) {
+                writeRecord(RECORD_REMOVE, flowFileId, new byte[0]);
+                records++;
+            }
+        }
+        for (FeedFlowFile feedFlowFile : dirtyFlowFiles.values()) {
+            dirtyFlowFiles.remove(feedFlowFile.getId());
+            writeRecord(RECORD_PUT, feedFlowFile.getId(), FeedFlowFileSerializer.serialize(feedFlowFile));
+            records++;
+        }
+        out.flush();
+        if (sync) {
+            fileOut.getFD().sync();
+        }
+        if (journalBytes > compactionMinBytes && journalBytes > liveBytes * compactionRatio) {
+            compact();
+        }
+        return records;
+    }
+
+    /**
+     * Write the final checkpoint and close the journal
+     */
+    public synchronized void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            if (out != null) {
+                out.close();
+                out = null;
+                fileOut = null;
+            }
+        }
+    }
+
+    /**
+     * @return the number of root flow files in the journal
+     */
+    public synchronized int size() {
+        return liveRecordSizes.size();
+    }
+
+    /**
+     * @return the size of the journal file in bytes
+     */
+    public synchronized long getJournalBytes() {
+        return journalBytes;
+    }
+
+    /**
+     * Rewrite the journal with just the live flow files.  The new journal is written to a temporary file and then moved over the existing journal.
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        long previousBytes = journalBytes;
+        Map<String, FeedFlowFile> flowFiles = readJournal();
+        if (out != null) {
+            out.close();
+        }
+        File compactFile = new File(journalFile.getAbsolutePath() + ".compact");
+        fileOut = new FileOutputStream(compactFile, false);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+        liveRecordSizes.clear();
+        liveBytes = 0L;
+        journalBytes = 0L;
+        for (FeedFlowFile feedFlowFile : flowFiles.values()) {
+            writeRecord(RECORD_PUT, feedFlowFile.getId(), FeedFlowFileSerializer.serialize(feedFlowFile));
+        }
+        out.flush();
+        fileOut.getFD().sync();
+        out.close();
+        Files.move(compactFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        out = null;
+        ensureOpen();
+        log.info("Compacted the FeedFlowFile journal from {} to {} bytes with {} running flow files in {} ms", previousBytes, journalBytes, flowFiles.size(), System.currentTimeMillis() - start);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out == null) {
+            File parent = journalFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            fileOut = new FileOutputStream(journalFile, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+        }
+    }
+
+    /**
+     * Write a record.  The payload is the flow file id followed by the body
+     */
+    private void writeRecord(byte type, String flowFileId, byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + flowFileId.length() + 2);
+        try (DataOutputStream payloadOut = new DataOutputStream(bytes)) {
+            payloadOut.writeUTF(flowFileId);
+            payloadOut.write(body);
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        int recordSize = RECORD_HEADER_LENGTH + payload.length;
+        journalBytes += recordSize;
+        Integer previous = type == RECORD_PUT ? liveRecordSizes.put(flowFileId, recordSize) : liveRecordSizes.remove(flowFileId);
+        if (previous != null) {
+            liveBytes -= previous;
+        }
+        if (type == RECORD_PUT) {
+            liveBytes += recordSize;
+        }
+    }
+
+    /**
+     * Replay the journal.  Any partial or corrupt record at the end of the journal is truncated.
+     *
+     * @return the latest snapshot of each running root flow file
+     */
+    private Map<String, FeedFlowFile> readJournal() throws IOException {
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        liveRecordSizes.clear();
+        liveBytes = 0L;
+        long validBytes = 0L;
+        if (journalFile.exists()) {
+            if (out != null) {
+                out.flush();
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 64 * 1024))) {
+                while (true) {
+                    byte type;
+                    try {
+                        type = in.readByte();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int length;
+                    byte[] payload;
+                    try {
+                        length = in.readInt();
+                        int checksum = in.readInt();
+                        if ((type != RECORD_PUT && type != RECORD_REMOVE) || length < 0 || length > journalFile.length()) {
+                            log.warn("Found an invalid record in the FeedFlowFile journal at byte {}.  Ignoring the rest of the journal", validBytes);
+                            break;
+                        }
+                        payload = new byte[length];
+                        in.readFully(payload);
+                        CRC32 crc = new CRC32();
+                        crc.update(payload);
+                        if ((int) crc.getValue() != checksum) {
+                            log.warn("Found a corrupt record in the FeedFlowFile journal at byte {}.  Ignoring the rest of the journal", validBytes);
+                            break;
+                        }
+                    } catch (EOFException e) {
+                        log.warn("Found a partial record at the end of the FeedFlowFile journal at byte {}.  Ignoring it", validBytes);
+                        break;
+                    }
+                    int recordSize = RECORD_HEADER_LENGTH + length;
+                    validBytes += recordSize;
+                    String flowFileId = new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+                    if (type == RECORD_PUT) {
+                        //only keep the bytes of the latest snapshot so each flow file is deserialized once
+                        records.put(flowFileId, payload);
+                        Integer previous = liveRecordSizes.put(flowFileId, recordSize);
+                        liveBytes += recordSize - (previous != null ? previous : 0);
+                    } else {
+                        records.remove(flowFileId);
+                        Integer previous = liveRecordSizes.remove(flowFileId);
+                        liveBytes -= previous != null ? previous : 0;
+                    }
+                }
+            }
+            if (validBytes < journalFile.length()) {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+                try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+                    file.setLength(validBytes);
+                }
+            }
+        }
+        journalBytes = validBytes;
+
+        Map<String, FeedFlowFile> flowFiles = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> record : records.entrySet()) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.getValue()))) {
+                in.readUTF();
+                flowFiles.put(record.getKey(), FeedFlowFileSerializer.read(in));
+            } catch (IOException e) {
+                //the record is complete but cannot be read, for example it was written in an older format.  Skip the flow file rather than failing the recovery
+                log.warn("Unable to read the FeedFlowFile {} from the journal.  It will not be recovered. {}", record.getKey(), e.getMessage());
+                liveBytes -= liveRecordSizes.remove(record.getKey());
+            }
+        }
+        return flowFiles;
+    }
+}
@@ -20,6 +20,8 @@ package com.thinkbiganalytics.nifi.provenance.config;
  * #L%
  */
 
+import com.thinkbiganalytics.nifi.activemq.ProvenanceEventBinaryCodec;
+import com.thinkbiganalytics.nifi.provenance.PartitionedProvenanceEventProcessor;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventCollector;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectFactory;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
@@ -27,7 +29,7 @@ import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceStatsCalculator;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCacheUtil;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileGuavaCache;
-import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileJournal;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
 
@@ -46,10 +48,28 @@ public class NifiProvenanceConfig {
 
     private static final Logger log = LoggerFactory.getLogger(NifiProvenanceConfig.class);
     /**
-     * location of where map db should store the persist cache file to disk
+     * location of the journal used to persist the running flow files to disk
      **/
-    @Value("${kylo.provenance.feedflowfile.mapdb.cache.location:/opt/nifi/feed-flowfile-cache.db}")
-    private String feedFlowFileMapDbCacheLocation;
+    @Value("${kylo.provenance.feedflowfile.journal.location:/opt/nifi/feed_flowfile_cache/feed-flowfile.journal}")
+    private String feedFlowFileJournalLocation;
+
+    /**
+     * flag to force the journal to disk after each window of events is processed
+     */
+    @Value("${kylo.provenance.feedflowfile.journal.sync:true}")
+    private boolean feedFlowFileJournalSync;
+
+    /**
+     * The format used to send events and statistics to JMS. Either "serialized" for Java serialization or "binary" for the {@link ProvenanceEventBinaryCodec}
+     */
+    @Value("${kylo.provenance.jms.codec:serialized}")
+    private String jmsCodec;
+
+    /**
+     * Flag to indicate the binary messages should be compressed
+     */
+    @Value("${kylo.provenance.jms.codec.compress:false}")
+    private boolean jmsCodecCompress;
 
     @Bean
     public SpringApplicationContext springApplicationContext() {
@@ -74,9 +94,10 @@ public class NifiProvenanceConfig {
     }
 
     @Bean
-    public FeedFlowFileMapDbCache feedFlowFileMapDbCache() {
-        String location = feedFlowFileMapDbCacheLocation;
-        return new FeedFlowFileMapDbCache(location);
+    public FeedFlowFileJournal feedFlowFileJournal() {
+        FeedFlowFileJournal journal = new FeedFlowFileJournal(feedFlowFileJournalLocation);
+        journal.setSync(feedFlowFileJournalSync);
+        return journal;
     }
 
     @Bean
@@ -91,7 +112,12 @@ public class NifiProvenanceConfig {
 
     @Bean
     public ProvenanceEventActiveMqWriter provenanceEventActiveMqWriter() {
-        return new ProvenanceEventActiveMqWriter();
+        ProvenanceEventActiveMqWriter writer = new ProvenanceEventActiveMqWriter();
+        if (ProvenanceEventBinaryCodec.FORMAT.equalsIgnoreCase(jmsCodec)) {
+            log.info("Sending provenance events to JMS using the {} codec. compress: {} ", ProvenanceEventBinaryCodec.NAME, jmsCodecCompress);
+            writer.setCodec(new ProvenanceEventBinaryCodec(jmsCodecCompress));
+        }
+        return writer;
     }
 
     @Bean
@@ -99,6 +125,16 @@ public class NifiProvenanceConfig {
         return new ProvenanceEventCollector(provenanceEventActiveMqWriter());
     }
 
+    /**
+     * The KyloProvenanceEventReportingTask will set the number of workers based upon its property ("Processing threads")
+     *
+     * @return the processor used to process events across multiple threads
+     */
+    @Bean
+    public PartitionedProvenanceEventProcessor partitionedProvenanceEventProcessor() {
+        return new PartitionedProvenanceEventProcessor();
+    }
+
     @Bean
     public ProvenanceStatsCalculator provenanceStatsCalculator() {
         return new ProvenanceStatsCalculator();
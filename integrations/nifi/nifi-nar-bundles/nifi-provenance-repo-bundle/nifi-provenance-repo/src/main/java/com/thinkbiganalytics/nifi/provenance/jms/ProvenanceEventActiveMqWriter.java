@@ -20,6 +20,7 @@ package com.thinkbiganalytics.nifi.provenance.jms;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.JmsObjectCodec;
 import com.thinkbiganalytics.activemq.SendJmsMessage;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
@@ -30,6 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -54,10 +57,23 @@ public class ProvenanceEventActiveMqWriter {
 
     private Map<String, Set<JmsSendListener>> listeners = new HashMap<>();
 
+    /**
+     * The codec used to encode the messages.  If null the messages are sent using Java serialization
+     */
+    private JmsObjectCodec codec;
+
     public ProvenanceEventActiveMqWriter() {
 
     }
 
+    public JmsObjectCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(JmsObjectCodec codec) {
+        this.codec = codec;
+    }
+
     public void subscribe(JmsSendListener listener) {
         this.listeners.computeIfAbsent(listener.getDestination(), (d) -> new HashSet<JmsSendListener>()).add(listener);
     }
@@ -85,6 +101,17 @@ public class ProvenanceEventActiveMqWriter {
         }
     }
 
+    /**
+     * Send the object to the queue using the configured codec, or Java serialization if no codec is configured
+     */
+    private void send(String queueName, Serializable payload) throws IOException {
+        if (codec != null && codec.canEncode(payload)) {
+            sendJmsMessage.sendEncodedObjectToQueue(queueName, payload, codec);
+        } else {
+            sendJmsMessage.sendSerializedObjectToQueue(queueName, payload);
+        }
+    }
+
     /**
      * Send the Statistics to JMS using the JMS Queue {@link Queues.PROVENANCE_EVENT_STATS_QUEUE}
      *
@@ -94,7 +121,7 @@ public class ProvenanceEventActiveMqWriter {
         try {
             if (stats.getEventCount().get() > 0) {
                 logger.info("SENDING AGGREGATED STAT to JMS {} ", stats);
-                sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                send(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
                 AggregationEventProcessingStats.addStreamingEvents(stats.getEventCount().intValue());
                 notifySuccess(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
             }
@@ -112,7 +139,7 @@ public class ProvenanceEventActiveMqWriter {
     public void writeBatchEvents(ProvenanceEventRecordDTOHolder events) {
         try {
             logger.info("SENDING Events to JMS {} ", events);
-            sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            send(Queues.FEED_MANAGER_QUEUE, events);
             AggregationEventProcessingStats.addBatchEvents(events.getEvents().size());
             notifySuccess(Queues.FEED_MANAGER_QUEUE, events);
         } catch (Exception e) {
@@ -23,11 +23,12 @@ package com.thinkbiganalytics.nifi.provenance.reporting;
 import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheSync;
 import com.thinkbiganalytics.nifi.core.api.metadata.KyloNiFiFlowProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProviderService;
+import com.thinkbiganalytics.nifi.provenance.PartitionedProvenanceEventProcessor;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventCollector;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventRecordConverter;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
-import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileJournal;
 import com.thinkbiganalytics.nifi.provenance.jms.ProvenanceEventActiveMqWriter;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.nifi.provenance.util.SpringApplicationContext;
@@ -128,6 +129,25 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    protected static final PropertyDescriptor PROVENANCE_FETCH_SIZE = new PropertyDescriptor.Builder()
+        .name("Provenance fetch size")
+        .description(
+            "The maximum number of events queried from the NiFi provenance repository and held in memory at one time.  Each window of events is processed, sent to Kylo and recorded as the last event id before the next window is queried, keeping memory use flat regardless of how many events are waiting to be processed.")
+        .defaultValue("500")
+        .required(false)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+
+    protected static final PropertyDescriptor PROCESSING_THREADS = new PropertyDescriptor.Builder()
+        .name("Processing threads")
+        .description(
+            "The number of threads used to process the events in each batch.  Events are partitioned by their root flow file so the events for a given flow file are always processed in order.  A value of 1 will process all events on the reporting task thread.")
+        .defaultValue("1")
+        .required(false)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
     PropertyDescriptor METADATA_SERVICE = new PropertyDescriptor.Builder()
         .name("Metadata Service")
         .description("Think Big metadata service")
@@ -186,6 +206,14 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
      * value from PROCESSING_BATCH_SIZE
      */
     private Integer processingBatchSize;
+    /**
+     * value from PROVENANCE_FETCH_SIZE
+     */
+    private Integer provenanceFetchSize;
+    /**
+     * value from PROCESSING_THREADS
+     */
+    private Integer processingThreads;
     /**
      * value from LAST_EVENT_ID_NOT_FOUND_VALUE
      */
@@ -206,7 +234,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     private Long nifiQueryTime = 0L;
     private NodeIdStrategy nodeIdStrategy;
     /**
-     * count the number of retry attempts when getting the flowfileMapDB Cache
+     * count the number of retry attempts when loading the flowfile journal
      */
     private int initializeFlowFilesRetryAttempts = 0;
 
@@ -230,6 +258,8 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         properties.add(LAST_EVENT_ID_NOT_FOUND_VALUE);
         properties.add(INITIAL_EVENT_ID_VALUE);
         properties.add(PROCESSING_BATCH_SIZE);
+        properties.add(PROVENANCE_FETCH_SIZE);
+        properties.add(PROCESSING_THREADS);
         return properties;
     }
 
@@ -245,6 +275,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         Boolean rebuildOnRestart = context.getProperty(REBUILD_CACHE_ON_RESTART).asBoolean();
 
         this.processingBatchSize = context.getProperty(PROCESSING_BATCH_SIZE).asInteger();
+        this.provenanceFetchSize = context.getProperty(PROVENANCE_FETCH_SIZE).asInteger();
+        this.processingThreads = context.getProperty(PROCESSING_THREADS).asInteger();
+        getPartitionedProvenanceEventProcessor().setWorkers(processingThreads == null ? 1 : processingThreads);
         this.lastEventIdNotFoundValue = LAST_EVENT_ID_NOT_FOUND_OPTION.valueOf(context.getProperty(LAST_EVENT_ID_NOT_FOUND_VALUE).getValue());
         this.initialEventIdValue = INITIAL_EVENT_ID_OPTION.valueOf(context.getProperty(INITIAL_EVENT_ID_VALUE).getValue());
 
@@ -273,9 +306,15 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         getLogger().info("onShutdown: Attempting to persist any active flow files to disk");
         abortProcessing();
         try {
-            //persist running flowfile metadata to disk
-            int persistedRootFlowFiles = getFlowFileMapDbCache().persistFlowFiles();
-            getLogger().info("onShutdown: Finished persisting {} root flow files to disk ", new Object[]{persistedRootFlowFiles});
+            getPartitionedProvenanceEventProcessor().shutdown();
+        } catch (Exception e) {
+            //ok to swallow exception here.  this is called when NiFi is shutting down
+        }
+        try {
+            //write any remaining changes to the running flowfile metadata to disk
+            FeedFlowFileJournal journal = getFlowFileJournal();
+            journal.close();
+            getLogger().info("onShutdown: Finished persisting {} root flow files to disk ", new Object[]{journal.size()});
         } catch (Exception e) {
             //ok to swallow exception here.  this is called when NiFi is shutting down
         }
@@ -295,10 +334,10 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
                 loadSpring(true);
                 //rebuild mem flowfile metadata from disk
-                initializeFlowFilesFromMapDbCache();
+                initializeFlowFilesFromJournal();
             } catch (Exception e) {
                 getLogger().warn(
-                    "Error attempting to restore FlowFile MapDB cache in onConfigurationRestored with message: {}.  The Reporting Task will attempt to initialize this again at the start of the first trigger.",
+                    "Error attempting to restore FlowFile journal in onConfigurationRestored with message: {}.  The Reporting Task will attempt to initialize this again at the start of the first trigger.",
                     new Object[]{e.getMessage()});
                 initializationError = true;
             } finally {
@@ -310,15 +349,17 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     /**
      * attempt to load the data from disk into the Guava Cache
      */
-    private void initializeFlowFilesFromMapDbCache() {
-        int loadedRootFlowFiles = getFlowFileMapDbCache().loadGuavaCache();
-        getLogger().info("initializeFlowFilesFromMapDbCache: Finished loading {} persisted files from disk into the Guava Cache", new Object[]{loadedRootFlowFiles});
+    private void initializeFlowFilesFromJournal() throws IOException {
+        long start = System.currentTimeMillis();
+        int loadedRootFlowFiles = getFlowFileJournal().recover();
+        getLogger().info("initializeFlowFilesFromJournal: Finished loading {} persisted files from disk into the Guava Cache in {} ms",
+                         new Object[]{loadedRootFlowFiles, (System.currentTimeMillis() - start)});
     }
 
     /**
      * Ensures the flow files stored in the cache from the last time NiFi was shut down are loaded
      */
-    private void ensureInitializeFlowFileMapDbCache() {
+    private void ensureInitializeFlowFileJournal() {
         if (initializationError) {
             getLogger().info("Errors was found initializing the Flow files... attempting to resolve now");
             initializing.set(true);
@@ -326,11 +367,11 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             boolean retry = initializeFlowFilesRetryAttempts < 3;
             if (retry) {
                 try {
-                    initializeFlowFilesFromMapDbCache();
+                    initializeFlowFilesFromJournal();
                 } catch (Exception e) {
                     initializeFlowFilesRetryAttempts++;
                     if (initializeFlowFilesRetryAttempts < 3) {
-                        getLogger().error("Retry to get mapDbCache  with attempt # {}", new Object[]{initializeFlowFilesRetryAttempts});
+                        getLogger().error("Retry to load the flowfile journal with attempt # {}", new Object[]{initializeFlowFilesRetryAttempts});
                         //wait
                         try {
                             Thread.sleep(300L);
@@ -338,9 +379,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
                         }
                         //retry
-                        ensureInitializeFlowFileMapDbCache();
+                        ensureInitializeFlowFileJournal();
                     } else {
-                        getLogger().error("ERROR attempting to initialize the FlowFile MapDB cache.  Any events running midstream before NiFi was restarted may not be finished in Kylo {} ",
+                        getLogger().error("ERROR attempting to initialize the FlowFile journal.  Any events running midstream before NiFi was restarted may not be finished in Kylo {} ",
                                           new Object[]{e.getMessage()}, e);
                     }
                 } finally {
@@ -458,7 +499,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     /**
      * Finishes processing and resets the {@code processing} flag
      */
-    private void finishProcessing(Integer recordCount) {
+    private void finishProcessing(long recordCount) {
         if (processing.compareAndSet(true, false)) {
             if (recordCount > 0) {
                 getLogger().info("Reporting Task Finished.  Last Event Recorded was: {} ", new Object[]{getLastEventId(stateManager)});
@@ -481,7 +522,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             return;
         }
 
-        ensureInitializeFlowFileMapDbCache();
+        ensureInitializeFlowFileJournal();
 
         if (!isInitializing() && processing.compareAndSet(false, true)) {
 
@@ -527,18 +568,18 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                 long nextId = lastEventId + 1;
 
                 //record count is inclusive, so we need to add one to the difference to include the last eventid
-                int recordCount = new Long(maxEventId - (nextId < 0 ? 0 : nextId)).intValue() + 1;
-                int totalRecords = recordCount;
+                long recordCount = maxEventId - (nextId < 0 ? 0 : nextId) + 1;
+                long totalRecords = recordCount;
                 long start = System.currentTimeMillis();
                 //split this into batches of events, maxing at 500 if not specified
                 int batchSize = processingBatchSize == null || processingBatchSize < 1 ? 500 : processingBatchSize;
-                //setup the object pool to be able to store at least the processing batch size amount
+                //setup the object pool to be able to store at least the fetch size amount.  Objects are returned to the pool after each window is processed
                 ProvenanceEventObjectPool pool = getProvenanceEventObjectPool();
-                int total = processingBatchSize + 100;
+                int total = getFetchSize(batchSize) + 100;
                 pool.setMaxIdle(total);
                 pool.setMaxTotal(total);
 
-                Integer batches = (int) Math.ceil(Double.valueOf(recordCount) / batchSize);
+                long batches = (long) Math.ceil(Double.valueOf(recordCount) / batchSize);
                 if (recordCount > 0) {
                     getLogger().info(
                         "KyloProvenanceEventReportingTask onTrigger Info: KyloFlowCache Sync Id: {} . Attempting to process {} events starting with event id: {}.  Splitting into {} batches of {} each ",
@@ -553,7 +594,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                     }
                     long min = lastEventId + 1;
                     long max = (min + (batchSize - 1)) > maxEventId ? maxEventId : (min + (batchSize - 1));
-                    int batchAmount = new Long(max - (min < 0 ? 0 : min)).intValue() + 1;
+                    long batchAmount = max - (min < 0 ? 0 : min) + 1;
                     if (batchAmount <= 0) {
                         break;
                     } else {
@@ -580,6 +621,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                     getLogger().info(
                         "KyloProvenanceEventReportingTask onTrigger Info: ReportingTask finished. Last Event id: {}. Total time to process {} events was {} ms.  Total time spent querying for events in Nifi was {} ms.  Kylo ProcessingTime: {} ms ",
                         new Object[]{lastEventId, totalRecords, processingTime, nifiQueryTime, processingTime - nifiQueryTime});
+                    if (getPartitionedProvenanceEventProcessor().isPartitioned()) {
+                        getLogger().info("KyloProvenanceEventReportingTask onTrigger Info: Shard stats: {} ", new Object[]{getPartitionedProvenanceEventProcessor().getShardStats()});
+                    }
                 }
 
                 finishProcessing(totalRecords);
@@ -733,7 +777,20 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * processes all events inclusive in the range
+     * Determine the number of events to query from provenance at a time
+     *
+     * @param batchSize the processing batch size
+     * @return the fetch size, never larger than the processing batch size
+     */
+    private int getFetchSize(int batchSize) {
+        int fetchSize = provenanceFetchSize == null || provenanceFetchSize < 1 ? 500 : provenanceFetchSize;
+        return Math.min(fetchSize, batchSize);
+    }
+
+    /**
+     * processes all events inclusive in the range.
+     * The events are queried from provenance in windows of at most {@link #PROVENANCE_FETCH_SIZE} events.  Each window is processed, sent to JMS and the last event id of the window is recorded
+     * before the next window is queried so only a single window of events is held in memory at a time.
      *
      * @param provenance the repository to query
      * @param minEventId the minEventId to query
@@ -742,37 +799,86 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
      */
     private Long processEventsInRange(ProvenanceEventRepository provenance, Long minEventId, Long maxEventId) throws IOException {
         Long lastEventId = null;
-
-        int recordCount = new Long(maxEventId - (minEventId < 0 ? 0 : minEventId)).intValue();
         currentProcessingMessage = "Finding all Events between " + minEventId + " - " + maxEventId;
 
-        //add one to the record count to get the correct number in the range including the maxEventId
-        recordCount += 1;
-        long start = System.currentTimeMillis();
-        final List<ProvenanceEventRecord> events = provenance.getEvents(minEventId, recordCount);
+        int fetchSize = getFetchSize(processingBatchSize == null || processingBatchSize < 1 ? 500 : processingBatchSize);
+        long nextEventId = minEventId < 0 ? 0 : minEventId;
+        boolean rangeComplete = false;
+        while (isProcessing()) {
+            //add one to the record count to get the correct number in the range including the maxEventId
+            long remaining = maxEventId - nextEventId + 1;
+            if (remaining <= 0) {
+                rangeComplete = true;
+                break;
+            }
+            int windowSize = (int) Math.min(fetchSize, remaining);
+            long start = System.currentTimeMillis();
+            final List<ProvenanceEventRecord> events = provenance.getEvents(nextEventId, windowSize);
+
+            updateNifiFlowCache();
 
-        updateNifiFlowCache();
+            long end = System.currentTimeMillis();
+            nifiQueryTime += (end - start);
+            if (events == null || events.isEmpty()) {
+                rangeComplete = true;
+                break;
+            }
+            Collections.sort(events, new ProvenanceEventRecordComparator());
+            Long windowLastEventId = processEventWindow(events, maxEventId, lastEventId);
+            if (windowLastEventId == null || windowLastEventId.equals(lastEventId)) {
+                //nothing new was found in this window, the remaining events are beyond the range
+                rangeComplete = windowLastEventId != null || isProcessing();
+                break;
+            }
+            lastEventId = windowLastEventId;
+            nextEventId = lastEventId + 1;
+            if (isProcessing()) {
+                //acknowledge the window so a restart will resume after it
+                setLastEventId(lastEventId);
+            }
+        }
+        if (rangeComplete && isProcessing()) {
+            //every event in the range has been seen.  Any gaps in the event ids up to the max are done
+            return maxEventId;
+        }
+        return lastEventId == null ? minEventId - 1 : lastEventId;
 
-        long end = System.currentTimeMillis();
-        nifiQueryTime += (end - start);
-        Collections.sort(events, new ProvenanceEventRecordComparator());
+    }
+
+    /**
+     * Processes a single window of events and sends the results to JMS.
+     *
+     * @param events          the events sorted by event id
+     * @param maxEventId      the max event id of the range being processed.  Events after this id are ignored
+     * @param lastEventId     the last event id that was processed, or null if none have been processed
+     * @return the last event id processed in this window, or {@code lastEventId} if no events in the window were processed
+     */
+    private Long processEventWindow(List<ProvenanceEventRecord> events, Long maxEventId, Long lastEventId) {
         ProvenanceEventObjectPool pool = getProvenanceEventObjectPool();
         List<ProvenanceEventRecordDTO> pooledEvents = new ArrayList<>(events.size());
+        PartitionedProvenanceEventProcessor partitionedProcessor = getPartitionedProvenanceEventProcessor();
+        boolean partitioned = partitionedProcessor.isPartitioned();
         try {
             for (ProvenanceEventRecord eventRecord : events) {
-                if (!isProcessing()) {
+                if (!isProcessing() || eventRecord.getEventId() > maxEventId) {
                     break;
                 }
-                if (lastEventId == null || eventRecord.getEventId() != lastEventId) {
-                    ProvenanceEventRecordDTO dto = processEvent(eventRecord);
+                if (lastEventId == null || eventRecord.getEventId() > lastEventId) {
+                    //when partitioned, convert the events here and process them across the workers once the window is collected
+                    ProvenanceEventRecordDTO dto = partitioned ? convertEvent(eventRecord) : processEvent(eventRecord);
                     if (dto != null) {
                         pooledEvents.add(dto);
                     }
+                    lastEventId = eventRecord.getEventId();
                 }
-                lastEventId = eventRecord.getEventId();
+            }
+            if (partitioned && isProcessing()) {
+                partitionedProcessor.process(pooledEvents);
             }
             //Send JMS off
             getProvenanceEventCollector().sendToJms();
+            //write the flow files changed by this window to disk before the window is acknowledged
+            getFlowFileJournal().checkpoint();
         } catch (Exception e) {
             getLogger().error("Error processing Kylo ProvenanceEvent ", e);
             abortProcessing();
@@ -791,10 +897,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
             pooledEvents.clear();
 
         }
-        getLogger().info("ProvenanceEventPool: Pool Stats: Created:[" + pool.getCreatedCount() + "], Borrowed:[" + pool.getBorrowedCount() + "]");
-
-        return lastEventId == null ? minEventId : lastEventId;
+        getLogger().debug("ProvenanceEventPool: Pool Stats: Created:[" + pool.getCreatedCount() + "], Borrowed:[" + pool.getBorrowedCount() + "]");
 
+        return lastEventId;
     }
 
     /**
@@ -805,11 +910,25 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
      * @return the converted event after being processed.
      */
     public ProvenanceEventRecordDTO processEvent(ProvenanceEventRecord event) throws Exception {
+        ProvenanceEventRecordDTO eventRecordDTO = convertEvent(event);
+        if (eventRecordDTO != null) {
+            getProvenanceEventCollector().process(eventRecordDTO);
+        }
+        return eventRecordDTO;
+    }
+
+    /**
+     * Convert the Event to a pooled object without processing it.
+     * If the event is not found to be managed by Kylo it is returned as Null.
+     *
+     * @param event the event to convert
+     * @return the converted event
+     */
+    private ProvenanceEventRecordDTO convertEvent(ProvenanceEventRecord event) throws Exception {
         ProvenanceEventRecordDTO eventRecordDTO = null;
         if (getProvenanceFeedLookup().isKyloManaged(event.getComponentId())) {
             ProvenanceEventObjectPool pool = getProvenanceEventObjectPool();
             eventRecordDTO = ProvenanceEventRecordConverter.getPooledObject(pool, event);
-            getProvenanceEventCollector().process(eventRecordDTO);
         }
         return eventRecordDTO;
     }
@@ -850,6 +969,13 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         return SpringApplicationContext.getInstance().getBean(ProvenanceEventActiveMqWriter.class);
     }
 
+    /**
+     * The Spring managed bean to process the events across multiple threads
+     */
+    private PartitionedProvenanceEventProcessor getPartitionedProvenanceEventProcessor() {
+        return SpringApplicationContext.getInstance().getBean(PartitionedProvenanceEventProcessor.class);
+    }
+
     /**
      * The ProvenanceEventRecordDTO object pool
      */
@@ -858,11 +984,11 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
     }
 
     /**
-     * Persistent cache that will only be used when NiFi shuts down or is started, persisting the RootFlowFile objects to help complete Statistics and event processing when NiFi shuts down with events
-     * in mid flow processing
+     * Persistent journal of the RootFlowFile objects, written after each window of events and read when NiFi is started, to help complete Statistics and event processing when NiFi stops with
+     * events in mid flow processing
      */
-    private FeedFlowFileMapDbCache getFlowFileMapDbCache() {
-        return SpringApplicationContext.getInstance().getBean(FeedFlowFileMapDbCache.class);
+    private FeedFlowFileJournal getFlowFileJournal() {
+        return SpringApplicationContext.getInstance().getBean(FeedFlowFileJournal.class);
     }
 
     private static enum LAST_EVENT_ID_NOT_FOUND_OPTION {ZERO, MAX_EVENT_ID, KYLO}
@@ -0,0 +1,106 @@
+package com.thinkbiganalytics.nifi.provenance.stats;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe counters for a feed, grouped by processor
+ */
+public class FeedStatsAccumulator {
+
+    private final String feedName;
+
+    private volatile String processGroup;
+
+    private final Map<String, ProcessorStatsAccumulator> processorStats = new ConcurrentHashMap<>();
+
+    private final LongAdder totalEvents = new LongAdder();
+
+    private final LongAccumulator minEventId = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator maxEventId = new LongAccumulator(Math::max, 0L);
+
+    public FeedStatsAccumulator(String feedName) {
+        this.feedName = feedName;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    /**
+     * Add the event to the counters for its processor
+     */
+    public void add(ProvenanceEventRecordDTO event) {
+        processorStats.computeIfAbsent(event.getComponentId(), processorId -> new ProcessorStatsAccumulator(processorId, event.getComponentName())).add(event);
+        totalEvents.increment();
+        minEventId.accumulate(event.getEventId());
+        maxEventId.accumulate(event.getEventId());
+        if (processGroup == null && StringUtils.isNotBlank(event.getFeedProcessGroupId())) {
+            processGroup = event.getFeedProcessGroupId();
+        }
+    }
+
+    public boolean isEmpty() {
+        return totalEvents.sum() == 0L;
+    }
+
+    /**
+     * Create the stats to send to JMS.  Processors without any events in this collection are skipped.
+     * This should only be called once no more events are being added.
+     *
+     * @param collectionId the id of the collection the stats belong to
+     * @return the stats for this feed
+     */
+    public AggregatedFeedProcessorStatistics toFeedStatistics(String collectionId) {
+        AggregatedFeedProcessorStatistics feedStatistics = new AggregatedFeedProcessorStatistics(feedName, collectionId);
+        feedStatistics.setProcessGroup(processGroup);
+        feedStatistics.setTotalEvents(totalEvents.sum());
+        feedStatistics.setMinEventId(isEmpty() ? 0L : minEventId.get());
+        feedStatistics.setMaxEventId(maxEventId.get());
+        processorStats.values().stream().filter(processor -> !processor.isEmpty()).forEach(processor -> {
+            AggregatedProcessorStatistics processorStatistics = new AggregatedProcessorStatistics(processor.getProcessorId(), processor.getProcessorName(), collectionId);
+            processorStatistics.setStats(processor.toGroupedStats(collectionId));
+            feedStatistics.getProcessorStats().put(processor.getProcessorId(), processorStatistics);
+        });
+        return feedStatistics;
+    }
+
+    /**
+     * Reset the counters so this accumulator can be reused for the next collection
+     */
+    public void reset() {
+        totalEvents.reset();
+        minEventId.reset();
+        maxEventId.reset();
+        processorStats.values().stream().forEach(ProcessorStatsAccumulator::reset);
+    }
+}
@@ -0,0 +1,186 @@
+package com.thinkbiganalytics.nifi.provenance.stats;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe counters for a single processor in a feed.
+ * Each counter is a striped {@link LongAdder} so concurrent workers do not contend on the same value.  The counters are converted to a {@link GroupedStats} when the stats are sent to JMS.
+ */
+public class ProcessorStatsAccumulator {
+
+    private final String processorId;
+
+    private final String processorName;
+
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder duration = new LongAdder();
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder jobsStarted = new LongAdder();
+    private final LongAdder jobsFinished = new LongAdder();
+    private final LongAdder processorsFailed = new LongAdder();
+    private final LongAdder flowFilesStarted = new LongAdder();
+    private final LongAdder flowFilesFinished = new LongAdder();
+    private final LongAdder jobsFailed = new LongAdder();
+    private final LongAdder successfulJobDuration = new LongAdder();
+    private final LongAdder jobDuration = new LongAdder();
+
+    /**
+     * Min/Max event time in millis
+     */
+    private final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAccumulator maxEventId = new LongAccumulator(Math::max, 0L);
+
+    private volatile String clusterNodeId;
+
+    private volatile String clusterNodeAddress;
+
+    public ProcessorStatsAccumulator(String processorId, String processorName) {
+        this.processorId = processorId;
+        this.processorName = processorName;
+    }
+
+    public String getProcessorId() {
+        return processorId;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    /**
+     * Add the event to the counters
+     */
+    public void add(ProvenanceEventRecordDTO event) {
+        FeedFlowFile feedFlowFile = event.getFeedFlowFile();
+        bytesIn.add(event.getInputContentClaimFileSizeBytes() != null ? event.getInputContentClaimFileSizeBytes() : 0L);
+        bytesOut.add(event.getOutputContentClaimFileSizeBytes() != null ? event.getOutputContentClaimFileSizeBytes() : 0L);
+        duration.add(event.getEventDuration() != null ? event.getEventDuration() : 0L);
+        if (event.isFailure()) {
+            processorsFailed.increment();
+        }
+        if (event.isStartOfFlowFile()) {
+            flowFilesStarted.increment();
+        }
+        if (event.isEndingFlowFileEvent()) {
+            flowFilesFinished.increment();
+        }
+        if (feedFlowFile != null && event.getEventId().equals(feedFlowFile.getFirstEventId())) {
+            jobsStarted.increment();
+        }
+        if (event.isEndOfJob()) {
+            jobsFinished.increment();
+            Long jobTime = feedFlowFile != null ? feedFlowFile.calculateJobDuration(event) : null;
+            long time = jobTime != null ? jobTime : 0L;
+            jobDuration.add(time);
+            if (feedFlowFile != null && feedFlowFile.hasFailedEvents()) {
+                jobsFailed.increment();
+            } else {
+                successfulJobDuration.add(time);
+            }
+        }
+        long eventTime = event.getEventTime().getMillis();
+        minTime.accumulate(eventTime);
+        maxTime.accumulate(eventTime);
+        maxEventId.accumulate(event.getEventId());
+
+        if (clusterNodeId == null && StringUtils.isNotBlank(event.getClusterNodeId())) {
+            clusterNodeId = event.getClusterNodeId();
+        }
+        if (clusterNodeAddress == null && StringUtils.isNotBlank(event.getClusterNodeAddress())) {
+            clusterNodeAddress = event.getClusterNodeAddress();
+        }
+        totalCount.increment();
+    }
+
+    /**
+     * @return true if no events have been added since the last reset
+     */
+    public boolean isEmpty() {
+        return totalCount.sum() == 0L;
+    }
+
+    /**
+     * Create the stats to send to JMS.  This should only be called once no more events are being added.
+     *
+     * @param collectionId the id of the collection the stats belong to
+     * @return the stats for this processor
+     */
+    public GroupedStats toGroupedStats(String collectionId) {
+        GroupedStats stats = new GroupedStats();
+        stats.setGroupKey(collectionId);
+        stats.setBytesIn(bytesIn.sum());
+        stats.setBytesOut(bytesOut.sum());
+        stats.setDuration(duration.sum());
+        stats.setTotalCount(totalCount.sum());
+        stats.setJobsStarted(jobsStarted.sum());
+        stats.setJobsFinished(jobsFinished.sum());
+        stats.setProcessorsFailed(processorsFailed.sum());
+        stats.setFlowFilesStarted(flowFilesStarted.sum());
+        stats.setFlowFilesFinished(flowFilesFinished.sum());
+        stats.setJobsFailed(jobsFailed.sum());
+        stats.setSuccessfulJobDuration(successfulJobDuration.sum());
+        stats.setJobDuration(jobDuration.sum());
+        stats.setMaxEventId(maxEventId.get());
+        stats.setClusterNodeId(clusterNodeId);
+        stats.setClusterNodeAddress(clusterNodeAddress);
+        if (!isEmpty()) {
+            DateTime min = new DateTime(minTime.get());
+            stats.setMinTime(min);
+            stats.setTime(min);
+            stats.setMaxTime(new DateTime(maxTime.get()));
+        }
+        return stats;
+    }
+
+    /**
+     * Reset the counters so this accumulator can be reused for the next collection
+     */
+    public void reset() {
+        bytesIn.reset();
+        bytesOut.reset();
+        duration.reset();
+        totalCount.reset();
+        jobsStarted.reset();
+        jobsFinished.reset();
+        processorsFailed.reset();
+        flowFilesStarted.reset();
+        flowFilesFinished.reset();
+        jobsFailed.reset();
+        successfulJobDuration.reset();
+        jobDuration.reset();
+        minTime.reset();
+        maxTime.reset();
+        maxEventId.reset();
+    }
+}
@@ -0,0 +1,167 @@
+package com.thinkbiganalytics.nifi.provenance.stats;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+
+import org.joda.time.DateTime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One buffer of statistics collected between two sends to JMS.
+ *
+ * Writers call {@link #enter()} before adding an event and {@link #exit()} when done.  Once an epoch is swapped out it is {@link #close() closed} and the flushing thread waits for the in flight
+ * writers with {@link #awaitWriters()} before reading the counters.  A writer that enters an epoch after it was closed must retry against the new epoch.  Since a
+ * {@link #reset()} epoch is reopened, writers must also check that the epoch they entered is still the current one.
+ */
+public class StatsAccumulatorEpoch {
+
+    /**
+     * Number of times {@link #awaitWriters()} yields before parking
+     */
+    private static final int MAX_SPINS = 100;
+
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Map<String, FeedStatsAccumulator> feedStats = new ConcurrentHashMap<>();
+
+    private final LongAdder eventCount = new LongAdder();
+
+    private final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAccumulator minEventId = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator maxEventId = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Number of writers currently adding events to this epoch
+     */
+    private final AtomicInteger writers = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * Register a writer with this epoch
+     *
+     * @return true if the writer can add events, false if the epoch was closed and the writer should use the current epoch
+     */
+    public boolean enter() {
+        writers.incrementAndGet();
+        if (closed) {
+            writers.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void exit() {
+        writers.decrementAndGet();
+    }
+
+    /**
+     * Add the event to the counters.  The caller must have successfully called {@link #enter()}
+     */
+    public void add(ProvenanceEventRecordDTO event) {
+        feedStats.computeIfAbsent(event.getFeedName(), FeedStatsAccumulator::new).add(event);
+        long eventTime = event.getEventTime().getMillis();
+        minTime.accumulate(eventTime);
+        maxTime.accumulate(eventTime);
+        minEventId.accumulate(event.getEventId());
+        maxEventId.accumulate(event.getEventId());
+        eventCount.increment();
+    }
+
+    /**
+     * Stop any new writers from adding events
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Wait for writers that entered before the epoch was closed to finish.
+     * Writers only hold the epoch while adding a single event, so this spins briefly before parking with an increasing delay of up to {@link #MAX_PARK_NANOS}.
+     */
+    public void awaitWriters() {
+        int spins = 0;
+        long parkNanos = MIN_PARK_NANOS;
+        while (writers.get() > 0) {
+            if (spins < MAX_SPINS) {
+                spins++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Merge the counters into the holder sent to JMS.  Feeds without any events in this epoch are skipped.
+     * This should only be called after the epoch is closed and {@link #awaitWriters()} has returned.
+     */
+    public AggregatedFeedProcessorStatisticsHolder toStatisticsHolder() {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        long count = eventCount.sum();
+        holder.getEventCount().set(count);
+        if (count > 0) {
+            holder.setMinTime(new DateTime(minTime.get()));
+            holder.setMaxTime(new DateTime(maxTime.get()));
+            holder.setMinEventId(minEventId.get());
+            holder.setMaxEventId(maxEventId.get());
+        }
+        feedStats.values().stream().filter(feed -> !feed.isEmpty()).forEach(feed -> {
+            AggregatedFeedProcessorStatistics feedStatistics = feed.toFeedStatistics(holder.getCollectionId());
+            holder.getFeedStatistics().put(feed.getFeedName(), feedStatistics);
+        });
+        return holder;
+    }
+
+    /**
+     * Reset the counters and reopen the epoch so it can be swapped back in.  The feed and processor accumulators are kept to avoid recreating them on every send.
+     */
+    public void reset() {
+        eventCount.reset();
+        minTime.reset();
+        maxTime.reset();
+        minEventId.reset();
+        maxEventId.reset();
+        feedStats.values().stream().forEach(FeedStatsAccumulator::reset);
+        closed = false;
+    }
+
+    public long getEventCount() {
+        return eventCount.sum();
+    }
+}
@@ -0,0 +1,111 @@
+package com.thinkbiganalytics.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileGuavaCache;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ */
+public class PartitionedProvenanceEventProcessorTest {
+
+    @Mock
+    private ProvenanceEventCollector provenanceEventCollector;
+
+    @Mock
+    private FeedFlowFileGuavaCache flowFileGuavaCache;
+
+    @InjectMocks
+    private PartitionedProvenanceEventProcessor processor;
+
+    private long eventId = 0L;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testRelatedFlowFilesShareAPartition() {
+        //root1 forks child1, then child1 is processed
+        ProvenanceEventRecordDTO root1 = event("root1", Collections.emptyList(), Collections.emptyList());
+        ProvenanceEventRecordDTO fork = event("root1", Collections.emptyList(), Arrays.asList("child1", "child2"));
+        ProvenanceEventRecordDTO child1 = event("child1", Collections.emptyList(), Collections.emptyList());
+        //root2 is unrelated
+        ProvenanceEventRecordDTO root2 = event("root2", Collections.emptyList(), Collections.emptyList());
+        //child3 was created in an earlier window and is cached against root1
+        ProvenanceEventRecordDTO child3 = event("child3", Collections.emptyList(), Collections.emptyList());
+        Mockito.when(flowFileGuavaCache.getEntry("child3")).thenReturn(new FeedFlowFile("root1"));
+
+        List<ProvenanceEventRecordDTO> events = Arrays.asList(root1, fork, child1, root2, child3);
+        for (int partitionCount = 1; partitionCount < 16; partitionCount++) {
+            List<List<ProvenanceEventRecordDTO>> partitions = processor.partition(events, partitionCount);
+            Assert.assertEquals(partitionCount, partitions.size());
+            Assert.assertEquals(events.size(), partitions.stream().mapToInt(List::size).sum());
+
+            List<ProvenanceEventRecordDTO> root1Partition = partitions.stream().filter(p -> p.contains(root1)).findFirst().get();
+            Assert.assertEquals(Arrays.asList(root1, fork, child1, child3),
+                                root1Partition.stream().filter(e -> e != root2).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testProcessAcrossWorkers() throws Exception {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(event("flowfile" + i, Collections.emptyList(), Collections.emptyList()));
+        }
+        processor.setWorkers(4);
+        try {
+            processor.process(events);
+            Mockito.verify(provenanceEventCollector, Mockito.times(100)).process(Mockito.any(ProvenanceEventRecordDTO.class));
+            Assert.assertEquals(4, processor.getShardStats().size());
+            Assert.assertEquals(100L, processor.getShardStats().stream().mapToLong(ProvenanceEventShardStats::getEventsProcessed).sum());
+            Assert.assertEquals(0, processor.getShardStats().stream().mapToInt(ProvenanceEventShardStats::getQueueDepth).sum());
+        } finally {
+            processor.shutdown();
+        }
+    }
+
+    private ProvenanceEventRecordDTO event(String flowFileId, List<String> parents, List<String> children) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId++);
+        event.setFlowFileUuid(flowFileId);
+        event.setParentUuids(parents);
+        event.setChildUuids(children);
+        return event;
+    }
+}
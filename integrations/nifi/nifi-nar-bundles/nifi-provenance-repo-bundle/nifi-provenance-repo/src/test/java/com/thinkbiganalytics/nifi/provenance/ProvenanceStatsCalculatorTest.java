@@ -0,0 +1,150 @@
+package com.thinkbiganalytics.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+import com.thinkbiganalytics.nifi.provenance.stats.StatsAccumulatorEpoch;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ */
+public class ProvenanceStatsCalculatorTest {
+
+    @Test
+    public void testStatsAreMergedOnSwap() {
+        ProvenanceStatsCalculator calculator = new ProvenanceStatsCalculator();
+        DateTime now = DateTime.now();
+        calculator.calculateStats(event(5L, "feed1", "processor1", now));
+        calculator.calculateStats(event(6L, "feed1", "processor1", now.plusSeconds(1)));
+        calculator.calculateStats(event(7L, "feed1", "processor2", now.plusSeconds(2)));
+        calculator.calculateStats(event(8L, "feed2", "processor3", now.minusSeconds(1)));
+
+        AggregatedFeedProcessorStatisticsHolder holder = calculator.swapStats();
+        Assert.assertEquals(4L, holder.getEventCount().get());
+        Assert.assertEquals(Long.valueOf(5L), holder.getMinEventId());
+        Assert.assertEquals(Long.valueOf(8L), holder.getMaxEventId());
+        Assert.assertEquals(now.minusSeconds(1), holder.getMinTime());
+        Assert.assertEquals(now.plusSeconds(2), holder.getMaxTime());
+
+        AggregatedFeedProcessorStatistics feed1 = holder.getFeedStatistics().get("feed1");
+        Assert.assertEquals(Long.valueOf(3L), feed1.getTotalEvents());
+        Assert.assertEquals(2, feed1.getProcessorStats().size());
+        GroupedStats processor1 = feed1.getProcessorStats().get("processor1").getStats();
+        Assert.assertEquals(2L, processor1.getTotalCount());
+        Assert.assertEquals(200L, processor1.getBytesIn());
+        Assert.assertEquals(now, processor1.getMinTime());
+        Assert.assertEquals(now.plusSeconds(1), processor1.getMaxTime());
+        Assert.assertEquals(6L, processor1.getMaxEventId());
+        Assert.assertEquals(holder.getCollectionId(), processor1.getGroupKey());
+
+        //the next swap only contains new events, and feeds without events are not sent
+        calculator.calculateStats(event(9L, "feed2", "processor3", now));
+        holder = calculator.swapStats();
+        Assert.assertEquals(1L, holder.getEventCount().get());
+        Assert.assertNull(holder.getFeedStatistics().get("feed1"));
+        Assert.assertEquals(1L, holder.getFeedStatistics().get("feed2").getProcessorStats().get("processor3").getStats().getTotalCount());
+
+        Assert.assertEquals(0L, calculator.swapStats().getEventCount().get());
+    }
+
+    @Test
+    public void testConcurrentStatsAreNotLost() throws Exception {
+        ProvenanceStatsCalculator calculator = new ProvenanceStatsCalculator();
+        int threads = 4;
+        int eventsPerThread = 50000;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String feed = "feed" + t;
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    DateTime now = DateTime.now();
+                    for (long i = 0; i < eventsPerThread; i++) {
+                        calculator.calculateStats(event(i, feed, "processor", now));
+                    }
+                    return null;
+                }));
+            }
+            long total = 0L;
+            start.countDown();
+            for (Future<?> future : futures) {
+                while (!future.isDone()) {
+                    total += calculator.swapStats().getEventCount().get();
+                }
+                future.get();
+            }
+            total += calculator.swapStats().getEventCount().get();
+            Assert.assertEquals((long) threads * eventsPerThread, total);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSwapWaitsForWriters() throws Exception {
+        StatsAccumulatorEpoch epoch = new StatsAccumulatorEpoch();
+        Assert.assertTrue(epoch.enter());
+        epoch.close();
+        Assert.assertFalse(epoch.enter());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> await = executorService.submit(epoch::awaitWriters);
+            Thread.sleep(50);
+            Assert.assertFalse(await.isDone());
+            epoch.add(event(1L, "feed1", "processor1", DateTime.now()));
+            epoch.exit();
+            await.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(1L, epoch.toStatisticsHolder().getEventCount().get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ProvenanceEventRecordDTO event(Long eventId, String feedName, String processorId, DateTime eventTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFeedName(feedName);
+        event.setComponentId(processorId);
+        event.setComponentName(processorId);
+        event.setEventTime(eventTime);
+        event.setEventDuration(10L);
+        event.setInputContentClaimFileSizeBytes(100L);
+        event.setEventType("ATTRIBUTES_MODIFIED");
+        return event;
+    }
+}
@@ -0,0 +1,208 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ */
+public class FeedFlowFileJournalTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedFlowFileJournalTest.class);
+
+    @Mock
+    private FeedFlowFileGuavaCache cache;
+
+    private File directory;
+
+    private File journalFile;
+
+    @InjectMocks
+    private FeedFlowFileJournal journal;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("feed-flowfile-journal").toFile();
+        journalFile = new File(directory, "feed-flowfile.journal");
+        journal = new FeedFlowFileJournal(journalFile.getAbsolutePath());
+        journal.setSync(false);
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @After
+    public void cleanup() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRecoverRunningFlowFiles() throws Exception {
+        FeedFlowFile running = flowFile("running", 3);
+        FeedFlowFile completed = flowFile("completed", 1);
+        journal.markDirty(running);
+        journal.markDirty(completed);
+        Assert.assertEquals(2, journal.checkpoint());
+
+        //the flow file changes and is written again, then the other completes
+        running.addChildFlowFile("running-child-new");
+        journal.markDirty(running);
+        journal.onInvalidate(completed);
+        Assert.assertEquals(2, journal.checkpoint());
+        journal.close();
+
+        FeedFlowFileJournal recovered = newJournal();
+        Assert.assertEquals(1, recovered.recover());
+        ArgumentCaptor<FeedFlowFile> captor = ArgumentCaptor.forClass(FeedFlowFile.class);
+        Mockito.verify(cache, Mockito.atLeastOnce()).add(Mockito.eq("running"), captor.capture());
+        FeedFlowFile restored = captor.getValue();
+        Assert.assertTrue(restored.isBuiltFromJournal());
+        Assert.assertEquals(running.getFeedName(), restored.getFeedName());
+        Assert.assertEquals(running.getFirstEventId(), restored.getFirstEventId());
+        Assert.assertEquals(running.getFirstEventStartTime(), restored.getFirstEventStartTime());
+        Assert.assertEquals(running.getActiveChildFlowFiles(), restored.getActiveChildFlowFiles());
+        Assert.assertEquals(running.getChildFlowFiles(), restored.getChildFlowFiles());
+        Assert.assertEquals(running.getPreviousEventTime("running-child-0"), restored.getPreviousEventTime("running-child-0"));
+        Assert.assertTrue(restored.hasFailedEvents());
+        Mockito.verify(cache).add(Mockito.eq("running-child-new"), Mockito.any(FeedFlowFile.class));
+        Mockito.verify(cache, Mockito.never()).add(Mockito.eq("completed"), Mockito.any(FeedFlowFile.class));
+    }
+
+    @Test
+    public void testPartialRecordIsDiscarded() throws Exception {
+        journal.markDirty(flowFile("first", 1));
+        journal.checkpoint();
+        long validLength = journalFile.length();
+        journal.markDirty(flowFile("second", 1));
+        journal.close();
+
+        //simulate a crash in the middle of writing the second record
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        FeedFlowFileJournal recovered = newJournal();
+        Assert.assertEquals(1, recovered.recover());
+        Assert.assertEquals(validLength, journalFile.length());
+
+        //new records are appended after the last valid record
+        recovered.markDirty(flowFile("third", 1));
+        recovered.close();
+        Assert.assertEquals(2, newJournal().recover());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        journal.setCompactionMinBytes(0L);
+        journal.setCompactionRatio(2);
+        FeedFlowFile flowFile = flowFile("compact", 5);
+        for (int i = 0; i < 10; i++) {
+            journal.markDirty(flowFile);
+            journal.checkpoint();
+        }
+        long singleRecordBytes = journal.getJournalBytes();
+        Assert.assertTrue(singleRecordBytes <= journalFile.length());
+        Assert.assertTrue(journalFile.length() < singleRecordBytes * 3);
+        journal.close();
+        Assert.assertEquals(1, newJournal().recover());
+    }
+
+    /**
+     * Logs the time to recover the journal for an increasing number of running flow files
+     */
+    @Test
+    public void testRecoveryTime() throws Exception {
+        for (int flowFiles : new int[]{1000, 10000, 50000}) {
+            File file = new File(directory, "recovery-" + flowFiles + ".journal");
+            FeedFlowFileJournal writeJournal = newJournal(file);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < flowFiles; i++) {
+                writeJournal.markDirty(flowFile(UUID.randomUUID().toString(), 3));
+            }
+            writeJournal.close();
+            long writeTime = System.currentTimeMillis() - start;
+
+            FeedFlowFileJournal readJournal = newJournal(file);
+            start = System.currentTimeMillis();
+            Assert.assertEquals(flowFiles, readJournal.recover());
+            long recoverTime = System.currentTimeMillis() - start;
+            log.info("FeedFlowFile journal with {} running flow files: {} bytes, write {} ms, recover {} ms", flowFiles, file.length(), writeTime, recoverTime);
+        }
+    }
+
+    private FeedFlowFileJournal newJournal() {
+        return newJournal(journalFile);
+    }
+
+    private FeedFlowFileJournal newJournal(File file) {
+        FeedFlowFileJournal newJournal = new FeedFlowFileJournal(file.getAbsolutePath());
+        newJournal.setSync(false);
+        ReflectionTestUtils.setField(newJournal, "cache", cache);
+        return newJournal;
+    }
+
+    private FeedFlowFile flowFile(String id, int children) {
+        FeedFlowFile flowFile = new FeedFlowFile(id);
+        flowFile.setFeedName("category.feed");
+        flowFile.setFeedProcessGroupId("process-group");
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(1L);
+        event.setFlowFileUuid(id);
+        event.setComponentId("processor");
+        event.setStartTime(new DateTime(1000L));
+        event.setEventTime(new DateTime(2000L));
+        flowFile.setFirstEvent(event);
+        flowFile.addEvent(event);
+        for (int i = 0; i < children; i++) {
+            String child = id + "-child-" + i;
+            flowFile.addChildFlowFile(child);
+            flowFile.assignFlowFileToParent(child, id);
+            flowFile.assignChildFlowFileStartTime(child, 2000L + i);
+        }
+        flowFile.incrementFailedEvents();
+        return flowFile;
+    }
+}
@@ -36,6 +36,13 @@ public interface CleanupEventConsumer {
      */
     void addListener(@Nonnull String category, @Nonnull String feedName, @Nonnull CleanupListener listener);
 
+    /**
+     * Adds the specified listener for cleanup events of all feeds.
+     *
+     * @param listener the listener to be added
+     */
+    void addListener(@Nonnull CleanupListener listener);
+
     /**
      * Removes the specified listener.
      *
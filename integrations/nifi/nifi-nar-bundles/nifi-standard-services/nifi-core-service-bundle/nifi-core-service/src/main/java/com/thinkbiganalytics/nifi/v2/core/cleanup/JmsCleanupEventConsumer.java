@@ -30,8 +30,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jms.annotation.JmsListener;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import javax.annotation.Nonnull;
 
@@ -48,6 +50,12 @@ public class JmsCleanupEventConsumer implements CleanupEventConsumer {
     @Nonnull
     private final ConcurrentMap<String, CleanupListener> listeners = new ConcurrentHashMap<>();
 
+    /**
+     * Listeners for the events of all feeds
+     */
+    @Nonnull
+    private final Set<CleanupListener> allFeedsListeners = new CopyOnWriteArraySet<>();
+
     /**
      * adds a listener to be notified on receipt of cleanup events
      *
@@ -60,6 +68,16 @@ public class JmsCleanupEventConsumer implements CleanupEventConsumer {
         listeners.put(generateKey(category, feedName), listener);
     }
 
+    /**
+     * adds a listener to be notified on receipt of cleanup events for any feed
+     *
+     * @param listener the listener to be added
+     */
+    @Override
+    public void addListener(@Nonnull CleanupListener listener) {
+        allFeedsListeners.add(listener);
+    }
+
     /**
      * Processes cleanup events.
      *
@@ -74,6 +92,7 @@ public class JmsCleanupEventConsumer implements CleanupEventConsumer {
         if (listener != null) {
             listener.triggered(event);
         }
+        allFeedsListeners.forEach(allFeedsListener -> allFeedsListener.triggered(event));
     }
 
     /**
@@ -84,6 +103,7 @@ public class JmsCleanupEventConsumer implements CleanupEventConsumer {
     @Override
     public void removeListener(@Nonnull CleanupListener listener) {
         listeners.values().remove(listener);
+        allFeedsListeners.remove(listener);
     }
 
     /**
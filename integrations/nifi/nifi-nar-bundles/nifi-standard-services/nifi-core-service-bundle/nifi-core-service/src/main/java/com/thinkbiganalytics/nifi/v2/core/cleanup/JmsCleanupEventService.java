@@ -88,6 +88,17 @@ public class JmsCleanupEventService extends AbstractControllerService implements
         springService.getBean(CleanupEventConsumer.class).addListener(category, feedName, listener);
     }
 
+    /**
+     * adds a listener to be notified on receipt of cleanup events for any feed.
+     *
+     * @param listener the listener to be added
+     */
+    @Override
+    public void addListener(@Nonnull final CleanupListener listener) {
+        getLogger().debug("Adding cleanup listener for all feeds: {}", new Object[]{listener});
+        springService.getBean(CleanupEventConsumer.class).addListener(listener);
+    }
+
     /**
      * removes the listener that was previously added with addListener
      *
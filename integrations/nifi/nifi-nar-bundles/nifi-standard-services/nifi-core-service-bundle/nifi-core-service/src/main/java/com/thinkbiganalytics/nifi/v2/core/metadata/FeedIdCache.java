@@ -0,0 +1,181 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Caches the feed id for each category and feed system name so processors do not query the metadata server for every flow file.
+ *
+ * Feeds that do not exist are also cached, for a shorter time, so a missing feed does not cause a query for every flow file either.
+ */
+public class FeedIdCache {
+
+    /**
+     * The default maximum number of feeds to cache
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * The default number of seconds to cache a feed id
+     */
+    public static final long DEFAULT_EXPIRE_SECONDS = 300;
+
+    /**
+     * The default number of seconds to cache a feed that does not exist
+     */
+    public static final long DEFAULT_MISSING_EXPIRE_SECONDS = 30;
+
+    /**
+     * Feed ids by category and feed name
+     */
+    private final Cache<String, String> feedIds;
+
+    /**
+     * Category and feed names of the feeds that do not exist
+     */
+    private final Cache<String, Boolean> missingFeeds;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missingHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructs a {@code FeedIdCache} with the default size and expiry.
+     */
+    public FeedIdCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_SECONDS, DEFAULT_MISSING_EXPIRE_SECONDS);
+    }
+
+    /**
+     * Constructs a {@code FeedIdCache}.
+     *
+     * @param maximumSize          the maximum number of feeds to cache, or 0 to disable the cache
+     * @param expireSeconds        the number of seconds to cache a feed id
+     * @param missingExpireSeconds the number of seconds to cache a feed that does not exist, or 0 to not cache missing feeds
+     */
+    public FeedIdCache(long maximumSize, long expireSeconds, long missingExpireSeconds) {
+        this.feedIds = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireSeconds, TimeUnit.SECONDS).build();
+        this.missingFeeds = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(missingExpireSeconds, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Gets the id of a feed, calling the loader if it is not cached.
+     *
+     * @param category the category system name
+     * @param feedName the feed system name
+     * @param loader   finds the feed id, returning {@code null} if the feed does not exist
+     * @return the feed id, or {@code null} if the feed does not exist
+     */
+    public String get(@Nonnull String category, @Nonnull String feedName, @Nonnull Supplier<String> loader) {
+        String key = generateKey(category, feedName);
+        String feedId = feedIds.getIfPresent(key);
+        if (feedId != null) {
+            hitCount.incrementAndGet();
+            return feedId;
+        }
+        if (missingFeeds.getIfPresent(key) != null) {
+            missingHitCount.incrementAndGet();
+            return null;
+        }
+
+        missCount.incrementAndGet();
+        feedId = loader.get();
+        if (feedId != null) {
+            feedIds.put(key, feedId);
+        } else {
+            missingFeeds.put(key, Boolean.TRUE);
+        }
+        return feedId;
+    }
+
+    /**
+     * Caches the id of a feed that was just created or found.
+     *
+     * @param category the category system name
+     * @param feedName the feed system name
+     * @param feedId   the feed id
+     */
+    public void put(@Nonnull String category, @Nonnull String feedName, @Nonnull String feedId) {
+        String key = generateKey(category, feedName);
+        missingFeeds.invalidate(key);
+        feedIds.put(key, feedId);
+    }
+
+    /**
+     * Removes a feed that was changed or deleted from the cache.
+     *
+     * @param category the category system name
+     * @param feedName the feed system name
+     */
+    public void invalidate(@Nonnull String category, @Nonnull String feedName) {
+        String key = generateKey(category, feedName);
+        feedIds.invalidate(key);
+        missingFeeds.invalidate(key);
+    }
+
+    /**
+     * Removes all feeds from the cache.
+     */
+    public void invalidateAll() {
+        feedIds.invalidateAll();
+        missingFeeds.invalidateAll();
+    }
+
+    /**
+     * @return the number of lookups answered with a cached feed id
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups answered with a cached missing feed
+     */
+    public long getMissingHitCount() {
+        return missingHitCount.get();
+    }
+
+    /**
+     * @return the number of lookups that queried the metadata server
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{size=" + feedIds.size() + ", missingSize=" + missingFeeds.size() + ", hits=" + getHitCount() + ", missingHits=" + getMissingHitCount()
+               + ", misses=" + getMissCount() + "}";
+    }
+
+    @Nonnull
+    private String generateKey(String category, String feedName) {
+        return category + "." + feedName;
+    }
+}
@@ -54,6 +54,11 @@ public class MetadataClientProvider implements MetadataProvider {
 
     private MetadataClient client;
 
+    /**
+     * Feed ids by category and feed name
+     */
+    private final FeedIdCache feedIdCache;
+
     /**
      * constructor creates a MetaDataClientProvider with the default URI constant
      */
@@ -80,19 +85,39 @@ public class MetadataClientProvider implements MetadataProvider {
      * @param client the MetadataClient will be used to connect with the Metadata store
      */
     public MetadataClientProvider(MetadataClient client) {
+        this(client, new FeedIdCache());
+    }
+
+    /**
+     * constructor creates a MetadataClientProvider with the required {@link MetadataClient} and the cache of feed ids to use
+     *
+     * @param client      the MetadataClient will be used to connect with the Metadata store
+     * @param feedIdCache the cache of feed ids by category and feed name
+     */
+    public MetadataClientProvider(MetadataClient client, FeedIdCache feedIdCache) {
         super();
         this.client = client;
+        this.feedIdCache = feedIdCache;
+    }
+
+    /**
+     * @return the cache of feed ids by category and feed name
+     */
+    public FeedIdCache getFeedIdCache() {
+        return feedIdCache;
     }
 
     @Override
     public String getFeedId(String category, String feedName) {
-        List<Feed> feeds = this.client.getFeeds(this.client.feedCriteria().category(category).name(feedName));
-
-        if (feeds.isEmpty()) {
-            return null;
-        } else {
-            return feeds.get(0).getId();
-        }
+        return feedIdCache.get(category, feedName, () -> {
+            List<Feed> feeds = this.client.getFeeds(this.client.feedCriteria().category(category).name(feedName));
+
+            if (feeds.isEmpty()) {
+                return null;
+            } else {
+                return feeds.get(0).getId();
+            }
+        });
     }
 
     @Override
@@ -105,10 +130,14 @@ public class MetadataClientProvider implements MetadataProvider {
      */
     @Override
     public Feed ensureFeed(String categoryName, String feedName, String descr) {
-        return this.client
+        Feed feed = this.client
             .buildFeed(categoryName, feedName)
             .description(descr)
             .post();
+        if (feed != null && feed.getId() != null) {
+            feedIdCache.put(categoryName, feedName, feed.getId());
+        }
+        return feed;
     }
 
     /* (non-Javadoc)
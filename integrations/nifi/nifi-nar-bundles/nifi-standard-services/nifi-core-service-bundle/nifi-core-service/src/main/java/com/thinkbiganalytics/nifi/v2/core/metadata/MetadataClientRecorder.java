@@ -23,6 +23,7 @@ package com.thinkbiganalytics.nifi.v2.core.metadata;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.metadata.rest.client.MetadataClient;
 import com.thinkbiganalytics.metadata.rest.model.feed.InitializationStatus;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataRecorder;
@@ -35,12 +36,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class MetadataClientRecorder implements MetadataRecorder {
 
@@ -54,6 +59,26 @@ public class MetadataClientRecorder implements MetadataRecorder {
     private Set<String> activeWaterMarks = Collections.synchronizedSet(new HashSet<>());
     private Map<String, InitializationStatus> activeInitStatuses = Collections.synchronizedMap(new HashMap<>());
 
+    /**
+     * How long committed water mark values are held before they are written to the metadata server, or 0 to write them immediately
+     */
+    private final long waterMarkWriteDelayMillis;
+
+    /**
+     * Committed water mark values not yet written to the metadata server, by feed id and water mark name.  Guarded by itself.
+     */
+    private final Map<String, Map<String, String>> pendingWaterMarks = new HashMap<>();
+
+    /**
+     * Ids of the feeds with a scheduled write of their pending water marks.  Guarded by {@link #pendingWaterMarks}.
+     */
+    private final Set<String> scheduledWaterMarkFeeds = new HashSet<>();
+
+    /**
+     * Writes the pending water marks after the write delay
+     */
+    private final ScheduledExecutorService waterMarkWriter;
+
     /**
      * constructor creates a MetadataClientRecorder with the default URI constant
      */
@@ -76,7 +101,24 @@ public class MetadataClientRecorder implements MetadataRecorder {
      * @param client the MetadataClient will be used to connect with the Metadata store
      */
     public MetadataClientRecorder(MetadataClient client) {
+        this(client, 0);
+    }
+
+    /**
+     * constructor creates a MetadataClientRecorder that holds committed water marks for a time before writing them.
+     *
+     * Successive commits of the same water mark within the delay are written to the metadata server once with the last value.
+     * The held values are used when loading or releasing the water marks so they are always current within this NiFi.
+     *
+     * @param client                    the MetadataClient will be used to connect with the Metadata store
+     * @param waterMarkWriteDelayMillis how long to hold committed water marks, or 0 to write them immediately
+     */
+    public MetadataClientRecorder(MetadataClient client, long waterMarkWriteDelayMillis) {
         this.client = client;
+        this.waterMarkWriteDelayMillis = Math.max(waterMarkWriteDelayMillis, 0);
+        this.waterMarkWriter = this.waterMarkWriteDelayMillis > 0
+                               ? Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("kylo-water-mark-writer-%d").build())
+                               : null;
     }
 
 
@@ -157,9 +199,17 @@ public class MetadataClientRecorder implements MetadataRecorder {
         Map<String, String> actives = getCurrentWaterMarksAttr(ff);
         FlowFile resultFF = ff;
 
-        // TODO do more efficiently
-        for (String waterMarkName : new HashSet<String>(actives.keySet())) {
-            resultFF = commitWaterMark(session, resultFF, feedId, waterMarkName);
+        if (actives.isEmpty()) {
+            return resultFF;
+        }
+
+        try {
+            Map<String, String> values = new HashMap<>();
+            actives.forEach((waterMarkName, parameterName) -> values.put(waterMarkName, ff.getAttribute(parameterName)));
+            updateHighWaterMarkValues(feedId, values);
+        } finally {
+            actives.keySet().forEach(waterMarkName -> releaseActiveWaterMark(feedId, waterMarkName));
+            resultFF = setCurrentWaterMarksAttr(session, resultFF, new HashMap<>());
         }
 
         return resultFF;
@@ -199,8 +249,20 @@ public class MetadataClientRecorder implements MetadataRecorder {
         Map<String, String> actives = getCurrentWaterMarksAttr(ff);
         FlowFile resultFF = ff;
 
-        for (String waterMarkName : new HashSet<String>(actives.keySet())) {
-            resultFF = releaseWaterMark(session, resultFF, feedId, waterMarkName);
+        if (actives.isEmpty()) {
+            return resultFF;
+        }
+
+        try {
+            Map<String, String> values = getHighWaterMarkValues(feedId, actives.keySet());
+            for (Map.Entry<String, String> active : actives.entrySet()) {
+                String parameterName = active.getValue();
+                String value = values.containsKey(active.getKey()) ? values.get(active.getKey()) : ff.getAttribute(initValueParameterName(parameterName));
+                resultFF = session.putAttribute(resultFF, parameterName, value);
+            }
+        } finally {
+            actives.keySet().forEach(waterMarkName -> releaseActiveWaterMark(feedId, waterMarkName));
+            resultFF = setCurrentWaterMarksAttr(session, resultFF, new HashMap<>());
         }
 
         return resultFF;
@@ -298,11 +360,118 @@ public class MetadataClientRecorder implements MetadataRecorder {
     }
 
     private Optional<String> getHighWaterMarkValue(String feedId, String waterMarkName) {
+        synchronized (this.pendingWaterMarks) {
+            Map<String, String> pending = this.pendingWaterMarks.get(feedId);
+            if (pending != null && pending.containsKey(waterMarkName)) {
+                return Optional.ofNullable(pending.get(waterMarkName));
+            }
+        }
         return this.client.getHighWaterMarkValue(feedId, waterMarkName);
     }
 
+    private Map<String, String> getHighWaterMarkValues(String feedId, Collection<String> waterMarkNames) {
+        Map<String, String> values = new HashMap<>();
+        Set<String> unknownNames = new HashSet<>(waterMarkNames);
+        synchronized (this.pendingWaterMarks) {
+            Map<String, String> pending = this.pendingWaterMarks.getOrDefault(feedId, Collections.emptyMap());
+            waterMarkNames.stream().filter(pending::containsKey).forEach(waterMarkName -> {
+                values.put(waterMarkName, pending.get(waterMarkName));
+                unknownNames.remove(waterMarkName);
+            });
+        }
+
+        if (unknownNames.size() == 1) {
+            String waterMarkName = unknownNames.iterator().next();
+            this.client.getHighWaterMarkValue(feedId, waterMarkName).ifPresent(value -> values.put(waterMarkName, value));
+        } else if (!unknownNames.isEmpty()) {
+            values.putAll(this.client.getHighWaterMarkValues(feedId, unknownNames));
+        }
+        return values;
+    }
+
     private void updateHighWaterMarkValue(String feedId, String waterMarkName, String value) {
-        this.client.updateHighWaterMarkValue(feedId, waterMarkName, value);
+        updateHighWaterMarkValues(feedId, Collections.singletonMap(waterMarkName, value));
+    }
+
+    private void updateHighWaterMarkValues(String feedId, Map<String, String> values) {
+        if (this.waterMarkWriter == null) {
+            writeHighWaterMarkValues(feedId, values);
+        } else {
+            synchronized (this.pendingWaterMarks) {
+                this.pendingWaterMarks.computeIfAbsent(feedId, id -> new HashMap<>()).putAll(values);
+                scheduleWaterMarkWrite(feedId);
+            }
+        }
+    }
+
+    private void writeHighWaterMarkValues(String feedId, Map<String, String> values) {
+        if (values.size() == 1) {
+            Map.Entry<String, String> value = values.entrySet().iterator().next();
+            this.client.updateHighWaterMarkValue(feedId, value.getKey(), value.getValue());
+        } else {
+            this.client.updateHighWaterMarkValues(feedId, values);
+        }
+    }
+
+    /**
+     * Schedules a write of the pending water marks of a feed unless one is already scheduled.  Must hold the {@link #pendingWaterMarks} lock.
+     */
+    private void scheduleWaterMarkWrite(String feedId) {
+        if (!this.waterMarkWriter.isShutdown() && this.scheduledWaterMarkFeeds.add(feedId)) {
+            this.waterMarkWriter.schedule(() -> flushWaterMarks(feedId), this.waterMarkWriteDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending water marks of a feed.
+     *
+     * The values stay pending until they are written so that they are still used when loading the water marks.  Values that fail to be written are retried after the write delay.
+     */
+    private void flushWaterMarks(String feedId) {
+        Map<String, String> values;
+        synchronized (this.pendingWaterMarks) {
+            this.scheduledWaterMarkFeeds.remove(feedId);
+            Map<String, String> pending = this.pendingWaterMarks.get(feedId);
+            if (pending == null || pending.isEmpty()) {
+                return;
+            }
+            values = new HashMap<>(pending);
+        }
+
+        try {
+            writeHighWaterMarkValues(feedId, values);
+        } catch (Exception e) {
+            log.error("Failed to write the high-water marks {} of feed {}. Retrying in {} ms", values.keySet(), feedId, this.waterMarkWriteDelayMillis, e);
+            synchronized (this.pendingWaterMarks) {
+                scheduleWaterMarkWrite(feedId);
+            }
+            return;
+        }
+
+        synchronized (this.pendingWaterMarks) {
+            //keep the water marks committed again while writing.  Another flush, such as on shutdown, may have already removed them.
+            Map<String, String> pending = this.pendingWaterMarks.get(feedId);
+            if (pending != null) {
+                values.forEach(pending::remove);
+                if (pending.isEmpty()) {
+                    this.pendingWaterMarks.remove(feedId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes any pending water marks and stops holding water marks.
+     */
+    public void shutdown() {
+        if (this.waterMarkWriter != null) {
+            this.waterMarkWriter.shutdownNow();
+            Set<String> feedIds;
+            synchronized (this.pendingWaterMarks) {
+                feedIds = new HashSet<>(this.pendingWaterMarks.keySet());
+            }
+            feedIds.forEach(this::flushWaterMarks);
+        }
     }
 
     private String initValueParameterName(String parameterName) {
@@ -21,6 +21,8 @@ package com.thinkbiganalytics.nifi.v2.core.metadata;
  */
 
 import com.thinkbiganalytics.metadata.rest.client.MetadataClient;
+import com.thinkbiganalytics.nifi.core.api.cleanup.CleanupEventService;
+import com.thinkbiganalytics.nifi.core.api.cleanup.CleanupListener;
 import com.thinkbiganalytics.nifi.core.api.metadata.KyloNiFiFlowProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProviderService;
@@ -29,6 +31,7 @@ import com.thinkbiganalytics.nifi.core.api.metadata.MetadataRecorder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.nifi.annotation.lifecycle.OnDisabled;
 import org.apache.nifi.annotation.lifecycle.OnEnabled;
 import org.apache.nifi.components.AllowableValue;
 import org.apache.nifi.components.PropertyDescriptor;
@@ -53,6 +56,7 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
@@ -92,6 +96,46 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         .required(false)
         .identifiesControllerService(SSLContextService.class)
         .build();
+    public static final PropertyDescriptor FEED_ID_CACHE_SIZE = new PropertyDescriptor.Builder()
+        .name("feed-id-cache-size")
+        .displayName("Feed ID Cache Size")
+        .description("The maximum number of feed ids to cache when the REST API client implementation is chosen. Set to 0 to look up the feed id for every flow file.")
+        .defaultValue(Long.toString(FeedIdCache.DEFAULT_MAXIMUM_SIZE))
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .required(false)
+        .build();
+    public static final PropertyDescriptor FEED_ID_CACHE_EXPIRE = new PropertyDescriptor.Builder()
+        .name("feed-id-cache-expire")
+        .displayName("Feed ID Cache Expiration")
+        .description("How long to cache the id of a feed")
+        .defaultValue(FeedIdCache.DEFAULT_EXPIRE_SECONDS + " sec")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(false)
+        .build();
+    public static final PropertyDescriptor FEED_ID_CACHE_MISSING_EXPIRE = new PropertyDescriptor.Builder()
+        .name("feed-id-cache-missing-expire")
+        .displayName("Missing Feed Cache Expiration")
+        .description("How long to remember that a feed does not exist before looking it up again")
+        .defaultValue(FeedIdCache.DEFAULT_MISSING_EXPIRE_SECONDS + " sec")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(false)
+        .build();
+    public static final PropertyDescriptor WATER_MARK_WRITE_DELAY = new PropertyDescriptor.Builder()
+        .name("water-mark-write-delay")
+        .displayName("High-Water Mark Write Delay")
+        .description("How long to hold committed high-water marks before writing them to the metadata server. Successive commits of the same high-water mark within this time are written"
+                     + " once with the last value. Held values are lost if NiFi stops before they are written. Set to 0 sec to write them immediately.")
+        .defaultValue("0 sec")
+        .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+        .required(false)
+        .build();
+    public static final PropertyDescriptor CLEANUP_EVENT_SERVICE = new PropertyDescriptor.Builder()
+        .name("cleanup-event-service")
+        .displayName("Feed Cleanup Event Service")
+        .description("Optional service notifying when feeds are deleted so that their ids are removed from the feed id cache")
+        .identifiesControllerService(CleanupEventService.class)
+        .required(false)
+        .build();
     private static final AllowableValue[] ALLOWABLE_IMPLEMENATIONS = {
         new AllowableValue("LOCAL", "Local, In-memory storage", "An implemenation that stores metadata locally in memory (for development-only)"),
         new AllowableValue("REMOTE", "REST API", "An implementation that accesses metadata via the metadata service REST API")
@@ -113,6 +157,11 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
         props.add(CLIENT_USERNAME);
         props.add(CLIENT_PASSWORD);
         props.add(SSL_CONTEXT_SERVICE);
+        props.add(FEED_ID_CACHE_SIZE);
+        props.add(FEED_ID_CACHE_EXPIRE);
+        props.add(FEED_ID_CACHE_MISSING_EXPIRE);
+        props.add(WATER_MARK_WRITE_DELAY);
+        props.add(CLEANUP_EVENT_SERVICE);
         properties = Collections.unmodifiableList(props);
     }
 
@@ -126,6 +175,16 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
      */
     private SSLContextService sslContextService;
 
+    /**
+     * The service notifying when feeds are deleted
+     */
+    private volatile CleanupEventService cleanupEventService;
+
+    /**
+     * Removes deleted feeds from the feed id cache
+     */
+    private volatile CleanupListener feedIdCacheListener;
+
     @Override
     protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
         return properties;
@@ -153,8 +212,23 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
                 client = new MetadataClient(uri, user, password, sslContext);
             }
 
-            this.provider = new MetadataClientProvider(client);
-            this.recorder = new MetadataClientRecorder(client);
+            FeedIdCache feedIdCache = new FeedIdCache(context.getProperty(FEED_ID_CACHE_SIZE).asLong(),
+                                                      context.getProperty(FEED_ID_CACHE_EXPIRE).asTimePeriod(TimeUnit.SECONDS),
+                                                      context.getProperty(FEED_ID_CACHE_MISSING_EXPIRE).asTimePeriod(TimeUnit.SECONDS));
+            if (context.getProperty(CLEANUP_EVENT_SERVICE).isSet()) {
+                this.cleanupEventService = context.getProperty(CLEANUP_EVENT_SERVICE).asControllerService(CleanupEventService.class);
+                this.feedIdCacheListener = event -> {
+                    if (event.getCategoryName() != null && event.getFeedName() != null) {
+                        feedIdCache.invalidate(event.getCategoryName(), event.getFeedName());
+                    } else {
+                        feedIdCache.invalidateAll();
+                    }
+                };
+                this.cleanupEventService.addListener(this.feedIdCacheListener);
+            }
+
+            this.provider = new MetadataClientProvider(client, feedIdCache);
+            this.recorder = new MetadataClientRecorder(client, context.getProperty(WATER_MARK_WRITE_DELAY).asTimePeriod(TimeUnit.MILLISECONDS));
             this.kyloProvenanceClientProvider = new KyloProvenanceClientProvider(client);
         } else {
             throw new UnsupportedOperationException("Provider implementations not currently supported: " + impl.getValue());
@@ -162,6 +236,22 @@ public class MetadataProviderSelectorService extends AbstractControllerService i
     }
 
 
+    @OnDisabled
+    public void onDisabled() {
+        if (cleanupEventService != null && feedIdCacheListener != null) {
+            cleanupEventService.removeListener(feedIdCacheListener);
+        }
+        cleanupEventService = null;
+        feedIdCacheListener = null;
+
+        if (recorder instanceof MetadataClientRecorder) {
+            ((MetadataClientRecorder) recorder).shutdown();
+        }
+        if (provider instanceof MetadataClientProvider) {
+            getLogger().info("Feed id cache statistics: {}", new Object[]{((MetadataClientProvider) provider).getFeedIdCache()});
+        }
+    }
+
     @Override
     public MetadataProvider getProvider() {
         return this.provider;
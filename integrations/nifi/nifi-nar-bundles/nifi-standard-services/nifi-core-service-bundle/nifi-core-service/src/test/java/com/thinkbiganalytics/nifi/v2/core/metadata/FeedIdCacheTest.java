@@ -0,0 +1,71 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class FeedIdCacheTest {
+
+    /**
+     * Verify feed ids and missing feeds are only looked up once until they are invalidated.
+     */
+    @Test
+    public void test() {
+        final FeedIdCache cache = new FeedIdCache();
+        final AtomicInteger lookups = new AtomicInteger();
+        final Supplier<String> found = () -> {
+            lookups.incrementAndGet();
+            return "FEEDID";
+        };
+        final Supplier<String> missing = () -> {
+            lookups.incrementAndGet();
+            return null;
+        };
+
+        // Test cached feed ids
+        Assert.assertEquals("FEEDID", cache.get("cat", "feed", found));
+        Assert.assertEquals("FEEDID", cache.get("cat", "feed", found));
+        Assert.assertEquals(1, lookups.get());
+
+        // Test cached missing feeds
+        Assert.assertNull(cache.get("cat", "other", missing));
+        Assert.assertNull(cache.get("cat", "other", missing));
+        Assert.assertEquals(2, lookups.get());
+
+        // Test creating a missing feed
+        cache.put("cat", "other", "OTHERID");
+        Assert.assertEquals("OTHERID", cache.get("cat", "other", missing));
+        Assert.assertEquals(2, lookups.get());
+
+        // Test invalidating a deleted feed
+        cache.invalidate("cat", "feed");
+        Assert.assertNull(cache.get("cat", "feed", missing));
+        Assert.assertEquals(3, lookups.get());
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissingHitCount());
+        Assert.assertEquals(3, cache.getMissCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.thinkbiganalytics.nifi.v2.core.metadata;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.thinkbiganalytics.metadata.rest.client.MetadataClient;
+
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.util.MockFlowFile;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MetadataClientRecorderTest {
+
+    /**
+     * Verify successive commits of a high-water mark are written once with the last value.
+     */
+    @Test
+    public void testWriteBehind() throws Exception {
+        final MetadataClient client = Mockito.mock(MetadataClient.class);
+        Mockito.when(client.getHighWaterMarkValue("FEEDID", "wm")).thenReturn(Optional.of("0"));
+        final ProcessSession session = mockSession();
+        final MetadataClientRecorder recorder = new MetadataClientRecorder(client, TimeUnit.HOURS.toMillis(1));
+
+        // Test loading the committed value before it is written
+        for (String value : new String[]{"1", "2"}) {
+            FlowFile ff = recorder.loadWaterMark(session, new MockFlowFile(1L), "FEEDID", "wm", "param", "default");
+            Assert.assertNotEquals(value, ff.getAttribute("param"));
+            ff = recorder.recordWaterMark(session, ff, "FEEDID", "wm", "param", value);
+            recorder.commitWaterMark(session, ff, "FEEDID", "wm");
+        }
+        FlowFile ff = recorder.loadWaterMark(session, new MockFlowFile(2L), "FEEDID", "wm", "param", "default");
+        Assert.assertEquals("2", ff.getAttribute("param"));
+        recorder.releaseWaterMark(session, ff, "FEEDID", "wm");
+
+        Mockito.verify(client, Mockito.times(1)).getHighWaterMarkValue("FEEDID", "wm");
+        Mockito.verify(client, Mockito.never()).updateHighWaterMarkValue(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+
+        // Test writing the pending value
+        recorder.shutdown();
+        Mockito.verify(client).updateHighWaterMarkValue("FEEDID", "wm", "2");
+    }
+
+    /**
+     * Verify a flush of the pending high-water marks succeeds when another flush already wrote them.
+     */
+    @Test
+    public void testConcurrentFlush() throws Exception {
+        final MetadataClient client = Mockito.mock(MetadataClient.class);
+        Mockito.when(client.getHighWaterMarkValue("FEEDID", "wm")).thenReturn(Optional.of("0"));
+        final ProcessSession session = mockSession();
+        final MetadataClientRecorder recorder = new MetadataClientRecorder(client, TimeUnit.HOURS.toMillis(1));
+
+        FlowFile ff = recorder.loadWaterMark(session, new MockFlowFile(1L), "FEEDID", "wm", "param", "default");
+        ff = recorder.recordWaterMark(session, ff, "FEEDID", "wm", "param", "1");
+        recorder.commitWaterMark(session, ff, "FEEDID", "wm");
+
+        // Flush again while the first write is in progress
+        final AtomicBoolean writing = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            if (writing.compareAndSet(false, true)) {
+                recorder.shutdown();
+            }
+            return null;
+        }).when(client).updateHighWaterMarkValue("FEEDID", "wm", "1");
+        recorder.shutdown();
+        Mockito.verify(client, Mockito.times(2)).updateHighWaterMarkValue("FEEDID", "wm", "1");
+
+        // Test the value is no longer pending
+        recorder.loadWaterMark(session, new MockFlowFile(2L), "FEEDID", "wm", "param", "default");
+        Mockito.verify(client, Mockito.times(2)).getHighWaterMarkValue("FEEDID", "wm");
+    }
+
+    /**
+     * Verify all the active high-water marks of a flow file are committed in a single request.
+     */
+    @Test
+    public void testCommitAll() throws Exception {
+        final MetadataClient client = Mockito.mock(MetadataClient.class);
+        Mockito.when(client.getHighWaterMarkValue(Mockito.anyString(), Mockito.anyString())).thenReturn(Optional.empty());
+        final ProcessSession session = mockSession();
+        final MetadataClientRecorder recorder = new MetadataClientRecorder(client);
+
+        FlowFile ff = recorder.loadWaterMark(session, new MockFlowFile(1L), "FEEDID", "wm1", "param1", "a");
+        ff = recorder.loadWaterMark(session, ff, "FEEDID", "wm2", "param2", "b");
+        ff = recorder.commitAllWaterMarks(session, ff, "FEEDID");
+
+        Mockito.verify(client).updateHighWaterMarkValues("FEEDID", ImmutableMap.of("wm1", "a", "wm2", "b"));
+        Assert.assertEquals("{}", ff.getAttribute("activeWaterMarks"));
+
+        // Test the water marks were released
+        recorder.loadWaterMark(session, ff, "FEEDID", "wm1", "param1", "a");
+    }
+
+    private ProcessSession mockSession() {
+        final ProcessSession session = Mockito.mock(ProcessSession.class);
+        Mockito.when(session.putAttribute(Mockito.any(FlowFile.class), Mockito.anyString(), Mockito.anyString())).then(invocation -> {
+            MockFlowFile ff = invocation.getArgumentAt(0, MockFlowFile.class);
+            ff.putAttributes(Collections.singletonMap(invocation.getArgumentAt(1, String.class), invocation.getArgumentAt(2, String.class)));
+            return ff;
+        });
+        return session;
+    }
+}
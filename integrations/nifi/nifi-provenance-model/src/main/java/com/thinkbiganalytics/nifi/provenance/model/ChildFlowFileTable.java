@@ -0,0 +1,378 @@
+package com.thinkbiganalytics.nifi.provenance.model;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Table of the flow file ids tracked by a {@link FeedFlowFile} along with the state of each flow file.
+ *
+ * Each flow file id is assigned an index the first time it is seen and all of its state is stored in primitive arrays at that index.
+ * UUID flow file ids are stored as two longs rather than as a String. Any other id is kept as a String.
+ * Ids are looked up through an open addressing hash table of indexes.
+ *
+ * This class is not thread safe.
+ */
+class ChildFlowFileTable implements Serializable {
+
+    private static final long serialVersionUID = -2317836128364826153L;
+
+    /**
+     * Value stored for a time that has not been set
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Value stored for a flow file without a parent
+     */
+    static final int NO_PARENT = -1;
+
+    /**
+     * The flow file is a child that is still running
+     */
+    static final byte ACTIVE = 1;
+
+    /**
+     * The flow file is a child of the feed flow file
+     */
+    static final byte CHILD = 1 << 1;
+
+    /**
+     * An event has started the flow file
+     */
+    static final byte STARTED = 1 << 2;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private long[] mostSigBits;
+
+    private long[] leastSigBits;
+
+    /**
+     * Ids that are not UUIDs. Only allocated when one is added
+     */
+    private String[] ids;
+
+    private byte[] flags;
+
+    private long[] lastEventTimes;
+
+    private long[] startTimes;
+
+    private int[] parents;
+
+    /**
+     * Open addressing hash table holding index + 1 of each id, 0 is an empty slot
+     */
+    private int[] slots;
+
+    private int size;
+
+    private int activeCount;
+
+    private int startedCount;
+
+    ChildFlowFileTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    ChildFlowFileTable(int capacity) {
+        capacity = Math.max(INITIAL_CAPACITY, capacity);
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        flags = new byte[capacity];
+        lastEventTimes = new long[capacity];
+        startTimes = new long[capacity];
+        parents = new int[capacity];
+        slots = new int[tableSize(capacity)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getActiveCount() {
+        return activeCount;
+    }
+
+    int getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * @return the index of the flow file id, or -1 if it is not in the table
+     */
+    int indexOf(String flowFileId) {
+        if (flowFileId == null) {
+            return -1;
+        }
+        if (isUuid(flowFileId)) {
+            return indexOfUuid(parseHex(flowFileId, 0, 8) << 32 | parseHex(flowFileId, 9, 13) << 16 | parseHex(flowFileId, 14, 18),
+                               parseHex(flowFileId, 19, 23) << 48 | parseHex(flowFileId, 24, 36));
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(flowFileId.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (ids != null && flowFileId.equals(ids[index])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add the flow file id if it is not already in the table
+     *
+     * @return the index of the flow file id
+     */
+    int add(String flowFileId) {
+        if (isUuid(flowFileId)) {
+            return addUuid(parseHex(flowFileId, 0, 8) << 32 | parseHex(flowFileId, 9, 13) << 16 | parseHex(flowFileId, 14, 18),
+                           parseHex(flowFileId, 19, 23) << 48 | parseHex(flowFileId, 24, 36));
+        }
+        int index = indexOf(flowFileId);
+        if (index < 0) {
+            index = newIndex();
+            if (ids == null) {
+                ids = new String[mostSigBits.length];
+            }
+            ids[index] = flowFileId;
+            insertSlot(index, mix(flowFileId.hashCode()));
+        }
+        return index;
+    }
+
+    int addUuid(long msb, long lsb) {
+        int index = indexOfUuid(msb, lsb);
+        if (index < 0) {
+            index = newIndex();
+            mostSigBits[index] = msb;
+            leastSigBits[index] = lsb;
+            insertSlot(index, hash(msb, lsb));
+        }
+        return index;
+    }
+
+    /**
+     * @return true if the id at the index is a UUID stored as {@link #getMostSigBits(int)} and {@link #getLeastSigBits(int)}
+     */
+    boolean isUuid(int index) {
+        return ids == null || ids[index] == null;
+    }
+
+    long getMostSigBits(int index) {
+        return mostSigBits[index];
+    }
+
+    long getLeastSigBits(int index) {
+        return leastSigBits[index];
+    }
+
+    String getId(int index) {
+        if (!isUuid(index)) {
+            return ids[index];
+        }
+        char[] chars = new char[36];
+        long msb = mostSigBits[index];
+        long lsb = leastSigBits[index];
+        formatHex(chars, 0, msb >>> 32, 8);
+        chars[8] = '-';
+        formatHex(chars, 9, msb >>> 16, 4);
+        chars[13] = '-';
+        formatHex(chars, 14, msb, 4);
+        chars[18] = '-';
+        formatHex(chars, 19, lsb >>> 48, 4);
+        chars[23] = '-';
+        formatHex(chars, 24, lsb, 12);
+        return new String(chars);
+    }
+
+    boolean hasFlag(int index, byte flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    byte getFlags(int index) {
+        return flags[index];
+    }
+
+    void setFlag(int index, byte flag) {
+        byte current = flags[index];
+        if ((current & flag) != flag) {
+            updateCounts(current, (byte) (current | flag));
+            flags[index] = (byte) (current | flag);
+        }
+    }
+
+    void clearFlag(int index, byte flag) {
+        byte current = flags[index];
+        if ((current & flag) != 0) {
+            updateCounts(current, (byte) (current & ~flag));
+            flags[index] = (byte) (current & ~flag);
+        }
+    }
+
+    long getLastEventTime(int index) {
+        return lastEventTimes[index];
+    }
+
+    void setLastEventTime(int index, long time) {
+        lastEventTimes[index] = time;
+    }
+
+    long getStartTime(int index) {
+        return startTimes[index];
+    }
+
+    void setStartTime(int index, long time) {
+        startTimes[index] = time;
+    }
+
+    int getParent(int index) {
+        return parents[index];
+    }
+
+    void setParent(int index, int parentIndex) {
+        parents[index] = parentIndex;
+    }
+
+    /**
+     * @return a new set of the ids that have all of the flag bits set
+     */
+    Set<String> getIds(byte flag) {
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & flag) == flag) {
+                values.add(getId(i));
+            }
+        }
+        return values;
+    }
+
+    private void updateCounts(byte previous, byte current) {
+        activeCount += ((current & ACTIVE) != 0 ? 1 : 0) - ((previous & ACTIVE) != 0 ? 1 : 0);
+        startedCount += ((current & STARTED) != 0 ? 1 : 0) - ((previous & STARTED) != 0 ? 1 : 0);
+    }
+
+    private int indexOfUuid(long msb, long lsb) {
+        int mask = slots.length - 1;
+        for (int slot = hash(msb, lsb) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (mostSigBits[index] == msb && leastSigBits[index] == lsb && isUuid(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int newIndex() {
+        if (size == mostSigBits.length) {
+            grow();
+        }
+        int index = size++;
+        lastEventTimes[index] = NO_TIME;
+        startTimes[index] = NO_TIME;
+        parents[index] = NO_PARENT;
+        return index;
+    }
+
+    private void insertSlot(int index, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = index + 1;
+    }
+
+    private void grow() {
+        int capacity = mostSigBits.length + (mostSigBits.length >> 1);
+        mostSigBits = Arrays.copyOf(mostSigBits, capacity);
+        leastSigBits = Arrays.copyOf(leastSigBits, capacity);
+        if (ids != null) {
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        flags = Arrays.copyOf(flags, capacity);
+        lastEventTimes = Arrays.copyOf(lastEventTimes, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        int tableSize = tableSize(capacity);
+        if (tableSize > slots.length) {
+            slots = new int[tableSize];
+            for (int i = 0; i < size; i++) {
+                insertSlot(i, isUuid(i) ? hash(mostSigBits[i], leastSigBits[i]) : mix(ids[i].hashCode()));
+            }
+        }
+    }
+
+    /**
+     * @return a power of 2 keeping the load factor of the slots at or below 0.5
+     */
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long hash = msb ^ lsb;
+        return mix((int) (hash ^ (hash >>> 32)));
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Only the lower case canonical form is stored as two longs so {@link #getId(int)} returns the same String that was added
+     */
+    private static boolean isUuid(String value) {
+        if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (!(i == 8 || i == 13 || i == 18 || i == 23) && !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int start, int end) {
+        long result = 0L;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            result = (result << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return result;
+    }
+
+    private static void formatHex(char[] chars, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -23,9 +23,7 @@ package com.thinkbiganalytics.nifi.provenance.model;
 import org.joda.time.DateTime;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -36,7 +34,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class FeedFlowFile implements Serializable {
 
 
-    private static final long serialVersionUID = 6464904199959374630L;
+    private static final long serialVersionUID = -4021652618379125106L;
 
     /**
      * The ID of the Flow File
@@ -59,17 +57,6 @@ public class FeedFlowFile implements Serializable {
      */
     private String feedProcessGroupId;
 
-    /**
-     * When new flow files are created they get associated back to the feedflow file in this collection
-     */
-    private Set<String> activeChildFlowFiles;
-
-    /**
-     * reference to all child flow file ids for this feed flow file
-     * This is used when clearing the cache
-     */
-    private Set<String> childFlowFiles;
-
 
     /**
      * The First Event in this flow file
@@ -90,35 +77,24 @@ public class FeedFlowFile implements Serializable {
     private AtomicInteger failedEvents = new AtomicInteger(0);
 
 
-    /**
-     * Track when an event comes through that is attached to a flow file to mark the start of that flow file.
-     */
-    private Set<String> flowfilesStarted;
-
-
     /**
      * flag to mark if this flow file is complete.  This does not mean the entire feed is complete as other "activeChildFlowFiles" could still be running
      */
     private boolean isCurrentFlowFileComplete;
 
     /**
-     * Map of the flowfile to last event time.
-     * This will be used to determine the next flow file start time
-     */
-    private Map<String, Long> flowFileLastEventTime;
-
-
-    /**
-     * When a flowfile is cloned or forked creating other child flow files it needs to store that event time the flow was cloned to use as the start time for that next event
-     */
-    private Map<String, Long> childFlowFileStartTimes;
-
-    /**
-     * Map the flow to its parent to help in processing the previous event time.
+     * The flow files tracked by this feed flow file.  For each flow file this holds
+     * - if it is a child flow file and if it is still active.  The child flow files are used when clearing the cache
+     * - if an event has started the flow file
+     * - the last event time, used to determine the next flow file start time
+     * - the time a cloned or forked child flow file was created, used as the start time for its next event
+     * - the parent flow file, to help in processing the previous event time
+     *
+     * This is created when the first flow file is tracked
      */
-    private Map<String, String> flowFileIdToParentFlowFileId;
+    private ChildFlowFileTable flowFiles;
 
-    private boolean isBuiltFromMapDb;
+    private boolean isBuiltFromJournal;
 
 
     public FeedFlowFile(String id) {
@@ -165,12 +141,25 @@ public class FeedFlowFile implements Serializable {
         this.feedProcessGroupId = feedProcessGroupId;
     }
 
+    /**
+     * @return a copy of the ids of the child flow files that are still running
+     */
     public Set<String> getActiveChildFlowFiles() {
-        return activeChildFlowFiles;
+        return flowFiles != null ? flowFiles.getIds((byte) (ChildFlowFileTable.CHILD | ChildFlowFileTable.ACTIVE)) : Collections.emptySet();
     }
 
+    /**
+     * @return a copy of the ids of all the child flow files for this feed flow file
+     */
     public Set<String> getChildFlowFiles() {
-        return childFlowFiles;
+        return flowFiles != null ? flowFiles.getIds(ChildFlowFileTable.CHILD) : Collections.emptySet();
+    }
+
+    /**
+     * @return the number of child flow files that are still running
+     */
+    public int getActiveChildFlowFileCount() {
+        return flowFiles != null ? flowFiles.getActiveCount() : 0;
     }
 
     public Long getLastEventId() {
@@ -187,14 +176,14 @@ public class FeedFlowFile implements Serializable {
 
 
     /**
-     * flag to determine if this was build from the persistent cache
+     * flag to determine if this was loaded from the persistent journal
      */
-    public boolean isBuiltFromMapDb() {
-        return isBuiltFromMapDb;
+    public boolean isBuiltFromJournal() {
+        return isBuiltFromJournal;
     }
 
-    public void setBuiltFromMapDb(boolean builtFromMapDb) {
-        isBuiltFromMapDb = builtFromMapDb;
+    public void setBuiltFromJournal(boolean builtFromJournal) {
+        isBuiltFromJournal = builtFromJournal;
     }
 
     /**
@@ -243,7 +232,7 @@ public class FeedFlowFile implements Serializable {
      * Is this feed and all the child flow files complete
      */
     public boolean isFeedComplete() {
-        return isCurrentFlowFileComplete && (activeChildFlowFiles == null || (activeChildFlowFiles != null && activeChildFlowFiles.isEmpty()));
+        return isCurrentFlowFileComplete && getActiveChildFlowFileCount() == 0;
     }
 
     /**
@@ -261,21 +250,18 @@ public class FeedFlowFile implements Serializable {
         if ("DROP".equalsIgnoreCase(event.getEventType())) {
             if (event.getFlowFileUuid().equals(this.getId())) {
                 isCurrentFlowFileComplete = true;
-            } else {
-                activeChildFlowFiles.remove(event.getFlowFileUuid());
+            } else if (flowFiles != null) {
+                int index = flowFiles.indexOf(event.getFlowFileUuid());
+                if (index >= 0) {
+                    flowFiles.clearFlag(index, ChildFlowFileTable.ACTIVE);
+                }
             }
         }
     }
 
     public void addChildFlowFile(String childFlowFileId) {
-        if (activeChildFlowFiles == null) {
-            activeChildFlowFiles = new HashSet<>();
-        }
-        if (childFlowFiles == null) {
-            childFlowFiles = new HashSet<>();
-        }
-        activeChildFlowFiles.add(childFlowFileId);
-        childFlowFiles.add(childFlowFileId);
+        int index = getFlowFiles().add(childFlowFileId);
+        flowFiles.setFlag(index, (byte) (ChildFlowFileTable.CHILD | ChildFlowFileTable.ACTIVE));
     }
 
     /**
@@ -287,49 +273,53 @@ public class FeedFlowFile implements Serializable {
 
 
     public boolean checkIfEventStartsTheFlowFile(ProvenanceEventRecordDTO eventRecordDTO) {
-        if (flowfilesStarted == null || (flowfilesStarted != null && flowfilesStarted.contains(eventRecordDTO.getFlowFileUuid()))) {
-            if (flowfilesStarted == null) {
-                flowfilesStarted = new HashSet<>();
-            }
-            flowfilesStarted.add(eventRecordDTO.getFlowFileUuid());
+        int index = getFlowFiles().add(eventRecordDTO.getFlowFileUuid());
+        if (flowFiles.getStartedCount() == 0 || flowFiles.hasFlag(index, ChildFlowFileTable.STARTED)) {
+            flowFiles.setFlag(index, ChildFlowFileTable.STARTED);
             eventRecordDTO.setStartOfFlowFile(true);
         }
         return eventRecordDTO.isStartOfFlowFile();
     }
 
+    /**
+     * Find the time of the last event for the flow file, or the time it was created from its parent.
+     * If neither is known walk up to the parent flow file.
+     */
     public Long getPreviousEventTime(String flowfileId) {
-
-        if (flowFileLastEventTime != null && flowFileLastEventTime.containsKey(flowfileId)) {
-            return flowFileLastEventTime.get(flowfileId);
-        } else if (childFlowFileStartTimes != null && childFlowFileStartTimes.containsKey(flowfileId)) {
-            return childFlowFileStartTimes.get(flowfileId);
-        } else if (flowFileIdToParentFlowFileId != null && flowFileIdToParentFlowFileId.containsKey(flowfileId) && !flowfileId.equals(flowFileIdToParentFlowFileId.get(flowfileId))) {
-            return getPreviousEventTime(flowFileIdToParentFlowFileId.get(flowfileId));
-        } else {
-            return null;
+        int index = flowFiles != null ? flowFiles.indexOf(flowfileId) : -1;
+        //bound the walk by the number of flow files in case the parents form a cycle
+        for (int i = 0; index >= 0 && i < flowFiles.size(); i++) {
+            if (flowFiles.getLastEventTime(index) != ChildFlowFileTable.NO_TIME) {
+                return flowFiles.getLastEventTime(index);
+            } else if (flowFiles.getStartTime(index) != ChildFlowFileTable.NO_TIME) {
+                return flowFiles.getStartTime(index);
+            }
+            int parent = flowFiles.getParent(index);
+            index = parent != index ? parent : ChildFlowFileTable.NO_PARENT;
         }
+        return null;
     }
 
     public void registerLastEventTime(ProvenanceEventRecordDTO eventRecordDTO) {
-        if (flowFileLastEventTime == null) {
-            flowFileLastEventTime = new HashMap<>();
-        }
-        flowFileLastEventTime.put(eventRecordDTO.getFlowFileUuid(), eventRecordDTO.getEventTime().getMillis());
-
+        int index = getFlowFiles().add(eventRecordDTO.getFlowFileUuid());
+        flowFiles.setLastEventTime(index, eventRecordDTO.getEventTime().getMillis());
     }
 
     public void assignFlowFileToParent(String childFlowFileId, String parentFlowFileId) {
-        if (flowFileIdToParentFlowFileId == null) {
-            flowFileIdToParentFlowFileId = new HashMap<>();
-        }
-        flowFileIdToParentFlowFileId.put(childFlowFileId, parentFlowFileId);
+        int index = getFlowFiles().add(childFlowFileId);
+        flowFiles.setParent(index, parentFlowFileId != null ? flowFiles.add(parentFlowFileId) : ChildFlowFileTable.NO_PARENT);
     }
 
     public void assignChildFlowFileStartTime(String flowFileId, Long eventTime) {
-        if (childFlowFileStartTimes == null) {
-            childFlowFileStartTimes = new HashMap<>();
+        int index = getFlowFiles().add(flowFileId);
+        flowFiles.setStartTime(index, eventTime != null ? eventTime : ChildFlowFileTable.NO_TIME);
+    }
+
+    private ChildFlowFileTable getFlowFiles() {
+        if (flowFiles == null) {
+            flowFiles = new ChildFlowFileTable();
         }
-        childFlowFileStartTimes.put(flowFileId, eventTime);
+        return flowFiles;
     }
 
     public Long calculateJobDuration(ProvenanceEventRecordDTO event) {
@@ -342,13 +332,64 @@ public class FeedFlowFile implements Serializable {
     }
 
 
+    //package level access used by the FeedFlowFileSerializer to save and restore the full state of the flow file
+
+    void setFirstEventId(Long firstEventId) {
+        this.firstEventId = firstEventId;
+    }
+
+    void setFirstEventStartTime(Long firstEventStartTime) {
+        this.firstEventStartTime = firstEventStartTime;
+    }
+
+    void setFirstEventProcessorId(String firstEventProcessorId) {
+        this.firstEventProcessorId = firstEventProcessorId;
+    }
+
+    void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    void setLastEventProcessorId(String lastEventProcessorId) {
+        this.lastEventProcessorId = lastEventProcessorId;
+    }
+
+    void setLastEventTime(Long lastEventTime) {
+        this.lastEventTime = lastEventTime;
+    }
+
+    int getFailedEventCount() {
+        return failedEvents.get();
+    }
+
+    void setFailedEventCount(int failedEventCount) {
+        this.failedEvents.set(failedEventCount);
+    }
+
+    boolean isCurrentFlowFileComplete() {
+        return isCurrentFlowFileComplete;
+    }
+
+    void setCurrentFlowFileComplete(boolean currentFlowFileComplete) {
+        isCurrentFlowFileComplete = currentFlowFileComplete;
+    }
+
+    ChildFlowFileTable getChildFlowFileTable() {
+        return flowFiles;
+    }
+
+    void setChildFlowFileTable(ChildFlowFileTable flowFiles) {
+        this.flowFiles = flowFiles;
+    }
+
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("FeedFlowFile{");
         sb.append("id='").append(id).append('\'');
         sb.append(", isStream=").append(isStream);
         sb.append(", feedName='").append(feedName).append('\'');
-        sb.append(", activeFlowFiles ='").append(activeChildFlowFiles != null ? activeChildFlowFiles.size() : "null").append('\'');
+        sb.append(", activeFlowFiles ='").append(getActiveChildFlowFileCount()).append('\'');
         sb.append('}');
         return sb.toString();
     }
@@ -0,0 +1,268 @@
+package com.thinkbiganalytics.nifi.provenance.model;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact serializer for a {@link FeedFlowFile} used when persisting the running flow files to disk.
+ *
+ * Strings such as the feed and processor ids are written once, the first time they are seen, and afterwards referenced by their index.  The flow files in the {@link ChildFlowFileTable}
+ * are written in index order with UUID ids written as two longs.  Numbers are written as variable length longs.
+ */
+public class FeedFlowFileSerializer {
+
+    private static final byte FORMAT_VERSION = 2;
+
+    private static final int FLAG_STREAM = 1;
+
+    private static final int FLAG_CURRENT_FLOW_FILE_COMPLETE = 1 << 1;
+
+    private static final int ID_UUID = 0;
+
+    private static final int ID_STRING = 1;
+
+    private FeedFlowFileSerializer() {
+
+    }
+
+    public static byte[] serialize(FeedFlowFile feedFlowFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(feedFlowFile, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static FeedFlowFile deserialize(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return read(in);
+        }
+    }
+
+    public static void write(FeedFlowFile feedFlowFile, DataOutput out) throws IOException {
+        Writer writer = new Writer(out);
+        out.writeByte(FORMAT_VERSION);
+        int flags = (feedFlowFile.isStream() ? FLAG_STREAM : 0) | (feedFlowFile.isCurrentFlowFileComplete() ? FLAG_CURRENT_FLOW_FILE_COMPLETE : 0);
+        out.writeByte(flags);
+        writer.writeString(feedFlowFile.getId());
+        writer.writeString(feedFlowFile.getFeedName());
+        writer.writeString(feedFlowFile.getFeedProcessGroupId());
+        writer.writeLong(feedFlowFile.getFirstEventId());
+        writer.writeLong(feedFlowFile.getFirstEventStartTime());
+        writer.writeString(feedFlowFile.getFirstEventProcessorId());
+        writer.writeLong(feedFlowFile.getLastEventId());
+        writer.writeLong(feedFlowFile.getLastEventTime());
+        writer.writeString(feedFlowFile.getLastEventProcessorId());
+        writer.writeVarLong(feedFlowFile.getFailedEventCount());
+        writer.writeTable(feedFlowFile.getChildFlowFileTable());
+    }
+
+    public static FeedFlowFile read(DataInput in) throws IOException {
+        Reader reader = new Reader(in);
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unable to read FeedFlowFile.  Unsupported format version " + version);
+        }
+        int flags = in.readByte();
+        FeedFlowFile feedFlowFile = new FeedFlowFile(reader.readString());
+        feedFlowFile.setStream((flags & FLAG_STREAM) != 0);
+        feedFlowFile.setCurrentFlowFileComplete((flags & FLAG_CURRENT_FLOW_FILE_COMPLETE) != 0);
+        feedFlowFile.setFeedName(reader.readString());
+        feedFlowFile.setFeedProcessGroupId(reader.readString());
+        feedFlowFile.setFirstEventId(reader.readLong());
+        feedFlowFile.setFirstEventStartTime(reader.readLong());
+        feedFlowFile.setFirstEventProcessorId(reader.readString());
+        feedFlowFile.setLastEventId(reader.readLong());
+        feedFlowFile.setLastEventTime(reader.readLong());
+        feedFlowFile.setLastEventProcessorId(reader.readString());
+        feedFlowFile.setFailedEventCount((int) reader.readVarLong());
+        feedFlowFile.setChildFlowFileTable(reader.readTable());
+        return feedFlowFile;
+    }
+
+    private static class Writer {
+
+        private final DataOutput out;
+
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        /**
+         * 0 is null, otherwise the zig-zag encoded value + 1
+         */
+        void writeLong(Long value) throws IOException {
+            if (value == null) {
+                out.writeByte(0);
+            } else {
+                out.writeByte(1);
+                writeVarLong((value << 1) ^ (value >> 63));
+            }
+        }
+
+        /**
+         * 0 is null, 1 is a new string followed by its value, otherwise the index of a string already written + 2
+         */
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+            } else {
+                Integer index = strings.get(value);
+                if (index != null) {
+                    writeVarLong(index + 2);
+                } else {
+                    strings.put(value, strings.size());
+                    writeVarLong(1);
+                    out.writeUTF(value);
+                }
+            }
+        }
+
+        void writeTime(long time) throws IOException {
+            writeLong(time != ChildFlowFileTable.NO_TIME ? time : null);
+        }
+
+        /**
+         * The size + 1, or 0 if the table is null, followed by each flow file in index order
+         */
+        void writeTable(ChildFlowFileTable table) throws IOException {
+            writeVarLong(table == null ? 0 : table.size() + 1);
+            if (table != null) {
+                for (int i = 0; i < table.size(); i++) {
+                    if (table.isUuid(i)) {
+                        out.writeByte(ID_UUID);
+                        out.writeLong(table.getMostSigBits(i));
+                        out.writeLong(table.getLeastSigBits(i));
+                    } else {
+                        out.writeByte(ID_STRING);
+                        out.writeUTF(table.getId(i));
+                    }
+                    out.writeByte(table.getFlags(i));
+                    writeTime(table.getLastEventTime(i));
+                    writeTime(table.getStartTime(i));
+                    writeVarLong(table.getParent(i) + 1);
+                }
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInput in;
+
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(DataInput in) {
+            this.in = in;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Unable to read FeedFlowFile.  Invalid variable length number");
+        }
+
+        Long readLong() throws IOException {
+            if (in.readByte() == 0) {
+                return null;
+            }
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() throws IOException {
+            int index = (int) readVarLong();
+            if (index == 0) {
+                return null;
+            } else if (index == 1) {
+                String value = in.readUTF();
+                strings.add(value);
+                return value;
+            } else if (index - 2 < strings.size()) {
+                return strings.get(index - 2);
+            }
+            throw new IOException("Unable to read FeedFlowFile.  Invalid string reference " + index);
+        }
+
+        long readTime() throws IOException {
+            Long time = readLong();
+            return time != null ? time : ChildFlowFileTable.NO_TIME;
+        }
+
+        ChildFlowFileTable readTable() throws IOException {
+            int size = (int) readVarLong() - 1;
+            if (size < 0) {
+                return null;
+            }
+            ChildFlowFileTable table = new ChildFlowFileTable(size);
+            for (int i = 0; i < size; i++) {
+                int idType = in.readByte();
+                int index;
+                if (idType == ID_UUID) {
+                    index = table.addUuid(in.readLong(), in.readLong());
+                } else if (idType == ID_STRING) {
+                    index = table.add(in.readUTF());
+                } else {
+                    throw new IOException("Unable to read FeedFlowFile.  Invalid flow file id type " + idType);
+                }
+                if (index != i) {
+                    throw new IOException("Unable to read FeedFlowFile.  Duplicate flow file id " + table.getId(index));
+                }
+                table.setFlag(index, in.readByte());
+                table.setLastEventTime(index, readTime());
+                table.setStartTime(index, readTime());
+                int parent = (int) readVarLong() - 1;
+                if (parent >= size) {
+                    throw new IOException("Unable to read FeedFlowFile.  Invalid parent flow file " + parent);
+                }
+                table.setParent(index, parent);
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.thinkbiganalytics.nifi.provenance.model;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Logs the heap used by root flow files with many children compared to the previous model of sets and maps of String ids.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=FeedFlowFileBenchmark}.
+ */
+public class FeedFlowFileBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedFlowFileBenchmark.class);
+
+    @Test
+    public void benchmark() {
+        int roots = 20;
+        int childrenPerRoot = 10000;
+        List<String> ids = new ArrayList<>(roots * childrenPerRoot);
+        for (int i = 0; i < roots * childrenPerRoot; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        //both models are kept reachable until the end so each measurement only includes the model just built
+        long before = usedHeap();
+        List<FeedFlowFile> compact = new ArrayList<>(roots);
+        for (int r = 0; r < roots; r++) {
+            String rootId = UUID.randomUUID().toString();
+            FeedFlowFile flowFile = new FeedFlowFile(rootId);
+            for (int c = 0; c < childrenPerRoot; c++) {
+                //copy the id as each event is deserialized with its own String instances
+                String child = new String(ids.get(r * childrenPerRoot + c));
+                flowFile.addChildFlowFile(child);
+                flowFile.assignFlowFileToParent(child, rootId);
+                flowFile.assignChildFlowFileStartTime(child, 1000L + c);
+                flowFile.checkIfEventStartsTheFlowFile(event(child, 1000L + c));
+                flowFile.registerLastEventTime(event(child, 1000L + c));
+            }
+            compact.add(flowFile);
+        }
+        long compactBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<LegacyFeedFlowFile> legacy = new ArrayList<>(roots);
+        for (int r = 0; r < roots; r++) {
+            LegacyFeedFlowFile flowFile = new LegacyFeedFlowFile();
+            for (int c = 0; c < childrenPerRoot; c++) {
+                flowFile.addChild(new String(ids.get(r * childrenPerRoot + c)), "root-" + r, 1000L + c);
+            }
+            legacy.add(flowFile);
+        }
+        long legacyBytes = usedHeap() - before;
+        Assert.assertEquals(roots, compact.size());
+        Assert.assertEquals(roots, legacy.size());
+
+        int flowFiles = roots * childrenPerRoot;
+        log.info("Heap for {} child flow files. Sets and maps of Strings: {} bytes/flow file, ChildFlowFileTable: {} bytes/flow file", flowFiles, legacyBytes / flowFiles,
+                 compactBytes / flowFiles);
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private ProvenanceEventRecordDTO event(String flowFileId, long eventTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventTime);
+        event.setFlowFileUuid(flowFileId);
+        event.setEventTime(new DateTime(eventTime));
+        event.setEventType("ATTRIBUTES_MODIFIED");
+        return event;
+    }
+
+    /**
+     * The collections previously held by a FeedFlowFile for each child
+     */
+    private static class LegacyFeedFlowFile {
+
+        private final Set<String> activeChildFlowFiles = new HashSet<>();
+        private final Set<String> childFlowFiles = new HashSet<>();
+        private final Set<String> flowfilesStarted = new HashSet<>();
+        private final Map<String, Long> flowFileLastEventTime = new HashMap<>();
+        private final Map<String, Long> childFlowFileStartTimes = new HashMap<>();
+        private final Map<String, String> flowFileIdToParentFlowFileId = new HashMap<>();
+
+        void addChild(String childId, String parentId, Long time) {
+            activeChildFlowFiles.add(childId);
+            childFlowFiles.add(childId);
+            flowfilesStarted.add(childId);
+            flowFileLastEventTime.put(childId, new Long(time));
+            childFlowFileStartTimes.put(childId, new Long(time));
+            flowFileIdToParentFlowFileId.put(childId, parentId);
+        }
+    }
+}
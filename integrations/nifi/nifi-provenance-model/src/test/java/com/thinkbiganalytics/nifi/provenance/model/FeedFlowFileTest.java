@@ -0,0 +1,149 @@
+package com.thinkbiganalytics.nifi.provenance.model;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ */
+public class FeedFlowFileTest {
+
+    @Test
+    public void testChildFlowFiles() {
+        String rootId = UUID.randomUUID().toString();
+        FeedFlowFile feedFlowFile = new FeedFlowFile(rootId);
+        List<String> children = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String child = UUID.randomUUID().toString();
+            children.add(child);
+            feedFlowFile.addChildFlowFile(child);
+            feedFlowFile.assignFlowFileToParent(child, rootId);
+        }
+        //ids that are not lower case UUIDs are kept as they are
+        feedFlowFile.addChildFlowFile("not-a-uuid");
+        feedFlowFile.addChildFlowFile(children.get(0).toUpperCase());
+        Assert.assertEquals(102, feedFlowFile.getChildFlowFiles().size());
+        Assert.assertTrue(feedFlowFile.getChildFlowFiles().containsAll(children));
+        Assert.assertTrue(feedFlowFile.getChildFlowFiles().contains(children.get(0).toUpperCase()));
+        Assert.assertFalse(feedFlowFile.getChildFlowFiles().contains(rootId));
+
+        feedFlowFile.checkAndMarkComplete(dropEvent(rootId));
+        Assert.assertFalse(feedFlowFile.isFeedComplete());
+        feedFlowFile.checkAndMarkComplete(dropEvent("not-a-uuid"));
+        feedFlowFile.checkAndMarkComplete(dropEvent(children.get(0).toUpperCase()));
+        for (String child : children) {
+            Assert.assertTrue(feedFlowFile.getActiveChildFlowFiles().contains(child));
+            feedFlowFile.checkAndMarkComplete(dropEvent(child));
+            feedFlowFile.checkAndMarkComplete(dropEvent(child));
+        }
+        Assert.assertTrue(feedFlowFile.getActiveChildFlowFiles().isEmpty());
+        Assert.assertEquals(102, feedFlowFile.getChildFlowFiles().size());
+        Assert.assertTrue(feedFlowFile.isFeedComplete());
+    }
+
+    @Test
+    public void testPreviousEventTime() {
+        String rootId = UUID.randomUUID().toString();
+        String child = UUID.randomUUID().toString();
+        String grandChild = UUID.randomUUID().toString();
+        FeedFlowFile feedFlowFile = new FeedFlowFile(rootId);
+        Assert.assertNull(feedFlowFile.getPreviousEventTime(rootId));
+
+        feedFlowFile.addEvent(event(rootId, 1000L));
+        Assert.assertEquals(Long.valueOf(1000L), feedFlowFile.getPreviousEventTime(rootId));
+
+        //children without a time of their own use the time of their parent
+        feedFlowFile.assignFlowFileToParent(child, rootId);
+        feedFlowFile.assignFlowFileToParent(grandChild, child);
+        Assert.assertEquals(Long.valueOf(1000L), feedFlowFile.getPreviousEventTime(grandChild));
+        feedFlowFile.assignChildFlowFileStartTime(child, 1500L);
+        Assert.assertEquals(Long.valueOf(1500L), feedFlowFile.getPreviousEventTime(grandChild));
+
+        ProvenanceEventRecordDTO event = event(grandChild, 2000L);
+        feedFlowFile.addEvent(event);
+        Assert.assertEquals(1500L, event.getStartTime().getMillis());
+        Assert.assertEquals(Long.valueOf(500L), event.getEventDuration());
+        Assert.assertEquals(Long.valueOf(2000L), feedFlowFile.getPreviousEventTime(grandChild));
+
+        //a cycle in the parents does not loop forever
+        String a = UUID.randomUUID().toString();
+        String b = UUID.randomUUID().toString();
+        feedFlowFile.assignFlowFileToParent(a, b);
+        feedFlowFile.assignFlowFileToParent(b, a);
+        Assert.assertNull(feedFlowFile.getPreviousEventTime(a));
+    }
+
+    @Test
+    public void testFlowFileStarted() {
+        String rootId = UUID.randomUUID().toString();
+        FeedFlowFile feedFlowFile = new FeedFlowFile(rootId);
+        Assert.assertTrue(feedFlowFile.checkIfEventStartsTheFlowFile(event(rootId, 1000L)));
+        Assert.assertTrue(feedFlowFile.checkIfEventStartsTheFlowFile(event(rootId, 1001L)));
+        Assert.assertFalse(feedFlowFile.checkIfEventStartsTheFlowFile(event(UUID.randomUUID().toString(), 1002L)));
+    }
+
+    @Test
+    public void testSerializerRoundTrip() throws Exception {
+        String rootId = UUID.randomUUID().toString();
+        FeedFlowFile feedFlowFile = new FeedFlowFile(rootId);
+        feedFlowFile.setFeedName("category.feed");
+        feedFlowFile.addEvent(event(rootId, 1000L));
+        for (int i = 0; i < 20; i++) {
+            String child = i % 5 == 0 ? "child-" + i : UUID.randomUUID().toString();
+            feedFlowFile.addChildFlowFile(child);
+            feedFlowFile.assignFlowFileToParent(child, rootId);
+            feedFlowFile.assignChildFlowFileStartTime(child, 1000L + i);
+            if (i % 2 == 0) {
+                feedFlowFile.checkAndMarkComplete(dropEvent(child));
+            }
+        }
+        FeedFlowFile restored = FeedFlowFileSerializer.deserialize(FeedFlowFileSerializer.serialize(feedFlowFile));
+        Assert.assertEquals(feedFlowFile.getId(), restored.getId());
+        Assert.assertEquals(feedFlowFile.getFeedName(), restored.getFeedName());
+        Assert.assertEquals(feedFlowFile.getChildFlowFiles(), restored.getChildFlowFiles());
+        Assert.assertEquals(feedFlowFile.getActiveChildFlowFiles(), restored.getActiveChildFlowFiles());
+        Assert.assertEquals(10, restored.getActiveChildFlowFileCount());
+        for (String child : feedFlowFile.getChildFlowFiles()) {
+            Assert.assertEquals(feedFlowFile.getPreviousEventTime(child), restored.getPreviousEventTime(child));
+        }
+    }
+
+    private ProvenanceEventRecordDTO event(String flowFileId, long eventTime) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventTime);
+        event.setFlowFileUuid(flowFileId);
+        event.setEventTime(new DateTime(eventTime));
+        event.setEventType("ATTRIBUTES_MODIFIED");
+        return event;
+    }
+
+    private ProvenanceEventRecordDTO dropEvent(String flowFileId) {
+        ProvenanceEventRecordDTO event = event(flowFileId, 5000L);
+        event.setEventType("DROP");
+        return event;
+    }
+}
@@ -20,6 +20,7 @@ package com.thinkbiganalytics.nifi.rest.client;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
 import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
 import com.thinkbiganalytics.nifi.rest.model.visitor.NifiFlowBuilder;
@@ -45,6 +46,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -53,10 +61,31 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     private static final Logger log = LoggerFactory.getLogger(DefaultNiFiFlowVisitorClient.class);
 
 
+    /**
+     * The default maximum number of process groups fetched and walked at the same time
+     */
+    public static final int DEFAULT_FLOW_WALK_CONCURRENCY = 8;
+
     private NiFiRestClient restClient;
 
+    /**
+     * Fetches and walks process groups for {@link #walkFeedFlows(Collection, FeedFlowWalker)}.
+     * The pool is shared by all walks so that at most {@code flowWalkConcurrency} requests are made to NiFi at the same time.
+     * Its threads stop when idle.
+     */
+    private final ExecutorService executor;
+
     public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient) {
+        this(restClient, DEFAULT_FLOW_WALK_CONCURRENCY);
+    }
+
+    public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient, int flowWalkConcurrency) {
         this.restClient = restClient;
+        int threads = Math.max(flowWalkConcurrency, 1);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                         new ThreadFactoryBuilder().setDaemon(true).setNameFormat("nifi-flow-walk-%d").build());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
     }
 
 
@@ -103,7 +132,14 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     }
 
     public NifiFlowProcessGroup getFeedFlow(String processGroupId, NifiConnectionOrderVisitorCache cache) {
-        NifiVisitableProcessGroup visitableGroup = getFlowOrder(processGroupId, cache);
+        return toFeedFlow(getFlowOrder(processGroupId, cache));
+    }
+
+    public NifiFlowProcessGroup getFeedFlow(ProcessGroupDTO feedProcessGroup, NifiConnectionOrderVisitorCache cache) {
+        return toFeedFlow(getFlowOrder(feedProcessGroup, cache));
+    }
+
+    private NifiFlowProcessGroup toFeedFlow(NifiVisitableProcessGroup visitableGroup) {
         NifiFlowProcessGroup flow = new NifiFlowBuilder().build(visitableGroup);
         String categoryName = flow.getParentGroupName();
         String feedName = flow.getName();
@@ -144,41 +180,111 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames) {
         log.info("get Graph of Nifi Flows looking for {} ", feedNames == null ? "ALL Feeds " : feedNames);
         long start = System.currentTimeMillis();
+        List<NifiFlowProcessGroup> feedFlows = walkFeedFlows(feedNames, (feedName, feedProcessGroup, reusableFlows, feedFlow) -> {
+            NifiFlowProcessGroup flow = feedFlow.get();
+            flow.setFeedName(feedName);
+            return flow;
+        });
+        long end = System.currentTimeMillis();
+        log.info("finished Graph of Nifi Flows.  Returning {} flows, {} ", feedFlows.size(), (end - start) + " ms");
+        return feedFlows;
+    }
+
+    /**
+     * Walks the feed flows under each category.
+     *
+     * The root and category process groups are fetched first without their children.
+     * The reusable flows are fetched with all of their children since the feeds connect to them.
+     * Each feed process group is then fetched and walked on its own thread, sharing the process groups already fetched.
+     * At most {@code flowWalkConcurrency} process groups are fetched or walked at the same time, across all walks.
+     */
+    public <T> List<T> walkFeedFlows(Collection<String> feedNames, FeedFlowWalker<T> walker) {
         NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
-        List<NifiFlowProcessGroup> feedFlows = new ArrayList<>();
-        ProcessGroupDTO processGroupEntity = restClient.processGroups().findRoot();
-        ProcessGroupDTO root = processGroupEntity;
-        //first level is the category
-        root.getContents().getProcessGroups().stream().sorted(new Comparator<ProcessGroupDTO>() {
-            @Override
-            public int compare(ProcessGroupDTO o1, ProcessGroupDTO o2) {
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o1.getName())) {
-                    return -1;
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            ProcessGroupDTO root = restClient.processGroups().findById("root", false, true).orElseThrow(IllegalStateException::new);
+            cache.add(root);
+
+            //first level is the category.  walk the reusable flows first
+            List<ProcessGroupDTO> categories = new ArrayList<>(root.getContents().getProcessGroups());
+            categories.sort(Comparator.comparing((ProcessGroupDTO category) -> !isReusableTemplatesGroup(category)).thenComparing(ProcessGroupDTO::getName));
+            List<Future<ProcessGroupDTO>> categoryTasks = new ArrayList<>();
+            for (ProcessGroupDTO category : categories) {
+                boolean reusable = isReusableTemplatesGroup(category);
+                Future<ProcessGroupDTO> categoryTask = executor.submit(() -> {
+                    ProcessGroupDTO categoryGroup = restClient.processGroups().findById(category.getId(), reusable, true)
+                        .orElseThrow(() -> new NifiComponentNotFoundException(category.getId(), NifiConstants.NIFI_COMPONENT_TYPE.PROCESS_GROUP, null));
+                    if (reusable) {
+                        NifiProcessUtil.getProcessGroups(categoryGroup).stream().forEach(cache::add);
+                    } else {
+                        cache.add(categoryGroup);
+                    }
+                    return categoryGroup;
+                });
+                categoryTasks.add(categoryTask);
+                tasks.add(categoryTask);
+            }
+
+            List<Future<T>> feedTasks = new ArrayList<>();
+            ProcessGroupDTO reusableFlows = null;
+            for (Future<ProcessGroupDTO> categoryTask : categoryTasks) {
+                ProcessGroupDTO category = await(categoryTask);
+                boolean reusable = isReusableTemplatesGroup(category);
+                if (reusable) {
+                    reusableFlows = category;
                 }
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o2.getName())) {
-                    return -1;
+                final ProcessGroupDTO finalReusableFlows = reusableFlows;
+                for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
+
+                    //second level is the feed
+                    String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
+                    //if it is a versioned feed then strip the version to get the correct feed name
+                    final String finalFeedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
+                    //if feednames are sent in, only add those that match or those in the reusable group
+                    if ((feedNames == null || feedNames.isEmpty()) || (feedNames != null && (feedNames.contains(finalFeedName) || reusable))) {
+                        Callable<T> walk = () -> {
+                            //the reusable flows were fetched with their category
+                            ProcessGroupDTO feedGroup = reusable ? feedProcessGroup : restClient.processGroups().findById(feedProcessGroup.getId(), true, true)
+                                .orElseThrow(() -> new NifiComponentNotFoundException(feedProcessGroup.getId(), NifiConstants.NIFI_COMPONENT_TYPE.PROCESS_GROUP, null));
+                            return walker.walk(finalFeedName, feedGroup, finalReusableFlows, () -> getFeedFlow(feedGroup, cache));
+                        };
+                        Future<T> feedTask = executor.submit(walk);
+                        feedTasks.add(feedTask);
+                        tasks.add(feedTask);
+                    }
                 }
-                return o1.getName().compareTo(o2.getName());
             }
-        }).forEach(category -> {
-            for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
-
-                //second level is the feed
-                String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
-                //if it is a versioned feed then strip the version to get the correct feed name
-                feedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
-                //if feednames are sent in, only add those that match or those in the reusable group
-                if ((feedNames == null || feedNames.isEmpty()) || (feedNames != null && (feedNames.contains(feedName) || TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME
-                    .equalsIgnoreCase(category.getName())))) {
-                    NifiFlowProcessGroup feedFlow = getFeedFlow(feedProcessGroup.getId(), cache);
-                    feedFlow.setFeedName(feedName);
-                    feedFlows.add(feedFlow);
-                }
+
+            List<T> results = new ArrayList<>(feedTasks.size());
+            for (Future<T> feedTask : feedTasks) {
+                results.add(await(feedTask));
             }
-        });
-        long end = System.currentTimeMillis();
-        log.info("finished Graph of Nifi Flows.  Returning {} flows, {} ", feedFlows.size(), (end - start) + " ms");
-        return feedFlows;
+            return results;
+        } finally {
+            //stop the remaining fetches if a walk failed.  completed tasks are not affected
+            tasks.forEach(task -> task.cancel(true));
+        }
+    }
+
+    private boolean isReusableTemplatesGroup(ProcessGroupDTO group) {
+        return TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(group.getName());
+    }
+
+    /**
+     * Waits for a fetch or walk of a process group, rethrowing its exception
+     */
+    private <T> T await(Future<T> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NifiClientRuntimeException("Unable to walk the NiFi flows", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NifiClientRuntimeException("Interrupted while walking the NiFi flows", e);
+        }
     }
 
 
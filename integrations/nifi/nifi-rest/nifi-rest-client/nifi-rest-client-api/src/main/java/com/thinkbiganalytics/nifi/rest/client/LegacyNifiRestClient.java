@@ -1177,6 +1177,10 @@ public class LegacyNifiRestClient implements NiFiFlowVisitorClient {
         return client.flows().getFeedFlow(processGroupId);
     }
 
+    public NifiFlowProcessGroup getFeedFlow(ProcessGroupDTO feedProcessGroup, NifiConnectionOrderVisitorCache cache) {
+        return client.flows().getFeedFlow(feedProcessGroup, cache);
+    }
+
     public Set<ProcessorDTO> getProcessorsForFlow(String processGroupId) throws NifiComponentNotFoundException {
         return client.flows().getProcessorsForFlow(processGroupId);
     }
@@ -1204,6 +1208,11 @@ public class LegacyNifiRestClient implements NiFiFlowVisitorClient {
         return client.flows().getFeedFlows(feedNames);
     }
 
+    @Override
+    public <T> List<T> walkFeedFlows(Collection<String> feedNames, FeedFlowWalker<T> walker) {
+        return client.flows().walkFeedFlows(feedNames, walker);
+    }
+
 
     /**
      * Gets a transform for converting {@link NiFiPropertyDescriptor} objects to {@link PropertyDescriptorDTO}.
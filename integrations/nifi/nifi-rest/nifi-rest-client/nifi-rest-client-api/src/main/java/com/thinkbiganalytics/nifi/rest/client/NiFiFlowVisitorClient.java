@@ -31,6 +31,7 @@ import org.apache.nifi.web.api.dto.TemplateDTO;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * REST client to get a NiFi flow as a graph of connected processors
@@ -44,6 +45,16 @@ public interface NiFiFlowVisitorClient {
 
     NifiFlowProcessGroup getFeedFlow(String processGroupId);
 
+    /**
+     * Walks a feed process group that was already fetched with its contents.
+     * Process groups found in the cache are not fetched again from NiFi.
+     *
+     * @param feedProcessGroup the feed process group including its contents
+     * @param cache            the process groups already fetched
+     * @return the graph of connected processors for the feed
+     */
+    NifiFlowProcessGroup getFeedFlow(ProcessGroupDTO feedProcessGroup, NifiConnectionOrderVisitorCache cache);
+
 
     NifiFlowProcessGroup getFeedFlowForCategoryAndFeed(String categoryAndFeedName);
 
@@ -51,6 +62,17 @@ public interface NiFiFlowVisitorClient {
 
     List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames);
 
+    /**
+     * Fetches the feed process groups under each category and passes each one to the walker.
+     * A bounded number of process groups are fetched and walked at the same time, sharing the process groups already fetched.
+     *
+     * @param feedNames the feeds to walk, or {@code null} or empty for all feeds. The reusable flows are always walked.
+     * @param walker    called for each feed process group on the thread that fetched it
+     * @param <T>       the type of result for each feed process group
+     * @return the results of the walker, with the reusable flows first
+     */
+    <T> List<T> walkFeedFlows(Collection<String> feedNames, FeedFlowWalker<T> walker);
+
     Set<ProcessorDTO> getProcessorsForFlow(String processGroupId);
 
     /**
@@ -64,5 +86,21 @@ public interface NiFiFlowVisitorClient {
      */
     NifiFlowProcessGroup getTemplateFeedFlow(String templateId);
 
-
+    /**
+     * Receives the feed process groups found by {@link #walkFeedFlows(Collection, FeedFlowWalker)}
+     *
+     * @param <T> the type of result for each feed process group
+     */
+    @FunctionalInterface
+    interface FeedFlowWalker<T> {
+
+        /**
+         * @param feedName         the category and feed name, without the version
+         * @param feedProcessGroup the feed process group including its contents
+         * @param reusableFlows    the reusable flows process group including its contents, or {@code null} if there is none
+         * @param feedFlow         walks the graph of connected processors for the feed
+         * @return the result for the feed process group
+         */
+        T walk(String feedName, ProcessGroupDTO feedProcessGroup, ProcessGroupDTO reusableFlows, Supplier<NifiFlowProcessGroup> feedFlow);
+    }
 }
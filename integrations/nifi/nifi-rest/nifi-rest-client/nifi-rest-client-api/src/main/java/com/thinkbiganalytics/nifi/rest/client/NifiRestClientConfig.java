@@ -29,6 +29,11 @@ public class NifiRestClientConfig extends JerseyClientConfig {
     private String apiPath = "/nifi-api/";
     private String clusterType = "NODE";
 
+    /**
+     * The maximum number of process groups fetched and walked at the same time when getting the feed flows
+     */
+    private int flowWalkConcurrency = 8;
+
     public NifiRestClientConfig(String apiPath) {
         this.apiPath = apiPath;
     }
@@ -63,4 +68,12 @@ public class NifiRestClientConfig extends JerseyClientConfig {
     public void setClusterType(String clusterType) {
         this.clusterType = clusterType;
     }
+
+    public int getFlowWalkConcurrency() {
+        return flowWalkConcurrency;
+    }
+
+    public void setFlowWalkConcurrency(int flowWalkConcurrency) {
+        this.flowWalkConcurrency = flowWalkConcurrency;
+    }
 }
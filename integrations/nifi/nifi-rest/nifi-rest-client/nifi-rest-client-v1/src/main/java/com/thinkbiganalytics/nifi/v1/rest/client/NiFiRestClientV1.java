@@ -105,6 +105,11 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Nullable
     private NiFiReportingTaskRestClientV1 reportingTasks;
 
+    /**
+     * The maximum number of process groups fetched and walked at the same time by the flows client
+     */
+    private final int flowWalkConcurrency;
+
     /**
      * Constructs a {@code NiFiRestClientV1} with the specified NiFi REST client configuration.
      *
@@ -112,6 +117,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
      */
     public NiFiRestClientV1(@Nonnull final NifiRestClientConfig config) {
         super(config);
+        flowWalkConcurrency = config.getFlowWalkConcurrency();
     }
 
     @Nonnull
@@ -217,7 +223,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Override
     public NiFiFlowVisitorClient flows() {
         if (flows == null) {
-            flows = new DefaultNiFiFlowVisitorClient(this);
+            flows = new DefaultNiFiFlowVisitorClient(this, flowWalkConcurrency);
         }
         return flows;
     }
@@ -0,0 +1,267 @@
+package com.thinkbiganalytics.nifi.v1.rest.client;
+
+/*-
+ * #%L
+ * thinkbig-nifi-rest-client-v1
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
+import com.thinkbiganalytics.nifi.rest.client.DefaultNiFiFlowVisitorClient;
+import com.thinkbiganalytics.nifi.rest.client.NifiRestClientConfig;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+import com.thinkbiganalytics.rest.JacksonObjectMapperProvider;
+
+import org.apache.nifi.web.api.dto.ConnectableDTO;
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.apache.nifi.web.api.dto.flow.FlowDTO;
+import org.apache.nifi.web.api.dto.flow.ProcessGroupFlowDTO;
+import org.apache.nifi.web.api.entity.ConnectionEntity;
+import org.apache.nifi.web.api.entity.ProcessGroupEntity;
+import org.apache.nifi.web.api.entity.ProcessGroupFlowEntity;
+import org.apache.nifi.web.api.entity.ProcessorEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures {@link DefaultNiFiFlowVisitorClient#getFeedFlows()} against a local stub of the NiFi REST API serving a flow of 1,000 feed process groups.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=DefaultNiFiFlowVisitorClientBenchmark}.
+ */
+public class DefaultNiFiFlowVisitorClientBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultNiFiFlowVisitorClientBenchmark.class);
+
+    private static final int CATEGORIES = 10;
+    private static final int FEEDS_PER_CATEGORY = 99;
+    private static final int REUSABLE_FLOWS = 10;
+
+    /**
+     * The time the stub takes to answer each request
+     */
+    private static final long LATENCY_MILLIS = 2;
+
+    private final ObjectMapper objectMapper = new JacksonObjectMapperProvider().getContext(null);
+
+    /**
+     * The process groups by id
+     */
+    private final Map<String, ProcessGroupDTO> processGroups = new HashMap<>();
+
+    /**
+     * The contents of each process group by id
+     */
+    private final Map<String, FlowDTO> flows = new HashMap<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private String rootId;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    @Before
+    public void setup() throws IOException {
+        ProcessGroupDTO root = processGroup(null, "NiFi Flow");
+        rootId = root.getId();
+        ProcessGroupDTO reusable = processGroup(root, TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME);
+        for (int flow = 0; flow < REUSABLE_FLOWS; flow++) {
+            feed(reusable, "flow_" + flow);
+        }
+        for (int category = 0; category < CATEGORIES; category++) {
+            ProcessGroupDTO categoryGroup = processGroup(root, "category_" + category);
+            for (int feed = 0; feed < FEEDS_PER_CATEGORY; feed++) {
+                feed(categoryGroup, "feed_" + feed);
+            }
+        }
+
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/nifi-api/", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void getFeedFlows() {
+        //warm up the client before timing it
+        walk(DefaultNiFiFlowVisitorClient.DEFAULT_FLOW_WALK_CONCURRENCY);
+
+        long sequential = walk(1);
+        long concurrent = walk(DefaultNiFiFlowVisitorClient.DEFAULT_FLOW_WALK_CONCURRENCY);
+        log.info("Walked {} process groups in {} ms sequentially and {} ms with a concurrency of {}", processGroups.size(), sequential, concurrent,
+                 DefaultNiFiFlowVisitorClient.DEFAULT_FLOW_WALK_CONCURRENCY);
+    }
+
+    /**
+     * Walks all the feed flows
+     *
+     * @param concurrency the maximum number of process groups to fetch and walk at the same time
+     * @return the time taken in milliseconds
+     */
+    private long walk(int concurrency) {
+        NifiRestClientConfig config = new NifiRestClientConfig();
+        config.setHost("localhost");
+        config.setPort(server.getAddress().getPort());
+        config.setFlowWalkConcurrency(concurrency);
+        NiFiRestClientV1 client = new NiFiRestClientV1(config);
+
+        requests.set(0);
+        long start = System.nanoTime();
+        List<NifiFlowProcessGroup> feedFlows = client.flows().getFeedFlows();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertEquals(REUSABLE_FLOWS + CATEGORIES * FEEDS_PER_CATEGORY, feedFlows.size());
+        feedFlows.forEach(feedFlow -> Assert.assertEquals(3, feedFlow.getProcessorMap().size()));
+        log.info("Walked {} feed flows with a concurrency of {} in {} ms using {} requests", feedFlows.size(), concurrency, millis, requests.get());
+        return millis;
+    }
+
+    /**
+     * Answers the requests for a process group and the flow of a process group
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        if ("root".equals(id)) {
+            id = rootId;
+        }
+
+        Object entity = null;
+        if (path.startsWith("/nifi-api/flow/process-groups/") && flows.containsKey(id)) {
+            ProcessGroupFlowDTO processGroupFlow = new ProcessGroupFlowDTO();
+            processGroupFlow.setId(id);
+            processGroupFlow.setFlow(flows.get(id));
+            ProcessGroupFlowEntity processGroupFlowEntity = new ProcessGroupFlowEntity();
+            processGroupFlowEntity.setProcessGroupFlow(processGroupFlow);
+            entity = processGroupFlowEntity;
+        } else if (path.startsWith("/nifi-api/process-groups/") && processGroups.containsKey(id)) {
+            entity = processGroupEntity(processGroups.get(id));
+        }
+
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (entity == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = objectMapper.writeValueAsBytes(entity);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Adds a feed process group made of a chain of 3 processors
+     */
+    private void feed(ProcessGroupDTO category, String name) {
+        ProcessGroupDTO feed = processGroup(category, name);
+        FlowDTO flow = flows.get(feed.getId());
+        ProcessorDTO previous = null;
+        for (String type : new String[]{"GetFile", "UpdateAttribute", "PutFile"}) {
+            ProcessorDTO processor = new ProcessorDTO();
+            processor.setId(UUID.randomUUID().toString());
+            processor.setParentGroupId(feed.getId());
+            processor.setName(type);
+            processor.setType("org.apache.nifi.processors.standard." + type);
+            ProcessorEntity processorEntity = new ProcessorEntity();
+            processorEntity.setId(processor.getId());
+            processorEntity.setComponent(processor);
+            flow.getProcessors().add(processorEntity);
+
+            if (previous != null) {
+                ConnectionDTO connection = new ConnectionDTO();
+                connection.setId(UUID.randomUUID().toString());
+                connection.setParentGroupId(feed.getId());
+                connection.setSource(connectable(previous));
+                connection.setDestination(connectable(processor));
+                connection.setSelectedRelationships(Collections.singleton("success"));
+                ConnectionEntity connectionEntity = new ConnectionEntity();
+                connectionEntity.setId(connection.getId());
+                connectionEntity.setComponent(connection);
+                flow.getConnections().add(connectionEntity);
+            }
+            previous = processor;
+        }
+    }
+
+    private ProcessGroupDTO processGroup(ProcessGroupDTO parent, String name) {
+        ProcessGroupDTO processGroup = new ProcessGroupDTO();
+        processGroup.setId(UUID.randomUUID().toString());
+        processGroup.setName(name);
+        processGroups.put(processGroup.getId(), processGroup);
+        flows.put(processGroup.getId(), new FlowDTO());
+        if (parent != null) {
+            processGroup.setParentGroupId(parent.getId());
+            flows.get(parent.getId()).getProcessGroups().add(processGroupEntity(processGroup));
+        }
+        return processGroup;
+    }
+
+    private ProcessGroupEntity processGroupEntity(ProcessGroupDTO processGroup) {
+        ProcessGroupEntity processGroupEntity = new ProcessGroupEntity();
+        processGroupEntity.setId(processGroup.getId());
+        processGroupEntity.setComponent(processGroup);
+        return processGroupEntity;
+    }
+
+    private ConnectableDTO connectable(ProcessorDTO processor) {
+        ConnectableDTO connectable = new ConnectableDTO();
+        connectable.setId(processor.getId());
+        connectable.setGroupId(processor.getParentGroupId());
+        connectable.setName(processor.getName());
+        connectable.setType("PROCESSOR");
+        return connectable;
+    }
+}
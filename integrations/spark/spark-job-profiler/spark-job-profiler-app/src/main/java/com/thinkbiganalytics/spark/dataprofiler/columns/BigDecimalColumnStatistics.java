@@ -27,6 +27,8 @@ import org.apache.spark.sql.types.StructField;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Class to hold profile statistics for columns of bigdecimal data type <br>
@@ -174,4 +176,33 @@ public class BigDecimalColumnStatistics extends ColumnStatistics {
         return sum;
     }
 
+
+    /**
+     * Get decimal-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.MAX, max.toString());
+        state.put(MetricType.MIN, min.toString());
+        state.put(MetricType.SUM, sum.toString());
+        return state;
+    }
+
+
+    /**
+     * Restore decimal-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        max = new BigDecimal((String) state.get(MetricType.MAX));
+        min = new BigDecimal((String) state.get(MetricType.MIN));
+        sum = new BigDecimal((String) state.get(MetricType.SUM));
+    }
 }
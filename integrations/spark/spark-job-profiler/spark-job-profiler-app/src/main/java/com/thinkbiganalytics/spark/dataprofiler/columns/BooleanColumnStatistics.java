@@ -26,6 +26,8 @@ import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import org.apache.spark.sql.types.StructField;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Class to hold profile statistics for columns of boolean data type <br>
@@ -144,4 +146,31 @@ public class BooleanColumnStatistics extends ColumnStatistics {
         return falseCount;
     }
 
+
+    /**
+     * Get boolean-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.TRUE_COUNT, trueCount);
+        state.put(MetricType.FALSE_COUNT, falseCount);
+        return state;
+    }
+
+
+    /**
+     * Restore boolean-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        trueCount = (Long) state.get(MetricType.TRUE_COUNT);
+        falseCount = (Long) state.get(MetricType.FALSE_COUNT);
+    }
 }
@@ -26,6 +26,8 @@ import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import org.apache.spark.sql.types.StructField;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Class to hold profile statistics for columns of byte data type<br>
@@ -268,4 +270,39 @@ public class ByteColumnStatistics extends ColumnStatistics {
         return variance;
     }
 
+
+    /**
+     * Get byte-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.MAX, String.valueOf(max));
+        state.put(MetricType.MIN, String.valueOf(min));
+        state.put(MetricType.SUM, String.valueOf(sum));
+        state.put(MetricType.MEAN, mean);
+        state.put(MetricType.STDDEV, stddev);
+        return state;
+    }
+
+
+    /**
+     * Restore byte-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        max = Byte.parseByte((String) state.get(MetricType.MAX));
+        min = Byte.parseByte((String) state.get(MetricType.MIN));
+        sum = Long.parseLong((String) state.get(MetricType.SUM));
+        mean = (Double) state.get(MetricType.MEAN);
+        stddev = (Double) state.get(MetricType.STDDEV);
+        variance = Math.pow(stddev, 2);
+        sumOfSquares = variance * (totalCount - nullCount);
+    }
 }
@@ -20,19 +20,24 @@ package com.thinkbiganalytics.spark.dataprofiler.columns;
  * #L%
  */
 
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
 import com.thinkbiganalytics.spark.dataprofiler.model.MetricType;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataSketch;
 
 import org.apache.spark.sql.types.StructField;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class to hold common profile statistics for columns of all data types
@@ -45,16 +50,22 @@ public abstract class ColumnStatistics implements Serializable {
     /* Other variables */
     final DecimalFormat df;
     final OutputWriter outputWriter;
-    private final TopNDataList topNValues;
+    private TopNDataList topNValues;
     /* Common metrics for all data types */
     long nullCount;
     long totalCount;
-    List<OutputRow> rows;
+    transient List<OutputRow> rows;
     private long uniqueCount;
     private double percNullValues;
     private double percUniqueValues;
     private double percDuplicateValues;
 
+    /* Sketches for estimating unique count and top n values (null unless profiling approximately) */
+    private HyperLogLogPlus uniqueSketch;
+    private TopNDataSketch topNSketch;
+    private int uniqueSketchPrecision;
+    private boolean sketchesEstimated;
+
 
     /**
      * One-argument constructor
@@ -75,6 +86,20 @@ public abstract class ColumnStatistics implements Serializable {
     }
 
 
+    /**
+     * Estimate unique count and top n values with fixed-size sketches, instead of expecting each distinct value to be accommodated once<br>
+     * Must be called before accommodating any values
+     *
+     * @param uniqueCountPrecision precision of the HyperLogLog sketch for unique count
+     * @param topNCapacity         number of counters of the sketch for top n values
+     */
+    public void useSketches(int uniqueCountPrecision, int topNCapacity) {
+        uniqueSketch = new HyperLogLogPlus(uniqueCountPrecision);
+        uniqueSketchPrecision = uniqueCountPrecision;
+        topNSketch = new TopNDataSketch(topNCapacity);
+    }
+
+
     /**
      * Calculate common statistics by accommodating the value and frequency/count
      *
@@ -84,12 +109,23 @@ public abstract class ColumnStatistics implements Serializable {
     void accomodateCommon(Object columnValue, Long columnCount) {
 
         totalCount += columnCount;
-        uniqueCount += 1;
 
         if (columnValue == null) {
             nullCount += columnCount;
         }
 
+        if (uniqueSketch != null) {
+            /* Null is counted separately as a unique value when estimating */
+            if (columnValue != null) {
+                uniqueSketch.offer(columnValue);
+            }
+            topNSketch.add(columnValue, columnCount);
+            sketchesEstimated = false;
+            return;
+        }
+
+        uniqueCount += 1;
+
         doPercentageCalculationsCommon();
 
         topNValues.add(columnValue, columnCount);
@@ -104,9 +140,21 @@ public abstract class ColumnStatistics implements Serializable {
     void combineCommon(ColumnStatistics v_columnStatistics) {
 
         totalCount += v_columnStatistics.totalCount;
-        uniqueCount += v_columnStatistics.uniqueCount;
         nullCount += v_columnStatistics.nullCount;
 
+        if (uniqueSketch != null) {
+            try {
+                uniqueSketch.addAll(v_columnStatistics.uniqueSketch);
+            } catch (CardinalityMergeException e) {
+                throw new IllegalStateException("Unable to combine unique count sketches for column " + columnField.name(), e);
+            }
+            topNSketch.combine(v_columnStatistics.topNSketch);
+            sketchesEstimated = false;
+            return;
+        }
+
+        uniqueCount += v_columnStatistics.uniqueCount;
+
         doPercentageCalculationsCommon();
 
         for (TopNDataItem dataItem :
@@ -116,6 +164,50 @@ public abstract class ColumnStatistics implements Serializable {
     }
 
 
+    /**
+     * Restore the common statistics and sketches of statistics profiled approximately<br>
+     * Must be called before {@link #setState(Map)}, which may depend on the total and null counts
+     *
+     * @param totalCount            total count
+     * @param nullCount             null count
+     * @param uniqueSketchPrecision precision of the unique count sketch
+     * @param uniqueSketchBytes     unique count sketch, as returned by {@link #getUniqueSketchBytes()}
+     * @param topNSketch            top n values sketch
+     * @throws IOException if the unique count sketch cannot be read
+     */
+    public void restoreCommon(long totalCount, long nullCount, int uniqueSketchPrecision, byte[] uniqueSketchBytes, TopNDataSketch topNSketch) throws IOException {
+
+        this.totalCount = totalCount;
+        this.nullCount = nullCount;
+        this.uniqueSketch = HyperLogLogPlus.Builder.build(uniqueSketchBytes);
+        this.uniqueSketchPrecision = uniqueSketchPrecision;
+        this.topNSketch = topNSketch;
+        sketchesEstimated = false;
+    }
+
+
+    /*
+     * Update unique count, top n values, and related percentages from the sketches
+     */
+    private void estimateFromSketches() {
+
+        if (uniqueSketch != null && !sketchesEstimated) {
+            uniqueCount = uniqueSketch.cardinality() + (nullCount > 0 ? 1 : 0);
+            topNValues = topNSketch.getTopN(ProfilerConfiguration.NUMBER_OF_TOP_N_VALUES);
+            doPercentageCalculationsCommon();
+            sketchesEstimated = true;
+        }
+    }
+
+
+    /*
+     * Relative standard error of the unique count sketch, as a percentage
+     */
+    private double getUniqueCountError() {
+        return 104.0d / Math.sqrt(1 << uniqueSketchPrecision);
+    }
+
+
     /**
      * Write column's schema information for output result table
      */
@@ -153,6 +245,9 @@ public abstract class ColumnStatistics implements Serializable {
 
         rows = new ArrayList<>();
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.TOP_N_VALUES), topNValues.printTopNItems()));
+        if (topNSketch != null) {
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.TOP_N_VALUES_MAX_ERROR), String.valueOf(topNSketch.getMaxError())));
+        }
         outputWriter.addRows(rows);
     }
 
@@ -175,6 +270,7 @@ public abstract class ColumnStatistics implements Serializable {
      */
     void writeStatisticsCommon() {
 
+        estimateFromSketches();
         writeColumnSchemaInformation();
 
         rows = new ArrayList<>();
@@ -184,6 +280,9 @@ public abstract class ColumnStatistics implements Serializable {
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERC_NULL_VALUES), df.format(percNullValues)));
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERC_UNIQUE_VALUES), df.format(percUniqueValues)));
         rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.PERC_DUPLICATE_VALUES), df.format(percDuplicateValues)));
+        if (uniqueSketch != null) {
+            rows.add(new OutputRow(columnField.name(), String.valueOf(MetricType.UNIQUE_COUNT_ERROR), df.format(getUniqueCountError())));
+        }
         outputWriter.addRows(rows);
 
         writeTopNInformation();
@@ -197,6 +296,7 @@ public abstract class ColumnStatistics implements Serializable {
      */
     String getVerboseStatisticsCommon() {
 
+        estimateFromSketches();
         return getVerboseColumnSchemaInformation()
                + "\n"
                + "CommonStatistics ["
@@ -239,6 +339,65 @@ public abstract class ColumnStatistics implements Serializable {
     }
 
 
+    /**
+     * Get field schema
+     *
+     * @return field schema
+     */
+    public StructField getColumnField() {
+        return columnField;
+    }
+
+
+    /**
+     * Check if unique count and top n values are estimated with sketches
+     *
+     * @return true if profiled approximately
+     */
+    public boolean isApproximate() {
+        return uniqueSketch != null;
+    }
+
+
+    /**
+     * Get the precision of the unique count sketch
+     *
+     * @return precision (zero unless profiled approximately)
+     */
+    public int getUniqueSketchPrecision() {
+        return uniqueSketchPrecision;
+    }
+
+
+    /**
+     * Get the unique count sketch in its compact binary format
+     *
+     * @return unique count sketch (null unless profiled approximately)
+     */
+    public byte[] getUniqueSketchBytes() {
+
+        if (uniqueSketch == null) {
+            return null;
+        }
+
+        try {
+            return uniqueSketch.getBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to get unique count sketch for column " + columnField.name(), e);
+        }
+    }
+
+
+    /**
+     * Get the top n values sketch
+     *
+     * @return top n values sketch (null unless profiled approximately)
+     */
+    public TopNDataSketch getTopNSketch() {
+        return topNSketch;
+    }
+
+
     /**
      * Get null count
      *
@@ -265,6 +424,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return unique count
      */
     public long getUniqueCount() {
+        estimateFromSketches();
         return uniqueCount;
     }
 
@@ -275,6 +435,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of null values
      */
     public double getPercNullValues() {
+        estimateFromSketches();
         return percNullValues;
     }
 
@@ -285,6 +446,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of unique values
      */
     public double getPercUniqueValues() {
+        estimateFromSketches();
         return percUniqueValues;
     }
 
@@ -295,6 +457,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of duplicate values
      */
     public double getPercDuplicateValues() {
+        estimateFromSketches();
         return percDuplicateValues;
     }
 
@@ -305,6 +468,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return top n values
      */
     public TopNDataList getTopNValues() {
+        estimateFromSketches();
         return topNValues;
     }
 
@@ -322,4 +486,13 @@ public abstract class ColumnStatistics implements Serializable {
 
     public abstract String getVerboseStatistics();
 
+    /*
+     * Data type specific statistics needed to combine with other statistics, keyed by metric type:
+     * 1) getState() returns values that can be stored as Long, Integer, Double, or String
+     * 2) setState(...) restores the values after restoreCommon(...)
+     */
+    public abstract Map<MetricType, Object> getState();
+
+    public abstract void setState(Map<MetricType, Object> state);
+
 }
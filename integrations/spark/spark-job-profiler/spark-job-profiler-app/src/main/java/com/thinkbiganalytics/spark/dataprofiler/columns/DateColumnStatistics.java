@@ -27,6 +27,8 @@ import org.apache.spark.sql.types.StructField;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Class to hold profile statistics for columns of date data type <br>
@@ -153,4 +155,31 @@ public class DateColumnStatistics extends ColumnStatistics {
         return minDate;
     }
 
+
+    /**
+     * Get date-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.MAX_DATE, maxDate.toString());
+        state.put(MetricType.MIN_DATE, minDate.toString());
+        return state;
+    }
+
+
+    /**
+     * Restore date-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        maxDate = Date.valueOf((String) state.get(MetricType.MAX_DATE));
+        minDate = Date.valueOf((String) state.get(MetricType.MIN_DATE));
+    }
 }
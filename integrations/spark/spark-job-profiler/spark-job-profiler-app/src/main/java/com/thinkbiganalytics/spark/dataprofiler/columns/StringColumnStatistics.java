@@ -26,6 +26,8 @@ import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import org.apache.spark.sql.types.StructField;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Class to hold profile statistics for columns of string data type <br>
@@ -375,4 +377,49 @@ public class StringColumnStatistics extends ColumnStatistics {
         return maxStringICase;
     }
 
+
+    /**
+     * Get string-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.MAX_LENGTH, maxLength);
+        state.put(MetricType.MIN_LENGTH, minLength);
+        state.put(MetricType.LONGEST_STRING, longestString);
+        state.put(MetricType.SHORTEST_STRING, shortestString);
+        state.put(MetricType.EMPTY_COUNT, emptyCount);
+        state.put(MetricType.MIN_STRING_CASE, minStringCase);
+        state.put(MetricType.MAX_STRING_CASE, maxStringCase);
+        state.put(MetricType.MIN_STRING_ICASE, minStringICase);
+        state.put(MetricType.MAX_STRING_ICASE, maxStringICase);
+        return state;
+    }
+
+
+    /**
+     * Restore string-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        maxLength = (Integer) state.get(MetricType.MAX_LENGTH);
+        minLength = (Integer) state.get(MetricType.MIN_LENGTH);
+        longestString = (String) state.get(MetricType.LONGEST_STRING);
+        shortestString = (String) state.get(MetricType.SHORTEST_STRING);
+        emptyCount = (Long) state.get(MetricType.EMPTY_COUNT);
+        minStringCase = (String) state.get(MetricType.MIN_STRING_CASE);
+        maxStringCase = (String) state.get(MetricType.MAX_STRING_CASE);
+        minStringICase = (String) state.get(MetricType.MIN_STRING_ICASE);
+        maxStringICase = (String) state.get(MetricType.MAX_STRING_ICASE);
+        
+        /* Only non-empty values set the minimum length and the min/max strings */
+        initializationFlag = (minLength != Integer.MAX_VALUE);
+        doPercentageCalculations();
+    }
 }
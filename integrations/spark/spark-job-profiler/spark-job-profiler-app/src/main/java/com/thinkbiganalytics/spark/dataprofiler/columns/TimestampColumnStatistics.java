@@ -28,6 +28,8 @@ import org.apache.spark.sql.types.StructField;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -152,4 +154,34 @@ public class TimestampColumnStatistics extends ColumnStatistics {
     public Timestamp getMinTimestamp() {
         return minTimestamp;
     }
+
+
+    /**
+     * Get timestamp-specific statistics for storing
+     *
+     * @return metric values
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+
+        Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+        state.put(MetricType.MAX_TIMESTAMP, (maxTimestamp != null) ? maxTimestamp.toString() : null);
+        state.put(MetricType.MIN_TIMESTAMP, (minTimestamp != null) ? minTimestamp.toString() : null);
+        return state;
+    }
+
+
+    /**
+     * Restore timestamp-specific statistics from stored metric values
+     *
+     * @param state metric values
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+        String max = (String) state.get(MetricType.MAX_TIMESTAMP);
+        String min = (String) state.get(MetricType.MIN_TIMESTAMP);
+        maxTimestamp = (max != null) ? Timestamp.valueOf(max) : null;
+        minTimestamp = (min != null) ? Timestamp.valueOf(min) : null;
+    }
 }
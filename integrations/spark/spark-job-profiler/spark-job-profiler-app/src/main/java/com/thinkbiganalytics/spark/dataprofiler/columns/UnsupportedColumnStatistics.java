@@ -21,8 +21,13 @@ package com.thinkbiganalytics.spark.dataprofiler.columns;
  */
 
 
+import com.thinkbiganalytics.spark.dataprofiler.model.MetricType;
+
 import org.apache.spark.sql.types.StructField;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Class to hold profile statistics for columns of unsupported data type<br>
  * [Hive data types: CHAR, BINARY, ARRAY, MAP, STRUCT, UNIONTYPE]
@@ -82,4 +87,23 @@ public class UnsupportedColumnStatistics extends ColumnStatistics {
 
     }
 
+
+    /**
+     * Get unsupported type-specific statistics for storing<br>
+     * No additional statistics stored
+     */
+    @Override
+    public Map<MetricType, Object> getState() {
+        return Collections.emptyMap();
+    }
+
+
+    /**
+     * Restore unsupported type-specific statistics<br>
+     * No additional statistics restored
+     */
+    @Override
+    public void setState(Map<MetricType, Object> state) {
+
+    }
 }
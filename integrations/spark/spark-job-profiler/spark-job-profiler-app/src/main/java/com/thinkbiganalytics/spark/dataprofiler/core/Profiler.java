@@ -20,6 +20,7 @@ package com.thinkbiganalytics.spark.dataprofiler.core;
  * #L%
  */
 
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import com.thinkbiganalytics.hive.util.HiveUtils;
 import com.thinkbiganalytics.policy.FieldPolicy;
 import com.thinkbiganalytics.spark.DataSet;
@@ -38,10 +39,12 @@ import com.thinkbiganalytics.spark.dataprofiler.columns.TimestampColumnStatistic
 import com.thinkbiganalytics.spark.dataprofiler.columns.UnsupportedColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.model.SchemaInfo;
 import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsStore;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataSketch;
 import com.thinkbiganalytics.spark.policy.FieldPolicyLoader;
 
 import org.apache.commons.lang.StringUtils;
@@ -84,6 +87,10 @@ public class Profiler {
     @Autowired
     private FieldPolicyLoader loader;
     private Map<String, FieldPolicy> policyMap = new HashMap<>();
+    /* Type of the object to profile */
+    private String profileObjectType;
+    /* Query for the profiled columns of the table, without a partition filter (null unless profiling a table) */
+    private String profileTableQuery;
 
     /**
      * Main entry point into program
@@ -121,21 +128,59 @@ public class Profiler {
         hiveContext = new HiveContext(sc.sc());
         hiveContext.setConf("spark.sql.dialect", ProfilerConfiguration.SQL_DIALECT);
 
-        /* Run query and get result */
-        log.info("[PROFILER-INFO] Analyzing profile statistics for: [" + queryString + "]");
-        resultDF = sparkContextService.sql(hiveContext, queryString);
-
-        /* Update schema map and broadcast it*/
-        bSchemaMap = populateAndBroadcastSchemaMap(resultDF, sc);
-
-        /* Get profile statistics and write to table */
-        StatisticsModel statisticsModel = profileStatistics(resultDF, bSchemaMap);
+        if ("state".equals(profileObjectType)) {
+            /* Combine stored statistics of the range of partitions and write to table */
+            String[] partitionKeyRange = queryString.split(",", 2);
+            log.info("[PROFILER-INFO] Combining stored profile statistics for partitions: [" + queryString + "]");
+            List<String> unreadablePartitionKeys = new ArrayList<>();
+            StatisticsModel statisticsModel = StatisticsStore.readModel(hiveContext, sparkContextService, partitionKeyRange[0].trim(),
+                                                                        (partitionKeyRange.length > 1) ? partitionKeyRange[1].trim() : null, unreadablePartitionKeys);
+
+            if (!unreadablePartitionKeys.isEmpty()) {
+                log.warn("[PROFILER-WARN] Stored statistics of partitions " + unreadablePartitionKeys + " cannot be read and are not combined."
+                         + " Profile these partitions again in incremental mode to replace them.");
+            }
+
+            if (statisticsModel != null) {
+                statisticsModel.writeModel(sc, hiveContext, sparkContextService, ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY, true);
+            } else {
+                log.info("[PROFILER-INFO] No stored statistics to combine. Hence, no profile statistics generated.");
+            }
+        } else {
+            /* Run query and get result */
+            log.info("[PROFILER-INFO] Analyzing profile statistics for: [" + queryString + "]");
+            resultDF = sparkContextService.sql(hiveContext, queryString);
+
+            /* Update schema map and broadcast it*/
+            bSchemaMap = populateAndBroadcastSchemaMap(resultDF, sc);
+
+            /* Get profile statistics and write to table */
+            StatisticsModel statisticsModel = profileStatistics(resultDF, bSchemaMap);
+
+            if (statisticsModel != null) {
+                statisticsModel.writeModel(sc, hiveContext, sparkContextService);
+
+                if (ProfilerConfiguration.INCREMENTAL) {
+                    /* Store statistics of the partition, and combine the statistics of all partitions without profiling them again */
+                    StatisticsStore.writeModel(statisticsModel, sc, hiveContext, sparkContextService, ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY);
+                    List<String> unreadablePartitionKeys = new ArrayList<>();
+                    StatisticsModel combinedStatisticsModel = StatisticsStore.readModel(hiveContext, sparkContextService, null, null, unreadablePartitionKeys);
+
+                    /* Replace the stored statistics that cannot be read by profiling their partitions again */
+                    if (!unreadablePartitionKeys.isEmpty()) {
+                        for (String partitionKey : unreadablePartitionKeys) {
+                            recomputeStoredStatistics(partitionKey, sc, hiveContext);
+                        }
+                        unreadablePartitionKeys.clear();
+                        combinedStatisticsModel = StatisticsStore.readModel(hiveContext, sparkContextService, null, null, unreadablePartitionKeys);
+                    }
 
-        if (statisticsModel != null) {
-            statisticsModel.writeModel(sc, hiveContext, sparkContextService);
-        }
-        else {
-            log.info("[PROFILER-INFO] No data to process. Hence, no profile statistics generated.");
+                    combinedStatisticsModel.writeModel(sc, hiveContext, sparkContextService, "ALL", true);
+                }
+            }
+            else {
+                log.info("[PROFILER-INFO] No data to process. Hence, no profile statistics generated.");
+            }
         }
 
         /* Wrap up */
@@ -149,6 +194,29 @@ public class Profiler {
     }
 
 
+    /*
+     * Profile a partition of the input table again, and replace its stored statistics
+     */
+    private void recomputeStoredStatistics(String partitionKey, JavaSparkContext sc, HiveContext hiveContext) {
+
+        if (profileTableQuery == null) {
+            log.warn("[PROFILER-WARN] Stored statistics of partition " + partitionKey + " cannot be read and are not combined."
+                     + " Only partitions of a table can be profiled again.");
+            return;
+        }
+
+        log.warn("[PROFILER-WARN] Stored statistics of partition " + partitionKey + " cannot be read. Profiling the partition again.");
+        DataSet partitionDF = sparkContextService.sql(hiveContext, getPartitionQuery(partitionKey));
+        StatisticsModel partitionStatisticsModel = profileStatistics(partitionDF, populateAndBroadcastSchemaMap(partitionDF, sc));
+
+        if (partitionStatisticsModel != null) {
+            StatisticsStore.writeModel(partitionStatisticsModel, sc, hiveContext, sparkContextService, partitionKey);
+        } else {
+            log.warn("[PROFILER-WARN] No data in partition " + partitionKey + ". Hence, its stored statistics are not combined.");
+        }
+    }
+
+
     /**
      * Check command line arguments
      *
@@ -165,7 +233,7 @@ public class Profiler {
 
         String retVal;
 
-        String profileObjectType = args[0];
+        profileObjectType = args[0];
         String profileObjectDesc = args[1];
         Integer n = Integer.valueOf(args[2]);
         String profileOutputTable = args[3];
@@ -178,6 +246,12 @@ public class Profiler {
             inputAndOutputTablePartitionKey = args[5];
         }
 
+        String profileMode = "exact";
+
+        if (args.length >= 7) {
+            profileMode = args[6];
+        }
+
         switch (profileObjectType) {
             case "table":
                 // Quote source table
@@ -193,9 +267,11 @@ public class Profiler {
                 }
 
                 if (!profiledColumns.isEmpty()) {
-                    retVal = "select " + StringUtils.join(profiledColumns, ',') + " from " + safeTable;
+                    profileTableQuery = "select " + StringUtils.join(profiledColumns, ',') + " from " + safeTable;
                     if (inputAndOutputTablePartitionKey != null && !"ALL".equalsIgnoreCase(inputAndOutputTablePartitionKey)) {
-                        retVal += " where " + HiveUtils.quoteIdentifier(ProfilerConfiguration.INPUT_TABLE_PARTITION_COLUMN_NAME) + " = " + HiveUtils.quoteString(inputAndOutputTablePartitionKey);
+                        retVal = getPartitionQuery(inputAndOutputTablePartitionKey);
+                    } else {
+                        retVal = profileTableQuery;
                     }
                 } else {
                     retVal = null;
@@ -204,6 +280,10 @@ public class Profiler {
             case "query":
                 retVal = profileObjectDesc;
                 break;
+            case "state":
+                // Range of partition keys whose stored statistics to combine
+                retVal = profileObjectDesc;
+                break;
             default:
                 log.error("Illegal command line argument for object type (" + profileObjectType + ")");
                 showCommandLineArgs();
@@ -224,12 +304,35 @@ public class Profiler {
             return null;
         }
 
+        if ("exact".equalsIgnoreCase(profileMode)) {
+            ProfilerConfiguration.APPROXIMATE = false;
+            ProfilerConfiguration.INCREMENTAL = false;
+        } else if ("approximate".equalsIgnoreCase(profileMode)) {
+            ProfilerConfiguration.APPROXIMATE = true;
+            ProfilerConfiguration.INCREMENTAL = false;
+        } else if ("incremental".equalsIgnoreCase(profileMode) && !"ALL".equalsIgnoreCase(inputAndOutputTablePartitionKey)) {
+            ProfilerConfiguration.APPROXIMATE = true;
+            ProfilerConfiguration.INCREMENTAL = true;
+        } else {
+            log.error("Illegal command line argument for profile mode (" + profileMode + ")");
+            showCommandLineArgs();
+            return null;
+        }
+
         ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY = inputAndOutputTablePartitionKey;
 
         return retVal;
     }
 
 
+    /*
+     * Get the query for the profiled columns of a partition of the table
+     */
+    private String getPartitionQuery(String partitionKey) {
+        return profileTableQuery + " where " + HiveUtils.quoteIdentifier(ProfilerConfiguration.INPUT_TABLE_PARTITION_COLUMN_NAME) + " = " + HiveUtils.quoteString(partitionKey);
+    }
+
+
     /*
      * Set output database and table
      */
@@ -279,6 +382,8 @@ public class Profiler {
         serializeClassesList.add(StatisticsModel.class);
         serializeClassesList.add(TopNDataItem.class);
         serializeClassesList.add(TopNDataList.class);
+        serializeClassesList.add(TopNDataSketch.class);
+        serializeClassesList.add(HyperLogLogPlus.class);
         serializeClassesList.add(OutputRow.class);
         serializeClassesList.add(OutputWriter.class);
 
@@ -343,14 +448,16 @@ public class Profiler {
     private void showCommandLineArgs() {
 
         log.info("*** \nInfo: Required command line arguments:\n"
-                 + "1. object type: valid values are {table, query}\n"
-                 + "2. object description: valid values are {<database.table>, <query>}\n"
+                 + "1. object type: valid values are {table, query, state}\n"
+                 + "2. object description: valid values are {<database.table>, <query>, <first_partition_key>,<last_partition_key>}\n"
                  + "3. n for top_n values: valid value is {<integer>}\n"
                  + "4. output table: valid values are {<table>, <database.table>}"
                  + "5. full path to policy file "
                  + "\n"
-                 + "Info: Optional command line argument:\n"
-                 + "6. partition_key: valid value is {<string>}\n\n"
+                 + "Info: Optional command line arguments:\n"
+                 + "6. partition_key: valid value is {<string>}\n"
+                 + "7. profile mode: valid values are {exact, approximate, incremental}\n"
+                 + "   (incremental requires a partition key)\n\n"
                  + "(Note: Only alphanumeric and underscore characters for table names and partition key)"
                  + "\n***");
     }
@@ -52,6 +52,40 @@ public class ProfilerConfiguration {
     public static Integer NUMBER_OF_TOP_N_VALUES = 3;
 
 
+    /**
+     * Estimate unique count and top-N values with fixed-size sketches instead of counting each distinct value<br>
+     * An optional command line parameter
+     */
+    public static Boolean APPROXIMATE = false;
+
+
+    /**
+     * Precision of the HyperLogLog sketch for unique count when profiling approximately<br>
+     * The relative standard error is 1.04 / sqrt(2 ^ precision), or 0.81% for 14
+     */
+    public static Integer APPROXIMATE_UNIQUE_COUNT_PRECISION = 14;
+
+
+    /**
+     * Number of counters of the sketch for top-N values when profiling approximately<br>
+     * Counts are underestimated by at most the column's total count divided by this number
+     */
+    public static Integer APPROXIMATE_TOP_N_CAPACITY = 1000;
+
+
+    /**
+     * Store the approximate statistics of the partition, and combine the stored statistics of all partitions into the 'ALL' partition<br>
+     * An optional command line parameter
+     */
+    public static Boolean INCREMENTAL = false;
+
+
+    /**
+     * Suffix of the name of the table storing the statistics of each partition, appended to the output table name
+     */
+    public static String STATE_TABLE_SUFFIX = "_state";
+
+
     /**
      * Delimiter to use when storing top-N values in result table<br>
      * This delimiter is output between fields of a single top-N entry
@@ -117,6 +151,11 @@ public class ProfilerConfiguration {
         SQL_DIALECT = "hiveql";
         SERIALIZER = "kryo";
         NUMBER_OF_TOP_N_VALUES = 3;
+        APPROXIMATE = false;
+        APPROXIMATE_UNIQUE_COUNT_PRECISION = 14;
+        APPROXIMATE_TOP_N_CAPACITY = 1000;
+        INCREMENTAL = false;
+        STATE_TABLE_SUFFIX = "_state";
         TOP_N_VALUES_INTERNAL_DELIMITER = "^A";
         TOP_N_VALUES_RECORD_DELIMITER = "^B";
         DECIMAL_DIGITS_TO_DISPLAY_CONSOLE_OUTPUT = 4;
@@ -216,6 +216,20 @@ public enum MetricType {
     /**
      * Max string (Lexical ordering) (Case-insensitive)
      */
-    MAX_STRING_ICASE
+    MAX_STRING_ICASE,
+
+
+    /**
+     * Relative standard error (percentage) of unique count and unique/duplicate percentages<br>
+     * Only when profiled approximately
+     */
+    UNIQUE_COUNT_ERROR,
+
+
+    /**
+     * Maximum amount by which the counts of top n values are underestimated<br>
+     * Only when profiled approximately
+     */
+    TOP_N_VALUES_MAX_ERROR
 
 }
@@ -33,6 +33,7 @@ import com.thinkbiganalytics.spark.dataprofiler.columns.ShortColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.StringColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.TimestampColumnStatistics;
 import com.thinkbiganalytics.spark.dataprofiler.columns.UnsupportedColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
 import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerSparkContextService;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
 
@@ -57,6 +58,31 @@ public class StatisticsModel implements Serializable {
     private static final Logger log = LoggerFactory.getLogger(StatisticsModel.class);
     private final Map<Integer, ColumnStatistics> columnStatisticsMap = new HashMap<>();
 
+    /* Sketch settings when profiling approximately (zero when exact) */
+    private final int uniqueCountPrecision;
+    private final int topNCapacity;
+
+
+    /**
+     * Constructor for exact statistics, where each distinct column value is added once with its count
+     */
+    public StatisticsModel() {
+        this(0, 0);
+    }
+
+
+    /**
+     * Constructor for approximate statistics, where unique count and top n values are estimated with sketches
+     *
+     * @param uniqueCountPrecision precision of the unique count sketch of each column
+     * @param topNCapacity         number of counters of the top n values sketch of each column
+     */
+    public StatisticsModel(int uniqueCountPrecision, int topNCapacity) {
+        this.uniqueCountPrecision = uniqueCountPrecision;
+        this.topNCapacity = topNCapacity;
+    }
+
+
     /**
      * Include a column value in calculation of profile statistics for the column
      *
@@ -67,6 +93,25 @@ public class StatisticsModel implements Serializable {
      */
     public void add(Integer columnIndex, Object columnValue, Long columnCount, StructField columnField) {
 
+        ColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
+
+        if (currentColumnStatistics == null) {
+            currentColumnStatistics = createColumnStatistics(columnField);
+            if (uniqueCountPrecision > 0) {
+                currentColumnStatistics.useSketches(uniqueCountPrecision, topNCapacity);
+            }
+            columnStatisticsMap.put(columnIndex, currentColumnStatistics);
+        }
+
+        currentColumnStatistics.accomodate(columnValue, columnCount);
+    }
+
+
+    /*
+     * Create the statistics for the data type of a column
+     */
+    static ColumnStatistics createColumnStatistics(StructField columnField) {
+
         ColumnStatistics newColumnStatistics;
         DataType columnDataType = columnField.dataType();
 
@@ -211,12 +256,7 @@ public class StatisticsModel implements Serializable {
                 }
         }
 
-        if (!columnStatisticsMap.containsKey(columnIndex)) {
-            columnStatisticsMap.put(columnIndex, newColumnStatistics);
-        }
-
-        ColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
-        currentColumnStatistics.accomodate(columnValue, columnCount);
+        return newColumnStatistics;
     }
 
 
@@ -228,17 +268,24 @@ public class StatisticsModel implements Serializable {
     public void combine(StatisticsModel statisticsModel) {
 
         for (Integer k_columnIndex : statisticsModel.columnStatisticsMap.keySet()) {
+            combine(k_columnIndex, statisticsModel.columnStatisticsMap.get(k_columnIndex));
+        }
+    }
 
-            ColumnStatistics columnStatistics = columnStatisticsMap.get(k_columnIndex);
-            ColumnStatistics v_columnStatistics = statisticsModel.columnStatisticsMap.get(k_columnIndex);
 
-            if (columnStatistics != null) {
+    /*
+     * Combine the statistics of a column
+     */
+    void combine(Integer columnIndex, ColumnStatistics v_columnStatistics) {
 
-                columnStatistics.combine(v_columnStatistics);
+        ColumnStatistics columnStatistics = columnStatisticsMap.get(columnIndex);
 
-            } else {
-                columnStatisticsMap.put(k_columnIndex, v_columnStatistics);
-            }
+        if (columnStatistics != null) {
+
+            columnStatistics.combine(v_columnStatistics);
+
+        } else {
+            columnStatisticsMap.put(columnIndex, v_columnStatistics);
         }
     }
 
@@ -250,13 +297,28 @@ public class StatisticsModel implements Serializable {
      * @param hiveContext HiveContext
      */
     public void writeModel(JavaSparkContext sc, HiveContext hiveContext, ProfilerSparkContextService scs) {
+        writeModel(sc, hiveContext, scs, ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY, false);
+    }
+
+
+    /**
+     * Write the profile statistics to a partition in Hive
+     *
+     * @param sc           JavaSparkContext
+     * @param hiveContext  HiveContext
+     * @param partitionKey partition key to write to
+     * @param overwrite    true to replace the existing statistics of the partition, false to append
+     */
+    public void writeModel(JavaSparkContext sc, HiveContext hiveContext, ProfilerSparkContextService scs, String partitionKey, boolean overwrite) {
+
+        OutputWriter outputWriter = OutputWriter.getInstance();
+        outputWriter.clearRows();
 
         for (Integer columnIndex : columnStatisticsMap.keySet()) {
             columnStatisticsMap.get(columnIndex).writeStatistics();
         }
 
-        OutputWriter outputWriter = OutputWriter.getInstance();
-        outputWriter.writeResultToTable(sc, hiveContext, scs);
+        outputWriter.writeResultToTable(sc, hiveContext, scs, partitionKey, overwrite);
     }
 
 
@@ -0,0 +1,445 @@
+package com.thinkbiganalytics.spark.dataprofiler.model;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.hive.util.HiveUtils;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerSparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataSketch;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.hive.HiveContext;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.sql.types.Metadata;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import scala.collection.JavaConversions;
+
+
+/**
+ * Class to store the statistics of each profiled partition in Hive, so that profiles of many partitions can be produced by combining
+ * the stored statistics instead of profiling the rows again<br>
+ * Only statistics profiled approximately can be stored, since exact unique counts and top-N values of different partitions cannot be
+ * combined.<br>
+ * Each column is stored as a row with a format version, the unique count sketch in its compact binary format, the counters of the top-N
+ * sketch, and the data type specific metrics in a column each. Statistics with another format version, or that cannot be read, are
+ * skipped and their partition key is reported, so that the partition can be profiled again.
+ */
+public class StatisticsStore {
+
+    /**
+     * Version of the format of the stored statistics, to be increased whenever the meaning of a column of the state table changes
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsStore.class);
+
+    /* Data type specific metrics, stored in a column named after the metric type */
+    private static final Map<MetricType, DataType> STATE_METRICS = new EnumMap<>(MetricType.class);
+
+    static {
+        STATE_METRICS.put(MetricType.MAX, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MIN, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.SUM, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MEAN, DataTypes.DoubleType);
+        STATE_METRICS.put(MetricType.STDDEV, DataTypes.DoubleType);
+        STATE_METRICS.put(MetricType.TRUE_COUNT, DataTypes.LongType);
+        STATE_METRICS.put(MetricType.FALSE_COUNT, DataTypes.LongType);
+        STATE_METRICS.put(MetricType.MAX_LENGTH, DataTypes.IntegerType);
+        STATE_METRICS.put(MetricType.MIN_LENGTH, DataTypes.IntegerType);
+        STATE_METRICS.put(MetricType.LONGEST_STRING, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.SHORTEST_STRING, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.EMPTY_COUNT, DataTypes.LongType);
+        STATE_METRICS.put(MetricType.MIN_STRING_CASE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MAX_STRING_CASE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MIN_STRING_ICASE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MAX_STRING_ICASE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MAX_DATE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MIN_DATE, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MAX_TIMESTAMP, DataTypes.StringType);
+        STATE_METRICS.put(MetricType.MIN_TIMESTAMP, DataTypes.StringType);
+    }
+
+    /* Counter of the top-N sketch, with the value as a string */
+    private static final StructType TOP_N_COUNTER_TYPE = DataTypes.createStructType(new StructField[]{
+        DataTypes.createStructField("value", DataTypes.StringType, true),
+        DataTypes.createStructField("count", DataTypes.LongType, false)
+    });
+
+    /* Schema of the state table, excluding the partition column */
+    private static final StructType STATE_SCHEMA;
+
+    static {
+        List<StructField> fields = new ArrayList<>();
+        fields.add(DataTypes.createStructField("formatversion", DataTypes.IntegerType, false));
+        fields.add(DataTypes.createStructField("columnname", DataTypes.StringType, false));
+        fields.add(DataTypes.createStructField("columndatatype", DataTypes.StringType, false));
+        fields.add(DataTypes.createStructField("columnnullable", DataTypes.BooleanType, false));
+        fields.add(DataTypes.createStructField("columnmetadata", DataTypes.StringType, false));
+        fields.add(DataTypes.createStructField("totalcount", DataTypes.LongType, false));
+        fields.add(DataTypes.createStructField("nullcount", DataTypes.LongType, false));
+        fields.add(DataTypes.createStructField("uniquesketchprecision", DataTypes.IntegerType, false));
+        fields.add(DataTypes.createStructField("uniquesketch", DataTypes.BinaryType, false));
+        fields.add(DataTypes.createStructField("topncapacity", DataTypes.IntegerType, false));
+        fields.add(DataTypes.createStructField("topnmaxerror", DataTypes.LongType, false));
+        fields.add(DataTypes.createStructField("topncounters", DataTypes.createArrayType(TOP_N_COUNTER_TYPE, false), false));
+        for (Map.Entry<MetricType, DataType> metric : STATE_METRICS.entrySet()) {
+            fields.add(DataTypes.createStructField(getMetricColumnName(metric.getKey()), metric.getValue(), true));
+        }
+        STATE_SCHEMA = DataTypes.createStructType(fields);
+    }
+
+    /* no instantiation */
+    private StatisticsStore() {
+
+    }
+
+
+    /**
+     * Write the statistics of each column to a partition of the state table, replacing any statistics stored for the partition
+     *
+     * @param statisticsModel statistics profiled approximately
+     * @param sc              JavaSparkContext
+     * @param hiveContext     HiveContext
+     * @param partitionKey    partition key of the profiled rows
+     */
+    public static void writeModel(StatisticsModel statisticsModel, JavaSparkContext sc, HiveContext hiveContext, ProfilerSparkContextService scs, String partitionKey) {
+
+        JavaRDD<Row> stateRDD = sc.parallelize(toRows(statisticsModel));
+        DataSet stateDF = scs.toDataSet(hiveContext, stateRDD, STATE_SCHEMA);
+
+        String tempTable = ProfilerConfiguration.OUTPUT_TABLE_NAME + ProfilerConfiguration.STATE_TABLE_SUFFIX + "_" + System.currentTimeMillis();
+        stateDF.registerTempTable(tempTable);
+
+        createStateTableIfNotExists(hiveContext, scs);
+        String insertTableSQL = "INSERT OVERWRITE TABLE " + getStateTable()
+                                + " PARTITION (" + HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME) + "=" + HiveUtils.quoteString(partitionKey) + ")"
+                                + " SELECT " + getStateColumns() + " FROM " + HiveUtils.quoteIdentifier(tempTable);
+        scs.sql(hiveContext, insertTableSQL);
+
+        log.info("[PROFILER-INFO] Statistics of " + statisticsModel.getColumnStatisticsMap().size() + " columns stored in Hive table: " + getStateTable()
+                 + " Partition: (" + ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME + "='" + partitionKey + "')");
+    }
+
+
+    /**
+     * Read and combine the statistics stored for a range of partitions<br>
+     * Partitions with statistics that cannot be read are skipped, and their keys added to {@code unreadablePartitionKeys}.
+     *
+     * @param hiveContext             HiveContext
+     * @param fromPartitionKey        first partition key to include, or null or empty for no lower bound
+     * @param toPartitionKey          last partition key to include, or null or empty for no upper bound
+     * @param unreadablePartitionKeys list to add the keys of the skipped partitions to
+     * @return combined statistics, or null if no statistics can be read for the range
+     */
+    public static StatisticsModel readModel(HiveContext hiveContext, ProfilerSparkContextService scs, String fromPartitionKey, String toPartitionKey,
+                                            List<String> unreadablePartitionKeys) {
+
+        createStateTableIfNotExists(hiveContext, scs);
+
+        String partitionColumn = HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME);
+        List<String> conditions = new ArrayList<>();
+        if (StringUtils.isNotEmpty(fromPartitionKey)) {
+            conditions.add(partitionColumn + " >= " + HiveUtils.quoteString(fromPartitionKey));
+        }
+        if (StringUtils.isNotEmpty(toPartitionKey)) {
+            conditions.add(partitionColumn + " <= " + HiveUtils.quoteString(toPartitionKey));
+        }
+
+        String selectSQL = "SELECT " + getStateColumns() + ", " + partitionColumn + " FROM " + getStateTable()
+                           + (conditions.isEmpty() ? "" : " WHERE " + StringUtils.join(conditions, " AND "))
+                           + " ORDER BY " + partitionColumn;
+        List<Row> rows = scs.sql(hiveContext, selectSQL).collectAsList();
+
+        /* Read the statistics of each partition, skipping the whole partition if any column cannot be read */
+        int partitionKeyIndex = STATE_SCHEMA.fields().length;
+        Map<String, List<ColumnStatistics>> partitions = new LinkedHashMap<>();
+
+        for (Row row : rows) {
+            String partitionKey = row.getString(partitionKeyIndex);
+            if (unreadablePartitionKeys.contains(partitionKey)) {
+                continue;
+            }
+
+            try {
+                ColumnStatistics columnStatistics = fromRow(row);
+                List<ColumnStatistics> partition = partitions.get(partitionKey);
+                if (partition == null) {
+                    partition = new ArrayList<>();
+                    partitions.put(partitionKey, partition);
+                }
+                partition.add(columnStatistics);
+            } catch (IOException e) {
+                log.warn("[PROFILER-WARN] Skipping stored statistics of partition " + partitionKey + " that cannot be read: " + e.getMessage(), e);
+                partitions.remove(partitionKey);
+                unreadablePartitionKeys.add(partitionKey);
+            }
+        }
+
+        List<ColumnStatistics> columnStatistics = new ArrayList<>();
+        for (List<ColumnStatistics> partition : partitions.values()) {
+            columnStatistics.addAll(partition);
+        }
+
+        log.info("[PROFILER-INFO] Combining " + columnStatistics.size() + " stored column statistics of " + partitions.size() + " partitions from Hive table: " + getStateTable());
+        return combine(columnStatistics);
+    }
+
+
+    /**
+     * Convert the statistics of each column to a row of the state table
+     *
+     * @param statisticsModel statistics profiled approximately
+     * @return rows matching the schema of the state table
+     */
+    public static List<Row> toRows(StatisticsModel statisticsModel) {
+
+        List<Row> rows = new ArrayList<>();
+        for (ColumnStatistics columnStatistics : statisticsModel.getColumnStatisticsMap().values()) {
+            if (!columnStatistics.isApproximate()) {
+                throw new IllegalArgumentException("Only statistics profiled approximately can be stored: " + columnStatistics.getColumnField().name());
+            }
+            rows.add(toRow(columnStatistics));
+        }
+        return rows;
+    }
+
+
+    /**
+     * Combine the statistics of rows of the state table, matching columns by name
+     *
+     * @param rows rows of the state table
+     * @return combined statistics, or null if there are no rows
+     * @throws IllegalArgumentException if the statistics of a row cannot be read
+     */
+    public static StatisticsModel fromRows(List<Row> rows) {
+
+        List<ColumnStatistics> columnStatistics = new ArrayList<>();
+        for (Row row : rows) {
+            try {
+                columnStatistics.add(fromRow(row));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to read stored statistics: " + e.getMessage(), e);
+            }
+        }
+        return combine(columnStatistics);
+    }
+
+
+    /*
+     * Combine column statistics, matching columns by name
+     */
+    private static StatisticsModel combine(List<ColumnStatistics> columnStatisticsList) {
+
+        if (columnStatisticsList.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+        StatisticsModel statisticsModel = new StatisticsModel();
+
+        for (ColumnStatistics columnStatistics : columnStatisticsList) {
+            String columnName = columnStatistics.getColumnField().name();
+
+            Integer columnIndex = columnIndexes.get(columnName);
+            if (columnIndex == null) {
+                columnIndex = columnIndexes.size();
+                columnIndexes.put(columnName, columnIndex);
+            } else if (!statisticsModel.getColumnStatisticsMap().get(columnIndex).getColumnField().dataType().equals(columnStatistics.getColumnField().dataType())) {
+                log.warn("[PROFILER-WARN] Skipping stored statistics of column " + columnName + " with a different data type: " + columnStatistics.getColumnField().dataType());
+                continue;
+            }
+
+            statisticsModel.combine(columnIndex, columnStatistics);
+        }
+
+        return statisticsModel;
+    }
+
+
+    /*
+     * Convert the statistics of a column to a row of the state table
+     */
+    private static Row toRow(ColumnStatistics columnStatistics) {
+
+        StructField columnField = columnStatistics.getColumnField();
+        TopNDataSketch topNSketch = columnStatistics.getTopNSketch();
+
+        List<Row> topNCounters = new ArrayList<>();
+        for (Map.Entry<Object, Long> counter : topNSketch.getCounts().entrySet()) {
+            topNCounters.add(RowFactory.create((counter.getKey() != null) ? String.valueOf(counter.getKey()) : null, counter.getValue()));
+        }
+
+        List<Object> values = new ArrayList<>();
+        values.add(FORMAT_VERSION);
+        values.add(columnField.name());
+        values.add(columnField.dataType().json());
+        values.add(columnField.nullable());
+        values.add(columnField.metadata().json());
+        values.add(columnStatistics.getTotalCount());
+        values.add(columnStatistics.getNullCount());
+        values.add(columnStatistics.getUniqueSketchPrecision());
+        values.add(columnStatistics.getUniqueSketchBytes());
+        values.add(topNSketch.getCapacity());
+        values.add(topNSketch.getMaxError());
+        values.add(JavaConversions.asScalaBuffer(topNCounters));
+
+        Map<MetricType, Object> state = columnStatistics.getState();
+        for (MetricType metricType : STATE_METRICS.keySet()) {
+            values.add(state.get(metricType));
+        }
+
+        return RowFactory.create(values.toArray());
+    }
+
+
+    /*
+     * Restore the statistics of a column from a row of the state table
+     */
+    private static ColumnStatistics fromRow(Row row) throws IOException {
+
+        Object formatVersion = row.get(STATE_SCHEMA.fieldIndex("formatversion"));
+        if (!Integer.valueOf(FORMAT_VERSION).equals(formatVersion)) {
+            throw new IOException("Unsupported format version " + formatVersion + " of statistics of column " + row.get(STATE_SCHEMA.fieldIndex("columnname")));
+        }
+
+        try {
+            DataType dataType = DataType.fromJson(row.getString(STATE_SCHEMA.fieldIndex("columndatatype")));
+            StructField columnField = DataTypes.createStructField(row.getString(STATE_SCHEMA.fieldIndex("columnname")), dataType,
+                                                                  row.getBoolean(STATE_SCHEMA.fieldIndex("columnnullable")),
+                                                                  Metadata.fromJson(row.getString(STATE_SCHEMA.fieldIndex("columnmetadata"))));
+
+            Map<Object, Long> topNCounts = new LinkedHashMap<>();
+            for (Object counter : row.getList(STATE_SCHEMA.fieldIndex("topncounters"))) {
+                topNCounts.put(parseValue(dataType, ((Row) counter).getString(0)), ((Row) counter).getLong(1));
+            }
+            TopNDataSketch topNSketch = new TopNDataSketch(row.getInt(STATE_SCHEMA.fieldIndex("topncapacity")), topNCounts, row.getLong(STATE_SCHEMA.fieldIndex("topnmaxerror")));
+
+            Map<MetricType, Object> state = new EnumMap<>(MetricType.class);
+            for (MetricType metricType : STATE_METRICS.keySet()) {
+                state.put(metricType, row.get(STATE_SCHEMA.fieldIndex(getMetricColumnName(metricType))));
+            }
+
+            ColumnStatistics columnStatistics = StatisticsModel.createColumnStatistics(columnField);
+            columnStatistics.restoreCommon(row.getLong(STATE_SCHEMA.fieldIndex("totalcount")), row.getLong(STATE_SCHEMA.fieldIndex("nullcount")),
+                                           row.getInt(STATE_SCHEMA.fieldIndex("uniquesketchprecision")), (byte[]) row.get(STATE_SCHEMA.fieldIndex("uniquesketch")), topNSketch);
+            columnStatistics.setState(state);
+            return columnStatistics;
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid statistics of column " + row.get(STATE_SCHEMA.fieldIndex("columnname")), e);
+        }
+    }
+
+
+    /*
+     * Parse a top-N value to the Java type of the column values
+     */
+    private static Object parseValue(DataType dataType, String value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        switch (dataType.simpleString()) {
+            case "tinyint":
+                return Byte.valueOf(value);
+            case "smallint":
+                return Short.valueOf(value);
+            case "int":
+                return Integer.valueOf(value);
+            case "bigint":
+                return Long.valueOf(value);
+            case "float":
+                return Float.valueOf(value);
+            case "double":
+                return Double.valueOf(value);
+            case "boolean":
+                return Boolean.valueOf(value);
+            case "date":
+                return Date.valueOf(value);
+            case "timestamp":
+                return Timestamp.valueOf(value);
+            default:
+                return (dataType instanceof DecimalType) ? new BigDecimal(value) : value;
+        }
+    }
+
+
+    /* Create state table if does not exist */
+    private static void createStateTableIfNotExists(HiveContext hiveContext, ProfilerSparkContextService scs) {
+
+        List<String> columns = new ArrayList<>();
+        for (StructField field : STATE_SCHEMA.fields()) {
+            columns.add(HiveUtils.quoteIdentifier(field.name()) + " " + field.dataType().simpleString());
+        }
+
+        String createTableSQL = "CREATE TABLE IF NOT EXISTS " + getStateTable() + "\n"
+                                + "(" + StringUtils.join(columns, ", ") + ")\n"
+                                + "PARTITIONED BY (" + ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME + " STRING)\n"
+                                + "STORED AS PARQUET";
+
+        scs.sql(hiveContext, createTableSQL);
+    }
+
+
+    /* Get the quoted columns of the state table, excluding the partition column */
+    private static String getStateColumns() {
+
+        List<String> columns = new ArrayList<>();
+        for (StructField field : STATE_SCHEMA.fields()) {
+            columns.add(HiveUtils.quoteIdentifier(field.name()));
+        }
+        return StringUtils.join(columns, ", ");
+    }
+
+
+    /* Get the name of the state table column of a metric */
+    private static String getMetricColumnName(MetricType metricType) {
+        return metricType.name().toLowerCase();
+    }
+
+
+    /* Get the quoted name of the state table */
+    private static String getStateTable() {
+        return HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_DB_NAME, ProfilerConfiguration.OUTPUT_TABLE_NAME + ProfilerConfiguration.STATE_TABLE_SUFFIX);
+    }
+}
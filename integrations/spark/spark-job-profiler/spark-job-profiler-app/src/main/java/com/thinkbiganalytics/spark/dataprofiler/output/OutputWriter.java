@@ -45,8 +45,8 @@ public class OutputWriter implements Serializable {
 
     private static final List<OutputRow> outputRows = new ArrayList<>();
     private static OutputWriter outputWriter = null;
-    private JavaSparkContext sc = null;
-    private HiveContext hiveContext = null;
+    private transient JavaSparkContext sc = null;
+    private transient HiveContext hiveContext = null;
 
 
     /* no direct instantiation */
@@ -142,6 +142,14 @@ public class OutputWriter implements Serializable {
     }
 
 
+    /**
+     * Remove all rows to write in output
+     */
+    public void clearRows() {
+        outputRows.clear();
+    }
+
+
     /**
      * Write result to Hive table
      *
@@ -150,6 +158,20 @@ public class OutputWriter implements Serializable {
      * @return boolean indicating result of write
      */
     public boolean writeResultToTable(JavaSparkContext p_sc, HiveContext p_hiveContext, ProfilerSparkContextService scs) {
+        return writeResultToTable(p_sc, p_hiveContext, scs, ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY, false);
+    }
+
+
+    /**
+     * Write result to a partition of Hive table
+     *
+     * @param p_sc          JavaSparkContext
+     * @param p_hiveContext HiveContext
+     * @param partitionKey  partition key to write to
+     * @param overwrite     true to replace the existing rows of the partition, false to append
+     * @return boolean indicating result of write
+     */
+    public boolean writeResultToTable(JavaSparkContext p_sc, HiveContext p_hiveContext, ProfilerSparkContextService scs, String partitionKey, boolean overwrite) {
 
         sc = p_sc;
         hiveContext = p_hiveContext;
@@ -172,7 +194,7 @@ public class OutputWriter implements Serializable {
             outputRowsDF.registerTempTable(tempTable);
 
             createOutputTableIfNotExists(scs);
-            writeResultToOutputTable(scs, tempTable);
+            writeResultToOutputTable(scs, tempTable, partitionKey, overwrite);
             retVal = true;
         }
 
@@ -194,17 +216,18 @@ public class OutputWriter implements Serializable {
 
 
     /* Write to output table */
-    private void writeResultToOutputTable(SparkContextService scs, String tempTable) {
-        String insertTableSQL = "INSERT INTO TABLE " + HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_DB_NAME, ProfilerConfiguration.OUTPUT_TABLE_NAME)
+    private void writeResultToOutputTable(SparkContextService scs, String tempTable, String partitionKey, boolean overwrite) {
+        String insertTableSQL = (overwrite ? "INSERT OVERWRITE TABLE " : "INSERT INTO TABLE ")
+                                + HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_DB_NAME, ProfilerConfiguration.OUTPUT_TABLE_NAME)
                                 + " PARTITION (" + HiveUtils.quoteIdentifier(ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME) + "="
-                                + HiveUtils.quoteString(ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY) + ")"
+                                + HiveUtils.quoteString(partitionKey) + ")"
                                 + " SELECT columnname,metrictype,metricvalue FROM " + HiveUtils.quoteIdentifier(tempTable);
 
         scs.sql(hiveContext, insertTableSQL);
 
         System.out.println("[PROFILER-INFO] Metrics written to Hive table: "
                            + ProfilerConfiguration.OUTPUT_DB_NAME + "." + ProfilerConfiguration.OUTPUT_TABLE_NAME
-                           + " Partition: (" + ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME + "='" + ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY + "')"
+                           + " Partition: (" + ProfilerConfiguration.OUTPUT_TABLE_PARTITION_COLUMN_NAME + "='" + partitionKey + "')"
                            + " [" + outputRows.size() + " rows]");
     }
 
@@ -0,0 +1,194 @@
+package com.thinkbiganalytics.spark.dataprofiler.topn;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable summary of the most frequent items, for estimating top-N items without counting every distinct value<br>
+ * The summary keeps at most twice its capacity of counters (Misra-Gries). Each count is an underestimate by no more than
+ * {@link #getMaxError()}, which is at most the total count divided by (capacity + 1).
+ */
+@SuppressWarnings("serial")
+public class TopNDataSketch implements Serializable {
+
+    private final int capacity;
+    private final Map<Object, Counter> counters;
+    private long maxError;
+
+
+    /**
+     * Constructor to set the number of counters
+     *
+     * @param capacity number of items that are guaranteed to be counted, which should be well above N in Top N
+     */
+    public TopNDataSketch(int capacity) {
+
+        this.capacity = Math.max(capacity, 1);
+        counters = new HashMap<>();
+        maxError = 0L;
+    }
+
+
+    /**
+     * Constructor to restore a summary from its counters
+     *
+     * @param capacity number of items that are guaranteed to be counted
+     * @param counts   count of each item, as returned by {@link #getCounts()}
+     * @param maxError max error, as returned by {@link #getMaxError()}
+     */
+    public TopNDataSketch(int capacity, Map<Object, Long> counts, long maxError) {
+
+        this(capacity);
+        for (Map.Entry<Object, Long> entry : counts.entrySet()) {
+            counters.put(entry.getKey(), new Counter(entry.getValue()));
+        }
+        this.maxError = maxError;
+    }
+
+
+    /**
+     * Add an item occurrence to the summary
+     *
+     * @param newValue value
+     * @param newCount count/frequency
+     */
+    public void add(Object newValue, long newCount) {
+
+        Counter counter = counters.get(newValue);
+        if (counter != null) {
+            counter.count += newCount;
+        } else {
+            counters.put(newValue, new Counter(newCount));
+            if (counters.size() > 2 * capacity) {
+                purge();
+            }
+        }
+    }
+
+
+    /**
+     * Combine with another summary
+     *
+     * @param other summary to combine with
+     */
+    public void combine(TopNDataSketch other) {
+
+        for (Map.Entry<Object, Counter> entry : other.counters.entrySet()) {
+            add(entry.getKey(), entry.getValue().count);
+        }
+        maxError += other.maxError;
+    }
+
+
+    /**
+     * Get the top-N items, with counts that may be underestimated by up to {@link #getMaxError()}
+     *
+     * @param maxSize N in Top N
+     * @return top-N items
+     */
+    public TopNDataList getTopN(int maxSize) {
+
+        TopNDataList topNDataList = new TopNDataList(maxSize);
+        for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+            topNDataList.add(entry.getKey(), entry.getValue().count);
+        }
+        return topNDataList;
+    }
+
+
+    /**
+     * Get the maximum amount by which the count of any item is underestimated
+     *
+     * @return max error
+     */
+    public long getMaxError() {
+        return maxError;
+    }
+
+
+    /**
+     * Get the number of items that are guaranteed to be counted
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * Get the count of each item in the summary
+     *
+     * @return counts of items
+     */
+    public Map<Object, Long> getCounts() {
+
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().count);
+        }
+        return counts;
+    }
+
+
+    /*
+     * Subtract the (capacity + 1)-th largest count from all counters, leaving at most capacity counters
+     */
+    private void purge() {
+
+        long[] counts = new long[counters.size()];
+        int i = 0;
+        for (Counter counter : counters.values()) {
+            counts[i++] = counter.count;
+        }
+        Arrays.sort(counts);
+        long decrement = counts[counts.length - capacity - 1];
+
+        Iterator<Counter> iter = counters.values().iterator();
+        while (iter.hasNext()) {
+            Counter counter = iter.next();
+            counter.count -= decrement;
+            if (counter.count <= 0) {
+                iter.remove();
+            }
+        }
+        maxError += decrement;
+    }
+
+
+    /*
+     * Mutable count of an item
+     */
+    private static class Counter implements Serializable {
+
+        private long count;
+
+        Counter(long count) {
+            this.count = count;
+        }
+    }
+}
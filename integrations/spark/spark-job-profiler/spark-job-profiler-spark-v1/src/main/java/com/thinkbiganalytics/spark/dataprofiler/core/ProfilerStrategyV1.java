@@ -23,6 +23,7 @@ package com.thinkbiganalytics.spark.dataprofiler.core;
 import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.dataprofiler.functions.CombineModels;
 import com.thinkbiganalytics.spark.dataprofiler.functions.IndividualColumnValueCounts;
+import com.thinkbiganalytics.spark.dataprofiler.functions.PartitionLevelApproximateModels;
 import com.thinkbiganalytics.spark.dataprofiler.functions.PartitionLevelModels;
 import com.thinkbiganalytics.spark.dataprofiler.functions.TotalColumnValueCounts;
 import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
@@ -46,16 +47,22 @@ public class ProfilerStrategyV1 implements ProfilerStrategy {
     @Override
     public StatisticsModel profileStatistics(DataSet set, Broadcast<Map<Integer, StructField>> bSchemaMap) {
         JavaPairRDD<Tuple2<Integer, Object>, Integer> columnValueCounts;
+        JavaRDD<StatisticsModel> partitionLevelModels;
         StatisticsModel profileStatisticsModel = null;
 
-        /* Get ((column index, column value), count) */
-        columnValueCounts = set
-            .javaRDD()
-            .flatMapToPair(new IndividualColumnValueCounts())
-            .reduceByKey(new TotalColumnValueCounts());
+        if (ProfilerConfiguration.APPROXIMATE) {
+            /* Generate the profile model from each partition of rows, without shuffling column values */
+            partitionLevelModels = set.javaRDD().mapPartitions(new PartitionLevelApproximateModels(bSchemaMap));
+        } else {
+            /* Get ((column index, column value), count) */
+            columnValueCounts = set
+                .javaRDD()
+                .flatMapToPair(new IndividualColumnValueCounts())
+                .reduceByKey(new TotalColumnValueCounts());
 
-        /* Generate the profile model */
-        JavaRDD<StatisticsModel> partitionLevelModels = columnValueCounts.mapPartitions(new PartitionLevelModels(bSchemaMap));
+            /* Generate the profile model */
+            partitionLevelModels = columnValueCounts.mapPartitions(new PartitionLevelModels(bSchemaMap));
+        }
 
         if (!partitionLevelModels.isEmpty()) {
             profileStatisticsModel = partitionLevelModels.reduce(new CombineModels());
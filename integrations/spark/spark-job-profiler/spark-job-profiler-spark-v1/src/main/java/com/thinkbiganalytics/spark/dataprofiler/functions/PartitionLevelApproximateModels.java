@@ -0,0 +1,68 @@
+package com.thinkbiganalytics.spark.dataprofiler.functions;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-spark-v1
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructField;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Get partition-level statistics models directly from rows, estimating unique count and top-n values with sketches
+ */
+public class PartitionLevelApproximateModels implements FlatMapFunction<Iterator<Row>, StatisticsModel> {
+
+    private final int uniqueCountPrecision;
+    private final int topNCapacity;
+    private Map<Integer, StructField> schemaMap = new HashMap<>();
+
+
+    public PartitionLevelApproximateModels(Broadcast<Map<Integer, StructField>> bSchemaMap) {
+        schemaMap = bSchemaMap.value();
+        uniqueCountPrecision = ProfilerConfiguration.APPROXIMATE_UNIQUE_COUNT_PRECISION;
+        topNCapacity = ProfilerConfiguration.APPROXIMATE_TOP_N_CAPACITY;
+    }
+
+    public Iterable<StatisticsModel> call(Iterator<Row> iter) throws Exception {
+        StatisticsModel statisticsModel = new StatisticsModel(uniqueCountPrecision, topNCapacity);
+
+        while (iter.hasNext()) {
+            Row row = iter.next();
+            for (int i = 0; i < row.length(); i++) {
+                statisticsModel.add(i, row.get(i), 1L, schemaMap.get(i));
+            }
+        }
+
+        List<StatisticsModel> listStatisticsModels = new ArrayList<>();
+        listStatisticsModels.add(statisticsModel);
+        return listStatisticsModels;
+    }
+}
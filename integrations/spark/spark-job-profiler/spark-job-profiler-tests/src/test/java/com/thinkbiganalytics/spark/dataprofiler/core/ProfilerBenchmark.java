@@ -0,0 +1,119 @@
+package com.thinkbiganalytics.spark.dataprofiler.core;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.storage.StorageLevel;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Compares the run time and results of the {@link Profiler} in exact and approximate modes, on generated columns with up to one
+ * distinct value per row.
+ *
+ * This is not run with the unit tests.  Run it in local mode with {@code mvn test -Dtest=ProfilerBenchmark}.
+ */
+public class ProfilerBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilerBenchmark.class);
+
+    private static final String[] NAMES = {"id", "email", "state", "amount"};
+
+    private static final long ROWS = 20000000L;
+
+    @Test
+    public void benchmark() {
+        int partitions = Runtime.getRuntime().availableProcessors() * 4;
+
+        SparkConf conf = new SparkConf().setAppName("ProfilerBenchmark").setIfMissing("spark.master", "local[*]")
+            .set("spark.serializer", "org.apache.spark.serializer.KryoSerializer");
+        JavaSparkContext sc = new JavaSparkContext(conf);
+        SQLContext sqlContext = new SQLContext(sc);
+
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.getEnvironment().setActiveProfiles("spark-v1");
+        ctx.register(Profiler.class, SpringTestConfigV1.class);
+        ctx.refresh();
+        Profiler profiler = ctx.getBean(Profiler.class);
+        SparkContextService scs = ctx.getBean(SparkContextService.class);
+
+        DataSet input = generate(scs, sqlContext, ROWS, partitions).persist(StorageLevel.MEMORY_AND_DISK());
+        log.info("Generated {} rows in {} partitions", input.count(), partitions);
+        Broadcast<Map<Integer, StructField>> bSchemaMap = profiler.populateAndBroadcastSchemaMap(input, sc);
+
+        for (int run = 0; run < 2; run++) {
+            ProfilerConfiguration.APPROXIMATE = false;
+            long start = System.currentTimeMillis();
+            StatisticsModel exact = profiler.profileStatistics(input, bSchemaMap);
+            long exactMillis = System.currentTimeMillis() - start;
+
+            ProfilerConfiguration.APPROXIMATE = true;
+            start = System.currentTimeMillis();
+            StatisticsModel approximate = profiler.profileStatistics(input, bSchemaMap);
+            long approximateMillis = System.currentTimeMillis() - start;
+
+            log.info(String.format("Run %d: %,d ms exact, %,d ms approximate", run + 1, exactMillis, approximateMillis));
+            for (int idx = 0; idx < NAMES.length; idx++) {
+                ColumnStatistics exactColumn = exact.getColumnStatisticsMap().get(idx);
+                ColumnStatistics approximateColumn = approximate.getColumnStatisticsMap().get(idx);
+                log.info(String.format("  %s: unique %,d exact, %,d approximate; top %s exact, %s approximate", NAMES[idx], exactColumn.getUniqueCount(),
+                                       approximateColumn.getUniqueCount(), exactColumn.getTopNValues().printTopNItems(),
+                                       approximateColumn.getTopNValues().printTopNItems()));
+            }
+        }
+
+        input.unpersist();
+        ctx.close();
+        sc.stop();
+    }
+
+    /**
+     * Generates a unique column, a high-cardinality column, and two columns with a few frequent values
+     */
+    private static DataSet generate(SparkContextService scs, SQLContext sqlContext, long rows, int partitions) {
+        Column id = col("id");
+        return scs.toDataSet(sqlContext.range(0, rows, 1, partitions)).select(
+            id.as("id"),
+            concat(lit("user"), id.mod(rows / 4).cast(DataTypes.StringType), lit("@example.com")).as("email"),
+            when(id.mod(4).equalTo(0), "CA").when(id.mod(10).equalTo(1), "NY").when(id.mod(25).equalTo(2), "TX").otherwise(id.mod(1000).cast(DataTypes.StringType)).as("state"),
+            when(id.mod(3).equalTo(0), lit(null)).otherwise(id.mod(10007).cast(DataTypes.DoubleType).divide(100)).as("amount"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.thinkbiganalytics.spark.dataprofiler.testcases;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerTest;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
+
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate Test Case 1 - compares sketch estimates with exact statistics
+ */
+public class ApproximateCase1Test extends ProfilerTest {
+
+    private static final int ROWS = 100000;
+    private static final int PARTITIONS = 4;
+    private static ColumnStatistics exact;
+    private static ColumnStatistics approximate;
+
+    @BeforeClass
+    public static void setUpClass() {
+
+        System.out.println("\t*** Starting run for ApproximateCase1Test ***");
+
+        StructField field = DataTypes.createStructField("pet", DataTypes.StringType, true);
+
+        /* Values with a long tail of 20000 distinct values, nulls, and three frequent values */
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            if (i % 4 == 0) {
+                values.add("Cat");
+            } else if (i % 10 == 1) {
+                values.add("Dog");
+            } else if (i % 25 == 2) {
+                values.add("Fish");
+            } else if (i % 50 == 3) {
+                values.add(null);
+            } else {
+                values.add("pet" + (i % 20000));
+            }
+        }
+
+        /* Exact: each distinct value once with its count */
+        Map<String, Long> counts = new HashMap<>();
+        for (String value : values) {
+            Long count = counts.get(value);
+            counts.put(value, (count == null) ? 1L : count + 1L);
+        }
+        StatisticsModel exactModel = new StatisticsModel();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            exactModel.add(0, entry.getKey(), entry.getValue(), field);
+        }
+        exact = exactModel.getColumnStatisticsMap().get(0);
+
+        /* Approximate: each value with a count of one, in partitions that are combined */
+        StatisticsModel approximateModel = null;
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            StatisticsModel partitionModel = new StatisticsModel(ProfilerConfiguration.APPROXIMATE_UNIQUE_COUNT_PRECISION, 100);
+            for (int i = partition; i < ROWS; i += PARTITIONS) {
+                partitionModel.add(0, values.get(i), 1L, field);
+            }
+            if (approximateModel == null) {
+                approximateModel = partitionModel;
+            } else {
+                approximateModel.combine(partitionModel);
+            }
+        }
+        approximate = approximateModel.getColumnStatisticsMap().get(0);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        System.out.println("\t*** Completed run for ApproximateCase1Test ***");
+    }
+
+    @Test
+    public void testExactCounts() {
+
+        Assert.assertEquals(exact.getTotalCount(), approximate.getTotalCount());
+        Assert.assertEquals(exact.getNullCount(), approximate.getNullCount());
+    }
+
+    @Test
+    public void testUniqueCountWithinError() {
+
+        /* Three times the relative standard error of the sketch */
+        double error = 3 * 1.04d / Math.sqrt(1 << ProfilerConfiguration.APPROXIMATE_UNIQUE_COUNT_PRECISION);
+        Assert.assertEquals(exact.getUniqueCount(), approximate.getUniqueCount(), exact.getUniqueCount() * error);
+        Assert.assertEquals(exact.getPercUniqueValues(), approximate.getPercUniqueValues(), exact.getPercUniqueValues() * error);
+    }
+
+    @Test
+    public void testTopNValuesWithinError() {
+
+        List<TopNDataItem> exactItems = new ArrayList<>(exact.getTopNValues().getTopNDataItemsForColumn().descendingSet());
+        List<TopNDataItem> approximateItems = new ArrayList<>(approximate.getTopNValues().getTopNDataItemsForColumn().descendingSet());
+
+        Assert.assertEquals(ProfilerConfiguration.NUMBER_OF_TOP_N_VALUES.intValue(), approximateItems.size());
+        for (int i = 0; i < exactItems.size(); i++) {
+            long exactCount = exactItems.get(i).getCount();
+            long approximateCount = approximateItems.get(i).getCount();
+
+            Assert.assertEquals(exactItems.get(i).getValue(), approximateItems.get(i).getValue());
+            Assert.assertTrue(approximateCount <= exactCount);
+            Assert.assertTrue(exactCount - approximateCount <= ROWS / 101);
+        }
+    }
+}
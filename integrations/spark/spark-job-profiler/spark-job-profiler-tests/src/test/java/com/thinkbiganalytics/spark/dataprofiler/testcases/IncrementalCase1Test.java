@@ -0,0 +1,223 @@
+package com.thinkbiganalytics.spark.dataprofiler.testcases;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.DoubleColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.IntegerColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.columns.StringColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerTest;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsStore;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental Test Case 1 - compares statistics combined from stored partition statistics with statistics of all rows
+ */
+public class IncrementalCase1Test extends ProfilerTest {
+
+    private static final int PARTITIONS = 3;
+    private static final int ROWS_PER_PARTITION = 10000;
+    private static final StructField[] FIELDS = {
+        DataTypes.createStructField("id", DataTypes.IntegerType, true),
+        DataTypes.createStructField("email", DataTypes.StringType, true),
+        DataTypes.createStructField("state", DataTypes.StringType, true),
+        DataTypes.createStructField("amount", DataTypes.DoubleType, true)
+    };
+    private static StatisticsModel combined;
+    private static StatisticsModel recomputed;
+
+    @BeforeClass
+    public static void setUpClass() {
+
+        System.out.println("\t*** Starting run for IncrementalCase1Test ***");
+
+        List<Row> stateRows = new ArrayList<>();
+        recomputed = newModel();
+
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            StatisticsModel partitionModel = newModel();
+
+            for (int i = partition * ROWS_PER_PARTITION; i < (partition + 1) * ROWS_PER_PARTITION; i++) {
+                Object[] values = {
+                    i,
+                    "user" + (i % 7000) + "@example.com",
+                    (i % 13 == 0) ? null : (i % 17 == 0) ? "" : (i % 3 == 0) ? "CA" : (i % 3 == 1) ? "NY" : "TX",
+                    (i % 11 == 0) ? null : (double) ((i * 7) % 500)
+                };
+                for (int column = 0; column < FIELDS.length; column++) {
+                    partitionModel.add(column, values[column], 1L, FIELDS[column]);
+                    recomputed.add(column, values[column], 1L, FIELDS[column]);
+                }
+            }
+
+            /* Statistics are stored as rows of the state table before being combined */
+            stateRows.addAll(StatisticsStore.toRows(partitionModel));
+        }
+
+        combined = StatisticsStore.fromRows(stateRows);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        System.out.println("\t*** Completed run for IncrementalCase1Test ***");
+    }
+
+    private static StatisticsModel newModel() {
+        return new StatisticsModel(ProfilerConfiguration.APPROXIMATE_UNIQUE_COUNT_PRECISION, ProfilerConfiguration.APPROXIMATE_TOP_N_CAPACITY);
+    }
+
+    @Test
+    public void testCommonStatistics() {
+
+        Assert.assertEquals(FIELDS.length, combined.getColumnStatisticsMap().size());
+        for (int column = 0; column < FIELDS.length; column++) {
+            ColumnStatistics combinedColumn = combined.getColumnStatisticsMap().get(column);
+            ColumnStatistics recomputedColumn = recomputed.getColumnStatisticsMap().get(column);
+
+            Assert.assertEquals(FIELDS[column].name(), combinedColumn.getColumnField().name());
+            Assert.assertEquals(recomputedColumn.getTotalCount(), combinedColumn.getTotalCount());
+            Assert.assertEquals(recomputedColumn.getNullCount(), combinedColumn.getNullCount());
+            Assert.assertEquals(recomputedColumn.getUniqueCount(), combinedColumn.getUniqueCount());
+            Assert.assertEquals(recomputedColumn.getPercDuplicateValues(), combinedColumn.getPercDuplicateValues(), epsilon);
+        }
+    }
+
+    @Test
+    public void testUniqueCountOfOverlappingPartitions() {
+
+        /* Values repeat across partitions, so the combined count is not the sum of the partition counts */
+        double error = 3 * 1.04d / Math.sqrt(1 << ProfilerConfiguration.APPROXIMATE_UNIQUE_COUNT_PRECISION);
+        Assert.assertEquals(7000, combined.getColumnStatisticsMap().get(1).getUniqueCount(), 7000 * error);
+        Assert.assertEquals(5, combined.getColumnStatisticsMap().get(2).getUniqueCount());
+    }
+
+    @Test
+    public void testTopNValues() {
+
+        /* Columns with fewer distinct values than the counters of the sketch, so the counts are exact */
+        for (int column = 2; column < FIELDS.length; column++) {
+            Assert.assertEquals(recomputed.getColumnStatisticsMap().get(column).getTopNValues().printTopNItems(),
+                                combined.getColumnStatisticsMap().get(column).getTopNValues().printTopNItems());
+        }
+    }
+
+    @Test
+    public void testTypeStatistics() {
+
+        IntegerColumnStatistics combinedId = (IntegerColumnStatistics) combined.getColumnStatisticsMap().get(0);
+        IntegerColumnStatistics recomputedId = (IntegerColumnStatistics) recomputed.getColumnStatisticsMap().get(0);
+        Assert.assertEquals(recomputedId.getMin(), combinedId.getMin());
+        Assert.assertEquals(recomputedId.getMax(), combinedId.getMax());
+        Assert.assertEquals(recomputedId.getSum(), combinedId.getSum());
+        Assert.assertEquals(recomputedId.getMean(), combinedId.getMean(), epsilon);
+        Assert.assertEquals(recomputedId.getStddev(), combinedId.getStddev(), epsilon);
+
+        StringColumnStatistics combinedState = (StringColumnStatistics) combined.getColumnStatisticsMap().get(2);
+        StringColumnStatistics recomputedState = (StringColumnStatistics) recomputed.getColumnStatisticsMap().get(2);
+        Assert.assertEquals(recomputedState.getEmptyCount(), combinedState.getEmptyCount());
+        Assert.assertEquals(recomputedState.getMinLength(), combinedState.getMinLength());
+        Assert.assertEquals(recomputedState.getMaxLength(), combinedState.getMaxLength());
+        Assert.assertEquals(recomputedState.getMinStringCase(), combinedState.getMinStringCase());
+        Assert.assertEquals(recomputedState.getMaxStringCase(), combinedState.getMaxStringCase());
+
+        DoubleColumnStatistics combinedAmount = (DoubleColumnStatistics) combined.getColumnStatisticsMap().get(3);
+        DoubleColumnStatistics recomputedAmount = (DoubleColumnStatistics) recomputed.getColumnStatisticsMap().get(3);
+        Assert.assertEquals(recomputedAmount.getMin(), combinedAmount.getMin(), epsilon);
+        Assert.assertEquals(recomputedAmount.getMax(), combinedAmount.getMax(), epsilon);
+        Assert.assertEquals(recomputedAmount.getSum(), combinedAmount.getSum(), epsilon);
+        Assert.assertEquals(recomputedAmount.getMean(), combinedAmount.getMean(), epsilon);
+        Assert.assertEquals(recomputedAmount.getStddev(), combinedAmount.getStddev(), epsilon);
+    }
+
+    @Test
+    public void testStoredStatisticsOfAllTypes() {
+
+        StructField[] fields = {
+            DataTypes.createStructField("ccode", DataTypes.ByteType, true),
+            DataTypes.createStructField("credits", DataTypes.ShortType, true),
+            DataTypes.createStructField("phash", DataTypes.LongType, true),
+            DataTypes.createStructField("weight", DataTypes.FloatType, true),
+            DataTypes.createStructField("score", DataTypes.createDecimalType(7, 5), true),
+            DataTypes.createStructField("lifemember", DataTypes.BooleanType, true),
+            DataTypes.createStructField("joindate", DataTypes.DateType, true),
+            DataTypes.createStructField("lastlogin", DataTypes.TimestampType, true),
+            DataTypes.createStructField("tags", DataTypes.createArrayType(DataTypes.StringType), true)
+        };
+        Object[][] rows = {
+            {(byte) 1, (short) 100, 8782348100L, 40.2f, new BigDecimal("5.25000"), true, Date.valueOf("2011-08-08"), Timestamp.valueOf("2008-05-06 23:10:10.123"), null},
+            {(byte) -7, (short) 100, null, 180.6f, new BigDecimal("1.00001"), false, Date.valueOf("1999-12-31"), Timestamp.valueOf("2016-01-01 00:00:00"), null},
+            {null, (short) -3, -1L, 40.2f, null, true, null, null, null}
+        };
+
+        StatisticsModel model = newModel();
+        for (Object[] row : rows) {
+            for (int column = 0; column < fields.length; column++) {
+                model.add(column, row[column], 1L, fields[column]);
+            }
+        }
+
+        StatisticsModel restored = StatisticsStore.fromRows(StatisticsStore.toRows(model));
+
+        for (int column = 0; column < fields.length; column++) {
+            ColumnStatistics restoredColumn = restored.getColumnStatisticsMap().get(column);
+            Assert.assertEquals(fields[column], restoredColumn.getColumnField());
+            Assert.assertEquals(model.getColumnStatisticsMap().get(column).getVerboseStatistics(), restoredColumn.getVerboseStatistics());
+        }
+
+        /* Restored top-N values have the type of the column values, so they are combined with newly profiled values */
+        restored.combine(model);
+        Assert.assertEquals("1^A40.2^A4^B2^A180.6^A2^B", restored.getColumnStatisticsMap().get(3).getTopNValues().printTopNItems());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormatVersion() {
+
+        StatisticsModel model = newModel();
+        model.add(0, 1, 1L, FIELDS[0]);
+
+        Row row = StatisticsStore.toRows(model).get(0);
+        Object[] values = new Object[row.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(i);
+        }
+        values[0] = StatisticsStore.FORMAT_VERSION + 1;
+
+        List<Row> rows = new ArrayList<>();
+        rows.add(RowFactory.create(values));
+        StatisticsStore.fromRows(rows);
+    }
+}
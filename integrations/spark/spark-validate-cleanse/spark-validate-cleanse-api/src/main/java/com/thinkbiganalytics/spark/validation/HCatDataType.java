@@ -25,6 +25,8 @@ import com.thinkbiganalytics.policy.validation.TimestampValidator;
 import com.thinkbiganalytics.spark.util.InvalidFormatException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -43,6 +45,38 @@ public class HCatDataType implements Cloneable, Serializable {
     private static HCatDataType UNCHECKED_TYPE = new HCatDataType();
     private static Map<String, HCatDataType> dataTypes = new HashMap();
 
+    /**
+     * Results of the fast path. Values that are neither valid nor invalid are checked by parsing.
+     */
+    private static final int INVALID = 0;
+    private static final int VALID = 1;
+    private static final int UNKNOWN = 2;
+
+    /**
+     * Validates timestamps that are not in the common formats
+     */
+    private static final TimestampValidator TIMESTAMP_VALIDATOR = new TimestampValidator(true);
+
+    /**
+     * Number of decimal digits that always fit in a long
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Powers of ten that are exact longs, doubles and floats
+     */
+    private static final long[] LONG_POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+        10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
     // Build static rules around the various column types
     static {
         dataTypes.put("tinyint", new HCatDataType((int) Byte.MIN_VALUE, (int) Byte.MAX_VALUE));
@@ -98,6 +132,19 @@ public class HCatDataType implements Cloneable, Serializable {
      */
     private Integer digits;
 
+    /**
+     * Minimum and maximum of an integer type
+     */
+    private long minLong;
+    private long maxLong;
+
+    /**
+     * Maximum of a decimal type as an unscaled value and scale, if the unscaled value fits in a long
+     */
+    private boolean compactDecimalMax;
+    private long maxUnscaled;
+    private int maxScale;
+
     /**
      * Name of the field (set after clone)
      */
@@ -124,6 +171,8 @@ public class HCatDataType implements Cloneable, Serializable {
         this.isnumeric = true;
         this.min = min;
         this.max = max;
+        this.minLong = min;
+        this.maxLong = max;
         this.convertibleType = Integer.class;
     }
 
@@ -153,6 +202,8 @@ public class HCatDataType implements Cloneable, Serializable {
             if (clazz == BigInteger.class) {
                 this.min = minDecimal.toBigInteger();
                 this.max = maxDecimal.toBigInteger();
+                this.minLong = Long.MIN_VALUE;
+                this.maxLong = Long.MAX_VALUE;
             } else if (clazz == BigDecimal.class) {
                 this.min = null;
                 this.max = null;
@@ -199,6 +250,10 @@ public class HCatDataType implements Cloneable, Serializable {
                     hcatType.max =
                         BigDecimal.valueOf(Long.parseLong(StringUtils.repeat("9", decSize)) + (1 - Math.pow(.1, hcatType.digits)));
                     hcatType.min = ((BigDecimal) hcatType.max).negate();
+                    BigInteger maxUnscaled = ((BigDecimal) hcatType.max).unscaledValue();
+                    hcatType.compactDecimalMax = (maxUnscaled.bitLength() < 64);
+                    hcatType.maxUnscaled = maxUnscaled.longValue();
+                    hcatType.maxScale = ((BigDecimal) hcatType.max).scale();
                 } else if (strLen != null) {
                     hcatType.maxlength = strLen;
                 }
@@ -214,9 +269,7 @@ public class HCatDataType implements Cloneable, Serializable {
     }
 
     private int getNumberOfDecimalPlaces(BigDecimal bigDecimal) {
-        String string = bigDecimal.stripTrailingZeros().toPlainString();
-        int index = string.indexOf(".");
-        return index < 0 ? 0 : string.length() - index - 1;
+        return Math.max(bigDecimal.stripTrailingZeros().scale(), 0);
     }
 
     private int getNumberOfDecimalPlaces(Double dbl) {
@@ -275,11 +328,80 @@ public class HCatDataType implements Cloneable, Serializable {
         return isValueConvertibleToType(val, false);
     }
 
+    /**
+     * Tests whether the string value can be converted to the hive data type defined by this class. Numbers, dates and timestamps in
+     * the common formats are checked without creating objects or exceptions.
+     *
+     * @param val              the string value
+     * @param enforcePrecision whether the number of decimal places must not exceed the scale
+     * @return whether value is valid
+     */
     public boolean isValueConvertibleToType(String val, boolean enforcePrecision) {
+        int result = convert(val, enforcePrecision, null);
+        return (result == UNKNOWN) ? isValueConvertibleByParsing(val, enforcePrecision) : (result == VALID);
+    }
+
+    /**
+     * Converts the string value to the hive data type defined by this class. Numbers, dates and timestamps in the common formats are
+     * converted without creating objects or exceptions, so the same {@code NativeValue} can be reused for every value.
+     *
+     * @param val              the string value
+     * @param enforcePrecision whether the number of decimal places must not exceed the scale
+     * @param nativeValue      receives the native value, which is null for null and empty values
+     * @return whether value is valid, as returned by {@link #isValueConvertibleToType(String, boolean)}
+     */
+    public boolean convertValue(CharSequence val, boolean enforcePrecision, NativeValue nativeValue) {
+        nativeValue.clear();
+        int result = convert(val, enforcePrecision, nativeValue);
+        if (result != UNKNOWN) {
+            return (result == VALID);
+        }
+
+        // Parse values that are not in the common formats
+        String string = val.toString();
+        if (!isValueConvertibleByParsing(string, enforcePrecision)) {
+            return false;
+        }
+        if (StringUtils.isEmpty(string)) {
+            return true;
+        }
+        if (convertibleType == Date.class) {
+            nativeValue.setTime(Date.class, DateValidator.instance().parseDate(string).getMillis(), 0);
+        } else if (convertibleType == Timestamp.class) {
+            DateTime timestamp = TIMESTAMP_VALIDATOR.parseTimestamp(string);
+            nativeValue.setTime(Timestamp.class, timestamp.getMillis(), timestamp.getMillisOfSecond() * 1000000);
+        } else {
+            try {
+                Comparable value = toNativeValue(string);
+                if (value instanceof BigDecimal) {
+                    nativeValue.setBigDecimal((BigDecimal) value);
+                } else if (value instanceof Double || value instanceof Float) {
+                    nativeValue.setDouble(convertibleType, ((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    nativeValue.setLong(convertibleType, ((Number) value).longValue());
+                } else {
+                    nativeValue.setString(string);
+                }
+            } catch (InvalidFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests whether the string value can be converted by constructing the native value. Used for values that the fast path does
+     * not handle.
+     *
+     * @param val              the string value
+     * @param enforcePrecision whether the number of decimal places must not exceed the scale
+     * @return whether value is valid
+     */
+    boolean isValueConvertibleByParsing(String val, boolean enforcePrecision) {
         try {
             if (val != null && !isnumeric) {
                 if (convertibleType == Timestamp.class) {
-                    return new TimestampValidator(true).validate(val);
+                    return TIMESTAMP_VALIDATOR.validate(val);
                 } else if (convertibleType == Date.class) {
                     return DateValidator.instance().validate(val);
                 }
@@ -311,6 +433,471 @@ public class HCatDataType implements Cloneable, Serializable {
         return true;
     }
 
+    /**
+     * Checks the value and converts it to primitives, without creating objects or exceptions.
+     *
+     * @param val              the string value
+     * @param enforcePrecision whether the number of decimal places must not exceed the scale
+     * @param nativeValue      receives the native value, or {@code null} to only check the value
+     * @return {@code VALID}, {@code INVALID}, or {@code UNKNOWN} if the value must be checked by parsing
+     */
+    private int convert(CharSequence val, boolean enforcePrecision, NativeValue nativeValue) {
+        if (val == null) {
+            return VALID;
+        } else if (convertibleType == Timestamp.class) {
+            return convertTimestamp(val, nativeValue);
+        } else if (convertibleType == Date.class) {
+            return convertDate(val, nativeValue);
+        } else if (val.length() == 0) {
+            return VALID;
+        } else if (convertibleType == String.class) {
+            if (isstring && val.length() > maxlength) {
+                return INVALID;
+            }
+            if (nativeValue != null) {
+                nativeValue.setString(val);
+            }
+            return VALID;
+        } else if (convertibleType == Integer.class || convertibleType == BigInteger.class) {
+            return convertInteger(val, nativeValue);
+        } else if (convertibleType == Double.class || convertibleType == Float.class) {
+            return convertFloatingPoint(val, nativeValue);
+        } else if (convertibleType == BigDecimal.class) {
+            return convertDecimal(val, enforcePrecision, nativeValue);
+        } else {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Converts a non-empty value with the syntax of {@link Integer#parseInt(String)}.
+     */
+    private int convertInteger(CharSequence val, NativeValue nativeValue) {
+        int length = val.length();
+        int pos = 0;
+        char c = val.charAt(0);
+        boolean negative = (c == '-');
+        if (negative || c == '+') {
+            if (length == 1) {
+                return INVALID;
+            }
+            pos = 1;
+        }
+
+        // Accumulate the negative value, which includes Long.MIN_VALUE
+        long value = 0;
+        for (; pos < length; ++pos) {
+            c = val.charAt(pos);
+            if (c < '0' || c > '9') {
+                // Non-ASCII digits are supported by parsing
+                return (c < 128) ? INVALID : UNKNOWN;
+            }
+            int digit = c - '0';
+            if (value < Long.MIN_VALUE / 10 || (value == Long.MIN_VALUE / 10 && digit > 8)) {
+                return INVALID;
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return INVALID;
+            }
+            value = -value;
+        }
+
+        if (value < minLong || value > maxLong) {
+            return INVALID;
+        }
+        if (nativeValue != null) {
+            nativeValue.setLong(convertibleType, value);
+        }
+        return VALID;
+    }
+
+    /**
+     * Converts a non-empty decimal value with the syntax of {@link Double#parseDouble(String)}.
+     */
+    private int convertFloatingPoint(CharSequence val, NativeValue nativeValue) {
+        // Surrounding whitespace is ignored
+        int start = 0;
+        int end = val.length();
+        while (start < end && val.charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && val.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        if (start == end) {
+            return INVALID;
+        }
+
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (val.charAt(pos) == '-' || val.charAt(pos) == '+')) {
+            negative = (val.charAt(pos) == '-');
+            ++pos;
+        }
+        if (pos < end && (val.charAt(pos) == 'N' || val.charAt(pos) == 'I'
+                          || (val.charAt(pos) == '0' && pos + 1 < end && (val.charAt(pos + 1) == 'x' || val.charAt(pos + 1) == 'X')))) {
+            // NaN, Infinity and hexadecimal values are parsed
+            return UNKNOWN;
+        }
+
+        // Keep the significant digits that fit in a long, and the power of ten of the last digit kept
+        long mantissa = 0;
+        int precision = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean hasDigits = false;
+        boolean point = false;
+        for (; pos < end; ++pos) {
+            char c = val.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (precision < MAX_LONG_DIGITS) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        ++precision;
+                        exponent -= point ? 1 : 0;
+                    } else {
+                        exact &= (c == '0');
+                        exponent += point ? 0 : 1;
+                    }
+                } else if (point) {
+                    --exponent;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!hasDigits) {
+            return INVALID;
+        }
+
+        if (pos < end && (val.charAt(pos) == 'e' || val.charAt(pos) == 'E')) {
+            ++pos;
+            boolean negativeExponent = false;
+            if (pos < end && (val.charAt(pos) == '-' || val.charAt(pos) == '+')) {
+                negativeExponent = (val.charAt(pos) == '-');
+                ++pos;
+            }
+            int exponentStart = pos;
+            int value = 0;
+            for (; pos < end && val.charAt(pos) >= '0' && val.charAt(pos) <= '9'; ++pos) {
+                value = Math.min(value * 10 + (val.charAt(pos) - '0'), 1000000);
+            }
+            if (pos == exponentStart) {
+                return INVALID;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (pos < end && "fFdD".indexOf(val.charAt(pos)) >= 0) {
+            ++pos;
+        }
+        if (pos != end) {
+            return INVALID;
+        }
+
+        // Values below 10^order are within the range. Values close to the maximum are rounded by parsing.
+        boolean isFloat = (convertibleType == Float.class);
+        int maxOrder = isFloat ? 38 : 308;
+        int order = precision + exponent;
+        if (mantissa != 0 && order > maxOrder) {
+            return (order > maxOrder + 1) ? INVALID : UNKNOWN;
+        }
+
+        if (nativeValue != null) {
+            double value;
+            if (mantissa == 0) {
+                value = negative ? -0.0 : 0.0;
+            } else if (isFloat && exact && mantissa <= (1 << 24) && Math.abs(exponent) < FLOAT_POWERS_OF_TEN.length) {
+                // Both operands are exact floats so the result is correctly rounded
+                float unsigned = (exponent < 0) ? (float) mantissa / FLOAT_POWERS_OF_TEN[-exponent] : (float) mantissa * FLOAT_POWERS_OF_TEN[exponent];
+                value = negative ? -unsigned : unsigned;
+            } else if (!isFloat && exact && mantissa <= (1L << 53) && Math.abs(exponent) < DOUBLE_POWERS_OF_TEN.length) {
+                double unsigned = (exponent < 0) ? mantissa / DOUBLE_POWERS_OF_TEN[-exponent] : mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+                value = negative ? -unsigned : unsigned;
+            } else {
+                value = isFloat ? Float.parseFloat(val.toString()) : Double.parseDouble(val.toString());
+            }
+            nativeValue.setDouble(convertibleType, value);
+        }
+        return VALID;
+    }
+
+    /**
+     * Converts a non-empty value with the syntax of {@link BigDecimal#BigDecimal(String)}.
+     */
+    private int convertDecimal(CharSequence val, boolean enforcePrecision, NativeValue nativeValue) {
+        int length = val.length();
+        int pos = 0;
+        boolean negative = (val.charAt(0) == '-');
+        if (negative || val.charAt(0) == '+') {
+            ++pos;
+        }
+
+        // Keep the unscaled value while it fits in a long
+        long unscaled = 0;
+        int precision = 0;
+        long scale = 0;
+        boolean compact = true;
+        boolean hasDigits = false;
+        boolean point = false;
+        for (; pos < length; ++pos) {
+            char c = val.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (unscaled != 0 || c != '0') {
+                    if (precision < MAX_LONG_DIGITS) {
+                        unscaled = unscaled * 10 + (c - '0');
+                        ++precision;
+                    } else {
+                        compact = false;
+                    }
+                }
+                scale += point ? 1 : 0;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!hasDigits) {
+            return isAscii(val) ? INVALID : UNKNOWN;
+        }
+
+        long exponent = 0;
+        if (pos < length && (val.charAt(pos) == 'e' || val.charAt(pos) == 'E')) {
+            ++pos;
+            boolean negativeExponent = false;
+            if (pos < length && (val.charAt(pos) == '-' || val.charAt(pos) == '+')) {
+                negativeExponent = (val.charAt(pos) == '-');
+                ++pos;
+            }
+            int exponentStart = pos;
+            for (; pos < length && val.charAt(pos) >= '0' && val.charAt(pos) <= '9'; ++pos) {
+                exponent = Math.min(exponent * 10 + (val.charAt(pos) - '0'), Integer.MAX_VALUE + 1L);
+            }
+            if (pos == exponentStart) {
+                return isAscii(val) ? INVALID : UNKNOWN;
+            }
+            scale -= negativeExponent ? -exponent : exponent;
+        }
+        if (pos != length) {
+            return isAscii(val) ? INVALID : UNKNOWN;
+        }
+
+        // Exponents and scales that do not fit in an int are rejected by parsing
+        if (exponent > Integer.MAX_VALUE || Math.abs(scale) > Integer.MAX_VALUE) {
+            return UNKNOWN;
+        }
+        if (!compact) {
+            return (max == null && !(enforcePrecision && digits != null) && nativeValue == null) ? VALID : UNKNOWN;
+        }
+
+        if (enforcePrecision && digits != null) {
+            long stripped = unscaled;
+            long places = (stripped == 0) ? 0 : scale;
+            while (stripped != 0 && stripped % 10 == 0) {
+                stripped /= 10;
+                --places;
+            }
+            if (places > digits) {
+                return INVALID;
+            }
+        }
+        if (max != null) {
+            if (!compactDecimalMax) {
+                return UNKNOWN;
+            }
+            // The minimum is the negated maximum
+            if (compareDecimal(unscaled, (int) scale, maxUnscaled, maxScale) > 0) {
+                return INVALID;
+            }
+        }
+
+        if (nativeValue != null) {
+            nativeValue.setDecimal(negative ? -unscaled : unscaled, (int) scale);
+        }
+        return VALID;
+    }
+
+    /**
+     * Converts a date in the format {@code yyyy-MM-dd}, as {@link DateValidator} does.
+     */
+    private int convertDate(CharSequence val, NativeValue nativeValue) {
+        if (val.length() != 10) {
+            return INVALID;
+        }
+        if (!isDigits(val, 0, 4) || val.charAt(4) != '-' || !isDigits(val, 5, 7) || val.charAt(7) != '-' || !isDigits(val, 8, 10)) {
+            return isDateTimeChars(val) ? UNKNOWN : INVALID;
+        }
+
+        int year = toInt(val, 0, 4);
+        int month = toInt(val, 5, 7);
+        int day = toInt(val, 8, 10);
+        if (month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month)) {
+            return INVALID;
+        }
+        long millis = toUtcMillis(toEpochDay(year, month, day) * MILLIS_PER_DAY);
+        if (millis == Long.MIN_VALUE) {
+            return INVALID;
+        }
+
+        if (nativeValue != null) {
+            nativeValue.setTime(Date.class, millis, 0);
+        }
+        return VALID;
+    }
+
+    /**
+     * Converts a timestamp in the format {@code yyyy-MM-dd HH:mm:ss} with up to 3 or exactly 9 fractional digits, as
+     * {@link TimestampValidator} does. Null values are valid.
+     */
+    private int convertTimestamp(CharSequence val, NativeValue nativeValue) {
+        int length = val.length();
+        if (length == 0 || (length == 4 && isNullString(val))) {
+            return VALID;
+        }
+        if (length < 19 || length > 29) {
+            return INVALID;
+        }
+        if (val.charAt(10) == 'T') {
+            // ISO 8601 formats are parsed
+            return UNKNOWN;
+        }
+        if (!isDigits(val, 0, 4) || val.charAt(4) != '-' || !isDigits(val, 5, 7) || val.charAt(7) != '-' || !isDigits(val, 8, 10)
+            || val.charAt(10) != ' ' || !isDigits(val, 11, 13) || val.charAt(13) != ':' || !isDigits(val, 14, 16) || val.charAt(16) != ':'
+            || !isDigits(val, 17, 19)
+            || (length > 19 && (val.charAt(19) != '.' || !isDigits(val, 20, length) || (length > 23 && length < 29)))) {
+            return isDateTimeChars(val) ? UNKNOWN : INVALID;
+        }
+
+        int year = toInt(val, 0, 4);
+        int month = toInt(val, 5, 7);
+        int day = toInt(val, 8, 10);
+        int hour = toInt(val, 11, 13);
+        int minute = toInt(val, 14, 16);
+        int second = toInt(val, 17, 19);
+        if (month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month) || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        int nanos = 0;
+        if (length > 19) {
+            nanos = toInt(val, 20, length);
+            for (int i = length - 20; i < 9; ++i) {
+                nanos *= 10;
+            }
+        }
+        long localMillis = toEpochDay(year, month, day) * MILLIS_PER_DAY + ((hour * 60 + minute) * 60 + second) * MILLIS_PER_SECOND
+                           + nanos / 1000000;
+        long millis = toUtcMillis(localMillis);
+        if (millis == Long.MIN_VALUE) {
+            return INVALID;
+        }
+
+        if (nativeValue != null) {
+            nativeValue.setTime(Timestamp.class, millis, nanos);
+        }
+        return VALID;
+    }
+
+    /**
+     * Compares two non-negative decimals.
+     */
+    private static int compareDecimal(long unscaled1, int scale1, long unscaled2, int scale2) {
+        if (scale1 == scale2 || unscaled1 == 0 || unscaled2 == 0) {
+            return Long.compare(unscaled1, unscaled2);
+        } else if (scale1 > scale2) {
+            return -compareDecimal(unscaled2, scale2, unscaled1, scale1);
+        }
+
+        // Scale up the first value, which is larger if that overflows
+        long diff = (long) scale2 - scale1;
+        if (diff >= LONG_POWERS_OF_TEN.length || unscaled1 > Long.MAX_VALUE / LONG_POWERS_OF_TEN[(int) diff]) {
+            return 1;
+        }
+        return Long.compare(unscaled1 * LONG_POWERS_OF_TEN[(int) diff], unscaled2);
+    }
+
+    /**
+     * Converts local milliseconds to UTC in the default time zone as Joda-Time does when parsing.
+     *
+     * @return the UTC milliseconds, or {@code Long.MIN_VALUE} if the local time is skipped by a daylight saving transition
+     */
+    private static long toUtcMillis(long localMillis) {
+        DateTimeZone zone = DateTimeZone.getDefault();
+        int offset = zone.getOffsetFromLocal(localMillis);
+        long utcMillis = localMillis - offset;
+        return (offset == zone.getOffset(utcMillis)) ? utcMillis : Long.MIN_VALUE;
+    }
+
+    /**
+     * Counts the days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        // Years start in March so that the leap day is last
+        long y = (month <= 2) ? year - 1 : year;
+        long era = ((y >= 0) ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * ((month > 2) ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int getDaysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    private static boolean isDigits(CharSequence val, int start, int end) {
+        for (int i = start; i < end; ++i) {
+            if (val.charAt(i) < '0' || val.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toInt(CharSequence val, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; ++i) {
+            value = value * 10 + (val.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isNullString(CharSequence val) {
+        return Character.toUpperCase(val.charAt(0)) == 'N' && Character.toUpperCase(val.charAt(1)) == 'U' && Character.toUpperCase(val.charAt(2)) == 'L'
+               && Character.toUpperCase(val.charAt(3)) == 'L';
+    }
+
+    private static boolean isAscii(CharSequence val) {
+        for (int i = 0; i < val.length(); ++i) {
+            if (val.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates that the value contains only characters of the non-ISO date and timestamp formats.
+     */
+    private static boolean isDateTimeChars(CharSequence val) {
+        for (int i = 0; i < val.length(); ++i) {
+            char c = val.charAt(i);
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != ':' && c != '.' && c != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public Object clone() throws CloneNotSupportedException {
         return super.clone();
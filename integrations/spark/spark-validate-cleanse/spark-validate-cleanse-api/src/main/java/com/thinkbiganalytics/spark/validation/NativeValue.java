@@ -0,0 +1,235 @@
+package com.thinkbiganalytics.spark.validation;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * Holds a value converted by {@link HCatDataType#convertValue(CharSequence, boolean, NativeValue)} in primitive fields.
+ *
+ * <p>A single instance can be reused for every value of a partition. The getter to use depends on the {@link #getType() type}:</p>
+ * <ul>
+ * <li>{@code Integer} and {@code BigInteger} - {@link #getLong()}</li>
+ * <li>{@code Double} and {@code Float} - {@link #getDouble()}</li>
+ * <li>{@code BigDecimal} - {@link #getUnscaledValue()} and {@link #getScale()} if {@link #isCompact()}, otherwise {@link #getBigDecimal()}</li>
+ * <li>{@code Date} and {@code Timestamp} - {@link #getMillis()} and {@link #getNanos()}</li>
+ * <li>{@code String} - {@link #getString()}</li>
+ * </ul>
+ */
+public class NativeValue {
+
+    /**
+     * Class of the native value, or {@code null} if the value is null
+     */
+    private Class type;
+
+    /**
+     * Integer value, unscaled decimal value, or milliseconds since the epoch
+     */
+    private long longValue;
+
+    /**
+     * Decimal scale or nanoseconds of a timestamp
+     */
+    private int intValue;
+
+    /**
+     * Floating point value
+     */
+    private double doubleValue;
+
+    /**
+     * String value, or decimal value that does not fit in a long
+     */
+    private Object objectValue;
+
+    /**
+     * Gets the class of the native value.
+     *
+     * @return the class as returned by {@link HCatDataType#getConvertibleType()}, or {@code null} if the value is null
+     */
+    public Class getType() {
+        return type;
+    }
+
+    /**
+     * Indicates that the value is null or empty.
+     *
+     * @return {@code true} if there is no value
+     */
+    public boolean isNull() {
+        return type == null;
+    }
+
+    /**
+     * Gets the value of an integer type.
+     *
+     * @return the integer value
+     */
+    public long getLong() {
+        return longValue;
+    }
+
+    /**
+     * Gets the value of a floating point type.
+     *
+     * @return the floating point value
+     */
+    public double getDouble() {
+        return doubleValue;
+    }
+
+    /**
+     * Indicates that a decimal value is available as {@link #getUnscaledValue()} and {@link #getScale()}.
+     *
+     * @return {@code true} if the unscaled value fits in a long
+     */
+    public boolean isCompact() {
+        return objectValue == null;
+    }
+
+    /**
+     * Gets the unscaled value of a compact decimal.
+     *
+     * @return the unscaled value
+     */
+    public long getUnscaledValue() {
+        return longValue;
+    }
+
+    /**
+     * Gets the scale of a compact decimal.
+     *
+     * @return the scale
+     */
+    public int getScale() {
+        return intValue;
+    }
+
+    /**
+     * Gets the value of a decimal type.
+     *
+     * @return the decimal value
+     */
+    public BigDecimal getBigDecimal() {
+        return (objectValue != null) ? (BigDecimal) objectValue : BigDecimal.valueOf(longValue, intValue);
+    }
+
+    /**
+     * Gets the milliseconds since the epoch of a date or timestamp, in the default time zone.
+     *
+     * @return the milliseconds since the epoch
+     */
+    public long getMillis() {
+        return longValue;
+    }
+
+    /**
+     * Gets the fractional seconds of a timestamp.
+     *
+     * @return the nanoseconds
+     */
+    public int getNanos() {
+        return intValue;
+    }
+
+    /**
+     * Gets the value of a string type.
+     *
+     * @return the string value
+     */
+    public CharSequence getString() {
+        return (CharSequence) objectValue;
+    }
+
+    /**
+     * Creates the object for this value, as returned by {@link HCatDataType#toNativeValue(String)}.
+     *
+     * @return the native value, or {@code null} if the value is null
+     */
+    public Comparable toObject() {
+        if (type == null) {
+            return null;
+        } else if (type == Integer.class) {
+            return (int) longValue;
+        } else if (type == BigInteger.class) {
+            return BigInteger.valueOf(longValue);
+        } else if (type == Double.class) {
+            return doubleValue;
+        } else if (type == Float.class) {
+            return (float) doubleValue;
+        } else if (type == BigDecimal.class) {
+            return getBigDecimal();
+        } else if (type == Date.class) {
+            return new Date(longValue);
+        } else if (type == Timestamp.class) {
+            Timestamp timestamp = new Timestamp(longValue);
+            timestamp.setNanos(intValue);
+            return timestamp;
+        } else {
+            return objectValue.toString();
+        }
+    }
+
+    void clear() {
+        type = null;
+        objectValue = null;
+    }
+
+    void setLong(Class type, long value) {
+        this.type = type;
+        this.longValue = value;
+    }
+
+    void setDouble(Class type, double value) {
+        this.type = type;
+        this.doubleValue = value;
+    }
+
+    void setDecimal(long unscaledValue, int scale) {
+        this.type = BigDecimal.class;
+        this.longValue = unscaledValue;
+        this.intValue = scale;
+    }
+
+    void setBigDecimal(BigDecimal value) {
+        if (value.unscaledValue().bitLength() < 64) {
+            setDecimal(value.unscaledValue().longValue(), value.scale());
+        } else {
+            this.type = BigDecimal.class;
+            this.objectValue = value;
+        }
+    }
+
+    void setTime(Class type, long millis, int nanos) {
+        this.type = type;
+        this.longValue = millis;
+        this.intValue = nanos;
+    }
+
+    void setString(CharSequence value) {
+        this.type = String.class;
+        this.objectValue = value;
+    }
+}
@@ -0,0 +1,150 @@
+package com.thinkbiganalytics.spark.validation;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Compares the nanoseconds and bytes allocated per value when checking and converting values by parsing, with the fast path of
+ * {@link HCatDataType#isValueConvertibleToType(String, boolean)} and {@link HCatDataType#convertValue(CharSequence, boolean, NativeValue)},
+ * for clean values and for values of which 30% are invalid.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=HCatDataTypeBenchmark}.
+ */
+public class HCatDataTypeBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(HCatDataTypeBenchmark.class);
+
+    private static final int VALUES = 10000;
+
+    private static final int ITERATIONS = 200;
+
+    private static final String[] TYPES = {"int", "bigint", "double", "decimal(10,2)", "date", "timestamp"};
+
+    /* Prevents the JIT from removing the measured calls */
+    private static long sink;
+
+    @Test
+    public void benchmark() throws Exception {
+        for (String type : TYPES) {
+            HCatDataType dataType = HCatDataType.createFromDataType(type, type);
+            for (int invalidPercent : new int[]{0, 30}) {
+                String[] values = generate(type, invalidPercent, new Random(42));
+                String name = String.format("%s, %d%% invalid", type, invalidPercent);
+                compare(name, dataType, values, ITERATIONS);
+            }
+        }
+    }
+
+    private static void compare(String name, HCatDataType dataType, String[] values, int iterations) throws Exception {
+        NativeValue nativeValue = new NativeValue();
+        long[] nanos = new long[3];
+        long[] bytes = new long[3];
+        for (int run = 0; run < 2; run++) {
+            // Check and convert by parsing, as the Validator did for typed validation policies
+            long start = System.nanoTime();
+            long allocated = getAllocatedBytes();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    if (dataType.isValueConvertibleByParsing(value, false)) {
+                        sink += dataType.isnumeric ? dataType.toNativeValue(value).hashCode() : 1;
+                    }
+                }
+            }
+            bytes[0] = getAllocatedBytes() - allocated;
+            nanos[0] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            allocated = getAllocatedBytes();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    sink += dataType.isValueConvertibleToType(value, false) ? 1 : 0;
+                }
+            }
+            bytes[1] = getAllocatedBytes() - allocated;
+            nanos[1] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            allocated = getAllocatedBytes();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    if (dataType.convertValue(value, false, nativeValue)) {
+                        sink += nativeValue.getLong() + (long) nativeValue.getDouble();
+                    }
+                }
+            }
+            bytes[2] = getAllocatedBytes() - allocated;
+            nanos[2] = System.nanoTime() - start;
+        }
+
+        long count = (long) iterations * values.length;
+        log.info(String.format("%-28s parsing %,8.1f ns %,6.1f B/value, check %,8.1f ns %,6.1f B/value (%.1fx), convert %,8.1f ns %,6.1f B/value (%.1fx)",
+                               name, (double) nanos[0] / count, (double) bytes[0] / count, (double) nanos[1] / count, (double) bytes[1] / count,
+                               (double) nanos[0] / Math.max(nanos[1], 1), (double) nanos[2] / count, (double) bytes[2] / count,
+                               (double) nanos[0] / Math.max(nanos[2], 1)));
+    }
+
+    /**
+     * Generates values of the type, with the given percentage of invalid values
+     */
+    private static String[] generate(String type, int invalidPercent, Random random) {
+        String[] values = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            boolean invalid = random.nextInt(100) < invalidPercent;
+            String value;
+            if (type.equals("int")) {
+                value = invalid ? ((random.nextBoolean() ? "n/a" : random.nextInt(100000) + "x")) : Integer.toString(random.nextInt());
+            } else if (type.equals("bigint")) {
+                value = invalid ? ((random.nextBoolean() ? "unknown" : random.nextLong() + "0000")) : Long.toString(random.nextLong());
+            } else if (type.equals("double")) {
+                value = invalid ? ((random.nextBoolean() ? "-" : "1,234.5")) : Double.toString(random.nextInt(1000000) / 100.0);
+            } else if (type.startsWith("decimal")) {
+                value = invalid ? ((random.nextBoolean() ? "$12.50" : "123456789012.5")) : String.format("%d.%02d", random.nextInt(10000000), random.nextInt(100));
+            } else if (type.equals("date")) {
+                value = invalid ? ((random.nextBoolean() ? "02/30/2016" : "2016-02-30"))
+                                : String.format("%04d-%02d-%02d", 1990 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            } else {
+                value = invalid ? ((random.nextBoolean() ? "2016-01-15 25:00:00" : "yesterday 11:10:20"))
+                                : String.format("%04d-%02d-%02d %02d:%02d:%02d.%03d", 1990 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                                                random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000));
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread, if supported by the JVM
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -20,10 +20,19 @@ package com.thinkbiganalytics.spark.validation;
  * #L%
  */
 
+import com.thinkbiganalytics.policy.validation.DateValidator;
+import com.thinkbiganalytics.policy.validation.TimestampValidator;
+
 import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTimeZone;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class HCatDataTypeTest {
@@ -213,4 +222,105 @@ public class HCatDataTypeTest {
         assertTrue(valid);
     }
 
+    @Test
+    public void testConvertValue() throws Exception {
+        NativeValue value = new NativeValue();
+
+        assertTrue(HCatDataType.createFromDataType("myint", "int").convertValue("-2147483648", false, value));
+        assertEquals(Integer.MIN_VALUE, value.getLong());
+        assertEquals(Integer.MIN_VALUE, value.toObject());
+        assertFalse(HCatDataType.createFromDataType("myint", "int").convertValue("2147483648", false, value));
+
+        assertTrue(HCatDataType.createFromDataType("mybigint", "bigint").convertValue("+0009223372036854775807", false, value));
+        assertEquals(Long.MAX_VALUE, value.getLong());
+
+        assertTrue(HCatDataType.createFromDataType("mydouble", "double").convertValue(" -12.5e2 ", false, value));
+        assertEquals(-1250.0, value.getDouble(), 0.0);
+        assertTrue(HCatDataType.createFromDataType("myfloat", "float").convertValue("0.1", false, value));
+        assertEquals(0.1f, value.toObject());
+
+        assertTrue(HCatDataType.createFromDataType("mydecimal", "decimal(10,3)").convertValue("-29.340", true, value));
+        assertTrue(value.isCompact());
+        assertEquals(-29340, value.getUnscaledValue());
+        assertEquals(3, value.getScale());
+        assertEquals(new BigDecimal("-29.340"), value.toObject());
+        assertTrue(HCatDataType.createFromDataType("mydecimal", "decimal").convertValue("123456789012345678901234567890.5", false, value));
+        assertFalse(value.isCompact());
+        assertEquals(new BigDecimal("123456789012345678901234567890.5"), value.getBigDecimal());
+
+        assertTrue(HCatDataType.createFromDataType("mydate", "date").convertValue("2016-02-29", false, value));
+        assertEquals(DateValidator.instance().parseDate("2016-02-29").getMillis(), value.getMillis());
+        assertFalse(HCatDataType.createFromDataType("mydate", "date").convertValue("2015-02-29", false, value));
+
+        assertTrue(HCatDataType.createFromDataType("myts", "timestamp").convertValue("2015-01-15 11:10:20.333444555", false, value));
+        assertEquals(new TimestampValidator().parseTimestamp("2015-01-15 11:10:20.333").getMillis(), value.getMillis());
+        assertEquals(333444555, value.getNanos());
+
+        assertTrue(HCatDataType.createFromDataType("mystring", "varchar(5)").convertValue("abc", false, value));
+        assertEquals("abc", value.getString());
+        assertTrue(HCatDataType.createFromDataType("myint", "int").convertValue("", false, value));
+        assertTrue(value.isNull());
+        assertNull(value.toObject());
+    }
+
+    /**
+     * Verifies that the fast path agrees with parsing for random values of each type.
+     */
+    @Test
+    public void testFastPathMatchesParsing() throws Exception {
+        String[] types = {"tinyint", "smallint", "int", "bigint", "float", "double", "decimal", "decimal(5,2)", "decimal(3,0)", "decimal(18,4)",
+                          "date", "timestamp", "varchar(8)"};
+        String[] parts = {"0", "1", "7", "9", "00", "127", "128", "-", "+", ".", "e", "E", "5", "99999", "2147483648", "9223372036854775808",
+                          "1e38", "3.4028236e38", "1.7976931348623159e308", "e-400", " ", "x", "f", "d", "NaN", "Infinity", "0x1p3", "\u0663", "2016",
+                          "-02", "-29", "-31", "-13", " 23", ":59", ":60", ".123", ".123456789", "T", "null", "12345678901234567890",
+                          "-10", "-16", " 00", " 02", ":30"};
+        Random random = new Random(0);
+        NativeValue value = new NativeValue();
+
+        for (String typeName : types) {
+            HCatDataType type = HCatDataType.createFromDataType("field", typeName);
+            for (int i = 0; i < 20000; ++i) {
+                StringBuilder val = new StringBuilder();
+                for (int j = random.nextInt(8); j >= 0; --j) {
+                    val.append(parts[random.nextInt(parts.length)]);
+                }
+                String string = val.toString();
+                boolean enforcePrecision = random.nextBoolean();
+
+                boolean expected = type.isValueConvertibleByParsing(string, enforcePrecision);
+                assertEquals(typeName + " [" + string + "]", expected, type.isValueConvertibleToType(string, enforcePrecision));
+                assertEquals(typeName + " [" + string + "]", expected, type.convertValue(string, enforcePrecision, value));
+                if (expected && type.isnumeric && !string.isEmpty()) {
+                    assertEquals(typeName + " [" + string + "]", type.toNativeValue(string), value.toObject());
+                } else if (expected && typeName.equals("date")) {
+                    assertEquals(typeName + " [" + string + "]", DateValidator.instance().parseDate(string).getMillis(), value.getMillis());
+                } else if (expected && typeName.equals("timestamp") && !value.isNull()) {
+                    assertEquals(typeName + " [" + string + "]", new TimestampValidator().parseTimestamp(string).getMillis(), value.getMillis());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDaylightSavingGap() throws Exception {
+        DateTimeZone defaultZone = DateTimeZone.getDefault();
+        try {
+            // Midnight was skipped in Sao Paulo on 2016-10-16
+            DateTimeZone.setDefault(DateTimeZone.forID("America/Sao_Paulo"));
+            HCatDataType date = HCatDataType.createFromDataType("mydate", "date");
+            HCatDataType timestamp = HCatDataType.createFromDataType("myts", "timestamp");
+
+            assertFalse(date.isValueConvertibleToType("2016-10-16"));
+            assertFalse(date.isValueConvertibleByParsing("2016-10-16", false));
+            assertFalse(timestamp.isValueConvertibleToType("2016-10-16 00:30:00"));
+            assertFalse(timestamp.isValueConvertibleByParsing("2016-10-16 00:30:00", false));
+
+            NativeValue value = new NativeValue();
+            assertTrue(timestamp.convertValue("2016-10-16 01:30:00.5", false, value));
+            assertEquals(new TimestampValidator().parseTimestamp("2016-10-16 01:30:00.5").getMillis(), value.getMillis());
+            assertEquals(500000000, value.getNanos());
+        } finally {
+            DateTimeZone.setDefault(defaultZone);
+        }
+    }
 }
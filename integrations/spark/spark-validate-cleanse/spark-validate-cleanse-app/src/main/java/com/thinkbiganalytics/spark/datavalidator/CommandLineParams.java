@@ -37,6 +37,9 @@ public class CommandLineParams implements Serializable {
     @Parameter(names = "--storageLevel", description = "Storage for RDD persistance")
     private String storageLevel = "MEMORY_AND_DISK";
 
+    @Parameter(names = "--singlePassWrite", description = "Write validated rows once to a staging table partitioned by validity instead of persisting them")
+    private boolean singlePassWrite = false;
+
     public List<Param> getHiveParams() {
         return hiveParams == null ? new ArrayList<Param>(0) : hiveParams;
     }
@@ -44,4 +47,8 @@ public class CommandLineParams implements Serializable {
     public String getStorageLevel() {
         return storageLevel;
     }
+
+    public boolean isSinglePassWrite() {
+        return singlePassWrite;
+    }
 }
@@ -41,6 +41,7 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.hive.HiveContext;
@@ -67,6 +68,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import static org.apache.spark.sql.functions.array_contains;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.sum;
+import static org.apache.spark.sql.functions.when;
+
 
 /**
  * Cleanses and validates a table of strings according to defined field-level policies. Records are split into good and bad.
@@ -82,6 +88,7 @@ public class Validator implements Serializable {
     protected static ValidationResult VALID_RESULT = new ValidationResult();
     private static String REJECT_REASON_COL = "dlp_reject_reason";
     private static String VALID_INVALID_COL = "dlp_valid";
+    private static String INVALID_COLUMNS_COL = "dlp_invalid_columns";
     private static String PROCESSING_DTTM_COL = "processing_dttm";
 
     /* Initialize Spark */
@@ -93,6 +100,7 @@ public class Validator implements Serializable {
      */
     private String validTableName;
     private String invalidTableName;
+    private String stagingTableName;
     private String feedTablename;
     private String refTablename;
     private String profileTableName;
@@ -147,6 +155,7 @@ public class Validator implements Serializable {
     public void setArguments(String targetDatabase, String entity, String partition, String fieldPolicyJsonPath) {
         this.validTableName = entity + "_valid";
         this.invalidTableName = entity + "_invalid";
+        this.stagingTableName = entity + "_validated";
         this.profileTableName = entity + "_profile";
         this.feedTablename = HiveUtils.quoteIdentifier(targetDatabase, entity + "_feed");
         this.refTablename = HiveUtils.quoteIdentifier(targetDatabase, validTableName);
@@ -189,49 +198,80 @@ public class Validator implements Serializable {
             log.info("sourceSchema {}", sourceSchema);
 
             // Validate and cleanse input rows
-            JavaRDD<CleansedRowResult> cleansedRowResultRDD = rddData.map(new Function<Row, CleansedRowResult>() {
-                @Override
-                public CleansedRowResult call(Row row) throws Exception {
-                    return cleanseAndValidateRow(row);
-                }
-            }).persist(StorageLevel.fromString(params.getStorageLevel()));
+            final DataSet validatedDF;
+            final long[] fieldInvalidCounts;
+            JavaRDD<CleansedRowResult> cleansedRowResultRDD = null;
+            String stagingTable = null;
+
+            try {
+                if (params.isSinglePassWrite()) {
+                    // Validate each row once and write the results to a staging table partitioned by the valid flag
+                    JavaRDD<Row> stagingRDD = rddData.map(new Function<Row, Row>() {
+                        @Override
+                        public Row call(Row row) throws Exception {
+                            return toStagingRow(cleanseAndValidateRow(row));
+                        }
+                    });
 
-            // Return a new rdd based on whether values are valid or invalid
-            JavaRDD<Row> newResultsRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
-                }
-            });
+                    stagingTable = HiveUtils.quoteIdentifier(targetDatabase, stagingTableName + "_" + System.currentTimeMillis());
+                    log.info("Writing to staging table {}", stagingTable);
+                    scs.toDataSet(getHiveContext(), stagingRDD, createStagingSchema(sourceSchema)).writeToTable(VALID_INVALID_COL, stagingTable);
 
-            // Counts of invalid columns, total valid rows and total invalid rows
-            long[] fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
+                    // Counts of invalid columns, total valid rows and total invalid rows. These are read from the staging table because
+                    // accumulator updates in a transformation are applied again for a retried or speculative task.
+                    DataSet stagingDF = scs.toDataSet(getHiveContext(), stagingTable);
+                    fieldInvalidCounts = stagingValidationCounts(stagingDF, schema.length);
+                    validatedDF = stagingDF.drop(INVALID_COLUMNS_COL);
+                } else {
+                    cleansedRowResultRDD = rddData.map(new Function<Row, CleansedRowResult>() {
+                        @Override
+                        public CleansedRowResult call(Row row) throws Exception {
+                            return cleanseAndValidateRow(row);
+                        }
+                    }).persist(StorageLevel.fromString(params.getStorageLevel()));
 
-            final DataSet validatedDF = scs.toDataSet(getHiveContext(), newResultsRDD, sourceSchema);
+                    // Return a new rdd based on whether values are valid or invalid
+                    JavaRDD<Row> newResultsRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
+                        @Override
+                        public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                            return cleansedRowResult.row;
+                        }
+                    });
 
-            // Pull out just the valid or invalid records
-            DataSet invalidDF = null;
-            if (useDirectInsert) {
-                invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).toDF();
-            } else {
-                invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).drop(PROCESSING_DTTM_COL).toDF();
-            }
-            writeToTargetTable(invalidDF, invalidTableName);
+                    // Counts of invalid columns, total valid rows and total invalid rows
+                    fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
 
-            // Write out the valid records (dropping the two columns)
-            DataSet validDF = null;
-            if (useDirectInsert) {
-                validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).toDF();
-            } else {
-                validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).drop(PROCESSING_DTTM_COL).toDF();
+                    validatedDF = scs.toDataSet(getHiveContext(), newResultsRDD, sourceSchema);
+                }
+
+                // Pull out just the valid or invalid records
+                DataSet invalidDF = null;
+                if (useDirectInsert) {
+                    invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).toDF();
+                } else {
+                    invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).drop(PROCESSING_DTTM_COL).toDF();
+                }
+                writeToTargetTable(invalidDF, invalidTableName);
+
+                // Write out the valid records (dropping the two columns)
+                DataSet validDF = null;
+                if (useDirectInsert) {
+                    validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).toDF();
+                } else {
+                    validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).drop(PROCESSING_DTTM_COL).toDF();
+                }
+                writeToTargetTable(validDF, validTableName);
+            } finally {
+                if (stagingTable != null) {
+                    scs.sql(getHiveContext(), "DROP TABLE IF EXISTS " + stagingTable);
+                } else if (cleansedRowResultRDD != null) {
+                    cleansedRowResultRDD.unpersist();
+                }
             }
-            writeToTargetTable(validDF, validTableName);
 
             long validCount = fieldInvalidCounts[schema.length];
             long invalidCount = fieldInvalidCounts[schema.length + 1];
 
-            cleansedRowResultRDD.unpersist();
-
             log.info("Valid count {} invalid count {}", validCount, invalidCount);
 
             // Record the validation stats
@@ -489,6 +529,54 @@ public class Validator implements Serializable {
         return finalCounts;
     }
 
+    /**
+     * Creates the schema of the staging table, which adds the indexes of the invalid columns to the validated rows
+     */
+    StructType createStagingSchema(StructType sourceSchema) {
+        return sourceSchema.add(INVALID_COLUMNS_COL, DataTypes.createArrayType(DataTypes.IntegerType), true);
+    }
+
+    /**
+     * Converts a validation result to a row of the staging table
+     */
+    Row toStagingRow(CleansedRowResult cleansedRowResult) {
+        List<Integer> invalidColumns = null;
+        for (int idx = 0; idx < cleansedRowResult.columnsValid.length; idx++) {
+            if (!cleansedRowResult.columnsValid[idx]) {
+                invalidColumns = (invalidColumns == null ? new ArrayList<Integer>() : invalidColumns);
+                invalidColumns.add(idx);
+            }
+        }
+
+        Row row = cleansedRowResult.row;
+        Object[] values = new Object[row.length() + 1];
+        for (int idx = 0; idx < row.length(); idx++) {
+            values[idx] = row.get(idx);
+        }
+        values[row.length()] = invalidColumns;
+        return RowFactory.create(values);
+    }
+
+    /**
+     * Performs counts of invalid columns, total valid and total invalid on the rows of a staging table
+     */
+    long[] stagingValidationCounts(DataSet stagingDF, int schemaLength) {
+        Column[] columns = new Column[schemaLength + 2];
+        for (int idx = 0; idx < schemaLength; idx++) {
+            columns[idx] = sum(when(array_contains(col(INVALID_COLUMNS_COL), idx), 1L).otherwise(0L));
+        }
+        columns[schemaLength] = sum(when(col(VALID_INVALID_COL).equalTo("1"), 1L).otherwise(0L));
+        columns[schemaLength + 1] = sum(when(col(VALID_INVALID_COL).equalTo("1"), 0L).otherwise(1L));
+
+        // Sums are null if there are no rows
+        Row row = stagingDF.select(columns).collectAsList().get(0);
+        long[] counts = new long[columns.length];
+        for (int idx = 0; idx < counts.length; idx++) {
+            counts[idx] = row.isNullAt(idx) ? 0 : row.getLong(idx);
+        }
+        return counts;
+    }
+
     private String toJSONArray(List<ValidationResult> results) {
         // Convert to reject reasons to JSON
         StringBuffer sb = null;
@@ -636,6 +724,14 @@ public class Validator implements Serializable {
         return pols.toArray(new FieldPolicy[0]);
     }
 
+    /**
+     * Sets the target data types and policies of the fields to validate
+     */
+    void setFieldPolicies(HCatDataType[] schema, FieldPolicy[] policies) {
+        this.schema = schema;
+        this.policies = policies;
+    }
+
     private void addParameters(CommandLineParams params) {
         this.params = params;
     }
@@ -0,0 +1,652 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
+import com.thinkbiganalytics.policy.standardization.DefaultValueStandardizer;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.standardization.StripNonNumeric;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.DateValidator;
+import com.thinkbiganalytics.policy.validation.LookupValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.api.java.UDF1;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.apache.spark.sql.functions.callUDF;
+import static org.apache.spark.sql.functions.coalesce;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.length;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.not;
+import static org.apache.spark.sql.functions.regexp_replace;
+import static org.apache.spark.sql.functions.sum;
+import static org.apache.spark.sql.functions.upper;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Compiles the field policies of a table into Spark SQL expressions that cleanse and validate every row, producing the same
+ * values and reject reasons as {@link Validator#cleanseAndValidateRow(Row)}.
+ *
+ * <p>Standardizers and validators with an equivalent Spark SQL expression, such as regular expressions, lookups, ranges, dates,
+ * and not-null checks, are evaluated natively by Spark. All other policies are evaluated by user-defined functions that call the
+ * policy. Values that a native expression cannot decide exactly, such as numbers in an unusual format, are also passed to a
+ * user-defined function.</p>
+ *
+ * <p>The policies are applied in two steps. The {@link #getCheckedColumns() checked columns} contain the cleansed values and the
+ * reject reasons of each field. The {@link #getResultColumns(StructType) result columns} and {@link #getCountColumns() count
+ * columns} are then selected from the checked rows, which should be persisted. Otherwise Spark combines the steps into one
+ * expression per row that may exceed the size limit of generated code. Alternatively, the checked rows can be
+ * {@link #toCleansedRowResults(DataSet) converted} to the same results as the row-based validation.</p>
+ *
+ * <p>The compiled policies are not used by {@link Validator#doValidate()}. On Spark 1.6 the native date, number, and regex checks are
+ * slower than validating each row in Java, so they are kept with the tests for {@link ValidatorBenchmark} and to check that both
+ * validations agree.</p>
+ */
+public class CompiledFieldPolicies {
+
+    /**
+     * Name of the column with the reject reason of an empty row
+     */
+    private static final String EMPTY_REASON_COL = "dlp_reason_empty";
+
+    /**
+     * Prefix for the names of the columns with the reject reason of each field
+     */
+    private static final String REASON_COL_PREFIX = "dlp_reason_";
+
+    /**
+     * Matches integers that Java and Spark parse identically. Spark may not detect overflow so the values must fit in a long.
+     */
+    private static final String INTEGER_PATTERN = "\\A[+-]?[0-9]{1,18}\\z";
+
+    /**
+     * Matches decimal numbers that Java and Spark parse identically
+     */
+    private static final String DECIMAL_PATTERN = "\\A[+-]?(?:[0-9]+\\.?[0-9]*|\\.[0-9]+)(?:[eE][+-]?[0-9]{1,4})?\\z";
+
+    /**
+     * Matches dates in the Gregorian calendar that Joda-Time and Spark parse identically
+     */
+    private static final String DATE_PATTERN = "\\A(?:1[6-9]|[2-9][0-9])[0-9]{2}-[0-9]{2}-[0-9]{2}\\z";
+
+    /**
+     * Matches strings that are empty after trimming
+     */
+    private static final String BLANK_PATTERN = "\\A[\\x00-\\x20]*\\z";
+
+    /**
+     * Sequence for generating unique names of user-defined functions
+     */
+    private static final AtomicInteger FUNCTION_ID = new AtomicInteger();
+
+    private final Validator validator;
+    private final SQLContext context;
+
+    /**
+     * Names of the input columns
+     */
+    private final String[] fieldNames;
+
+    /**
+     * Whether each field has a reject reason column
+     */
+    private final boolean[] checked;
+
+    /**
+     * Index of the checked column with the cleansed value and, if checked, the reject reason of each field
+     */
+    private final int[] valueIndex;
+    private final int[] reasonIndex;
+
+    private final List<Column> checkedColumns = new ArrayList<>();
+
+    /**
+     * Number of checks evaluated natively, possibly with a user-defined function for unusual values, and by user-defined functions only
+     */
+    private int nativeCount;
+    private int functionCount;
+
+    /**
+     * Compiles the specified policies.
+     *
+     * @param validator the validator for user-defined functions
+     * @param context   the context for registering user-defined functions
+     * @param fields    the input columns, in the same order as the schema and policies
+     * @param schema    the target data type of each field
+     * @param policies  the policy of each field
+     */
+    public CompiledFieldPolicies(Validator validator, SQLContext context, StructField[] fields, HCatDataType[] schema, FieldPolicy[] policies) {
+        this.validator = validator;
+        this.context = context;
+        this.fieldNames = new String[schema.length];
+        this.checked = new boolean[schema.length];
+        this.valueIndex = new int[schema.length];
+        this.reasonIndex = new int[schema.length];
+
+        Column nulls = lit(1);
+
+        for (int idx = 0; idx < schema.length; idx++) {
+            // Missing fields are null, as with odd-ball data in the row-based validation
+            fieldNames[idx] = (idx < fields.length) ? fields[idx].name() : schema[idx].getName();
+            Column value = (idx < fields.length) ? col(fieldNames[idx]) : lit(null).cast(DataTypes.StringType);
+            nulls = nulls.plus(when(value.isNull(), 1).otherwise(0));
+            valueIndex[idx] = checkedColumns.size();
+            reasonIndex[idx] = -1;
+
+            // Null values and values that are not strings are passed through
+            if (schema[idx].isUnchecked() || idx >= fields.length || !DataTypes.StringType.equals(fields[idx].dataType())) {
+                checkedColumns.add(value.as(fieldNames[idx]));
+            } else {
+                Column standardized = standardizeField(policies[idx], value);
+                Column reason = validateField(policies[idx], schema[idx], standardized);
+                checkedColumns.add((standardized == value) ? value.as(fieldNames[idx]) : when(value.isNotNull(), standardized).as(fieldNames[idx]));
+
+                if (reason != null) {
+                    reason = when(value.isNotNull(), reason);
+                    reasonIndex[idx] = checkedColumns.size();
+                    checkedColumns.add(reason.as(REASON_COL_PREFIX + idx));
+                    checked[idx] = true;
+                }
+            }
+        }
+
+        // Reject rows where all values are null. That would indicate a blank line in the file.
+        checkedColumns.add(when(nulls.geq(schema.length), ValidationResult.failRow("empty", "Row is empty").toJSON()).as(EMPTY_REASON_COL));
+    }
+
+    /**
+     * Gets the columns with the cleansed values and the reject reasons.
+     *
+     * @return the checked columns
+     */
+    public Column[] getCheckedColumns() {
+        return checkedColumns.toArray(new Column[0]);
+    }
+
+    /**
+     * Gets the columns of the validated rows, as selected from the checked rows. The valid flag and reject reason are inserted before
+     * the last field, which is the processing partition.
+     *
+     * @param targetSchema the schema of the validated rows
+     * @return the result columns
+     */
+    public Column[] getResultColumns(StructType targetSchema) {
+        StructField[] targetFields = targetSchema.fields();
+        Column valid = isValid();
+        Column[] columns = new Column[fieldNames.length + 2];
+
+        for (int idx = 0; idx < fieldNames.length - 1; idx++) {
+            columns[idx] = col(fieldNames[idx]).cast(targetFields[idx].dataType()).as(targetFields[idx].name());
+        }
+
+        int last = fieldNames.length - 1;
+        columns[last] = when(valid, "1").otherwise("0").as(targetFields[last].name());
+        columns[last + 1] = when(valid, "").otherwise(concat(lit("["), concat_ws(",", getReasonColumns()), lit("]"))).as(targetFields[last + 1].name());
+        columns[last + 2] = col(fieldNames[last]).cast(targetFields[last + 2].dataType()).as(targetFields[last + 2].name());
+        return columns;
+    }
+
+    /**
+     * Gets the aggregate columns that count the invalid values of each field, followed by the number of valid rows and the number of
+     * invalid rows, as selected from the checked rows.
+     *
+     * @return the count columns
+     */
+    public Column[] getCountColumns() {
+        Column[] columns = new Column[fieldNames.length + 2];
+
+        for (int idx = 0; idx < fieldNames.length; idx++) {
+            columns[idx] = checked[idx] ? sum(when(col(REASON_COL_PREFIX + idx).isNotNull(), 1L).otherwise(0L)) : lit(0L);
+        }
+
+        Column valid = isValid();
+        columns[fieldNames.length] = sum(when(valid, 1L).otherwise(0L));
+        columns[fieldNames.length + 1] = sum(when(valid, 0L).otherwise(1L));
+        return columns;
+    }
+
+    /**
+     * Gets the reject reason columns of the checked rows, in the order of the fields
+     */
+    private Column[] getReasonColumns() {
+        List<Column> columns = new ArrayList<>();
+        for (int idx = 0; idx < fieldNames.length; idx++) {
+            if (checked[idx]) {
+                columns.add(col(REASON_COL_PREFIX + idx));
+            }
+        }
+        columns.add(col(EMPTY_REASON_COL));
+        return columns.toArray(new Column[0]);
+    }
+
+    /**
+     * Returns an expression that is {@code true} if a checked row has no reject reasons
+     */
+    private Column isValid() {
+        Column[] reasons = getReasonColumns();
+        return ((reasons.length == 1) ? reasons[0] : coalesce(reasons)).isNull();
+    }
+
+    /**
+     * Converts the row of aggregated count columns into the same counts as {@link Validator#cleansedRowResultsValidationCounts}.
+     *
+     * @param row the result of the count columns
+     * @return the invalid counts of each field, followed by the valid and invalid row counts
+     */
+    public long[] toValidationCounts(Row row) {
+        long[] counts = new long[row.length()];
+        for (int idx = 0; idx < counts.length; idx++) {
+            counts[idx] = row.isNullAt(idx) ? 0 : ((Number) row.get(idx)).longValue();
+        }
+        return counts;
+    }
+
+    /**
+     * Converts the checked rows into the same results as {@link Validator#cleanseAndValidateRow(Row)}.
+     *
+     * @param checkedDF the checked rows
+     * @return the cleansed rows and their validation results
+     */
+    public JavaRDD<CleansedRowResult> toCleansedRowResults(DataSet checkedDF) {
+        return checkedDF.javaRDD().map(new CleansedRowFunction(valueIndex, reasonIndex, checkedColumns.size() - 1));
+    }
+
+    /**
+     * Gets the number of standardizers, schema checks, and validators that are evaluated natively by Spark.
+     */
+    public int getNativeCount() {
+        return nativeCount;
+    }
+
+    /**
+     * Gets the number of standardizers, schema checks, and validators that are evaluated only by user-defined functions.
+     */
+    public int getFunctionCount() {
+        return functionCount;
+    }
+
+    /**
+     * Applies the standardization policies
+     */
+    private Column standardizeField(FieldPolicy fieldPolicy, Column value) {
+        Column newValue = value;
+        List<StandardizationPolicy> standardizationPolicies = fieldPolicy.getStandardizationPolicies();
+        if (standardizationPolicies != null) {
+            Column isEmpty = value.equalTo("");
+            for (StandardizationPolicy standardizationPolicy : standardizationPolicies) {
+                Column converted = compileStandardizer(standardizationPolicy, newValue);
+                newValue = (standardizationPolicy instanceof AcceptsEmptyValues) ? converted : when(isEmpty, newValue).otherwise(converted);
+            }
+        }
+        return newValue;
+    }
+
+    /**
+     * Converts a standardizer to an expression
+     */
+    private Column compileStandardizer(StandardizationPolicy standardizer, Column value) {
+        Class<?> type = standardizer.getClass();
+        if (type == SimpleRegexReplacer.class || type == StripNonNumeric.class) {
+            SimpleRegexReplacer replacer = (SimpleRegexReplacer) standardizer;
+            ++nativeCount;
+            return replacer.isValid() ? regexp_replace(value, replacer.getPattern().pattern(), replacer.getReplacement()) : value;
+        } else if (type == UppercaseStandardizer.class) {
+            ++nativeCount;
+            return upper(value);
+        } else if (type == DefaultValueStandardizer.class) {
+            ++nativeCount;
+            return when(value.isNull().or(value.equalTo("")), ((DefaultValueStandardizer) standardizer).getDefaultStr()).otherwise(value);
+        } else {
+            return callFunction(new StandardizerFunction(standardizer), value);
+        }
+    }
+
+    /**
+     * Returns the reject reason of the first failed check, or {@code null} if the value is valid
+     */
+    private Column validateField(FieldPolicy fieldPolicy, HCatDataType fieldDataType, Column value) {
+        List<Column> checks = new ArrayList<>();
+
+        // Verify new value is compatible with the target Hive schema e.g. integer, double (unless checking is disabled)
+        boolean checkSchema = !fieldPolicy.shouldSkipSchemaValidation();
+        if (checkSchema) {
+            addCheck(checks, compileSchemaCheck(fieldDataType, value));
+        }
+
+        // Validate type using provided validators
+        List<ValidationPolicy> validators = fieldPolicy.getValidators();
+        if (validators != null) {
+            for (ValidationPolicy validationPolicy : validators) {
+                addCheck(checks, compileValidator(validationPolicy, fieldDataType, value, checkSchema));
+            }
+        }
+
+        Column isEmpty = value.isNull().or(value.equalTo(""));
+        Column reason = checks.isEmpty() ? null : (checks.size() == 1) ? checks.get(0) : coalesce(checks.toArray(new Column[0]));
+
+        if (fieldPolicy.isNullable()) {
+            return (reason != null) ? when(not(isEmpty), reason) : null;
+        } else {
+            String nullReason = ValidationResult.failField("null", fieldDataType.getName(), "Cannot be null").toJSON();
+            return (reason != null) ? when(isEmpty, nullReason).otherwise(reason) : when(isEmpty, nullReason);
+        }
+    }
+
+    private void addCheck(List<Column> checks, Column check) {
+        if (check != null) {
+            checks.add(check);
+        }
+    }
+
+    /**
+     * Converts the schema validation to an expression, or returns {@code null} if all values are valid
+     */
+    private Column compileSchemaCheck(HCatDataType dataType, Column value) {
+        String reason = ValidationResult.failField("incompatible", dataType.getName(), "Not convertible to " + dataType.getNativeType()).toJSON();
+        Class<?> type = dataType.getConvertibleType();
+
+        if ((Boolean) readField(dataType, "isstring")) {
+            long maxLength = (Long) readField(dataType, "maxlength");
+            if (maxLength == Long.MAX_VALUE) {
+                return null;
+            }
+            // Spark counts code points but Java counts UTF-16 characters, which may be up to twice as many
+            ++nativeCount;
+            Column length = length(value);
+            return when(length.gt(maxLength), reason).when(length.gt(maxLength / 2), callConvertible(dataType, reason, value));
+        } else if (type == Integer.class || type == java.math.BigInteger.class) {
+            Column number = value.cast(DataTypes.LongType);
+            Column invalid = number.isNull();
+            if (type == Integer.class) {
+                Number min = (Number) readField(dataType, "min");
+                Number max = (Number) readField(dataType, "max");
+                invalid = invalid.or(number.lt(min.longValue())).or(number.gt(max.longValue()));
+            }
+            ++nativeCount;
+            return when(value.rlike(INTEGER_PATTERN), when(invalid, reason)).otherwise(callConvertible(dataType, reason, value));
+        } else if (type == Double.class || type == Float.class) {
+            Column number = value.cast((type == Float.class) ? DataTypes.FloatType : DataTypes.DoubleType);
+            Column invalid = number.isNull().or(number.lt(readField(dataType, "min"))).or(number.gt(readField(dataType, "max")));
+            ++nativeCount;
+            return when(value.rlike(DECIMAL_PATTERN), when(invalid, reason)).otherwise(callConvertible(dataType, reason, value));
+        } else if (type == Date.class) {
+            ++nativeCount;
+            return when(value.rlike(DATE_PATTERN), when(not(isDate(value)), reason)).otherwise(callConvertible(dataType, reason, value));
+        } else {
+            ++functionCount;
+            return callConvertible(dataType, reason, value);
+        }
+    }
+
+    /**
+     * Converts a validator to an expression, or returns {@code null} if all values are valid
+     */
+    private Column compileValidator(ValidationPolicy validationPolicy, HCatDataType dataType, Column value, boolean checkSchema) {
+        String reason = ValidationResult.failFieldRule("rule", dataType.getName(), validationPolicy.getClass().getSimpleName(), "Rule violation").toJSON();
+        Class<?> type = validationPolicy.getClass();
+
+        if (type == NotNullValidator.class) {
+            // Values are never null or empty when validated
+            NotNullValidator notNull = (NotNullValidator) validationPolicy;
+            ++nativeCount;
+            return (!notNull.isAllowEmptyString() && notNull.isTrimString()) ? when(value.rlike(BLANK_PATTERN), reason) : null;
+        } else if (type == RegexValidator.class && isNativeRegex((RegexValidator) validationPolicy)) {
+            RegexValidator regex = (RegexValidator) validationPolicy;
+            ++nativeCount;
+            return (regex.getPattern() != null) ? when(not(value.rlike(matchesPattern(regex.getRegexExpression()))), reason) : null;
+        } else if (type == LookupValidator.class) {
+            Object[] values = ((LookupValidator) validationPolicy).getLookupValues().toArray();
+            ++nativeCount;
+            return (values.length > 0) ? when(not(value.isin(values)), reason) : lit(reason);
+        } else if (type == RangeValidator.class && checkSchema && (Boolean) readField(dataType, "isnumeric")) {
+            // Numbers that passed schema validation have the same double value in Java and Spark
+            RangeValidator range = (RangeValidator) validationPolicy;
+            Column number = value.cast((dataType.getConvertibleType() == Float.class) ? DataTypes.FloatType : DataTypes.DoubleType);
+            Column invalid = lit(false);
+            if (range.getMin() != null) {
+                invalid = invalid.or(number.lt(range.getMin().doubleValue()));
+            }
+            if (range.getMax() != null) {
+                invalid = invalid.or(number.gt(range.getMax().doubleValue()));
+            }
+            ++nativeCount;
+            return when(invalid, reason);
+        } else if (type == DateValidator.class) {
+            ++nativeCount;
+            return when(value.rlike(DATE_PATTERN), when(not(isDate(value)), reason)).otherwise(registerFunction(new ValidatorFunction(validator, validationPolicy, dataType), value));
+        } else {
+            return callFunction(new ValidatorFunction(validator, validationPolicy, dataType), value);
+        }
+    }
+
+    /**
+     * Determines if the regular expression can be evaluated by Spark with the same result
+     */
+    private boolean isNativeRegex(RegexValidator regex) {
+        if (regex.getPattern() == null) {
+            return true;
+        }
+        // Comments and quotes in the expression may extend to the end of the pattern
+        try {
+            Pattern.compile(matchesPattern(regex.getRegexExpression()));
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a regular expression to one that must match the entire value
+     */
+    private String matchesPattern(String regex) {
+        return "\\A(?:" + regex + ")\\z";
+    }
+
+    /**
+     * Returns an expression that is {@code true} if the value matching {@link #DATE_PATTERN} is a valid date
+     */
+    private Column isDate(Column value) {
+        return coalesce(value.cast(DataTypes.DateType).cast(DataTypes.StringType).equalTo(value), lit(false));
+    }
+
+    /**
+     * Calls {@link HCatDataType#isValueConvertibleToType(String)} for values that cannot be checked natively
+     */
+    private Column callConvertible(HCatDataType dataType, String reason, Column value) {
+        return registerFunction(new ConvertibleFunction(dataType, reason), value);
+    }
+
+    /**
+     * Calls a user-defined function for a policy that cannot be evaluated natively
+     */
+    private Column callFunction(UDF1<String, String> function, Column value) {
+        ++functionCount;
+        return registerFunction(function, value);
+    }
+
+    /**
+     * Registers and calls a user-defined function
+     */
+    private Column registerFunction(UDF1<String, String> function, Column value) {
+        String name = "kylo_policy_" + FUNCTION_ID.incrementAndGet();
+        context.udf().register(name, function, DataTypes.StringType);
+        return callUDF(name, value);
+    }
+
+    /**
+     * Reads a property of the data type that has no accessor, such as the maximum length or the numeric range
+     */
+    private static Object readField(HCatDataType dataType, String name) {
+        try {
+            return FieldUtils.readField(dataType, name, true);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to read " + name + " of data type: " + dataType.getName(), e);
+        }
+    }
+
+    /**
+     * Converts a checked row into a cleansed row with the valid flag and reject reason inserted before the processing partition
+     */
+    private static class CleansedRowFunction implements Function<Row, CleansedRowResult> {
+
+        private static final long serialVersionUID = 6302915487212573380L;
+
+        private final int[] valueIndex;
+        private final int[] reasonIndex;
+        private final int emptyReasonIndex;
+
+        CleansedRowFunction(int[] valueIndex, int[] reasonIndex, int emptyReasonIndex) {
+            this.valueIndex = valueIndex;
+            this.reasonIndex = reasonIndex;
+            this.emptyReasonIndex = emptyReasonIndex;
+        }
+
+        @Override
+        public CleansedRowResult call(Row row) throws Exception {
+            int length = valueIndex.length;
+            Object[] newValues = new Object[length + 2];
+            boolean[] columnsValid = new boolean[length];
+            StringBuilder rejectReason = new StringBuilder();
+
+            for (int idx = 0; idx < length; idx++) {
+                newValues[idx] = row.get(valueIndex[idx]);
+                String reason = (reasonIndex[idx] >= 0) ? row.getString(reasonIndex[idx]) : null;
+                columnsValid[idx] = (reason == null);
+                appendReason(rejectReason, reason);
+            }
+            appendReason(rejectReason, row.getString(emptyReasonIndex));
+
+            boolean rowValid = (rejectReason.length() == 0);
+            if (!rowValid) {
+                rejectReason.append("]");
+            }
+
+            // Move processing partition value last
+            newValues[length + 1] = newValues[length - 1];
+            newValues[length] = rejectReason.toString();
+            newValues[length - 1] = (rowValid ? "1" : "0");
+
+            CleansedRowResult cleansedRowResult = new CleansedRowResult();
+            cleansedRowResult.row = RowFactory.create(newValues);
+            cleansedRowResult.columnsValid = columnsValid;
+            cleansedRowResult.rowIsValid = rowValid;
+            return cleansedRowResult;
+        }
+
+        private static void appendReason(StringBuilder rejectReason, String reason) {
+            if (reason != null) {
+                rejectReason.append((rejectReason.length() == 0) ? "[" : ",").append(reason);
+            }
+        }
+    }
+
+    /**
+     * Applies a standardizer to a value
+     */
+    private static class StandardizerFunction implements UDF1<String, String> {
+
+        private static final long serialVersionUID = -8413585349315716102L;
+
+        private final StandardizationPolicy standardizer;
+
+        StandardizerFunction(StandardizationPolicy standardizer) {
+            this.standardizer = standardizer;
+        }
+
+        @Override
+        public String call(String value) throws Exception {
+            return standardizer.convertValue(value);
+        }
+    }
+
+    /**
+     * Returns the reject reason if a value is not convertible to its data type
+     */
+    private static class ConvertibleFunction implements UDF1<String, String> {
+
+        private static final long serialVersionUID = 4406460513542155203L;
+
+        private final HCatDataType dataType;
+        private final String reason;
+
+        ConvertibleFunction(HCatDataType dataType, String reason) {
+            this.dataType = dataType;
+            this.reason = reason;
+        }
+
+        @Override
+        public String call(String value) throws Exception {
+            return dataType.isValueConvertibleToType(value) ? null : reason;
+        }
+    }
+
+    /**
+     * Returns the reject reason if a value fails a validator
+     */
+    private static class ValidatorFunction implements UDF1<String, String> {
+
+        private static final long serialVersionUID = 2725187574585373154L;
+
+        private final Validator validator;
+        private final ValidationPolicy validationPolicy;
+        private final HCatDataType dataType;
+
+        ValidatorFunction(Validator validator, ValidationPolicy validationPolicy, HCatDataType dataType) {
+            this.validator = validator;
+            this.validationPolicy = validationPolicy;
+            this.dataType = dataType;
+        }
+
+        @Override
+        public String call(String value) throws Exception {
+            ValidationResult result = validator.validateValue(validationPolicy, dataType, value);
+            return result.isValid() ? null : result.toJSON();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.holdenkarau.spark.testing.SharedJavaSparkContext;
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.DefaultValueStandardizer;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.StripNonNumeric;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LookupValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.USPhoneValidator;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CompiledFieldPoliciesTest extends SharedJavaSparkContext implements Serializable {
+
+    private static final long serialVersionUID = 2281655460390712735L;
+
+    private static final String[] NAMES = {"id", "name", "code", "state", "amount", "created", "phone", "processing_dttm"};
+
+    private static final String[] TYPES = {"int", "string", "varchar(5)", "string", "double", "date", "string", "string"};
+
+    /**
+     * Input rows with null, empty, blank, invalid, and boundary values
+     */
+    private static final Object[][] VALUES = {
+        {"1", "banana", "ab", "CA", "12.50", "2017-01-31", "(415) 555-0100", "1"},
+        {"2", "Anna", "banana", "", "1000", "2017-02-29", "555-0100", "1"},
+        {"", "  ", "a", null, "1000.01", "2016-02-29", null, "1"},
+        {null, null, null, "NA", "-0.0", "17-01-01", "", "1"},
+        {"2147483648", "", "", "TX", "1e3", "2017-13-01", "4155550100", "1"},
+        {"-2147483648", "x", "AAAAA", "ny", "n/a", "", "+1 415 555 0100", "1"},
+        {" 7", "tab\t", "aaaaaa", "CA", ".5", "1999-12-31 ", "415.555.0100", "1"},
+        {null, null, null, null, null, null, null, null}
+    };
+
+    private AnnotationConfigApplicationContext ctx;
+
+    private SQLContext sqlContext;
+
+    private SparkContextService scs;
+
+    private Validator validator;
+
+    private HCatDataType[] schema;
+
+    private FieldPolicy[] policies;
+
+    @Before
+    public void setUp() {
+        sqlContext = new SQLContext(jsc());
+        ctx = new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark");
+        scs = ctx.getBean(SparkContextService.class);
+
+        schema = new HCatDataType[NAMES.length];
+        for (int idx = 0; idx < NAMES.length; idx++) {
+            schema[idx] = HCatDataType.createFromDataType(NAMES[idx], TYPES[idx]);
+        }
+
+        // The name and code standardizers give different values if applied in the wrong order
+        policies = new FieldPolicy[]{
+            FieldPolicyBuilder.newBuilder().fieldName("id").disallowNullOrEmpty().build(),
+            FieldPolicyBuilder.newBuilder().fieldName("name").addStandardizer(new SimpleRegexReplacer("a", "x")).addStandardizer(UppercaseStandardizer.instance())
+                .addValidator(new NotNullValidator(false, true)).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("code").addStandardizer(UppercaseStandardizer.instance()).addStandardizer(new SimpleRegexReplacer("A", "x")).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("state").addStandardizer(new DefaultValueStandardizer("NA")).addValidator(new LookupValidator("CA,NY,NA")).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("amount").addValidator(new RangeValidator(0, 1000)).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("created").build(),
+            FieldPolicyBuilder.newBuilder().fieldName("phone").addStandardizer(StripNonNumeric.instance()).addValidator(USPhoneValidator.instance()).build(),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+
+        validator = new Validator();
+        validator.setFieldPolicies(schema, policies);
+    }
+
+    @After
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Test
+    public void testCleansedRowResults() {
+        CompiledFieldPolicies compiled = new CompiledFieldPolicies(validator, sqlContext, inputSchema().fields(), schema, policies);
+        DataSet input = input();
+        List<CleansedRowResult> results = compiled.toCleansedRowResults(input.select(compiled.getCheckedColumns())).collect();
+
+        assertEquals(VALUES.length, results.size());
+        for (int idx = 0; idx < VALUES.length; idx++) {
+            CleansedRowResult expected = validator.cleanseAndValidateRow(RowFactory.create(VALUES[idx]));
+            CleansedRowResult actual = results.get(idx);
+            assertEquals("row " + idx, expected.row, actual.row);
+            assertArrayEquals("row " + idx, expected.columnsValid, actual.columnsValid);
+            assertEquals("row " + idx, expected.rowIsValid, actual.rowIsValid);
+        }
+    }
+
+    @Test
+    public void testResultColumns() {
+        CompiledFieldPolicies compiled = new CompiledFieldPolicies(validator, sqlContext, inputSchema().fields(), schema, policies);
+        DataSet input = input();
+        List<Row> rows = input.select(compiled.getCheckedColumns()).select(compiled.getResultColumns(targetSchema())).collectAsList();
+
+        assertEquals(VALUES.length, rows.size());
+        for (int idx = 0; idx < VALUES.length; idx++) {
+            assertEquals("row " + idx, validator.cleanseAndValidateRow(RowFactory.create(VALUES[idx])).row, rows.get(idx));
+        }
+    }
+
+    @Test
+    public void testValidationCounts() {
+        CompiledFieldPolicies compiled = new CompiledFieldPolicies(validator, sqlContext, inputSchema().fields(), schema, policies);
+        DataSet input = input();
+        long[] counts = compiled.toValidationCounts(input.select(compiled.getCheckedColumns()).select(compiled.getCountColumns()).collectAsList().get(0));
+
+        List<CleansedRowResult> expected = new ArrayList<>();
+        for (Object[] values : VALUES) {
+            expected.add(validator.cleanseAndValidateRow(RowFactory.create(values)));
+        }
+        long[] expectedCounts = validator.cleansedRowResultsValidationCounts(jsc().parallelize(expected, 3), schema.length);
+
+        assertArrayEquals(Arrays.toString(counts), expectedCounts, counts);
+        assertArrayEquals(new long[]{3, 1, 2, 2, 2, 4, 1, 0, 1, 7}, counts);
+    }
+
+    private DataSet input() {
+        List<Row> rows = new ArrayList<>();
+        for (Object[] values : VALUES) {
+            rows.add(RowFactory.create(values));
+        }
+        return scs.toDataSet(sqlContext, jsc().parallelize(rows, 2), inputSchema());
+    }
+
+    private StructType inputSchema() {
+        List<StructField> fields = new ArrayList<>();
+        for (String name : NAMES) {
+            fields.add(DataTypes.createStructField(name, DataTypes.StringType, true));
+        }
+        return DataTypes.createStructType(fields);
+    }
+
+    private StructType targetSchema() {
+        List<StructField> fields = new ArrayList<>();
+        for (int idx = 0; idx < NAMES.length - 1; idx++) {
+            fields.add(DataTypes.createStructField(NAMES[idx], DataTypes.StringType, true));
+        }
+        fields.add(DataTypes.createStructField("dlp_valid", DataTypes.StringType, true));
+        fields.add(DataTypes.createStructField("dlp_reject_reason", DataTypes.StringType, true));
+        fields.add(DataTypes.createStructField(NAMES[NAMES.length - 1], DataTypes.StringType, true));
+        return DataTypes.createStructType(fields);
+    }
+}
@@ -0,0 +1,270 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.StripNonNumeric;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.LookupValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.RegexValidator;
+import com.thinkbiganalytics.policy.validation.USPhoneValidator;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.spark.SparkConf;
+import org.apache.spark.SparkContext;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.lpad;
+import static org.apache.spark.sql.functions.when;
+
+/**
+ * Compares the rows per second of the {@link Validator} when validating each row and when using {@link CompiledFieldPolicies}, with
+ * the validated rows either persisted or written once to staging files partitioned by the valid flag. The valid and invalid rows
+ * are written as Parquet files in place of the target tables.
+ *
+ * This is not run with the unit tests.  Run it in local mode with {@code mvn test -Dtest=ValidatorBenchmark}.
+ */
+public class ValidatorBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidatorBenchmark.class);
+
+    private static final String[] NAMES = {"id", "name", "email", "state", "amount", "created", "phone", "processing_dttm"};
+
+    private static final String[] TYPES = {"int", "string", "string", "string", "double", "date", "varchar(20)", "string"};
+
+    private static final StorageLevel STORAGE_LEVEL = StorageLevel.MEMORY_AND_DISK();
+
+    private static final long ROWS = 50000000L;
+
+    @Test
+    public void benchmark() throws IOException {
+        long rows = ROWS;
+        int partitions = Runtime.getRuntime().availableProcessors() * 4;
+
+        SparkContext sparkContext = SparkContext.getOrCreate(new SparkConf().setAppName("ValidatorBenchmark").setIfMissing("spark.master", "local[*]"));
+        SQLContext sqlContext = new SQLContext(sparkContext);
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark");
+        SparkContextService scs = ctx.getBean(SparkContextService.class);
+
+        HCatDataType[] schema = new HCatDataType[NAMES.length];
+        for (int idx = 0; idx < NAMES.length; idx++) {
+            schema[idx] = HCatDataType.createFromDataType(NAMES[idx], TYPES[idx]);
+        }
+        FieldPolicy[] policies = {
+            FieldPolicyBuilder.newBuilder().fieldName("id").disallowNullOrEmpty().build(),
+            FieldPolicyBuilder.newBuilder().fieldName("name").disallowNullOrEmpty().addStandardizer(UppercaseStandardizer.instance()).addValidator(new NotNullValidator(false, true)).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("email").addValidator(new RegexValidator("[a-z0-9.]+@[a-z]+\\.com")).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("state").addValidator(new LookupValidator("CA,NY,TX,WA")).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("amount").addValidator(new RangeValidator(0, 1000)).build(),
+            FieldPolicyBuilder.newBuilder().fieldName("created").build(),
+            FieldPolicyBuilder.newBuilder().fieldName("phone").addStandardizer(StripNonNumeric.instance()).addValidator(USPhoneValidator.instance()).build(),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+
+        Validator validator = ctx.getBean(Validator.class);
+        validator.setFieldPolicies(schema, policies);
+
+        DataSet input = cache(scs, sqlContext, generate(scs, sqlContext, rows, partitions), "input_rows");
+        log.info("Generated {} rows in {} partitions", input.count(), partitions);
+
+        StructType targetSchema = targetSchema();
+        File dir = Files.createTempDirectory("ValidatorBenchmark").toFile();
+        try {
+            for (int run = 0; run < 2; run++) {
+                long rowMillis = validateRows(validator, scs, sqlContext, input, targetSchema, dir);
+                long compiledMillis = validateCompiled(validator, scs, sqlContext, input, schema, policies, targetSchema, dir);
+                long singlePassRowMillis = validateSinglePass(validator, scs, sqlContext, input, null, targetSchema, dir);
+                CompiledFieldPolicies compiled = new CompiledFieldPolicies(validator, sqlContext, input.schema().fields(), schema, policies);
+                long singlePassCompiledMillis = validateSinglePass(validator, scs, sqlContext, input, compiled, targetSchema, dir);
+                log.info(String.format("Run %d: %,d rows/sec validating each row, %,d rows/sec with compiled policies", run + 1, rows * 1000 / Math.max(rowMillis, 1),
+                                       rows * 1000 / Math.max(compiledMillis, 1)));
+                log.info(String.format("Run %d single pass: %,d rows/sec validating each row, %,d rows/sec with compiled policies", run + 1,
+                                       rows * 1000 / Math.max(singlePassRowMillis, 1), rows * 1000 / Math.max(singlePassCompiledMillis, 1)));
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+
+        sqlContext.uncacheTable("input_rows");
+        ctx.close();
+        sparkContext.stop();
+    }
+
+    /**
+     * Generates feed rows of strings, with some values that fail each policy
+     */
+    private static DataSet generate(SparkContextService scs, SQLContext sqlContext, long rows, int partitions) {
+        Column id = col("id");
+        return scs.toDataSet(sqlContext.range(0, rows, 1, partitions)).select(
+            when(id.mod(97).equalTo(0), "n/a").otherwise(id.cast(DataTypes.StringType)).as("id"),
+            when(id.mod(101).equalTo(0), " ").otherwise(concat(lit("name"), id.mod(1000).cast(DataTypes.StringType))).as("name"),
+            concat(lit("user"), id.mod(5000).cast(DataTypes.StringType), when(id.mod(89).equalTo(0), "#").otherwise(""), lit("@example.com")).as("email"),
+            when(id.mod(53).equalTo(0), "ZZ").when(id.mod(4).equalTo(0), "CA").when(id.mod(4).equalTo(1), "NY").when(id.mod(4).equalTo(2), "TX").otherwise("WA").as("state"),
+            concat(id.mod(1050).cast(DataTypes.StringType), lit("."), id.mod(100).cast(DataTypes.StringType)).as("amount"),
+            concat(lit("2017-"), lpad(id.mod(12).plus(1).cast(DataTypes.StringType), 2, "0"), lit("-"), lpad(id.mod(31).plus(1).cast(DataTypes.StringType), 2, "0")).as("created"),
+            concat(lit("("), id.mod(800).plus(200).cast(DataTypes.StringType), lit(") 555-"), lpad(id.mod(10000).cast(DataTypes.StringType), 4, "0")).as("phone"),
+            lit("1500000000000").as("processing_dttm"));
+    }
+
+    /**
+     * Validates each row as in {@link Validator#doValidate()} and returns the elapsed milliseconds
+     */
+    private static long validateRows(final Validator validator, SparkContextService scs, SQLContext sqlContext, DataSet input, StructType targetSchema, File dir) {
+        long start = System.currentTimeMillis();
+
+        JavaRDD<CleansedRowResult> cleansedRowResultRDD = input.javaRDD().map(new Function<Row, CleansedRowResult>() {
+            @Override
+            public CleansedRowResult call(Row row) throws Exception {
+                return validator.cleanseAndValidateRow(row);
+            }
+        }).persist(STORAGE_LEVEL);
+        long[] counts = validator.cleansedRowResultsValidationCounts(cleansedRowResultRDD, NAMES.length);
+
+        JavaRDD<Row> newResultsRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
+            @Override
+            public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                return cleansedRowResult.row;
+            }
+        });
+        write(sqlContext, scs.toDataSet(sqlContext, newResultsRDD, targetSchema), dir);
+        cleansedRowResultRDD.unpersist();
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Validating each row: {} in {} ms", Arrays.toString(counts), elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Validates with compiled policies as in {@link Validator#doValidate()} and returns the elapsed milliseconds
+     */
+    private static long validateCompiled(Validator validator, SparkContextService scs, SQLContext sqlContext, DataSet input, HCatDataType[] schema, FieldPolicy[] policies,
+                                         StructType targetSchema, File dir) {
+        long start = System.currentTimeMillis();
+
+        CompiledFieldPolicies compiled = new CompiledFieldPolicies(validator, sqlContext, input.schema().fields(), schema, policies);
+        DataSet checkedDF = cache(scs, sqlContext, input.select(compiled.getCheckedColumns()), "checked_rows");
+        long[] counts = compiled.toValidationCounts(checkedDF.select(compiled.getCountColumns()).collectAsList().get(0));
+        write(sqlContext, checkedDF.select(compiled.getResultColumns(targetSchema)), dir);
+        sqlContext.uncacheTable("checked_rows");
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Compiled policies ({} native, {} functions): {} in {} ms", compiled.getNativeCount(), compiled.getFunctionCount(), Arrays.toString(counts), elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Validates each row once, as in {@link Validator#doValidate()} with a single-pass write, and returns the elapsed milliseconds
+     *
+     * @param compiled the compiled policies, or {@code null} to validate each row
+     */
+    private static long validateSinglePass(final Validator validator, SparkContextService scs, SQLContext sqlContext, DataSet input, CompiledFieldPolicies compiled,
+                                           StructType targetSchema, File dir) {
+        long start = System.currentTimeMillis();
+
+        JavaRDD<CleansedRowResult> cleansedRowResultRDD;
+        if (compiled != null) {
+            cleansedRowResultRDD = compiled.toCleansedRowResults(input.select(compiled.getCheckedColumns()));
+        } else {
+            cleansedRowResultRDD = input.javaRDD().map(new Function<Row, CleansedRowResult>() {
+                @Override
+                public CleansedRowResult call(Row row) throws Exception {
+                    return validator.cleanseAndValidateRow(row);
+                }
+            });
+        }
+
+        JavaRDD<Row> stagingRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
+            @Override
+            public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                return validator.toStagingRow(cleansedRowResult);
+            }
+        });
+
+        String staging = new File(dir, "staging").getPath();
+        sqlContext.createDataFrame(stagingRDD, validator.createStagingSchema(targetSchema)).write().mode(SaveMode.Overwrite).partitionBy("dlp_valid").parquet(staging);
+        DataSet stagingDF = scs.toDataSet(sqlContext.read().parquet(staging));
+        long[] counts = validator.stagingValidationCounts(stagingDF, NAMES.length);
+        write(sqlContext, stagingDF.drop("dlp_invalid_columns"), dir);
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Single pass {}: {} in {} ms", (compiled != null) ? "with compiled policies" : "validating each row", Arrays.toString(counts), elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Caches the rows in memory as a temporary table
+     */
+    private static DataSet cache(SparkContextService scs, SQLContext sqlContext, DataSet dataSet, String tableName) {
+        dataSet.registerTempTable(tableName);
+        sqlContext.cacheTable(tableName);
+        return scs.toDataSet(sqlContext, tableName);
+    }
+
+    /**
+     * Writes the valid and invalid rows to Parquet files in place of the target tables
+     */
+    private static void write(SQLContext sqlContext, DataSet validatedDF, File dir) {
+        validatedDF.filter("dlp_valid = '0'").drop("dlp_valid").registerTempTable("invalid_rows");
+        sqlContext.table("invalid_rows").write().mode(SaveMode.Overwrite).parquet(new File(dir, "invalid").getPath());
+        validatedDF.filter("dlp_valid = '1'").drop("dlp_valid").drop("dlp_reject_reason").registerTempTable("valid_rows");
+        sqlContext.table("valid_rows").write().mode(SaveMode.Overwrite).parquet(new File(dir, "valid").getPath());
+    }
+
+    private static StructType targetSchema() {
+        List<StructField> fields = new ArrayList<>();
+        for (int idx = 0; idx < NAMES.length - 1; idx++) {
+            fields.add(DataTypes.createStructField(NAMES[idx], DataTypes.StringType, true));
+        }
+        fields.add(DataTypes.createStructField("dlp_valid", DataTypes.StringType, true));
+        fields.add(DataTypes.createStructField("dlp_reject_reason", DataTypes.StringType, true));
+        fields.add(DataTypes.createStructField(NAMES[NAMES.length - 1], DataTypes.StringType, true));
+        return DataTypes.createStructType(fields);
+    }
+}
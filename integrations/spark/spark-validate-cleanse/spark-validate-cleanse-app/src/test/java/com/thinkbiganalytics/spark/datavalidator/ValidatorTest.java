@@ -23,17 +23,27 @@ package com.thinkbiganalytics.spark.datavalidator;
 import com.holdenkarau.spark.testing.SharedJavaSparkContext;
 import com.thinkbiganalytics.policy.FieldPoliciesJsonTransformer;
 import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
 import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
 import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
 import com.thinkbiganalytics.policy.validation.NotNullValidator;
 import com.thinkbiganalytics.policy.validation.RangeValidator;
 import com.thinkbiganalytics.policy.validation.ValidationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import java.io.Serializable;
 import java.net.URL;
@@ -177,4 +187,58 @@ public class ValidatorTest extends SharedJavaSparkContext implements Serializabl
         // Run assertions on output and expected output
         assertArrayEquals(expectedOutput, output);
     }
+
+    @Test
+    public void testStagingValidationCounts() {
+        HCatDataType[] schema = {HCatDataType.createFromDataType("id", "int"), HCatDataType.createFromDataType("name", "string"),
+                                 HCatDataType.createFromDataType("processing_dttm", "string")};
+        FieldPolicy[] policies = {FieldPolicyBuilder.newBuilder().fieldName("id").disallowNullOrEmpty().build(),
+                                  FieldPolicyBuilder.newBuilder().fieldName("name").addValidator(new NotNullValidator(false, true)).build(),
+                                  FieldPolicyBuilder.SKIP_VALIDATION};
+        validator.setFieldPolicies(schema, policies);
+
+        List<Row> input = Arrays.asList(RowFactory.create("1", "a", "1"), RowFactory.create("x", "b", "1"), RowFactory.create(null, " ", "1"),
+                                        RowFactory.create("2", null, "1"), RowFactory.create(null, null, null));
+        JavaRDD<CleansedRowResult> cleansedRowResultRDD = jsc().parallelize(input, 2).map(new Function<Row, CleansedRowResult>() {
+            @Override
+            public CleansedRowResult call(Row row) throws Exception {
+                return validator.cleanseAndValidateRow(row);
+            }
+        });
+        JavaRDD<Row> stagingRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
+            @Override
+            public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                return validator.toStagingRow(cleansedRowResult);
+            }
+        });
+        JavaRDD<Row> newResultsRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
+            @Override
+            public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                return cleansedRowResult.row;
+            }
+        });
+
+        StructType sourceSchema = DataTypes.createStructType(Arrays.asList(DataTypes.createStructField("id", DataTypes.StringType, true),
+                                                                           DataTypes.createStructField("name", DataTypes.StringType, true),
+                                                                           DataTypes.createStructField("dlp_valid", DataTypes.StringType, true),
+                                                                           DataTypes.createStructField("dlp_reject_reason", DataTypes.StringType, true),
+                                                                           DataTypes.createStructField("processing_dttm", DataTypes.StringType, true)));
+
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext("com.thinkbiganalytics.spark");
+        try {
+            SparkContextService scs = ctx.getBean(SparkContextService.class);
+            DataSet stagingDF = scs.toDataSet(new SQLContext(jsc()), stagingRDD, validator.createStagingSchema(sourceSchema));
+
+            // Same counts and rows as the persisted validation results
+            long[] counts = validator.stagingValidationCounts(stagingDF, schema.length);
+            assertArrayEquals(validator.cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length), counts);
+            assertArrayEquals(new long[]{1, 1, 0, 2, 3}, counts);
+            assertEquals(newResultsRDD.collect(), stagingDF.drop("dlp_invalid_columns").collectAsList());
+
+            // Sums are null without any rows
+            assertArrayEquals(new long[5], validator.stagingValidationCounts(stagingDF.filter("dlp_valid = '2'"), schema.length));
+        } finally {
+            ctx.close();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package com.thinkbiganalytics.metadata.api.event.security;
+
+/*-
+ * #%L
+ * thinkbig-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.event.MetadataChange;
+
+import java.util.Objects;
+
+/**
+ * Describes a change to the actions that are allowed for a module.
+ */
+public class AllowedActionsChange extends MetadataChange {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String moduleName;
+
+    public AllowedActionsChange(ChangeType change, String descr, String moduleName) {
+        super(change, descr);
+        this.moduleName = moduleName;
+    }
+
+    public AllowedActionsChange(ChangeType change, String moduleName) {
+        this(change, "", moduleName);
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), this.moduleName);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof AllowedActionsChange) {
+            AllowedActionsChange that = (AllowedActionsChange) obj;
+            return super.equals(that) &&
+                   Objects.equals(this.moduleName, that.moduleName);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Allowed actions change ");
+        return sb
+            .append("(").append(getChange()).append(") - ")
+            .append("module: ").append(this.moduleName)
+            .append(" desc: ").append(this.getDescription())
+            .toString();
+    }
+}
@@ -112,10 +112,10 @@ public class JcrFeedManagerFeedProvider extends BaseJcrProvider<FeedManagerFeed,
 
     @Override
     public List<? extends FeedManagerFeed> findByTemplateId(FeedManagerTemplate.ID templateId) {
-        String query = "SELECT * from " + EntityUtil.asQueryProperty(JcrFeed.NODE_TYPE) + " as e WHERE e." + EntityUtil.asQueryProperty(JcrFeedManagerFeed.TEMPLATE) + " = $id";
+        String query = "SELECT * from " + EntityUtil.asQueryProperty(JcrFeed.NODE_TYPE) + " as e WHERE e." + EntityUtil.asQueryProperty(JcrFeedManagerFeed.FEED_TEMPLATE) + " = $id";
         Map<String, String> bindParams = new HashMap<>();
         bindParams.put("id", templateId.toString());
-        return JcrQueryUtil.find(getSession(), query, JcrFeedManagerFeed.class);
+        return JcrQueryUtil.find(getSession(), query, bindParams, JcrFeedManagerFeed.class);
     }
 
     @Override
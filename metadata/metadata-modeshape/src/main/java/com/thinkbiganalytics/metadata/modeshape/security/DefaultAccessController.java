@@ -12,9 +12,9 @@ package com.thinkbiganalytics.metadata.modeshape.security;
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *     http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -23,30 +23,97 @@ package com.thinkbiganalytics.metadata.modeshape.security;
  * #L%
  */
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.security.AllowedActionsChangeEvent;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.security.AccessController;
 import com.thinkbiganalytics.security.action.Action;
+import com.thinkbiganalytics.security.action.AllowableAction;
 import com.thinkbiganalytics.security.action.AllowedModuleActionsProvider;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
 import java.security.AccessControlException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 /**
+ * Checks the permissions of the current user against the allowed actions of a module.
  *
+ * <p>The actions allowed for each combination of user principals and module are evaluated once and cached until the allowed actions of a module are changed.</p>
  */
 public class DefaultAccessController implements AccessController {
 
+    private static final Logger log = LoggerFactory.getLogger(DefaultAccessController.class);
+
     @Inject
     private MetadataAccess metadata;
 
     @Inject
     private AllowedModuleActionsProvider actionsProvider;
 
+    @Inject
+    private MetadataEventService eventService;
+
+    @Inject
+    private Environment env;
+
+    /**
+     * seconds to cache an evaluated permission set, or 0 to disable the cache
+     */
+    private long cacheExpireSeconds;
+
+    /**
+     * the allowed actions of each principal set and module, as the system names of each action's hierarchy, or empty if no actions are defined for the module
+     */
+    private Cache<PermissionKey, Optional<Set<List<String>>>> permissions;
+
+    private final AllowedActionsChangeListener changeListener = new AllowedActionsChangeListener();
+
+    @PostConstruct
+    public void init() {
+        cacheExpireSeconds = env.getProperty("security.permission.cache.expire", Long.class, 300L);
+        permissions = CacheBuilder.newBuilder()
+            .maximumSize(env.getProperty("security.permission.cache.size", Long.class, 1000L))
+            .expireAfterWrite(cacheExpireSeconds, TimeUnit.SECONDS)
+            .build();
+        if (eventService != null) {
+            eventService.addListener(changeListener);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (eventService != null) {
+            eventService.removeListener(changeListener);
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.thinkbiganalytics.security.AccessController#checkPermission(java.lang.String, com.thinkbiganalytics.security.action.Action, com.thinkbiganalytics.security.action.Action[])
      */
@@ -62,14 +129,113 @@ public class DefaultAccessController implements AccessController {
      */
     @Override
     public void checkPermission(String moduleName, Set<Action> actions) {
-        this.metadata.read(() -> {
-            return this.actionsProvider.getAllowedActions(moduleName)
-                .map((allowed) -> {
-                    allowed.checkPermission(actions);
-                    return moduleName;
-                })
-                .<AccessControlException>orElseThrow(() -> new AccessControlException("No actions are defined for the module named: " + moduleName));
-        });
+        final Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        // Check without the cache if there is no user, or against the active session which may belong to other principals than the user
+        if (auth == null || cacheExpireSeconds <= 0 || JcrMetadataAccess.hasActiveSession()) {
+            this.metadata.read(() -> {
+                return this.actionsProvider.getAllowedActions(moduleName)
+                    .map((allowed) -> {
+                        allowed.checkPermission(actions);
+                        return moduleName;
+                    })
+                    .<AccessControlException>orElseThrow(() -> new AccessControlException("No actions are defined for the module named: " + moduleName));
+            });
+            return;
+        }
+
+        final Set<List<String>> allowed = getAllowedActions(new PermissionKey(auth, moduleName))
+            .orElseThrow(() -> new AccessControlException("No actions are defined for the module named: " + moduleName));
+
+        for (Action action : actions) {
+            final List<String> hierarchy = action.getHierarchy().stream().map(Action::getSystemName).collect(Collectors.toList());
+            if (!allowed.contains(hierarchy)) {
+                throw new AccessControlException("Not authorized to perform the action: " + action.getTitle());
+            }
+        }
     }
 
+    /**
+     * Removes all of the cached permission sets.
+     */
+    public void invalidateAll() {
+        permissions.invalidateAll();
+    }
+
+    /**
+     * Gets the allowed actions of the current user for the specified module, evaluating them if they are not cached.
+     */
+    private Optional<Set<List<String>>> getAllowedActions(PermissionKey key) {
+        try {
+            return permissions.get(key, () -> this.metadata.read(() -> {
+                return this.actionsProvider.getAllowedActions(key.moduleName)
+                    .map(allowed -> {
+                        final Set<List<String>> hierarchies = new HashSet<>();
+                        allowed.getAvailableActions().forEach(action -> addHierarchies(Collections.emptyList(), action, hierarchies));
+                        return Collections.unmodifiableSet(hierarchies);
+                    });
+            }));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Adds the hierarchy of the specified action and of each of its visible sub-actions to the result.
+     */
+    private void addHierarchies(List<String> parent, AllowableAction action, Set<List<String>> result) {
+        final List<String> hierarchy = new ArrayList<>(parent.size() + 1);
+        hierarchy.addAll(parent);
+        hierarchy.add(action.getSystemName());
+        result.add(hierarchy);
+
+        for (AllowableAction subAction : action.getSubActions()) {
+            addHierarchies(hierarchy, subAction, result);
+        }
+    }
+
+    /**
+     * Identifies the evaluated permissions of a module for a user and the user's groups.
+     */
+    private static class PermissionKey {
+
+        private final String userName;
+        private final Set<String> authorities;
+        private final String moduleName;
+
+        PermissionKey(Authentication auth, String moduleName) {
+            this.userName = auth.getName();
+            this.authorities = auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+            this.moduleName = moduleName;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, authorities, moduleName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof PermissionKey) {
+                PermissionKey that = (PermissionKey) obj;
+                return Objects.equals(this.userName, that.userName) &&
+                       Objects.equals(this.authorities, that.authorities) &&
+                       Objects.equals(this.moduleName, that.moduleName);
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cached permissions when the allowed actions of any module change.
+     */
+    private class AllowedActionsChangeListener implements MetadataEventListener<AllowedActionsChangeEvent> {
+
+        @Override
+        public void notify(AllowedActionsChangeEvent event) {
+            log.debug("Invalidating cached permissions after change: {}", event.getData());
+            invalidateAll();
+        }
+    }
 }
@@ -21,6 +21,10 @@ package com.thinkbiganalytics.metadata.modeshape.security.action;
  */
 
 import com.thinkbiganalytics.metadata.api.MetadataException;
+import com.thinkbiganalytics.metadata.api.event.MetadataChange.ChangeType;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.security.AllowedActionsChange;
+import com.thinkbiganalytics.metadata.api.event.security.AllowedActionsChangeEvent;
 import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.modeshape.common.JcrObject;
 import com.thinkbiganalytics.metadata.modeshape.common.JcrPropertyConstants;
@@ -31,6 +35,8 @@ import com.thinkbiganalytics.security.action.Action;
 import com.thinkbiganalytics.security.action.AllowableAction;
 import com.thinkbiganalytics.security.action.AllowedActions;
 
+import org.springframework.security.core.context.SecurityContextHolder;
+
 import java.security.AccessControlException;
 import java.security.Principal;
 import java.util.Arrays;
@@ -55,8 +61,24 @@ public class JcrAllowedActions extends JcrObject implements AllowedActions {
     public static final String NODE_TYPE = "tba:allowedActions";
 
 
+    /**
+     * the name of the module when these are the allowed actions of a module
+     */
+    private final String moduleName;
+
+    /**
+     * notified of changes to the allowed actions of the module, if any
+     */
+    private final MetadataEventService eventService;
+
     public JcrAllowedActions(Node allowedActionsNode) {
+        this(allowedActionsNode, null, null);
+    }
+
+    public JcrAllowedActions(Node allowedActionsNode, String moduleName, MetadataEventService eventService) {
         super(allowedActionsNode);
+        this.moduleName = moduleName;
+        this.eventService = eventService;
     }
 
     /* (non-Javadoc)
@@ -87,7 +109,7 @@ public class JcrAllowedActions extends JcrObject implements AllowedActions {
      */
     @Override
     public boolean enable(Principal principal, Set<Action> actions) {
-        return togglePermission(actions, principal, true);
+        return notifyChange(togglePermission(actions, principal, true));
     }
 
     @Override
@@ -107,12 +129,12 @@ public class JcrAllowedActions extends JcrObject implements AllowedActions {
                 if (actions.contains(child)) {
                     result.set(togglePermission(child, principal, true) || result.get());
                 } else {
-                    togglePermission(child, principal, false);
+                    result.set(togglePermission(child, principal, false) || result.get());
                 }
             });
         });
 
-        return result.get();
+        return notifyChange(result.get());
     }
 
     /* (non-Javadoc)
@@ -130,7 +152,7 @@ public class JcrAllowedActions extends JcrObject implements AllowedActions {
      */
     @Override
     public boolean disable(Principal principal, Set<Action> actions) {
-        return togglePermission(actions, principal, false);
+        return notifyChange(togglePermission(actions, principal, false));
     }
 
     @Override
@@ -179,6 +201,27 @@ public class JcrAllowedActions extends JcrObject implements AllowedActions {
         return dest;
     }
 
+    /**
+     * Notifies the event service after the current transaction commits if any permissions were changed.
+     *
+     * @param changed true if any permissions were changed
+     * @return the changed flag
+     */
+    private boolean notifyChange(boolean changed) {
+        if (changed && this.eventService != null) {
+            final Principal user = SecurityContextHolder.getContext().getAuthentication();
+            final AllowedActionsChange change = new AllowedActionsChange(ChangeType.UPDATE, this.moduleName);
+
+            JcrMetadataAccess.addPostTransactionAction(success -> {
+                if (success) {
+                    this.eventService.notify(new AllowedActionsChangeEvent(change, user));
+                }
+            });
+        }
+
+        return changed;
+    }
+
     private boolean togglePermission(Iterable<Action> actions, Principal principal, boolean add) {
         boolean result = false;
 
@@ -23,6 +23,7 @@ package com.thinkbiganalytics.metadata.modeshape.security.action;
  * #L%
  */
 
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
 import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.modeshape.MetadataRepositoryException;
 import com.thinkbiganalytics.metadata.modeshape.common.SecurityPaths;
@@ -34,6 +35,7 @@ import java.nio.file.Path;
 import java.security.AccessControlException;
 import java.util.Optional;
 
+import javax.inject.Inject;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -44,6 +46,9 @@ import javax.jcr.Session;
  */
 public class JcrAllowedActionsGroupProvider implements AllowedModuleActionsProvider {
 
+    @Inject
+    private MetadataEventService eventService;
+
     /* (non-Javadoc)
      * @see com.thinkbiganalytics.security.action.AllowedModuleActionsProvider#getAvailavleActions(java.lang.String)
      */
@@ -83,7 +88,7 @@ public class JcrAllowedActionsGroupProvider implements AllowedModuleActionsProvi
 
             if (session.getRootNode().hasNode(groupPath.toString())) {
                 Node node = session.getRootNode().getNode(groupPath.toString());
-                JcrAllowedActions actions = new JcrAllowedActions(node);
+                JcrAllowedActions actions = new JcrAllowedActions(node, groupName, this.eventService);
                 return Optional.of(actions);
             } else {
                 return Optional.empty();
@@ -37,6 +37,7 @@ import com.thinkbiganalytics.metadata.modeshape.common.ModeShapeAvailability;
 import com.thinkbiganalytics.metadata.modeshape.common.ModeShapeAvailabilityListener;
 import com.thinkbiganalytics.metadata.modeshape.extension.JcrExtensibleEntity;
 import com.thinkbiganalytics.metadata.modeshape.feed.JcrFeed;
+import com.thinkbiganalytics.metadata.modeshape.support.JcrIndexUtil;
 import com.thinkbiganalytics.metadata.modeshape.support.JcrQueryUtil;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
 
@@ -51,6 +52,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.jcr.Node;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.QueryResult;
@@ -207,6 +209,13 @@ public class JcrFeedServiceLevelAgreementProvider implements FeedServiceLevelAgr
                         // @formatter:on
                 }
 
+                // Index the references used to join the relationships with their SLAs and feeds
+                Session session = getSession();
+                JcrIndexUtil.ensureValueIndex(session, "feedSlaAgreements", JcrFeedServiceLevelAgreementRelationship.NODE_TYPE, JcrFeedServiceLevelAgreementRelationship.SLA,
+                                              PropertyType.WEAKREFERENCE);
+                JcrIndexUtil.ensureValueIndex(session, "feedSlaFeeds", JcrFeedServiceLevelAgreementRelationship.NODE_TYPE, JcrFeedServiceLevelAgreementRelationship.FEEDS,
+                                              PropertyType.WEAKREFERENCE);
+
                 return feedSla.getName();
             }, MetadataAccess.SERVICE);
         }
@@ -0,0 +1,93 @@
+package com.thinkbiganalytics.metadata.modeshape.support;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.modeshape.MetadataRepositoryException;
+
+import org.modeshape.jcr.api.Workspace;
+import org.modeshape.jcr.api.index.IndexColumnDefinitionTemplate;
+import org.modeshape.jcr.api.index.IndexDefinition;
+import org.modeshape.jcr.api.index.IndexDefinitionTemplate;
+import org.modeshape.jcr.api.index.IndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Utilities for managing the ModeShape indexes of the metadata repository.
+ *
+ * <p>Indexes of the node types defined in the CND files are declared in {@code metadata-repository.json}. Node types that are created at runtime, such as
+ * extensible types, must have their indexes registered after the type exists.</p>
+ */
+public class JcrIndexUtil {
+
+    private static final Logger log = LoggerFactory.getLogger(JcrIndexUtil.class);
+
+    /**
+     * Name of the index provider declared in {@code metadata-repository.json}
+     */
+    public static final String LOCAL_PROVIDER = "local";
+
+    /**
+     * Registers a value index on a single property of a node type, if the index does not already exist.
+     *
+     * @param session      the session
+     * @param indexName    the name of the index
+     * @param nodeType     the node type to index
+     * @param propertyName the property to index
+     * @param propertyType the {@link javax.jcr.PropertyType} of the property
+     * @return {@code true} if the index was registered, or {@code false} if it exists or the repository has no index provider
+     */
+    public static boolean ensureValueIndex(Session session, String indexName, String nodeType, String propertyName, int propertyType) {
+        try {
+            IndexManager indexManager = ((Workspace) session.getWorkspace()).getIndexManager();
+
+            if (indexManager.getIndexDefinitions().containsKey(indexName)) {
+                return false;
+            }
+            if (!indexManager.getProviderNames().contains(LOCAL_PROVIDER)) {
+                log.warn("Unable to create index {} because the index provider \"{}\" is not configured", indexName, LOCAL_PROVIDER);
+                return false;
+            }
+
+            IndexColumnDefinitionTemplate column = indexManager.createIndexColumnDefinitionTemplate();
+            column.setPropertyName(propertyName);
+            column.setColumnType(propertyType);
+
+            IndexDefinitionTemplate index = indexManager.createIndexDefinitionTemplate();
+            index.setName(indexName);
+            index.setProviderName(LOCAL_PROVIDER);
+            index.setKind(IndexDefinition.IndexKind.VALUE);
+            index.setNodeTypeName(nodeType);
+            index.setSynchronous(true);
+            index.setAllWorkspaces();
+            index.setColumnDefinitions(column);
+
+            indexManager.registerIndex(index, false);
+            log.info("Created index {} on {}.{}", indexName, nodeType, propertyName);
+            return true;
+        } catch (RepositoryException e) {
+            throw new MetadataRepositoryException("Failed to create index " + indexName + " on " + nodeType + "." + propertyName, e);
+        }
+    }
+}
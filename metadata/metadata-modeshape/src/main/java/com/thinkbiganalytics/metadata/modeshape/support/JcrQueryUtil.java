@@ -23,11 +23,17 @@ package com.thinkbiganalytics.metadata.modeshape.support;
 import com.thinkbiganalytics.metadata.modeshape.MetadataRepositoryException;
 
 import org.modeshape.jcr.api.JcrTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
@@ -43,6 +49,22 @@ import javax.jcr.query.RowIterator;
  */
 public class JcrQueryUtil {
 
+    private static final Logger log = LoggerFactory.getLogger(JcrQueryUtil.class);
+
+    /**
+     * Maximum number of distinct query expressions whose plans are checked for node traversal
+     */
+    private static final int MAX_CHECKED_QUERIES = 1000;
+
+    /**
+     * Matches the selector name of each source in a query plan
+     */
+    private static final Pattern PLAN_SOURCE = Pattern.compile("Source \\[([^\\]]+)\\]");
+
+    /**
+     * Query expressions whose plans have been checked for node traversal
+     */
+    private static final Set<String> checkedQueries = ConcurrentHashMap.newKeySet();
 
     public static <T extends Object> List<T> find(Session session, String query, Class<T> type) {
         return find(session, query, null, type);
@@ -159,9 +181,45 @@ public class JcrQueryUtil {
             }
         }
 
+        checkPlan(query, queryExpression);
         results = query.execute();
 
         return results;
     }
 
+    /**
+     * Determines if the specified query plan reads any selector by traversing the nodes of the workspace rather than from an index.
+     *
+     * @param plan the query plan
+     * @return {@code true} if the plan traverses nodes
+     */
+    public static boolean isTraversal(String plan) {
+        Matcher matcher = PLAN_SOURCE.matcher(plan);
+        while (matcher.find()) {
+            if (!plan.contains("Index [" + matcher.group(1) + "]")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logs the plan of the specified query if debug logging is enabled, and warns the first time a query traverses nodes rather than using an index.
+     */
+    private static void checkPlan(Query query, String queryExpression) {
+        boolean check = checkedQueries.size() < MAX_CHECKED_QUERIES && checkedQueries.add(queryExpression);
+
+        if ((check || log.isDebugEnabled()) && query instanceof org.modeshape.jcr.api.query.Query) {
+            try {
+                String plan = ((org.modeshape.jcr.api.query.Query) query).explain().getPlan();
+                log.debug("Plan for query: {}\n{}", queryExpression, plan);
+
+                if (check && isTraversal(plan)) {
+                    log.warn("Query traverses nodes rather than using an index: {}", queryExpression);
+                }
+            } catch (RepositoryException e) {
+                log.debug("Unable to explain query: {}", queryExpression, e);
+            }
+        }
+    }
 }
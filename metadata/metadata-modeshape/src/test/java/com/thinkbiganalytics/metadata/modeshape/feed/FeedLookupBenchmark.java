@@ -0,0 +1,181 @@
+package com.thinkbiganalytics.metadata.modeshape.feed;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.category.Category;
+import com.thinkbiganalytics.metadata.api.category.CategoryProvider;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.feedmgr.template.FeedManagerTemplate;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
+import com.thinkbiganalytics.metadata.modeshape.JcrTestConfig;
+import com.thinkbiganalytics.metadata.modeshape.ModeShapeEngineConfig;
+import com.thinkbiganalytics.metadata.modeshape.security.AdminCredentials;
+import com.thinkbiganalytics.metadata.modeshape.support.JcrQueryUtil;
+
+import org.modeshape.jcr.api.Workspace;
+import org.modeshape.jcr.api.index.IndexDefinition;
+import org.modeshape.jcr.api.index.IndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+/**
+ * Measures the latency of feed lookups in a repository of 5,000 feeds with and without the local indexes.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=FeedLookupBenchmark}.
+ */
+@SpringApplicationConfiguration(classes = {ModeShapeEngineConfig.class, JcrTestConfig.class, FeedTestConfig.class})
+public class FeedLookupBenchmark extends AbstractTestNGSpringContextTests {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedLookupBenchmark.class);
+
+    private static final int CATEGORIES = 50;
+
+    private static final int FEEDS_PER_CATEGORY = 100;
+
+    private static final int TEMPLATES = 10;
+
+    private static final int LOOKUPS = 200;
+
+    /**
+     * Indexes used by the lookups
+     */
+    private static final String[] INDEXES = {"feedSystemNames", "feedCategories", "feedTemplates", "categorySystemNames"};
+
+    @Inject
+    private JcrMetadataAccess metadata;
+
+    @Inject
+    private FeedTestUtil feedTestUtil;
+
+    @Inject
+    private CategoryProvider categoryProvider;
+
+    @Inject
+    private FeedManagerFeedProvider feedManagerFeedProvider;
+
+    @BeforeClass
+    public void setup() {
+        long start = System.nanoTime();
+
+        for (int category = 0; category < CATEGORIES; ++category) {
+            final String categoryName = categoryName(category);
+            this.metadata.commit(new AdminCredentials(), () -> {
+                Category domainCategory = feedTestUtil.findOrCreateCategory(categoryName);
+                for (int feed = 0; feed < FEEDS_PER_CATEGORY; ++feed) {
+                    FeedManagerFeed domainFeed = feedManagerFeedProvider.ensureFeed(domainCategory.getId(), feedName(feed));
+                    domainFeed.setTemplate(feedTestUtil.findOrCreateTemplate("benchmarkTemplate" + (feed % TEMPLATES)));
+                }
+                return null;
+            });
+        }
+
+        log.info("Created {} feeds in {} seconds", CATEGORIES * FEEDS_PER_CATEGORY, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    @Test
+    public void benchmark() {
+        //warm up the repository and the JIT before timing the lookups
+        lookup(LOOKUPS / 4);
+        long indexedNanos = lookup(LOOKUPS);
+
+        List<IndexDefinition> definitions = this.metadata.commit(new AdminCredentials(), () -> {
+            IndexManager indexManager = getIndexManager();
+            List<IndexDefinition> result = new ArrayList<>();
+            for (String name : INDEXES) {
+                result.add(indexManager.getIndexDefinitions().get(name));
+            }
+            indexManager.unregisterIndexes(INDEXES);
+            return result;
+        });
+
+        try {
+            lookup(LOOKUPS / 4);
+            long traversalNanos = lookup(LOOKUPS);
+
+            log.info("Average lookups in {} feeds: {} us with the indexes, {} us without the indexes", CATEGORIES * FEEDS_PER_CATEGORY,
+                     TimeUnit.NANOSECONDS.toMicros(indexedNanos), TimeUnit.NANOSECONDS.toMicros(traversalNanos));
+        } finally {
+            this.metadata.commit(new AdminCredentials(), () -> {
+                getIndexManager().registerIndexes(definitions.toArray(new IndexDefinition[definitions.size()]), false);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Performs each kind of lookup for random feeds and returns the average nanoseconds to perform one of each kind.
+     */
+    private long lookup(int count) {
+        Random random = new Random(0);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; ++i) {
+            String categoryName = categoryName(random.nextInt(CATEGORIES));
+            String feedName = feedName(random.nextInt(FEEDS_PER_CATEGORY));
+
+            this.metadata.read(new AdminCredentials(), () -> {
+                Category category = categoryProvider.findBySystemName(categoryName);
+                Assert.assertNotNull(category);
+
+                FeedManagerFeed feed = feedManagerFeedProvider.findBySystemName(categoryName, feedName);
+                Assert.assertNotNull(feed);
+
+                Assert.assertEquals(feedManagerFeedProvider.findByCategoryId(category.getId()).size(), FEEDS_PER_CATEGORY);
+
+                FeedManagerTemplate template = feed.getTemplate();
+                Assert.assertEquals(feedManagerFeedProvider.findByTemplateId(template.getId()).size(), CATEGORIES * FEEDS_PER_CATEGORY / TEMPLATES);
+
+                String query = "SELECT * FROM [tba:feed] AS e WHERE e.[tba:systemName] = $name";
+                Assert.assertEquals(JcrQueryUtil.find(JcrMetadataAccess.getActiveSession(), query, Collections.singletonMap("name", feedName), JcrFeedManagerFeed.class).size(),
+                                    CATEGORIES);
+                return null;
+            });
+        }
+
+        return (System.nanoTime() - start) / count;
+    }
+
+    private IndexManager getIndexManager() throws Exception {
+        return ((Workspace) JcrMetadataAccess.getActiveSession().getWorkspace()).getIndexManager();
+    }
+
+    private String categoryName(int index) {
+        return "benchmarkCategory" + index;
+    }
+
+    private String feedName(int index) {
+        return "benchmarkFeed" + index;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package com.thinkbiganalytics.metadata.modeshape.security;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
+import com.thinkbiganalytics.metadata.modeshape.JcrTestConfig;
+import com.thinkbiganalytics.metadata.modeshape.ModeShapeEngineConfig;
+import com.thinkbiganalytics.metadata.modeshape.TestUserPrincipal;
+import com.thinkbiganalytics.metadata.modeshape.security.action.TestSecurityConfig;
+import com.thinkbiganalytics.security.action.AllowedModuleActionsProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+/**
+ * Measures the permission checks per second of the {@link DefaultAccessController} with and without its permission cache.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=DefaultAccessControllerBenchmark}.
+ */
+@SpringApplicationConfiguration(classes = {ModeShapeEngineConfig.class, JcrTestConfig.class, TestSecurityConfig.class})
+public class DefaultAccessControllerBenchmark extends AbstractTestNGSpringContextTests {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultAccessControllerBenchmark.class);
+
+    private static final long DURATION_MILLIS = 5000;
+
+    @Inject
+    private JcrMetadataAccess metadata;
+
+    @Inject
+    private AllowedModuleActionsProvider provider;
+
+    @BeforeClass
+    public void setup() {
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().enable(new TestUserPrincipal(), TestSecurityConfig.IMPORT_FEEDS, TestSecurityConfig.CREATE_FEEDS);
+        });
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("test", null));
+    }
+
+    @AfterClass
+    public void teardown() {
+        SecurityContextHolder.clearContext();
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().disable(new TestUserPrincipal(), TestSecurityConfig.IMPORT_FEEDS, TestSecurityConfig.CREATE_FEEDS);
+        });
+    }
+
+    @Test
+    public void benchmark() {
+        for (long expireSeconds : new long[]{0, 300}) {
+            DefaultAccessController controller = new DefaultAccessController();
+            applicationContext.getAutowireCapableBeanFactory().autowireBean(controller);
+            ReflectionTestUtils.setField(controller, "env", new MockEnvironment().withProperty("security.permission.cache.expire", Long.toString(expireSeconds)));
+            controller.init();
+
+            //warm up the repository and the JIT before timing the checks
+            check(controller, DURATION_MILLIS / 5);
+            long checks = check(controller, DURATION_MILLIS);
+
+            log.info("{} permission checks per second {}", checks * 1000 / DURATION_MILLIS, expireSeconds > 0 ? "with the cache" : "without the cache");
+            controller.destroy();
+        }
+    }
+
+    private long check(DefaultAccessController controller, long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long checks = 0;
+
+        while (System.nanoTime() < end) {
+            controller.checkPermission("services", TestSecurityConfig.IMPORT_FEEDS, TestSecurityConfig.CREATE_FEEDS);
+            controller.checkPermission("services", TestSecurityConfig.IMPORT_FEEDS);
+            checks += 2;
+        }
+
+        return checks;
+    }
+}
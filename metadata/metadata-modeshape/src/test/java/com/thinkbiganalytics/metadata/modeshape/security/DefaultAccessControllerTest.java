@@ -0,0 +1,196 @@
+/**
+ *
+ */
+package com.thinkbiganalytics.metadata.modeshape.security;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.event.MetadataEvent;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.security.AllowedActionsChangeEvent;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
+import com.thinkbiganalytics.metadata.modeshape.JcrTestConfig;
+import com.thinkbiganalytics.metadata.modeshape.ModeShapeEngineConfig;
+import com.thinkbiganalytics.metadata.modeshape.TestUserPrincipal;
+import com.thinkbiganalytics.metadata.modeshape.security.action.TestSecurityConfig;
+import com.thinkbiganalytics.security.AccessController;
+import com.thinkbiganalytics.security.action.Action;
+import com.thinkbiganalytics.security.action.AllowedModuleActionsProvider;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.security.AccessControlException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+/**
+ *
+ */
+@SpringApplicationConfiguration(classes = {ModeShapeEngineConfig.class, JcrTestConfig.class, TestSecurityConfig.class})
+public class DefaultAccessControllerTest extends AbstractTestNGSpringContextTests {
+
+    private static final Action[] ACTIONS = {TestSecurityConfig.MANAGE_AUTH, TestSecurityConfig.FEED_SUPPORT, TestSecurityConfig.ACCESS_FEEDS, TestSecurityConfig.CREATE_FEEDS,
+                                             TestSecurityConfig.IMPORT_FEEDS, TestSecurityConfig.EXPORT_FEEDS, TestSecurityConfig.ADMIN_FEEDS};
+
+    @Inject
+    private JcrMetadataAccess metadata;
+
+    @Inject
+    private AllowedModuleActionsProvider provider;
+
+    @Inject
+    private AccessController accessController;
+
+    @Inject
+    private MetadataEventService eventService;
+
+    /**
+     * Number of events already delivered by {@link #deliverEvents()}
+     */
+    private int deliveredEvents = 0;
+
+    @BeforeMethod
+    public void login() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("test", null));
+    }
+
+    @AfterMethod
+    public void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Verify cached permissions are invalidated when the allowed actions change.
+     */
+    @Test
+    public void testCheckPermission() {
+        assertNotPermitted();
+
+        // Test enabling the action
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().enable(new TestUserPrincipal(), TestSecurityConfig.IMPORT_FEEDS);
+        });
+        deliverEvents();
+        this.accessController.checkPermission("services", TestSecurityConfig.IMPORT_FEEDS);
+        assertSamePermissions();
+
+        // Test disabling the action
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().disable(new TestUserPrincipal(), TestSecurityConfig.IMPORT_FEEDS);
+        });
+        deliverEvents();
+        assertNotPermitted();
+        assertSamePermissions();
+    }
+
+    /**
+     * Verify a change that only revokes actions invalidates the cached permissions.
+     */
+    @Test
+    public void testEnableOnlyRevokes() {
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().enable(new TestUserPrincipal(), TestSecurityConfig.IMPORT_FEEDS);
+        });
+        deliverEvents();
+        this.accessController.checkPermission("services", TestSecurityConfig.IMPORT_FEEDS);
+
+        // Enabling no actions only revokes the ones enabled above
+        this.metadata.commit(new AdminCredentials(), () -> {
+            return this.provider.getAllowedActions("services").get().enableOnly(new TestUserPrincipal(), Collections.emptySet());
+        });
+        deliverEvents();
+        assertNotPermitted();
+        assertSamePermissions();
+    }
+
+    /**
+     * Verify a missing module is rejected.
+     */
+    @Test(expectedExceptions = AccessControlException.class)
+    public void testMissingModule() {
+        this.accessController.checkPermission("missing", TestSecurityConfig.IMPORT_FEEDS);
+    }
+
+    private void assertNotPermitted() {
+        try {
+            this.accessController.checkPermission("services", TestSecurityConfig.IMPORT_FEEDS);
+            Assert.fail("Permission check should fail");
+        } catch (AccessControlException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies the access controller permits the same actions as the allowed actions of the module.
+     */
+    private void assertSamePermissions() {
+        for (Action action : ACTIONS) {
+            boolean expected = this.metadata.read(() -> {
+                try {
+                    this.provider.getAllowedActions("services").get().checkPermission(action);
+                    return true;
+                } catch (AccessControlException e) {
+                    return false;
+                }
+            });
+            boolean actual;
+            try {
+                this.accessController.checkPermission("services", action);
+                actual = true;
+            } catch (AccessControlException e) {
+                actual = false;
+            }
+            Assert.assertEquals(actual, expected, "Permission for action: " + action.getSystemName());
+        }
+    }
+
+    /**
+     * Delivers the change events sent to the mock event service since the last delivery to the listener of the access controller.
+     */
+    @SuppressWarnings("unchecked")
+    private void deliverEvents() {
+        ArgumentCaptor<MetadataEventListener> listeners = ArgumentCaptor.forClass(MetadataEventListener.class);
+        Mockito.verify(this.eventService, Mockito.atLeastOnce()).addListener(listeners.capture());
+        ArgumentCaptor<MetadataEvent> events = ArgumentCaptor.forClass(MetadataEvent.class);
+        Mockito.verify(this.eventService, Mockito.atLeastOnce()).notify(events.capture());
+
+        List<MetadataEvent> newEvents = events.getAllValues().subList(this.deliveredEvents, events.getAllValues().size());
+        this.deliveredEvents = events.getAllValues().size();
+
+        listeners.getAllValues().stream()
+            .filter(listener -> listener.getClass().getEnclosingClass() == DefaultAccessController.class)
+            .forEach(listener -> newEvents.stream()
+                .filter(event -> event instanceof AllowedActionsChangeEvent)
+                .forEach(listener::notify));
+    }
+}
@@ -0,0 +1,55 @@
+package com.thinkbiganalytics.metadata.modeshape.support;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JcrQueryUtilTest {
+
+    /**
+     * Verify detecting plans that traverse nodes.
+     */
+    @Test
+    public void isTraversal() {
+        // Plan using an index
+        final String indexed = "Access [e]\n"
+                               + "  Select [e] <SELECT_CRITERIA=e.[jcr:primaryType] = 'tba:feed'>\n"
+                               + "    Source [e] <SOURCE_NAME=__ALLNODES__, SOURCE_ALIAS=e>\n"
+                               + "      Index [e] <INDEX_SPECIFICATION=feedSystemNames, provider=local>\n";
+        Assert.assertFalse(JcrQueryUtil.isTraversal(indexed));
+
+        // Plan traversing all nodes
+        final String traversal = "Access [e]\n"
+                                 + "  Select [e] <SELECT_CRITERIA=e.[tba:description] = 'test'>\n"
+                                 + "    Source [e] <SOURCE_NAME=__ALLNODES__, SOURCE_ALIAS=e>\n";
+        Assert.assertTrue(JcrQueryUtil.isTraversal(traversal));
+
+        // Join with one selector traversing nodes
+        final String join = "Join [feedSla,sla]\n"
+                            + "  Access [sla]\n"
+                            + "    Source [sla] <SOURCE_NAME=__ALLNODES__, SOURCE_ALIAS=sla>\n"
+                            + "      Index [sla] <INDEX_SPECIFICATION=nodeTypes, provider=local>\n"
+                            + "  Access [feedSla]\n"
+                            + "    Source [feedSla] <SOURCE_NAME=__ALLNODES__, SOURCE_ALIAS=feedSla>\n";
+        Assert.assertTrue(JcrQueryUtil.isTraversal(join));
+    }
+}
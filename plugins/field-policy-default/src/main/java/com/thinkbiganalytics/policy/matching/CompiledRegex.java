@@ -0,0 +1,830 @@
+package com.thinkbiganalytics.policy.matching;
+
+/*-
+ * #%L
+ * thinkbig-field-policy-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression compiled to a deterministic finite automaton, which matches in time linear to the length of the value
+ * without backtracking. The automaton is immutable, so one instance can be shared by all rows and threads.
+ *
+ * <p>Only patterns made of characters, character classes, groups, alternation, and greedy or reluctant quantifiers are compiled.
+ * Other patterns, such as those with flags, back references, lookaround, or boundaries, are matched by {@link Pattern} as before.
+ * Values with supplementary characters are also matched by {@link Pattern}, since it treats each code point as one character.</p>
+ */
+public class CompiledRegex implements Serializable {
+
+    /**
+     * Maximum number of states of an automaton, above which the pattern is matched by {@link Pattern}
+     */
+    static final int MAX_STATES = 4096;
+
+    /* Maximum number of states of the intermediate nondeterministic automaton */
+    private static final int MAX_NFA_STATES = 20000;
+
+    /* Maximum bound of a repetition such as {2,5} */
+    private static final int MAX_REPETITION = 1000;
+
+    private final Pattern pattern;
+
+    /* Automaton for matching the whole value, or null if not compiled */
+    private final Automaton matcher;
+
+    /* Automaton for finding the pattern within the value, or null if not compiled */
+    private final Automaton finder;
+
+    private CompiledRegex(Pattern pattern, Automaton matcher, Automaton finder) {
+        this.pattern = pattern;
+        this.matcher = matcher;
+        this.finder = finder;
+    }
+
+    /**
+     * Compiles the specified pattern, if supported.
+     *
+     * @param pattern the pattern
+     * @return the compiled regex, which uses the pattern if it cannot be compiled
+     */
+    public static CompiledRegex compile(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return new CompiledRegex(pattern, null, null);
+        }
+
+        Parser parser = new Parser(pattern.pattern());
+        Node root;
+        try {
+            root = parser.parse();
+        } catch (UnsupportedPatternException e) {
+            return new CompiledRegex(pattern, null, null);
+        }
+
+        Nfa nfa = new Nfa();
+        if (!nfa.build(root)) {
+            return new CompiledRegex(pattern, null, null);
+        }
+
+        Automaton matcher = Automaton.build(nfa, false);
+        if (matcher == null) {
+            return new CompiledRegex(pattern, null, null);
+        }
+
+        // Finding an anchored pattern depends on line terminators, so it is left to the pattern
+        Automaton finder = parser.anchored ? null : Automaton.build(nfa, true);
+        return new CompiledRegex(pattern, matcher, finder);
+    }
+
+    /**
+     * Compiles the specified regular expression, if supported.
+     *
+     * @param regex the regular expression
+     * @return the compiled regex
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public static CompiledRegex compile(String regex) {
+        return compile(Pattern.compile(regex));
+    }
+
+    /**
+     * Indicates if the entire value matches the pattern, as {@link java.util.regex.Matcher#matches()}.
+     *
+     * @param value the value
+     * @return {@code true} if the value matches
+     */
+    public boolean matches(CharSequence value) {
+        if (matcher == null) {
+            return pattern.matcher(value).matches();
+        }
+
+        int state = matcher.start;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return pattern.matcher(value).matches();
+            }
+            state = matcher.next(state, c);
+            if (state == matcher.dead) {
+                return false;
+            }
+        }
+        return matcher.accepting[state];
+    }
+
+    /**
+     * Indicates if any part of the value matches the pattern, as {@link java.util.regex.Matcher#find()}.
+     *
+     * @param value the value
+     * @return {@code true} if a match is found
+     */
+    public boolean find(CharSequence value) {
+        if (finder == null) {
+            return pattern.matcher(value).find();
+        }
+
+        int state = finder.start;
+        if (finder.accepting[state]) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return pattern.matcher(value).find();
+            }
+            state = finder.next(state, c);
+            if (finder.accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces each match of the pattern in the value, as {@link java.util.regex.Matcher#replaceAll(String)}. Values without a match are
+     * returned without using the pattern.
+     *
+     * @param value       the value
+     * @param replacement the replacement string
+     * @return the value with matches replaced
+     */
+    public String replaceAll(String value, String replacement) {
+        if (finder != null && !find(value)) {
+            return value;
+        }
+        return pattern.matcher(value).replaceAll(replacement);
+    }
+
+    /**
+     * Indicates if the pattern was compiled to an automaton.
+     *
+     * @return {@code true} if compiled, or {@code false} if matched by the {@link Pattern}
+     */
+    public boolean isCompiled() {
+        return matcher != null;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Indicates that a pattern uses a construct that is not compiled.
+     */
+    private static class UnsupportedPatternException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Node of the parsed pattern.
+     */
+    private abstract static class Node {
+
+    }
+
+    /**
+     * Matches one character of a set of ranges.
+     */
+    private static class CharsNode extends Node {
+
+        /* Sorted, non-overlapping pairs of the first and last character of each range */
+        final int[] ranges;
+
+        CharsNode(int[] ranges) {
+            this.ranges = ranges;
+        }
+    }
+
+    /**
+     * Matches each node in sequence.
+     */
+    private static class ConcatNode extends Node {
+
+        final List<Node> nodes;
+
+        ConcatNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Matches any one of the nodes.
+     */
+    private static class AltNode extends Node {
+
+        final List<Node> nodes;
+
+        AltNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Matches a node repeatedly.
+     */
+    private static class RepeatNode extends Node {
+
+        final Node node;
+        final int min;
+
+        /* Maximum number of repetitions, or -1 if unbounded */
+        final int max;
+
+        RepeatNode(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Parses the supported subset of the {@link Pattern} syntax.
+     */
+    private static class Parser {
+
+        private static final int[] DIGIT = {'0', '9'};
+        private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+        private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+        private static final int[] DOT = {0, '\n' - 1, '\n' + 1, '\r' - 1, '\r' + 1, 0x84, 0x86, 0x2027, 0x202A, 0xFFFF};
+
+        final String regex;
+        int pos;
+
+        /* Indicates if the pattern has a ^ or $ anchor */
+        boolean anchored;
+
+        /* Indicates if the last escape was a predefined character class */
+        boolean escapedClass;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() throws UnsupportedPatternException {
+            Node node = parseAlternation();
+            if (pos < regex.length()) {
+                throw new UnsupportedPatternException();
+            }
+            return node;
+        }
+
+        private Node parseAlternation() throws UnsupportedPatternException {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(parseConcatenation());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                nodes.add(parseConcatenation());
+            }
+            return (nodes.size() == 1) ? nodes.get(0) : new AltNode(nodes);
+        }
+
+        private Node parseConcatenation() throws UnsupportedPatternException {
+            List<Node> nodes = new ArrayList<>();
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Node node = parseAtom();
+                if (pos < regex.length() && isQuantifier(regex.charAt(pos))) {
+                    node = parseQuantifier(node);
+                }
+                nodes.add(node);
+            }
+            return (nodes.size() == 1) ? nodes.get(0) : new ConcatNode(nodes);
+        }
+
+        private Node parseAtom() throws UnsupportedPatternException {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (regex.startsWith("?:", pos)) {
+                        pos += 2;
+                    } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+                        throw new UnsupportedPatternException();
+                    }
+                    Node node = parseAlternation();
+                    if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                        throw new UnsupportedPatternException();
+                    }
+                    pos++;
+                    return node;
+                case '[':
+                    return new CharsNode(parseClass());
+                case '.':
+                    return new CharsNode(DOT);
+                case '\\':
+                    return new CharsNode(parseEscape());
+                case '^':
+                    // Only as the first character, where it has no effect on matching the whole value
+                    if (pos != 1) {
+                        throw new UnsupportedPatternException();
+                    }
+                    anchored = true;
+                    return new ConcatNode(new ArrayList<Node>());
+                case '$':
+                    // Only as the last character, where it has no effect on matching the whole value
+                    if (pos != regex.length()) {
+                        throw new UnsupportedPatternException();
+                    }
+                    anchored = true;
+                    return new ConcatNode(new ArrayList<Node>());
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedPatternException();
+                default:
+                    return new CharsNode(literal(c));
+            }
+        }
+
+        private Node parseQuantifier(Node node) throws UnsupportedPatternException {
+            char c = regex.charAt(pos++);
+            int min;
+            int max;
+            if (c == '*') {
+                min = 0;
+                max = -1;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+            } else {
+                min = parseNumber();
+                max = min;
+                if (pos < regex.length() && regex.charAt(pos) == ',') {
+                    pos++;
+                    max = (pos < regex.length() && regex.charAt(pos) == '}') ? -1 : parseNumber();
+                }
+                if (pos >= regex.length() || regex.charAt(pos) != '}' || (max != -1 && max < min)) {
+                    throw new UnsupportedPatternException();
+                }
+                pos++;
+            }
+
+            // Reluctant quantifiers match the same values; possessive quantifiers do not
+            if (pos < regex.length() && regex.charAt(pos) == '?') {
+                pos++;
+            }
+            if (pos < regex.length() && isQuantifier(regex.charAt(pos))) {
+                throw new UnsupportedPatternException();
+            }
+            return new RepeatNode(node, min, max);
+        }
+
+        private int parseNumber() throws UnsupportedPatternException {
+            int start = pos;
+            while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9' && pos - start < 4) {
+                pos++;
+            }
+            if (pos == start) {
+                throw new UnsupportedPatternException();
+            }
+            int number = Integer.parseInt(regex.substring(start, pos));
+            if (number > MAX_REPETITION) {
+                throw new UnsupportedPatternException();
+            }
+            return number;
+        }
+
+        private int[] parseClass() throws UnsupportedPatternException {
+            boolean negate = false;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                negate = true;
+                pos++;
+            }
+
+            List<int[]> items = new ArrayList<>();
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw new UnsupportedPatternException();
+                }
+                char c = regex.charAt(pos++);
+                if (c == ']' && !first) {
+                    break;
+                }
+                if (c == '[' || c == ']' || (c == '&' && pos < regex.length() && regex.charAt(pos) == '&')) {
+                    throw new UnsupportedPatternException();
+                }
+                if (c == '-' && !first && (pos >= regex.length() || regex.charAt(pos) != ']')) {
+                    throw new UnsupportedPatternException();
+                }
+                first = false;
+
+                int[] item;
+                boolean single;
+                if (c == '\\') {
+                    item = parseEscape();
+                    single = !escapedClass;
+                } else {
+                    item = literal(c);
+                    single = true;
+                }
+
+                // Range such as a-z
+                if (single && pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    char e = regex.charAt(pos++);
+                    int[] end;
+                    if (e == '\\') {
+                        end = parseEscape();
+                        if (escapedClass) {
+                            throw new UnsupportedPatternException();
+                        }
+                    } else if (e == '[') {
+                        throw new UnsupportedPatternException();
+                    } else {
+                        end = literal(e);
+                    }
+                    if (end[0] < item[0]) {
+                        throw new UnsupportedPatternException();
+                    }
+                    item = new int[]{item[0], end[0]};
+                }
+                items.add(item);
+            }
+
+            int[] ranges = union(items);
+            return negate ? complement(ranges) : ranges;
+        }
+
+        private int[] parseEscape() throws UnsupportedPatternException {
+            if (pos >= regex.length()) {
+                throw new UnsupportedPatternException();
+            }
+            char c = regex.charAt(pos++);
+            escapedClass = true;
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return complement(DIGIT);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return complement(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return complement(SPACE);
+                default:
+            }
+
+            escapedClass = false;
+            switch (c) {
+                case 't':
+                    return literal('\t');
+                case 'n':
+                    return literal('\n');
+                case 'r':
+                    return literal('\r');
+                case 'f':
+                    return literal('\f');
+                case 'a':
+                    return literal('\u0007');
+                case 'e':
+                    return literal('\u001B');
+                case 'x':
+                    return literal(parseHex(2));
+                case 'u':
+                    return literal(parseHex(4));
+                default:
+                    // Other letters and digits are boundaries, back references, properties, or quotes
+                    if (Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedPatternException();
+                    }
+                    return literal(c);
+            }
+        }
+
+        private char parseHex(int digits) throws UnsupportedPatternException {
+            if (pos + digits > regex.length()) {
+                throw new UnsupportedPatternException();
+            }
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(regex.charAt(pos++), 16);
+                if (digit < 0) {
+                    throw new UnsupportedPatternException();
+                }
+                value = value * 16 + digit;
+            }
+            return (char) value;
+        }
+
+        private static int[] literal(char c) throws UnsupportedPatternException {
+            if (Character.isSurrogate(c)) {
+                throw new UnsupportedPatternException();
+            }
+            return new int[]{c, c};
+        }
+
+        private static boolean isQuantifier(char c) {
+            return c == '*' || c == '+' || c == '?' || c == '{';
+        }
+    }
+
+    /**
+     * Nondeterministic automaton built from the parsed pattern. State 0 is the accepting state.
+     */
+    private static class Nfa {
+
+        /* Ranges of characters of each state, or null for states with only empty transitions */
+        final List<int[]> ranges = new ArrayList<>();
+
+        /* Next state after matching a character, for character states */
+        final List<Integer> next = new ArrayList<>();
+
+        /* States reached without matching a character */
+        final List<int[]> empty = new ArrayList<>();
+
+        int start;
+
+        boolean build(Node root) {
+            addState(null, -1, new int[0]);
+            start = compile(root, 0);
+            return start >= 0;
+        }
+
+        /* Compiles the node to states leading to the next state, and returns the first state, or -1 if there are too many states */
+        private int compile(Node node, int nextState) {
+            if (nextState < 0 || ranges.size() > MAX_NFA_STATES) {
+                return -1;
+            }
+            if (node instanceof CharsNode) {
+                return addState(((CharsNode) node).ranges, nextState, new int[0]);
+            }
+            if (node instanceof ConcatNode) {
+                List<Node> nodes = ((ConcatNode) node).nodes;
+                int state = nextState;
+                for (int i = nodes.size() - 1; i >= 0; i--) {
+                    state = compile(nodes.get(i), state);
+                }
+                return state;
+            }
+            if (node instanceof AltNode) {
+                List<Node> nodes = ((AltNode) node).nodes;
+                int[] states = new int[nodes.size()];
+                for (int i = 0; i < states.length; i++) {
+                    states[i] = compile(nodes.get(i), nextState);
+                    if (states[i] < 0) {
+                        return -1;
+                    }
+                }
+                return addState(null, -1, states);
+            }
+
+            RepeatNode repeat = (RepeatNode) node;
+            int state = nextState;
+            if (repeat.max < 0) {
+                int loop = addState(null, -1, null);
+                int body = compile(repeat.node, loop);
+                empty.set(loop, new int[]{body, nextState});
+                state = (body < 0) ? -1 : loop;
+            } else {
+                for (int i = repeat.min; i < repeat.max && state >= 0; i++) {
+                    int body = compile(repeat.node, state);
+                    state = (body < 0) ? -1 : addState(null, -1, new int[]{body, nextState});
+                }
+            }
+            for (int i = 0; i < repeat.min && state >= 0; i++) {
+                state = compile(repeat.node, state);
+            }
+            return state;
+        }
+
+        private int addState(int[] chars, int nextState, int[] emptyStates) {
+            ranges.add(chars);
+            next.add(nextState);
+            empty.add(emptyStates);
+            return ranges.size() - 1;
+        }
+
+        /* Adds the state and the states reachable from it without matching a character */
+        void closure(int state, BitSet states) {
+            if (state < 0 || states.get(state)) {
+                return;
+            }
+            states.set(state);
+            for (int emptyState : empty.get(state)) {
+                closure(emptyState, states);
+            }
+        }
+    }
+
+    /**
+     * Deterministic automaton over classes of characters that are matched alike.
+     */
+    private static class Automaton implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /* First character of each class */
+        final int[] classStarts;
+
+        /* Class of each ASCII character */
+        final int[] asciiClasses;
+
+        /* Next state for each state and class */
+        final int[] transitions;
+
+        final boolean[] accepting;
+
+        final int start;
+
+        /* State from which no value is accepted, or -1 if none */
+        final int dead;
+
+        private Automaton(int[] classStarts, int[] transitions, boolean[] accepting, int dead) {
+            this.classStarts = classStarts;
+            this.transitions = transitions;
+            this.accepting = accepting;
+            this.start = 0;
+            this.dead = dead;
+
+            asciiClasses = new int[128];
+            for (char c = 0; c < 128; c++) {
+                asciiClasses[c] = findClass(c);
+            }
+        }
+
+        /**
+         * Builds the automaton by subset construction.
+         *
+         * @param nfa  the nondeterministic automaton
+         * @param find {@code true} to accept once the pattern is found anywhere in the value, or {@code false} to match the whole value
+         * @return the automaton, or {@code null} if there are too many states
+         */
+        static Automaton build(Nfa nfa, boolean find) {
+            TreeSet<Integer> boundaries = new TreeSet<>();
+            boundaries.add(0);
+            for (int[] chars : nfa.ranges) {
+                if (chars != null) {
+                    for (int i = 0; i < chars.length; i += 2) {
+                        boundaries.add(chars[i]);
+                        if (chars[i + 1] < 0xFFFF) {
+                            boundaries.add(chars[i + 1] + 1);
+                        }
+                    }
+                }
+            }
+            int[] classStarts = new int[boundaries.size()];
+            int classCount = 0;
+            for (int boundary : boundaries) {
+                classStarts[classCount++] = boundary;
+            }
+
+            BitSet initial = new BitSet();
+            nfa.closure(nfa.start, initial);
+
+            List<BitSet> states = new ArrayList<>();
+            Map<BitSet, Integer> stateIds = new HashMap<>();
+            states.add(initial);
+            stateIds.put(initial, 0);
+
+            int[] transitions = new int[16 * classCount];
+            for (int id = 0; id < states.size(); id++) {
+                BitSet current = states.get(id);
+                for (int k = 0; k < classCount; k++) {
+                    BitSet target = new BitSet();
+                    if (find) {
+                        target.or(initial);
+                    }
+                    // Once found, stay found
+                    if (find && current.get(0)) {
+                        target.set(0);
+                    }
+                    for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+                        int[] chars = nfa.ranges.get(s);
+                        if (chars != null && contains(chars, classStarts[k])) {
+                            nfa.closure(nfa.next.get(s), target);
+                        }
+                    }
+
+                    Integer targetId = stateIds.get(target);
+                    if (targetId == null) {
+                        if (states.size() >= MAX_STATES) {
+                            return null;
+                        }
+                        targetId = states.size();
+                        states.add(target);
+                        stateIds.put(target, targetId);
+                    }
+                    if ((id + 1) * classCount > transitions.length) {
+                        transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                    }
+                    transitions[id * classCount + k] = targetId;
+                }
+            }
+
+            boolean[] accepting = new boolean[states.size()];
+            Integer dead = stateIds.get(new BitSet());
+            for (int id = 0; id < accepting.length; id++) {
+                accepting[id] = states.get(id).get(0);
+            }
+            return new Automaton(classStarts, Arrays.copyOf(transitions, states.size() * classCount), accepting, (dead != null) ? dead : -1);
+        }
+
+        int next(int state, char c) {
+            int charClass = (c < 128) ? asciiClasses[c] : findClass(c);
+            return transitions[state * classStarts.length + charClass];
+        }
+
+        private int findClass(char c) {
+            int index = Arrays.binarySearch(classStarts, c);
+            return (index >= 0) ? index : -index - 2;
+        }
+    }
+
+    /* Indicates if the character is in the ranges */
+    private static boolean contains(int[] ranges, int c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (c >= ranges[i] && c <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Merges ranges into sorted, non-overlapping ranges */
+    private static int[] union(List<int[]> items) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int[] item : items) {
+            for (int i = 0; i < item.length; i += 2) {
+                pairs.add(new int[]{item[i], item[i + 1]});
+            }
+        }
+        int[][] sorted = pairs.toArray(new int[pairs.size()][]);
+        Arrays.sort(sorted, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return Integer.compare(a[0], b[0]);
+            }
+        });
+
+        List<Integer> merged = new ArrayList<>();
+        for (int[] pair : sorted) {
+            int last = merged.size() - 1;
+            if (last > 0 && pair[0] <= merged.get(last) + 1) {
+                merged.set(last, Math.max(merged.get(last), pair[1]));
+            } else {
+                merged.add(pair[0]);
+                merged.add(pair[1]);
+            }
+        }
+
+        int[] ranges = new int[merged.size()];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = merged.get(i);
+        }
+        return ranges;
+    }
+
+    /* Returns the characters not in the sorted ranges */
+    private static int[] complement(int[] ranges) {
+        List<Integer> result = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result.add(next);
+                result.add(ranges[i] - 1);
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= 0xFFFF) {
+            result.add(next);
+            result.add(0xFFFF);
+        }
+
+        int[] complement = new int[result.size()];
+        for (int i = 0; i < complement.length; i++) {
+            complement[i] = result.get(i);
+        }
+        return complement;
+    }
+}
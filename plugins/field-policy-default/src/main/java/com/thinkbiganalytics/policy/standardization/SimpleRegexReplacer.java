@@ -23,6 +23,7 @@ package com.thinkbiganalytics.policy.standardization;
 
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyRef;
+import com.thinkbiganalytics.policy.matching.CompiledRegex;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,7 @@ public class SimpleRegexReplacer implements StandardizationPolicy {
     @PolicyProperty(name = "Regex Pattern", required = true)
     private String inputPattern;
     private Pattern pattern;
+    private CompiledRegex compiledRegex;
     @PolicyProperty(name = "Replacement", hint = "Text to replace the regex match", placeholder = "")
     private String replacement = "";
 
@@ -49,6 +51,7 @@ public class SimpleRegexReplacer implements StandardizationPolicy {
         try {
             this.inputPattern = regex;
             this.pattern = Pattern.compile(regex);
+            this.compiledRegex = CompiledRegex.compile(pattern);
             if (replace != null) {
                 this.replacement = replace;
             }
@@ -64,7 +67,7 @@ public class SimpleRegexReplacer implements StandardizationPolicy {
         if (!valid) {
             return value;
         }
-        return pattern.matcher(value).replaceAll(replacement);
+        return compiledRegex.replaceAll(value, replacement);
     }
 
     public Pattern getPattern() {
@@ -23,11 +23,11 @@ package com.thinkbiganalytics.policy.validation;
 
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyRef;
+import com.thinkbiganalytics.policy.matching.CompiledRegex;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -40,12 +40,14 @@ public class RegexValidator implements ValidationPolicy<String> {
     private String regexExpression;
 
     private Pattern pattern;
+    private CompiledRegex compiledRegex;
     private boolean valid;
 
     public RegexValidator(@PolicyPropertyRef(name = "Regex expression") String regex) {
         try {
             this.regexExpression = regex;
             this.pattern = Pattern.compile(regex);
+            this.compiledRegex = CompiledRegex.compile(pattern);
             valid = true;
         } catch (PatternSyntaxException e) {
             log.error("Invalid regex [" + e + "]. All values will be valid.", e);
@@ -57,8 +59,7 @@ public class RegexValidator implements ValidationPolicy<String> {
         if (!valid) {
             return true;
         }
-        Matcher matcher = pattern.matcher(value);
-        return (matcher.matches());
+        return compiledRegex.matches(value);
     }
 
     public String getRegexExpression() {
@@ -0,0 +1,111 @@
+package com.thinkbiganalytics.policy.matching;
+
+/*-
+ * #%L
+ * thinkbig-field-policy-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * test the {@link CompiledRegex} matches the same values as {@link Pattern}
+ */
+public class CompiledRegexTest {
+
+    private static final String[] COMPILED = {
+        "[a-z0-9.]+@[a-z]+\\.com", "\\d{3}-\\d{4}", "^(CA|NY|TX)$", "a|ab|abc", "(a+)+b", "[^,]*", ".*", "x?y{2,3}z*", "\\w+\\s\\W", "[-a]",
+        "[a-]+", "(?:ab)*c", "[\\d.]+", "\\x41\\u0042", "a.c", "", "\\.", "[^\\n]+", "(a|b)*abb", "a{0}", "a{2,}", "[^\\d\\s]+?", "\\(\\d\\)", "b*$"
+    };
+
+    private static final String[] NOT_COMPILED = {"\\bab", "(a)\\1", "(?i)abc", "a++", "a(?=b)", "[a-c&&b]", "\\p{Alpha}+", "a\\Z"};
+
+    private static final char[] ALPHABET = "abcxyzAB_019.-@,( )\n\r\u0085\u00e9".toCharArray();
+
+    @Test
+    public void testCompiled() {
+        for (String regex : COMPILED) {
+            assertTrue(regex, CompiledRegex.compile(regex).isCompiled());
+        }
+        for (String regex : NOT_COMPILED) {
+            assertFalse(regex, CompiledRegex.compile(regex).isCompiled());
+        }
+    }
+
+    @Test
+    public void testSameAsPattern() {
+        Random random = new Random(17);
+        for (String[] regexes : new String[][]{COMPILED, NOT_COMPILED}) {
+            for (String regex : regexes) {
+                Pattern pattern = Pattern.compile(regex);
+                CompiledRegex compiled = CompiledRegex.compile(pattern);
+
+                for (int n = 0; n < 3000; n++) {
+                    StringBuilder value = new StringBuilder();
+                    int length = random.nextInt(10);
+                    for (int i = 0; i < length; i++) {
+                        value.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+                    }
+                    assertSameAsPattern(pattern, compiled, value.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExamples() {
+        CompiledRegex email = CompiledRegex.compile("[a-z0-9.]+@[a-z]+\\.com");
+        assertTrue(email.matches("john.doe@example.com"));
+        assertFalse(email.matches("john.doe@example.org"));
+        assertTrue(email.find("to: a@b.com;"));
+        assertEquals("to: # and #", email.replaceAll("to: a@b.com and c@d.com", "#"));
+
+        // Backtracking patterns match in linear time
+        CompiledRegex nested = CompiledRegex.compile("(a+)+b");
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append('a');
+        }
+        assertFalse(nested.matches(value));
+        assertFalse(nested.find(value));
+    }
+
+    @Test
+    public void testSupplementaryCharacters() {
+        String[] values = {"a\uD83D\uDE00", "\uD83D\uDE00", "a\uD83Dx", "ab"};
+        for (String regex : new String[]{"a.", ".", "[^b]+", "a\\W"}) {
+            Pattern pattern = Pattern.compile(regex);
+            for (String value : values) {
+                assertSameAsPattern(pattern, CompiledRegex.compile(pattern), value);
+            }
+        }
+    }
+
+    private static void assertSameAsPattern(Pattern pattern, CompiledRegex compiled, String value) {
+        String message = pattern.pattern() + " with [" + value + "]";
+        assertEquals(message, pattern.matcher(value).matches(), compiled.matches(value));
+        assertEquals(message, pattern.matcher(value).find(), compiled.find(value));
+        assertEquals(message, pattern.matcher(value).replaceAll("#"), compiled.replaceAll(value, "#"));
+    }
+}
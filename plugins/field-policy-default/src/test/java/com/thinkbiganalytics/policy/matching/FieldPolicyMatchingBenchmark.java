@@ -0,0 +1,133 @@
+package com.thinkbiganalytics.policy.matching;
+
+/*-
+ * #%L
+ * thinkbig-field-policy-default
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the nanoseconds per value of {@link CompiledRegex} and {@link Pattern}, for representative field policies and values.
+ *
+ * This is not run with the unit tests.  Run it with {@code mvn test -Dtest=FieldPolicyMatchingBenchmark}.
+ */
+public class FieldPolicyMatchingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(FieldPolicyMatchingBenchmark.class);
+
+    private static final int VALUES = 10000;
+
+    private static final int ITERATIONS = 200;
+
+    /* Prevents the JIT from removing the measured calls */
+    private static long sink;
+
+    @Test
+    public void benchmark() {
+        Random random = new Random(42);
+
+        // Regex validators
+        String[] emails = new String[VALUES];
+        String[] phones = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            emails[i] = "user" + random.nextInt(100000) + (random.nextInt(10) == 0 ? "#" : "") + "@example." + (random.nextBoolean() ? "com" : "org");
+            phones[i] = String.format("(%03d) %03d-%04d", random.nextInt(1000), random.nextInt(1000), random.nextInt(10000)) + (random.nextInt(10) == 0 ? "x" : "");
+        }
+        compareMatches("Regex email", "[a-z0-9.]+@[a-z]+\\.com", emails, ITERATIONS);
+        compareMatches("Regex phone", "\\(\\d{3}\\) \\d{3}-\\d{4}", phones, ITERATIONS);
+
+        // Nested quantifiers backtrack exponentially on values that almost match
+        String[] almost = new String[16];
+        for (int i = 0; i < almost.length; i++) {
+            StringBuilder value = new StringBuilder();
+            for (int j = 0; j < 20 + i % 4; j++) {
+                value.append('a');
+            }
+            almost[i] = value.append('c').toString();
+        }
+        compareMatches("Regex (a+)+b on 20-23 a's", "(a+)+b", almost, 3);
+
+        // Regex replacement of non-digits, on values with and without a match
+        String[] digits = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            digits[i] = (random.nextInt(4) == 0) ? phones[i] : phones[i].replaceAll("[^0-9]", "");
+        }
+        compareReplaceAll("Regex replace non-digits, 25% with a match", "[^0-9]", digits, ITERATIONS);
+    }
+
+    private static void compareMatches(String name, String regex, String[] values, int iterations) {
+        Pattern pattern = Pattern.compile(regex);
+        CompiledRegex compiled = CompiledRegex.compile(pattern);
+        long patternNanos = 0;
+        long compiledNanos = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    sink += pattern.matcher(value).matches() ? 1 : 0;
+                }
+            }
+            patternNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    sink += compiled.matches(value) ? 1 : 0;
+                }
+            }
+            compiledNanos = System.nanoTime() - start;
+        }
+        print(name, "Pattern", patternNanos, "CompiledRegex", compiledNanos, (long) iterations * values.length);
+    }
+
+    private static void compareReplaceAll(String name, String regex, String[] values, int iterations) {
+        Pattern pattern = Pattern.compile(regex);
+        CompiledRegex compiled = CompiledRegex.compile(pattern);
+        long patternNanos = 0;
+        long compiledNanos = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    sink += pattern.matcher(value).replaceAll("").length();
+                }
+            }
+            patternNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int n = 0; n < iterations; n++) {
+                for (String value : values) {
+                    sink += compiled.replaceAll(value, "").length();
+                }
+            }
+            compiledNanos = System.nanoTime() - start;
+        }
+        print(name, "Pattern", patternNanos, "CompiledRegex", compiledNanos, (long) iterations * values.length);
+    }
+
+    private static void print(String name, String baseline, long baselineNanos, String candidate, long candidateNanos, long count) {
+        log.info(String.format("%-45s %s %,10.1f ns/value, %s %,10.1f ns/value (%.1fx)", name, baseline, (double) baselineNanos / count, candidate,
+                               (double) candidateNanos / count, (double) baselineNanos / Math.max(candidateNanos, 1)));
+    }
+}
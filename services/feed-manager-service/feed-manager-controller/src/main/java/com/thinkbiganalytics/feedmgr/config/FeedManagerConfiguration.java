@@ -40,6 +40,7 @@ import com.thinkbiganalytics.feedmgr.service.feed.ExportImportFeedService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerFeedService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerPreconditionService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedModelTransform;
+import com.thinkbiganalytics.feedmgr.service.feed.FeedSummaryCache;
 import com.thinkbiganalytics.feedmgr.service.feed.datasource.DerivedDatasourceFactory;
 import com.thinkbiganalytics.feedmgr.service.template.DefaultFeedManagerTemplateService;
 import com.thinkbiganalytics.feedmgr.service.template.FeedManagerTemplateService;
@@ -76,6 +77,11 @@ public class FeedManagerConfiguration {
         return new DefaultFeedManagerFeedService();
     }
 
+    @Bean
+    public FeedSummaryCache feedSummaryCache() {
+        return new FeedSummaryCache();
+    }
+
     @Bean
     public FeedManagerCategoryService feedManagerCategoryService() {
         return new DefaultFeedManagerCategoryService();
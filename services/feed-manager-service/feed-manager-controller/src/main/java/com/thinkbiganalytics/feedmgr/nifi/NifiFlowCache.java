@@ -9,9 +9,9 @@ package com.thinkbiganalytics.feedmgr.nifi;
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *     http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -20,10 +20,9 @@ package com.thinkbiganalytics.feedmgr.nifi;
  * #L%
  */
 
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.thinkbiganalytics.DateTimeUtil;
+import com.thinkbiganalytics.feedmgr.nifi.NifiFlowCacheState.ProcessGroupFlow;
 import com.thinkbiganalytics.feedmgr.rest.model.FeedMetadata;
 import com.thinkbiganalytics.feedmgr.rest.model.RegisteredTemplate;
 import com.thinkbiganalytics.feedmgr.service.MetadataService;
@@ -31,7 +30,6 @@ import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
 import com.thinkbiganalytics.metadata.modeshape.common.ModeShapeAvailability;
 import com.thinkbiganalytics.metadata.modeshape.common.ModeShapeAvailabilityListener;
-import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
 import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheSync;
 import com.thinkbiganalytics.metadata.rest.model.nifi.NifiFlowCacheSnapshot;
 import com.thinkbiganalytics.nifi.provenance.NiFiProvenanceConstants;
@@ -51,11 +49,12 @@ import org.apache.nifi.web.api.dto.ReportingTaskDTO;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -64,6 +63,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -76,6 +76,9 @@ import javax.inject.Inject;
  * Each Processor has an internal {@code flowId} generated why Kylo walks the flow This internal id is used to associate the Feed flow as a template with the Feed flow created when the feed is
  * saved/updated
  *
+ * The cache is held in an immutable {@link NifiFlowCacheState} that is replaced with a new version on each change.
+ * A rebuild only walks the process groups whose contents changed since the last rebuild and the previous version is used until the rebuild completes.
+ *
  * @see com.thinkbiganalytics.nifi.rest.visitor.NifiConnectionOrderVisitor
  */
 public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabilityListener, NiFiProvenanceConstants {
@@ -98,47 +101,42 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     PropertyExpressionResolver propertyExpressionResolver;
     @Inject
     private NifiConnectionService nifiConnectionService;
-    private Map<String, String> feedNameToTemplateNameMap = new ConcurrentHashMap<>();
-
-    private Map<String, Map<String, List<NifiFlowProcessor>>> feedFlowIdProcessorMap = new ConcurrentHashMap<>();
-
-    private Map<String, Map<String, List<NifiFlowProcessor>>> feedProcessorIdProcessorMap = new ConcurrentHashMap<>();
-
-    private Map<String, NifiFlowProcessor> processorIdMap = new ConcurrentHashMap<>();
 
     /**
-     * Flag to mark if the cache is loaded or not This is used to determine if the cache is ready to be used
+     * The current version of the cache
      */
-    private boolean loaded = false;
+    private volatile NifiFlowCacheState state = NifiFlowCacheState.EMPTY;
 
     /**
-     * Flag to indicate we are connected to NiFi
+     * The changes made by each version of the state, used to send only the changes to each sync
      */
-    private boolean nifiConnected = false;
+    private final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
 
     /**
-     * Flag to indicate Modeshape is available
+     * The number of versions kept in the change log. Syncs older than this get the whole cache
      */
-    private boolean modeShapeAvailable = false;
-
-    private Map<String, String> processorIdToFeedProcessGroupId = new ConcurrentHashMap<>();
+    @Value("${kylo.nifi.flow.cache.changelog.size:1000}")
+    private int changeLogSize = 1000;
 
-    private Map<String, String> processorIdToFeedNameMap = new ConcurrentHashMap<>();
-    private Map<String, String> processorIdToProcessorName = new ConcurrentHashMap<>();
-    private Map<String, NiFiFlowCacheConnectionData> connectionIdToConnectionMap = new ConcurrentHashMap<>();
-    private Map<String, String> connectionIdCacheNameMap = new ConcurrentHashMap<>();
+    /**
+     * Only one rebuild is run at a time
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
 
     /**
-     * Set of the category.feed names for those that are just streaming feeds
+     * Flag to mark if the cache is loaded or not This is used to determine if the cache is ready to be used
      */
-    private Set<String> streamingFeeds = new HashSet();
+    private volatile boolean loaded = false;
 
     /**
-     * Set of the category.feed names
+     * Flag to indicate we are connected to NiFi
      */
-    private Set<String> allFeeds = new HashSet<>();
+    private boolean nifiConnected = false;
 
-    private Map<String, Long> feedLastUpated = new ConcurrentHashMap<>();
+    /**
+     * Flag to indicate Modeshape is available
+     */
+    private boolean modeShapeAvailable = false;
 
     /**
      * Map of the sync id to cache
@@ -153,8 +151,6 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
      */
     private Map<String, DateTime> lastSyncTimeMap = new ConcurrentHashMap<>();
 
-    private DateTime lastUpdated = null;
-
     @PostConstruct
     private void init() {
         nifiConnectionService.subscribeConnectionListener(this);
@@ -265,40 +261,111 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
     /**
      * Rebuild the base cache that others will update from.
+     * Only the process groups that changed since the last rebuild are walked.
      */
-    public synchronized void rebuildAll() {
-        loaded = false;
+    public void rebuildAll() {
+        rebuildAll(false);
+    }
 
+    /**
+     * Rebuild the base cache that others will update from.
+     *
+     * The current cache is used until the rebuild completes.
+     * If a rebuild is already running this will wait for it to complete and then rebuild again.
+     *
+     * @param fullRebuild {@code true} to walk every process group, {@code false} to only walk the process groups that changed since the last rebuild
+     */
+    public void rebuildAll(boolean fullRebuild) {
+        rebuildLock.lock();
         try {
-            ensureNiFiKyloReportingTask();
-        } catch (Exception e) {
-            log.error("Exception while trying to ensure KyloReportingTask {}", e.getMessage(), e);
-        }
-        List<NifiFlowProcessGroup> allFlows = nifiRestClient.getFeedFlows();
+            long start = System.currentTimeMillis();
+            DateTime rebuildTime = DateTimeUtil.getNowUTCTime();
 
-        List<RegisteredTemplate> templates = null;
-        clearAll();
+            try {
+                ensureNiFiKyloReportingTask();
+            } catch (Exception e) {
+                log.error("Exception while trying to ensure KyloReportingTask {}", e.getMessage(), e);
+            }
 
-        templates = metadataAccess.read(() -> metadataService.getRegisteredTemplates(), MetadataAccess.SERVICE);
-        Map<String, RegisteredTemplate> feedTemplatesMap = new HashMap<>();
+            List<RegisteredTemplate> templates = metadataAccess.read(() -> metadataService.getRegisteredTemplates(), MetadataAccess.SERVICE);
+            Map<String, RegisteredTemplate> feedTemplatesMap = new HashMap<>();
+            Map<String, String> feedNameToTemplateName = new HashMap<>();
+            Set<String> streamingFeeds = new HashSet<>();
 
-        //populate the template mappings and feeds to determine if the feed uses a streaming or batch template
-        templates.stream().forEach(template -> populateTemplateMappingCache(template, feedTemplatesMap));
+            //populate the template mappings and feeds to determine if the feed uses a streaming or batch template
+            templates.stream().forEach(template -> template.getFeedNames().stream().forEach(feedName -> {
+                feedTemplatesMap.put(feedName, template);
+                feedNameToTemplateName.put(feedName, template.getTemplateName());
+                if (template.isStream()) {
+                    streamingFeeds.add(feedName);
+                } else {
+                    streamingFeeds.remove(feedName);
+                }
+            }));
+
+            NifiFlowCacheState previous = fullRebuild ? NifiFlowCacheState.EMPTY : state;
+            Map<String, ProcessGroupFlow> flows = walkChangedFlows(previous, feedTemplatesMap);
+            long refreshed = flows.values().stream().filter(flow -> !flow.getRefreshTime().isBefore(rebuildTime)).count();
+            long rebuildMillis = System.currentTimeMillis() - start;
+
+            NifiFlowCacheState updated = update(current -> {
+                //keep the flows of the feeds that were saved during the rebuild
+                Map<String, ProcessGroupFlow> rebuiltFlows = new LinkedHashMap<>(flows);
+                current.getProcessGroupFlows().values().stream().filter(flow -> !flow.getRefreshTime().isBefore(rebuildTime)).forEach(flow -> {
+                    rebuiltFlows.remove(flow.getProcessGroupId());
+                    rebuiltFlows.put(flow.getProcessGroupId(), flow);
+                    if (current.getStreamingFeeds().contains(flow.getFeedName())) {
+                        streamingFeeds.add(flow.getFeedName());
+                    }
+                });
+                NifiFlowCacheState.Builder builder = current.toBuilder()
+                    .processGroupFlows(rebuiltFlows)
+                    .feedNameToTemplateName(feedNameToTemplateName)
+                    .streamingFeeds(streamingFeeds)
+                    .rebuilt(rebuildTime, rebuildMillis, (int) refreshed, (int) (flows.size() - refreshed));
+                if (fullRebuild) {
+                    builder.clearTemplateFlows();
+                }
+                return builder;
+            });
+            loaded = true;
+            log.info("Rebuilt the NiFiFlowCache version {} in {} ms.  Walked {} process groups, {} were unchanged", updated.getVersion(), rebuildMillis, refreshed, flows.size() - refreshed);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
 
-        allFlows.stream().forEach(nifiFlowProcessGroup -> {
-            RegisteredTemplate template = feedTemplatesMap.get(nifiFlowProcessGroup.getFeedName());
-            if (template != null) {
-                updateFlow(nifiFlowProcessGroup.getFeedName(), template.isStream(), nifiFlowProcessGroup);
+    /**
+     * Walks the feed and reusable flow process groups in NiFi, fetching and walking a bounded number of process groups at the same time.
+     * The flows of process groups that have not changed since the previous version are reused.
+     *
+     * @param previous         the version of the cache to reuse flows from
+     * @param feedTemplatesMap map of the feed name to its template
+     * @return the flows of all the process groups by process group id
+     */
+    private Map<String, ProcessGroupFlow> walkChangedFlows(NifiFlowCacheState previous, Map<String, RegisteredTemplate> feedTemplatesMap) {
+        //a feed flow includes the reusable flows it connects to so it is walked again if they change
+        Map<String, String> reusableFingerprints = new ConcurrentHashMap<>();
+        List<ProcessGroupFlow> walkedFlows = nifiRestClient.walkFeedFlows(null, (feedName, feedProcessGroup, reusableFlows, feedFlow) -> {
+            boolean isFeed = feedTemplatesMap.containsKey(feedName);
+            boolean reusable = reusableFlows != null && reusableFlows.getId().equals(feedProcessGroup.getParentGroupId());
+            String reusableFingerprint = (reusableFlows == null || reusable) ? null
+                                                                               : reusableFingerprints.computeIfAbsent(reusableFlows.getId(), id -> ProcessGroupFingerprint.of(reusableFlows, null));
+
+            String fingerprint = ProcessGroupFingerprint.of(feedProcessGroup, reusableFingerprint);
+            ProcessGroupFlow flow = previous.getProcessGroupFlows().get(feedProcessGroup.getId());
+            if (flow != null && fingerprint.equals(flow.getFingerprint())) {
+                return flow.asFeed(isFeed);
             } else {
-                //this is possibly a reusable template.
-                //update the processorid and connection name maps
-                updateProcessorIdMaps(nifiFlowProcessGroup.getFeedName(), nifiFlowProcessGroup.getProcessorMap().values());
-                this.connectionIdToConnectionMap.putAll(toConnectionIdMap(nifiFlowProcessGroup.getConnectionIdMap().values()));
+                long start = System.currentTimeMillis();
+                NifiFlowProcessGroup walkedFlow = feedFlow.get();
+                return new ProcessGroupFlow(feedName, isFeed, fingerprint, walkedFlow, System.currentTimeMillis() - start);
             }
         });
-        loaded = true;
-
 
+        Map<String, ProcessGroupFlow> flows = new LinkedHashMap<>();
+        walkedFlows.forEach(flow -> flows.put(flow.getProcessGroupId(), flow));
+        return flows;
     }
 
     /**
@@ -369,90 +436,50 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         if (!preview) {
             lastSyncTimeMap.put(sync.getSyncId(), DateTime.now());
         }
-        if (sync.needsUpdate(lastUpdated)) {
-            Map<String, String> processorIdToFeedNameMapCopy = ImmutableMap.copyOf(processorIdToFeedNameMap);
-            Map<String, String> processorIdToFeedProcessGroupIdCopy = ImmutableMap.copyOf(processorIdToFeedProcessGroupId);
-            Map<String, String> processorIdToProcessorNameCopy = ImmutableMap.copyOf(processorIdToProcessorName);
-            Set<String> streamingFeedsCopy = ImmutableSet.copyOf(streamingFeeds);
-            Set<String> allFeedsCopy = ImmutableSet.copyOf(allFeeds);
-            Map<String, NiFiFlowCacheConnectionData> connectionDataMapCopy = ImmutableMap.copyOf(connectionIdToConnectionMap);
-
-            //get feeds updated since last sync
-            NifiFlowCacheSnapshot latest = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(processorIdToFeedNameMapCopy)
-                .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupIdCopy)
-                .withProcessorIdToProcessorName(processorIdToProcessorNameCopy)
-                .withStreamingFeeds(streamingFeedsCopy)
-                .withFeeds(allFeedsCopy)
-                .withConnections(connectionDataMapCopy)
-                .withSnapshotDate(lastUpdated).build();
-            return syncAndReturnUpdates(sync, latest, preview);
-        } else {
+        NifiFlowCacheState current = state;
+        Long sequence = sync.getSequence();
+        if (sequence != null && sequence == current.getVersion()) {
             return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
         }
-    }
-
 
-    private NiFiFlowCacheSync syncAndReturnUpdates(NiFiFlowCacheSync sync, NifiFlowCacheSnapshot latest, boolean preview) {
-        if (latest != null && sync.needsUpdate(latest.getSnapshotDate())) {
-
-            NifiFlowCacheSnapshot updated = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(sync.getProcessorIdToFeedNameMapUpdatedSinceLastSync(latest.getProcessorIdToFeedNameMap()))
-                .withProcessorIdToFeedProcessGroupId(sync.getProcessorIdToProcessGroupIdUpdatedSinceLastSync(latest.getProcessorIdToFeedProcessGroupId()))
-                .withProcessorIdToProcessorName(sync.getProcessorIdToProcessorNameUpdatedSinceLastSync(latest.getProcessorIdToProcessorName()))
-                .withStreamingFeeds(latest.getAllStreamingFeeds())
-                .withConnections(sync.getConnectionIdToConnectionUpdatedSinceLastSync(latest.getConnectionIdToConnectionName(), latest.getConnectionIdToConnection()))
-                .withFeeds(sync.getFeedsUpdatedSinceLastSync(latest.getAllFeeds()))
-                .build();
-            //reset the pointers on this sync to be the latest
-            if (!preview) {
-                sync.setSnapshot(latest);
-                sync.setLastSync(latest.getSnapshotDate());
-
-            }
-            NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
-            updatedSync.setUpdated(true);
-            if (!preview) {
-                updatedSync.setLastSync(latest.getSnapshotDate());
+        //send the changes since the last sync, or the whole cache if this is a new sync or the changes are no longer in the log
+        NifiFlowCacheSnapshot updated = sequence != null ? changeLog.changesSince(sequence, current) : null;
+        if (updated == null) {
+            if (sequence != null) {
+                log.info("NiFi flow cache sync {} at version {} is behind the change log.  Sending the whole cache at version {}", sync.getSyncId(), sequence, current.getVersion());
             }
-            return updatedSync;
-
+            updated = current.toSnapshot();
         }
-
-        return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+        //reset the pointers on this sync to be the latest
+        if (!preview) {
+            sync.setSnapshot(current.toSnapshot());
+            sync.setLastSync(current.getSnapshotDate());
+            sync.setSequence(current.getVersion());
+        }
+        NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
+        updatedSync.setUpdated(true);
+        updatedSync.setSequence(current.getVersion());
+        if (!preview) {
+            updatedSync.setLastSync(current.getSnapshotDate());
+        }
+        return updatedSync;
     }
 
 
     /**
-     * clears the current cache
-     ***/
-    private void clearAll() {
-        processorIdToFeedProcessGroupId.clear();
-        processorIdToFeedProcessGroupId.clear();
-        processorIdToProcessorName.clear();
-        connectionIdToConnectionMap.clear();
-        connectionIdCacheNameMap.clear();
-        streamingFeeds.clear();
-        allFeeds.clear();
-        feedNameToTemplateNameMap.clear();
-    }
-
-    private void populateTemplateMappingCache(RegisteredTemplate template, Map<String, RegisteredTemplate> feedTemplatesMap) {
-
-        template.getFeedNames().stream().forEach(feedName -> {
-            if (feedTemplatesMap != null) {
-                feedTemplatesMap.put(feedName, template);
-            }
-            feedNameToTemplateNameMap.put(feedName, template.getTemplateName());
-            if (template.isStream()) {
-                streamingFeeds.add(feedName);
-            } else {
-                streamingFeeds.remove(feedName);
-            }
-        });
+     * Replaces the current state with the next version
+     *
+     * @param change returns the builder of the next version from the current state
+     * @return the new state
+     */
+    private synchronized NifiFlowCacheState update(Function<NifiFlowCacheState, NifiFlowCacheState.Builder> change) {
+        NifiFlowCacheState next = change.apply(state).build();
+        //log the changes before publishing the state so every published version can be synced from the log
+        changeLog.append(state, next, changeLogSize);
+        state = next;
+        return state;
     }
 
-
     /**
      * Ensure that there is a configured reporting task
      */
@@ -530,23 +557,25 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
      * Called after someone updates/Registers a template in the UI using the template stepper
      * This is used to update the feed marker for streaming/batch feeds
      */
-    public synchronized void updateRegisteredTemplate(RegisteredTemplate template) {
-
-        populateTemplateMappingCache(template, null);
-
-        //update the processortype cachefeedNameToTemplateNameMap
-        List<String>
-            feedNames =
-            feedNameToTemplateNameMap.entrySet().stream().filter(entry -> entry.getValue().equalsIgnoreCase(template.getTemplateName())).map(entry -> entry.getKey()).collect(Collectors.toList());
-
-        log.info("Updated Template: {}, found {} associated feeds ", template.getTemplateName(), feedNames.size());
-        if (template.isStream()) {
-            streamingFeeds.addAll(feedNames);
-        } else {
-            streamingFeeds.removeAll(feedNames);
-        }
-        lastUpdated = DateTimeUtil.getNowUTCTime();
-
+    public void updateRegisteredTemplate(RegisteredTemplate template) {
+        update(current -> {
+            Map<String, String> feedNameToTemplateName = new HashMap<>(current.getFeedNameToTemplateName());
+            template.getFeedNames().stream().forEach(feedName -> feedNameToTemplateName.put(feedName, template.getTemplateName()));
+
+            //update the streaming flag of all the feeds using the template
+            List<String>
+                feedNames =
+                feedNameToTemplateName.entrySet().stream().filter(entry -> entry.getValue().equalsIgnoreCase(template.getTemplateName())).map(entry -> entry.getKey()).collect(Collectors.toList());
+
+            log.info("Updated Template: {}, found {} associated feeds ", template.getTemplateName(), feedNames.size());
+            Set<String> streamingFeeds = new HashSet<>(current.getStreamingFeeds());
+            if (template.isStream()) {
+                streamingFeeds.addAll(feedNames);
+            } else {
+                streamingFeeds.removeAll(feedNames);
+            }
+            return current.toBuilder().feedNameToTemplateName(feedNameToTemplateName).streamingFeeds(streamingFeeds);
+        });
     }
 
 
@@ -563,7 +592,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
         });
 
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        update(current -> current.toBuilder().templateProcessorNames(processorIdToProcessorName));
     }
 
     /**
@@ -583,7 +612,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
             });
         }
-        this.connectionIdToConnectionMap.putAll(toConnectionIdMap(connectionIdToConnectionMap.values()));
+        update(current -> current.toBuilder().templateConnections(NifiFlowCacheState.toConnectionData(connectionIdToConnectionMap.values())));
     }
 
 
@@ -614,85 +643,19 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
 
     private void updateFlow(String feedName, boolean isStream, String feedProcessGroupId, Collection<NifiFlowProcessor> processors, Collection<NifiFlowConnection> connections) {
-        feedFlowIdProcessorMap.put(feedName, toFlowIdProcessorMap(processors));
-        feedProcessorIdProcessorMap.put(feedName, toProcessorIdProcessorMap(processors));
-
-        updateProcessorIdMaps(feedProcessGroupId, processors);
-        Map<String, String> processorIdToProcessGroupId = new HashMap<>();
-        Map<String, String> processorIdToProcessorName = new HashMap<>();
-        processors.stream().forEach(flowProcessor -> {
-            processorIdToProcessGroupId.put(flowProcessor.getId(), feedProcessGroupId);
-            processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
-        });
-        this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
-
-        connectionIdToConnectionMap.putAll(toConnectionIdMap(connections));
-
-        if (connections != null) {
-            Map<String, String> connectionIdToNameMap = connections.stream().collect(Collectors.toMap(conn -> conn.getConnectionIdentifier(), conn -> conn.getName()));
-            connectionIdCacheNameMap.putAll(connectionIdToNameMap);
-        }
-
-        processorIdMap.putAll(toProcessorIdMap(processors));
-        processorIdToFeedNameMap.putAll(toProcessorIdFeedNameMap(processors, feedName));
-        lastUpdated = DateTimeUtil.getNowUTCTime();
-
-        if (isStream) {
-            streamingFeeds.add(feedName);
-        }
-        allFeeds.add(feedName);
-        feedLastUpated.put(feedName, lastUpdated.getMillis());
-
-    }
-
-    private void updateProcessorIdMaps(String processGroupId, Collection<NifiFlowProcessor> processors) {
-        Map<String, String> processorIdToProcessGroupId = new HashMap<>();
-        Map<String, String> processorIdToProcessorName = new HashMap<>();
-        processors.stream().forEach(flowProcessor -> {
-            processorIdToProcessGroupId.put(flowProcessor.getId(), processGroupId);
-            processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
-        });
-        this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
-
-    }
-
-    private Map<String, NiFiFlowCacheConnectionData> toConnectionIdMap(Collection<NifiFlowConnection> connections) {
-        Map<String, NiFiFlowCacheConnectionData> connectionMap = new HashMap<>();
-        connections.stream().forEach(conn -> {
-            connectionMap
-                .put(conn.getConnectionIdentifier(), new NiFiFlowCacheConnectionData(conn.getConnectionIdentifier(), conn.getName(), conn.getSourceIdentifier(), conn.getDestinationIdentifier()));
+        //the flow has no fingerprint so the next rebuild will walk it again
+        ProcessGroupFlow flow = new ProcessGroupFlow(feedProcessGroupId, feedName, true, null, processors, connections, 0L);
+        update(current -> {
+            NifiFlowCacheState.Builder builder = current.toBuilder().processGroupFlow(flow);
+            if (isStream) {
+                builder.streamingFeed(feedName);
+            }
+            return builder;
         });
-        return connectionMap;
-    }
-
-    private Map<String, NifiFlowProcessor> toProcessorIdMap(Collection<NifiFlowProcessor> processors) {
-        return processors.stream().collect(Collectors.toMap(NifiFlowProcessor::getId, Function.identity()));
-    }
-
-    private Map<String, String> toProcessorIdFeedNameMap(Collection<NifiFlowProcessor> processors, String feedName) {
-        return processors.stream().collect(Collectors.toMap(NifiFlowProcessor::getId, name -> feedName));
-    }
-
-
-    private Map<String, List<NifiFlowProcessor>> toFlowIdProcessorMap(Collection<NifiFlowProcessor> processors) {
-        if (processors != null && !processors.isEmpty()) {
-            return processors.stream().filter(nifiFlowProcessor -> nifiFlowProcessor.getFlowId() != null).collect(Collectors.groupingBy(NifiFlowProcessor::getFlowId));
-        }
-        return Collections.emptyMap();
-    }
-
-
-    private Map<String, List<NifiFlowProcessor>> toProcessorIdProcessorMap(Collection<NifiFlowProcessor> processors) {
-        if (processors != null && !processors.isEmpty()) {
-            return processors.stream().collect(Collectors.groupingBy(NifiFlowProcessor::getId));
-        }
-        return new HashMap<>();
     }
 
     public CacheSummary cacheSummary() {
-        return CacheSummary.build(syncMap);
+        return CacheSummary.build(syncMap, state, changeLog);
     }
 
     private void initExpireTimerThread() {
@@ -732,6 +695,14 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
         private Map<String, Integer> summary = new HashMap<>();
         private Integer cachedSyncIds;
+        private Long snapshotVersion;
+        private Long changeLogHorizon;
+        private DateTime lastRebuildTime;
+        private Long lastRebuildMillis;
+        private Integer processGroupsRefreshed;
+        private Integer processGroupsUnchanged;
+        private Map<String, Long> feedRefreshMillis = new HashMap<>();
+        private Map<String, DateTime> feedRefreshTime = new HashMap<>();
 
         public CacheSummary() {
 
@@ -750,6 +721,22 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             return new CacheSummary(cacheIds);
         }
 
+        static CacheSummary build(Map<String, NiFiFlowCacheSync> syncMap, NifiFlowCacheState state, NifiFlowCacheChangeLog changeLog) {
+            CacheSummary cacheSummary = build(syncMap);
+            cacheSummary.snapshotVersion = state.getVersion();
+            cacheSummary.changeLogHorizon = changeLog.getHorizon();
+            cacheSummary.lastRebuildTime = state.getLastRebuildTime();
+            cacheSummary.lastRebuildMillis = state.getLastRebuildMillis();
+            cacheSummary.processGroupsRefreshed = state.getProcessGroupsRefreshed();
+            cacheSummary.processGroupsUnchanged = state.getProcessGroupsUnchanged();
+            //versioned feeds have more than one process group so report the latest one
+            state.getProcessGroupFlows().values().stream().filter(ProcessGroupFlow::isFeed).forEach(flow -> {
+                cacheSummary.feedRefreshMillis.put(flow.getFeedName(), flow.getRefreshMillis());
+                cacheSummary.feedRefreshTime.put(flow.getFeedName(), flow.getRefreshTime());
+            });
+            return cacheSummary;
+        }
+
         public Map<String, Integer> getSummary() {
             return summary;
         }
@@ -765,5 +752,69 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         public void setCachedSyncIds(Integer cachedSyncIds) {
             this.cachedSyncIds = cachedSyncIds;
         }
+
+        public Long getSnapshotVersion() {
+            return snapshotVersion;
+        }
+
+        public void setSnapshotVersion(Long snapshotVersion) {
+            this.snapshotVersion = snapshotVersion;
+        }
+
+        public Long getChangeLogHorizon() {
+            return changeLogHorizon;
+        }
+
+        public void setChangeLogHorizon(Long changeLogHorizon) {
+            this.changeLogHorizon = changeLogHorizon;
+        }
+
+        public DateTime getLastRebuildTime() {
+            return lastRebuildTime;
+        }
+
+        public void setLastRebuildTime(DateTime lastRebuildTime) {
+            this.lastRebuildTime = lastRebuildTime;
+        }
+
+        public Long getLastRebuildMillis() {
+            return lastRebuildMillis;
+        }
+
+        public void setLastRebuildMillis(Long lastRebuildMillis) {
+            this.lastRebuildMillis = lastRebuildMillis;
+        }
+
+        public Integer getProcessGroupsRefreshed() {
+            return processGroupsRefreshed;
+        }
+
+        public void setProcessGroupsRefreshed(Integer processGroupsRefreshed) {
+            this.processGroupsRefreshed = processGroupsRefreshed;
+        }
+
+        public Integer getProcessGroupsUnchanged() {
+            return processGroupsUnchanged;
+        }
+
+        public void setProcessGroupsUnchanged(Integer processGroupsUnchanged) {
+            this.processGroupsUnchanged = processGroupsUnchanged;
+        }
+
+        public Map<String, Long> getFeedRefreshMillis() {
+            return feedRefreshMillis;
+        }
+
+        public void setFeedRefreshMillis(Map<String, Long> feedRefreshMillis) {
+            this.feedRefreshMillis = feedRefreshMillis;
+        }
+
+        public Map<String, DateTime> getFeedRefreshTime() {
+            return feedRefreshTime;
+        }
+
+        public void setFeedRefreshTime(Map<String, DateTime> feedRefreshTime) {
+            this.feedRefreshTime = feedRefreshTime;
+        }
     }
 }
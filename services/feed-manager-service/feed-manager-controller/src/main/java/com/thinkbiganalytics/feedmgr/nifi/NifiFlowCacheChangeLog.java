@@ -0,0 +1,147 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NifiFlowCacheSnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiPredicate;
+
+/**
+ * The entries added or changed by each version of the {@link NifiFlowCacheState}.
+ *
+ * A sync that has already received a version only needs the changes appended after it rather than a comparison against the whole cache.
+ * The oldest changes are dropped once the log is full, and syncs older than that get the whole cache again.
+ */
+class NifiFlowCacheChangeLog {
+
+    /**
+     * The changes by the version of the state that made them
+     */
+    private final ConcurrentSkipListMap<Long, Change> changes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds the entries that changed from the previous version to the next version
+     *
+     * @param previous the current state
+     * @param next     the state replacing it
+     * @param capacity the number of versions to keep
+     */
+    void append(NifiFlowCacheState previous, NifiFlowCacheState next, int capacity) {
+        changes.put(next.getVersion(), new Change(previous, next));
+        while (changes.size() > Math.max(capacity, 1)) {
+            changes.pollFirstEntry();
+        }
+    }
+
+    /**
+     * Merges the changes made after a version
+     *
+     * @param sequence the last version a sync received
+     * @param current  the version to return the changes up to
+     * @return the changes, or {@code null} if the changes after the version are no longer in the log
+     */
+    NifiFlowCacheSnapshot changesSince(long sequence, NifiFlowCacheState current) {
+        if (sequence > current.getVersion()) {
+            return null;
+        }
+        NavigableMap<Long, Change> since = changes.subMap(sequence, false, current.getVersion(), true);
+        if (since.size() != current.getVersion() - sequence) {
+            //the sync is behind the oldest change
+            return null;
+        }
+        Map<String, String> processorIdToFeedName = new HashMap<>();
+        Map<String, String> processorIdToFeedProcessGroupId = new HashMap<>();
+        Map<String, String> processorIdToProcessorName = new HashMap<>();
+        Map<String, NiFiFlowCacheConnectionData> connections = new HashMap<>();
+        Set<String> feeds = new HashSet<>();
+        since.values().forEach(change -> {
+            processorIdToFeedName.putAll(change.processorIdToFeedName);
+            processorIdToFeedProcessGroupId.putAll(change.processorIdToFeedProcessGroupId);
+            processorIdToProcessorName.putAll(change.processorIdToProcessorName);
+            connections.putAll(change.connections);
+            feeds.addAll(change.feeds);
+        });
+        return new NifiFlowCacheSnapshot.Builder()
+            .withProcessorIdToFeedNameMap(processorIdToFeedName)
+            .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupId)
+            .withProcessorIdToProcessorName(processorIdToProcessorName)
+            .withStreamingFeeds(current.getStreamingFeeds())
+            .withFeeds(feeds)
+            .withConnections(connections)
+            .withSnapshotDate(current.getSnapshotDate()).build();
+    }
+
+    /**
+     * @return the oldest version a sync can receive changes from, or {@code null} if the log is empty
+     */
+    Long getHorizon() {
+        Map.Entry<Long, Change> oldest = changes.firstEntry();
+        return oldest != null ? oldest.getKey() - 1 : null;
+    }
+
+    private static <V> Map<String, V> changed(Map<String, V> previous, Map<String, V> next, BiPredicate<V, V> same) {
+        Map<String, V> changed = new HashMap<>();
+        next.forEach((key, value) -> {
+            V previousValue = previous.get(key);
+            if (previousValue == null || !same.test(previousValue, value)) {
+                changed.put(key, value);
+            }
+        });
+        return ImmutableMap.copyOf(changed);
+    }
+
+    /**
+     * connections are equal by id so the rest of their fields need to be compared
+     */
+    private static boolean sameConnection(NiFiFlowCacheConnectionData previous, NiFiFlowCacheConnectionData next) {
+        return previous == next || (Objects.equals(previous.getConnectionIdentifier(), next.getConnectionIdentifier()) && Objects.equals(previous.getName(), next.getName())
+                                    && Objects.equals(previous.getSourceIdentifier(), next.getSourceIdentifier()) && Objects.equals(previous.getDestinationIdentifier(),
+                                                                                                                                  next.getDestinationIdentifier()));
+    }
+
+    private static class Change {
+
+        private final Map<String, String> processorIdToFeedName;
+        private final Map<String, String> processorIdToFeedProcessGroupId;
+        private final Map<String, String> processorIdToProcessorName;
+        private final Map<String, NiFiFlowCacheConnectionData> connections;
+        private final Set<String> feeds;
+
+        Change(NifiFlowCacheState previous, NifiFlowCacheState next) {
+            this.processorIdToFeedName = changed(previous.getProcessorIdToFeedName(), next.getProcessorIdToFeedName(), Objects::equals);
+            this.processorIdToFeedProcessGroupId = changed(previous.getProcessorIdToFeedProcessGroupId(), next.getProcessorIdToFeedProcessGroupId(), Objects::equals);
+            this.processorIdToProcessorName = changed(previous.getProcessorIdToProcessorName(), next.getProcessorIdToProcessorName(), Objects::equals);
+            this.connections = changed(previous.getConnectionIdToConnection(), next.getConnectionIdToConnection(), NifiFlowCacheChangeLog::sameConnection);
+            this.feeds = ImmutableSet.copyOf(Sets.difference(next.getAllFeeds(), previous.getAllFeeds()));
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.thinkbiganalytics.DateTimeUtil;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheConnectionData;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NifiFlowCacheSnapshot;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowConnection;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessor;
+
+import org.joda.time.DateTime;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable version of the {@link NifiFlowCache}.
+ *
+ * Each change to the cache builds a new state from the previous one and replaces it, so readers always see a complete version of the cache without locking.
+ */
+class NifiFlowCacheState {
+
+    static final NifiFlowCacheState EMPTY = new NifiFlowCacheState();
+
+    private final long version;
+
+    private final DateTime snapshotDate;
+
+    /**
+     * The flows in the cache by process group id, in the order they were walked
+     */
+    private final Map<String, ProcessGroupFlow> processGroupFlows;
+
+    private final Map<String, String> feedNameToTemplateName;
+
+    /**
+     * Set of the category.feed names for those that are just streaming feeds
+     */
+    private final Set<String> streamingFeeds;
+
+    /**
+     * Processor names and connections added when a template is registered
+     */
+    private final Map<String, String> templateProcessorNames;
+    private final Map<String, NiFiFlowCacheConnectionData> templateConnections;
+
+    private final DateTime lastRebuildTime;
+    private final long lastRebuildMillis;
+    private final int processGroupsRefreshed;
+    private final int processGroupsUnchanged;
+
+    private final Map<String, String> processorIdToFeedName;
+    private final Map<String, String> processorIdToFeedProcessGroupId;
+    private final Map<String, String> processorIdToProcessorName;
+    private final Map<String, NiFiFlowCacheConnectionData> connectionIdToConnection;
+
+    /**
+     * Set of the category.feed names
+     */
+    private final Set<String> allFeeds;
+
+    /**
+     * The whole cache as a snapshot, built the first time it is needed
+     */
+    private volatile NifiFlowCacheSnapshot snapshot;
+
+    private NifiFlowCacheState() {
+        this(new Builder(null));
+    }
+
+    private NifiFlowCacheState(Builder builder) {
+        this.version = builder.version;
+        this.snapshotDate = builder.snapshotDate;
+        this.processGroupFlows = ImmutableMap.copyOf(builder.processGroupFlows);
+        this.feedNameToTemplateName = ImmutableMap.copyOf(builder.feedNameToTemplateName);
+        this.streamingFeeds = ImmutableSet.copyOf(builder.streamingFeeds);
+        this.templateProcessorNames = ImmutableMap.copyOf(builder.templateProcessorNames);
+        this.templateConnections = ImmutableMap.copyOf(builder.templateConnections);
+        this.lastRebuildTime = builder.lastRebuildTime;
+        this.lastRebuildMillis = builder.lastRebuildMillis;
+        this.processGroupsRefreshed = builder.processGroupsRefreshed;
+        this.processGroupsUnchanged = builder.processGroupsUnchanged;
+
+        //later flows replace the entries of earlier flows sharing the same processors or connections
+        Map<String, String> processorIdToFeedName = new HashMap<>();
+        Map<String, String> processorIdToFeedProcessGroupId = new HashMap<>();
+        Map<String, String> processorIdToProcessorName = new HashMap<>();
+        Map<String, NiFiFlowCacheConnectionData> connectionIdToConnection = new HashMap<>();
+        Set<String> allFeeds = new HashSet<>();
+        for (ProcessGroupFlow flow : processGroupFlows.values()) {
+            flow.getProcessorNames().forEach((processorId, processorName) -> {
+                if (flow.isFeed()) {
+                    processorIdToFeedName.put(processorId, flow.getFeedName());
+                    processorIdToFeedProcessGroupId.put(processorId, flow.getProcessGroupId());
+                } else {
+                    //reusable flows are mapped to their name
+                    processorIdToFeedProcessGroupId.put(processorId, flow.getFeedName());
+                }
+                processorIdToProcessorName.put(processorId, processorName);
+            });
+            connectionIdToConnection.putAll(flow.getConnections());
+            if (flow.isFeed()) {
+                allFeeds.add(flow.getFeedName());
+            }
+        }
+        processorIdToProcessorName.putAll(templateProcessorNames);
+        connectionIdToConnection.putAll(templateConnections);
+
+        this.processorIdToFeedName = ImmutableMap.copyOf(processorIdToFeedName);
+        this.processorIdToFeedProcessGroupId = ImmutableMap.copyOf(processorIdToFeedProcessGroupId);
+        this.processorIdToProcessorName = ImmutableMap.copyOf(processorIdToProcessorName);
+        this.connectionIdToConnection = ImmutableMap.copyOf(connectionIdToConnection);
+        this.allFeeds = ImmutableSet.copyOf(allFeeds);
+    }
+
+    /**
+     * @return the whole cache as a snapshot
+     */
+    NifiFlowCacheSnapshot toSnapshot() {
+        if (snapshot == null) {
+            //the maps are immutable so they are shared with the snapshot
+            snapshot = new NifiFlowCacheSnapshot.Builder()
+                .withProcessorIdToFeedNameMap(processorIdToFeedName)
+                .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupId)
+                .withProcessorIdToProcessorName(processorIdToProcessorName)
+                .withStreamingFeeds(streamingFeeds)
+                .withFeeds(allFeeds)
+                .withConnections(connectionIdToConnection)
+                .withSnapshotDate(snapshotDate).build();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return a builder for the next version of this state
+     */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    DateTime getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    Map<String, ProcessGroupFlow> getProcessGroupFlows() {
+        return processGroupFlows;
+    }
+
+    Map<String, String> getFeedNameToTemplateName() {
+        return feedNameToTemplateName;
+    }
+
+    Set<String> getStreamingFeeds() {
+        return streamingFeeds;
+    }
+
+    DateTime getLastRebuildTime() {
+        return lastRebuildTime;
+    }
+
+    long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    int getProcessGroupsRefreshed() {
+        return processGroupsRefreshed;
+    }
+
+    int getProcessGroupsUnchanged() {
+        return processGroupsUnchanged;
+    }
+
+    Map<String, String> getProcessorIdToFeedName() {
+        return processorIdToFeedName;
+    }
+
+    Map<String, String> getProcessorIdToFeedProcessGroupId() {
+        return processorIdToFeedProcessGroupId;
+    }
+
+    Map<String, String> getProcessorIdToProcessorName() {
+        return processorIdToProcessorName;
+    }
+
+    Map<String, NiFiFlowCacheConnectionData> getConnectionIdToConnection() {
+        return connectionIdToConnection;
+    }
+
+    Set<String> getAllFeeds() {
+        return allFeeds;
+    }
+
+    /**
+     * The processors and connections of a single feed or reusable flow process group
+     */
+    static class ProcessGroupFlow {
+
+        private final String processGroupId;
+        private final String feedName;
+        private final boolean feed;
+
+        /**
+         * the {@link ProcessGroupFingerprint} of the group when it was walked, or {@code null} if it was added when the feed was saved
+         */
+        private final String fingerprint;
+        private final Map<String, String> processorNames;
+        private final Map<String, NiFiFlowCacheConnectionData> connections;
+        private final DateTime refreshTime;
+        private final long refreshMillis;
+
+        ProcessGroupFlow(String processGroupId, String feedName, boolean feed, String fingerprint, Collection<NifiFlowProcessor> processors, Collection<NifiFlowConnection> connections,
+                         long refreshMillis) {
+            this.processGroupId = processGroupId;
+            this.feedName = feedName;
+            this.feed = feed;
+            this.fingerprint = fingerprint;
+            Map<String, String> processorNames = new HashMap<>();
+            if (processors != null) {
+                processors.forEach(processor -> processorNames.put(processor.getId(), processor.getName()));
+            }
+            this.processorNames = ImmutableMap.copyOf(processorNames);
+            this.connections = ImmutableMap.copyOf(toConnectionData(connections));
+            this.refreshTime = DateTimeUtil.getNowUTCTime();
+            this.refreshMillis = refreshMillis;
+        }
+
+        ProcessGroupFlow(String feedName, boolean feed, String fingerprint, NifiFlowProcessGroup flow, long refreshMillis) {
+            this(flow.getId(), feedName, feed, fingerprint, flow.getProcessorMap().values(), flow.getConnectionIdMap().values(), refreshMillis);
+        }
+
+        private ProcessGroupFlow(ProcessGroupFlow flow, boolean feed) {
+            this.processGroupId = flow.processGroupId;
+            this.feedName = flow.feedName;
+            this.feed = feed;
+            this.fingerprint = flow.fingerprint;
+            this.processorNames = flow.processorNames;
+            this.connections = flow.connections;
+            this.refreshTime = flow.refreshTime;
+            this.refreshMillis = flow.refreshMillis;
+        }
+
+        /**
+         * @return this flow, marked as a feed or a reusable flow
+         */
+        ProcessGroupFlow asFeed(boolean feed) {
+            return this.feed == feed ? this : new ProcessGroupFlow(this, feed);
+        }
+
+        String getProcessGroupId() {
+            return processGroupId;
+        }
+
+        String getFeedName() {
+            return feedName;
+        }
+
+        boolean isFeed() {
+            return feed;
+        }
+
+        String getFingerprint() {
+            return fingerprint;
+        }
+
+        Map<String, String> getProcessorNames() {
+            return processorNames;
+        }
+
+        Map<String, NiFiFlowCacheConnectionData> getConnections() {
+            return connections;
+        }
+
+        DateTime getRefreshTime() {
+            return refreshTime;
+        }
+
+        long getRefreshMillis() {
+            return refreshMillis;
+        }
+    }
+
+    static Map<String, NiFiFlowCacheConnectionData> toConnectionData(Collection<NifiFlowConnection> connections) {
+        Map<String, NiFiFlowCacheConnectionData> connectionMap = new HashMap<>();
+        if (connections != null) {
+            connections.forEach(conn -> connectionMap.put(conn.getConnectionIdentifier(), new NiFiFlowCacheConnectionData(conn.getConnectionIdentifier(), conn.getName(), conn.getSourceIdentifier(),
+                                                                                                                           conn.getDestinationIdentifier())));
+        }
+        return connectionMap;
+    }
+
+    /**
+     * Builds the next version of a state
+     */
+    static class Builder {
+
+        private final long version;
+        private final DateTime snapshotDate;
+        private Map<String, ProcessGroupFlow> processGroupFlows = new LinkedHashMap<>();
+        private Map<String, String> feedNameToTemplateName = new HashMap<>();
+        private Set<String> streamingFeeds = new HashSet<>();
+        private Map<String, String> templateProcessorNames = new HashMap<>();
+        private Map<String, NiFiFlowCacheConnectionData> templateConnections = new HashMap<>();
+        private DateTime lastRebuildTime;
+        private long lastRebuildMillis;
+        private int processGroupsRefreshed;
+        private int processGroupsUnchanged;
+
+        private Builder(NifiFlowCacheState previous) {
+            DateTime now = DateTimeUtil.getNowUTCTime();
+            if (previous != null) {
+                this.version = previous.version + 1;
+                //syncs compare the snapshot date so each version needs a later one
+                this.snapshotDate = now.isAfter(previous.snapshotDate) ? now : previous.snapshotDate.plusMillis(1);
+                this.processGroupFlows.putAll(previous.processGroupFlows);
+                this.feedNameToTemplateName.putAll(previous.feedNameToTemplateName);
+                this.streamingFeeds.addAll(previous.streamingFeeds);
+                this.templateProcessorNames.putAll(previous.templateProcessorNames);
+                this.templateConnections.putAll(previous.templateConnections);
+                this.lastRebuildTime = previous.lastRebuildTime;
+                this.lastRebuildMillis = previous.lastRebuildMillis;
+                this.processGroupsRefreshed = previous.processGroupsRefreshed;
+                this.processGroupsUnchanged = previous.processGroupsUnchanged;
+            } else {
+                this.version = 0;
+                this.snapshotDate = now;
+            }
+        }
+
+        Builder processGroupFlows(Map<String, ProcessGroupFlow> processGroupFlows) {
+            this.processGroupFlows = new LinkedHashMap<>(processGroupFlows);
+            return this;
+        }
+
+        Builder processGroupFlow(ProcessGroupFlow flow) {
+            //move it to the end so it replaces the entries of the older flows
+            this.processGroupFlows.remove(flow.getProcessGroupId());
+            this.processGroupFlows.put(flow.getProcessGroupId(), flow);
+            return this;
+        }
+
+        Builder feedNameToTemplateName(Map<String, String> feedNameToTemplateName) {
+            this.feedNameToTemplateName = new HashMap<>(feedNameToTemplateName);
+            return this;
+        }
+
+        Builder streamingFeeds(Set<String> streamingFeeds) {
+            this.streamingFeeds = new HashSet<>(streamingFeeds);
+            return this;
+        }
+
+        Builder streamingFeed(String feedName) {
+            streamingFeeds.add(feedName);
+            return this;
+        }
+
+        Builder clearTemplateFlows() {
+            this.templateProcessorNames.clear();
+            this.templateConnections.clear();
+            return this;
+        }
+
+        Builder templateProcessorNames(Map<String, String> processorNames) {
+            this.templateProcessorNames.putAll(processorNames);
+            return this;
+        }
+
+        Builder templateConnections(Map<String, NiFiFlowCacheConnectionData> connections) {
+            this.templateConnections.putAll(connections);
+            return this;
+        }
+
+        Builder rebuilt(DateTime rebuildTime, long rebuildMillis, int processGroupsRefreshed, int processGroupsUnchanged) {
+            this.lastRebuildTime = rebuildTime;
+            this.lastRebuildMillis = rebuildMillis;
+            this.processGroupsRefreshed = processGroupsRefreshed;
+            this.processGroupsUnchanged = processGroupsUnchanged;
+            return this;
+        }
+
+        NifiFlowCacheState build() {
+            return new NifiFlowCacheState(this);
+        }
+    }
+}
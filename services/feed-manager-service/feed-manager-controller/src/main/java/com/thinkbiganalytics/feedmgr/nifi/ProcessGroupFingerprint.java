@@ -0,0 +1,128 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
+import org.apache.nifi.web.api.dto.FunnelDTO;
+import org.apache.nifi.web.api.dto.PortDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.apache.nifi.web.api.dto.RemoteProcessGroupDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Hash of the parts of a process group that are used to build its flow.
+ *
+ * NiFi does not change the revision of a process group when its contents change so this is used to find the process groups that need to be walked again.
+ * It includes the processors, ports, funnels and connections of the group and all of its child groups.
+ */
+class ProcessGroupFingerprint {
+
+    private ProcessGroupFingerprint() {
+
+    }
+
+    /**
+     * @param group the process group including its contents
+     * @param seed  a value included in the hash, such as the fingerprint of the reusable flows the group connects to
+     * @return the fingerprint of the group
+     */
+    static String of(ProcessGroupDTO group, String seed) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putString(hasher, seed);
+        putGroup(hasher, group);
+        return hasher.hash().toString();
+    }
+
+    private static void putGroup(Hasher hasher, ProcessGroupDTO group) {
+        putString(hasher, group.getId());
+        putString(hasher, group.getName());
+        putString(hasher, group.getParentGroupId());
+        FlowSnippetDTO contents = group.getContents();
+        if (contents == null) {
+            return;
+        }
+        for (ProcessorDTO processor : sorted(contents.getProcessors(), ProcessorDTO::getId)) {
+            putString(hasher, processor.getId());
+            putString(hasher, processor.getName());
+            putString(hasher, processor.getType());
+        }
+        for (PortDTO port : sorted(contents.getInputPorts(), PortDTO::getId)) {
+            putString(hasher, port.getId());
+            putString(hasher, port.getName());
+        }
+        for (PortDTO port : sorted(contents.getOutputPorts(), PortDTO::getId)) {
+            putString(hasher, port.getId());
+            putString(hasher, port.getName());
+        }
+        for (FunnelDTO funnel : sorted(contents.getFunnels(), FunnelDTO::getId)) {
+            putString(hasher, funnel.getId());
+        }
+        for (RemoteProcessGroupDTO remoteGroup : sorted(contents.getRemoteProcessGroups(), RemoteProcessGroupDTO::getId)) {
+            putString(hasher, remoteGroup.getId());
+            putString(hasher, remoteGroup.getTargetUri());
+        }
+        for (ConnectionDTO connection : sorted(contents.getConnections(), ConnectionDTO::getId)) {
+            putString(hasher, connection.getId());
+            putString(hasher, connection.getName());
+            putString(hasher, connection.getSource() != null ? connection.getSource().getId() : null);
+            putString(hasher, connection.getDestination() != null ? connection.getDestination().getId() : null);
+            if (connection.getSelectedRelationships() != null) {
+                sorted(connection.getSelectedRelationships(), Function.identity()).forEach(relationship -> putString(hasher, relationship));
+            }
+        }
+        for (ProcessGroupDTO child : sorted(contents.getProcessGroups(), ProcessGroupDTO::getId)) {
+            putGroup(hasher, child);
+        }
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length());
+            hasher.putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * NiFi returns the contents of a group as sets so they are sorted by id to give the same hash for the same contents
+     */
+    private static <T> List<T> sorted(Collection<T> items, Function<T, String> id) {
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(id, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return sorted;
+    }
+}
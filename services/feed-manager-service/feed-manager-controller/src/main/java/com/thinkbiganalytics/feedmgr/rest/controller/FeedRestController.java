@@ -37,6 +37,7 @@ import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerPreconditionService
 import com.thinkbiganalytics.feedmgr.sla.ServiceLevelAgreementService;
 import com.thinkbiganalytics.hive.service.HiveService;
 import com.thinkbiganalytics.hive.util.HiveUtils;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.rest.model.data.DatasourceDefinition;
 import com.thinkbiganalytics.metadata.rest.model.data.DatasourceDefinitions;
 import com.thinkbiganalytics.metadata.rest.model.feed.FeedLineageStyle;
@@ -78,6 +79,7 @@ import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -225,6 +227,26 @@ public class FeedRestController {
         return Response.ok(feeds).build();
     }
 
+    @GET
+    @Path("/summaries")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Gets a page of feed summaries.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the matching feed summaries.", response = SearchResult.class),
+                      @ApiResponse(code = 400, message = "The sort property is not valid.", response = RestResponseStatus.class)
+                  })
+    public Response getFeedSummaries(@QueryParam("sort") @DefaultValue("") String sort,
+                                     @QueryParam("limit") @DefaultValue("10") Integer limit,
+                                     @QueryParam("start") @DefaultValue("0") Integer start,
+                                     @QueryParam("filter") String filter) {
+        try {
+            SearchResult summaries = getMetadataService().getFeedSummaryData(sort, limit, start, filter);
+            return Response.ok(summaries).build();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @ApiOperation("Gets the list of feeds.")
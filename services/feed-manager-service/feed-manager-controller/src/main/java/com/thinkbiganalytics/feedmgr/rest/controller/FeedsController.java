@@ -218,6 +218,63 @@ public class FeedsController {
         });
     }
 
+    @GET
+    @Path("{id}/watermarks")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Gets the values of several HighWaterMarks used by the specified feed.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the HighWaterMark values by name.", response = Map.class),
+                      @ApiResponse(code = 404, message = "The feed could not be found.", response = RestResponseStatus.class)
+                  })
+    public Map<String, String> getHighWaterMarkValues(@PathParam("id") String feedIdStr,
+                                                      @QueryParam("name") List<String> waterMarkNames) {
+        LOG.debug("Get feed watermarks {}: {}", feedIdStr, waterMarkNames);
+
+        return this.metadata.read(() -> {
+            this.accessController.checkPermission(AccessController.SERVICES, FeedsAccessControl.ACCESS_FEEDS);
+
+            com.thinkbiganalytics.metadata.api.feed.Feed.ID feedId = feedProvider.resolveFeed(feedIdStr);
+            com.thinkbiganalytics.metadata.api.feed.Feed<?> feed = feedProvider.getFeed(feedId);
+
+            if (feed != null) {
+                Collection<String> names = (waterMarkNames == null || waterMarkNames.isEmpty()) ? feed.getWaterMarkNames() : waterMarkNames;
+                Map<String, String> values = new HashMap<>();
+                names.forEach(name -> feed.getWaterMarkValue(name).ifPresent(value -> values.put(name, value)));
+                return values;
+            } else {
+                throw new WebApplicationException("A feed with the given ID does not exist: " + feedId, Status.NOT_FOUND);
+            }
+        });
+    }
+
+    @PUT
+    @Path("{id}/watermarks")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @ApiOperation("Sets the values of several HighWaterMarks in a single transaction.")
+    @ApiResponses({
+                      @ApiResponse(code = 204, message = "The HighWaterMark values have been changed."),
+                      @ApiResponse(code = 404, message = "The feed could not be found.", response = RestResponseStatus.class),
+                      @ApiResponse(code = 500, message = "The HighWaterMark values could not be changed.", response = RestResponseStatus.class)
+                  })
+    public void putHighWaterMarkValues(@PathParam("id") String feedIdStr,
+                                       Map<String, String> values) {
+        LOG.debug("Put feed watermarks {}: {}", feedIdStr, values.keySet());
+
+        this.metadata.commit(() -> {
+            this.accessController.checkPermission(AccessController.SERVICES, FeedsAccessControl.ACCESS_FEEDS);
+
+            com.thinkbiganalytics.metadata.api.feed.Feed.ID feedId = feedProvider.resolveFeed(feedIdStr);
+            com.thinkbiganalytics.metadata.api.feed.Feed<?> feed = feedProvider.getFeed(feedId);
+
+            if (feed != null) {
+                //a null value deletes the water mark
+                values.forEach(feed::setWaterMarkValue);
+            } else {
+                throw new WebApplicationException("A feed with the given ID does not exist: " + feedId, Status.NOT_FOUND);
+            }
+        });
+    }
+
     @GET
     @Path("{id}/watermark/{name}")
     @Produces({MediaType.TEXT_PLAIN, MediaType.APPLICATION_JSON})
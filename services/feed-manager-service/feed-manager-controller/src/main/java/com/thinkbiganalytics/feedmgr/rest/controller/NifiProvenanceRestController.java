@@ -33,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -133,8 +134,8 @@ public class NifiProvenanceRestController {
     @ApiResponses(
         @ApiResponse(code = 200, message = "The cache was reset.", response = String.class)
     )
-    public Response resetCache() {
-        nifiFlowCache.rebuildAll();
+    public Response resetCache(@QueryParam("incremental") @DefaultValue("false") boolean incremental) {
+        nifiFlowCache.rebuildAll(!incremental);
         return Response.ok("Reset the Cache").build();
     }
 
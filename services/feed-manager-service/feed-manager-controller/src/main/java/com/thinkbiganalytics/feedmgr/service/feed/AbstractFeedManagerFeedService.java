@@ -20,14 +20,18 @@ package com.thinkbiganalytics.feedmgr.service.feed;
  * #L%
  */
 
+import com.google.common.collect.ImmutableMap;
 import com.thinkbiganalytics.feedmgr.nifi.CreateFeedBuilder;
 import com.thinkbiganalytics.feedmgr.nifi.NifiFlowCache;
 import com.thinkbiganalytics.feedmgr.nifi.PropertyExpressionResolver;
 import com.thinkbiganalytics.feedmgr.rest.model.FeedMetadata;
+import com.thinkbiganalytics.feedmgr.rest.model.FeedSummary;
 import com.thinkbiganalytics.feedmgr.rest.model.NifiFeed;
 import com.thinkbiganalytics.feedmgr.rest.model.RegisteredTemplate;
 import com.thinkbiganalytics.feedmgr.rest.model.ReusableTemplateConnectionInfo;
 import com.thinkbiganalytics.feedmgr.security.FeedsAccessControl;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResultImpl;
 import com.thinkbiganalytics.nifi.feedmgr.FeedRollbackException;
 import com.thinkbiganalytics.nifi.feedmgr.InputOutputPort;
 import com.thinkbiganalytics.nifi.rest.client.LegacyNifiRestClient;
@@ -43,9 +47,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -55,6 +64,19 @@ import javax.inject.Inject;
 public abstract class AbstractFeedManagerFeedService implements FeedManagerFeedService {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractFeedManagerFeedService.class);
+
+    /**
+     * Comparators for each summary property that can be sorted
+     */
+    private static final Map<String, Comparator<FeedSummary>> SUMMARY_SORT_ORDERS = ImmutableMap.<String, Comparator<FeedSummary>>builder()
+        .put("feedName", Comparator.comparing(FeedSummary::getFeedName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("systemFeedName", Comparator.comparing(FeedSummary::getSystemFeedName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("categoryName", Comparator.comparing(FeedSummary::getCategoryName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("systemCategoryName", Comparator.comparing(FeedSummary::getSystemCategoryName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("templateName", Comparator.comparing(FeedSummary::getTemplateName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("state", Comparator.comparing(FeedSummary::getState, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+        .put("updateDate", Comparator.comparing(FeedSummary::getUpdateDate, Comparator.nullsLast(Comparator.<Date>naturalOrder())))
+        .build();
     @Inject
     PropertyExpressionResolver propertyExpressionResolver;
     @Inject
@@ -73,6 +95,39 @@ public abstract class AbstractFeedManagerFeedService implements FeedManagerFeedS
 
     protected abstract RegisteredTemplate getRegisteredTemplateWithAllProperties(String templateId);
 
+    @Override
+    public SearchResult getFeedSummaryData(String sort, int limit, int start, String filter) {
+        final List<FeedSummary> summaries = getFeedSummaryData();
+        Stream<FeedSummary> matching = summaries.stream();
+
+        if (StringUtils.isNotBlank(filter)) {
+            final String text = filter.trim().toLowerCase();
+            matching = matching.filter(summary -> Stream.of(summary.getFeedName(), summary.getSystemFeedName(), summary.getCategoryName(), summary.getSystemCategoryName(),
+                                                            summary.getTemplateName(), summary.getState())
+                .anyMatch(value -> value != null && value.toLowerCase().contains(text)));
+        }
+
+        if (StringUtils.isNotBlank(sort)) {
+            final boolean descending = sort.startsWith("-");
+            final String property = descending ? sort.substring(1) : sort;
+            final Comparator<FeedSummary> comparator = SUMMARY_SORT_ORDERS.get(property);
+            if (comparator == null) {
+                throw new IllegalArgumentException("Feed summaries cannot be sorted by: " + property);
+            }
+            matching = matching.sorted(descending ? comparator.reversed() : comparator);
+        }
+
+        final List<FeedSummary> filtered = matching.collect(Collectors.toList());
+        final int from = Math.min(Math.max(start, 0), filtered.size());
+        final int to = (limit < 0) ? filtered.size() : (int) Math.min((long) from + limit, filtered.size());
+
+        final SearchResult result = new SearchResultImpl();
+        result.setData(new ArrayList<>(filtered.subList(from, to)));
+        result.setRecordsTotal((long) summaries.size());
+        result.setRecordsFiltered((long) filtered.size());
+        return result;
+    }
+
     /**
      * Create/Update a Feed in NiFi
      *
@@ -58,6 +58,7 @@ import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
 import com.thinkbiganalytics.metadata.api.feedmgr.template.FeedManagerTemplate;
 import com.thinkbiganalytics.metadata.api.feedmgr.template.FeedManagerTemplateProvider;
 import com.thinkbiganalytics.metadata.api.security.HadoopSecurityGroup;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.rest.model.sla.Obligation;
 import com.thinkbiganalytics.metadata.sla.api.ObligationGroup;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementBuilder;
@@ -140,6 +141,8 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
     private NiFiPropertyDescriptorTransform propertyDescriptorTransform;
     @Inject
     private DerivedDatasourceFactory derivedDatasourceFactory;
+    @Inject
+    private FeedSummaryCache feedSummaryCache;
     // use autowired instead of Inject to allow null values.
     @Autowired(required = false)
     @Qualifier("hadoopAuthorizationService")
@@ -237,12 +240,7 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
         return metadataAccess.read(() -> {
             this.accessController.checkPermission(AccessController.SERVICES, FeedsAccessControl.ACCESS_FEEDS);
 
-            List<FeedSummary> feeds = null;
-            Collection<? extends Feed> domainFeeds = feedManagerFeedProvider.findAll();
-            if (domainFeeds != null) {
-                feeds = feedModelTransform.domainToFeedSummary(domainFeeds);
-            }
-            return feeds;
+            return feedSummaryCache.getFeedSummaries();
         });
 
     }
@@ -305,6 +303,9 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
             }
         }
         NifiFeed feed = super.createFeed(feedMetadata);
+        if (feed.isSuccess() && feedMetadata.getId() != null) {
+            feedSummaryCache.invalidate(feedMetadata.getId());
+        }
         //register the audit for the update event
         if (feed.isSuccess() && !feedMetadata.isNew()) {
             Feed.State state = Feed.State.valueOf(feedMetadata.getState());
@@ -667,7 +668,7 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
 
 
     /**
-     * update the audit information for feed state changes
+     * update the audit information for feed state changes, after the active transaction commits if there is one
      *
      * @param feedId     the feed id
      * @param state      the new state
@@ -679,6 +680,14 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
                                     : null;
         FeedChange change = new FeedChange(changeType, feedMetadata != null ? feedMetadata.getCategoryAndFeedName() : "", feedId, state);
         FeedChangeEvent event = new FeedChangeEvent(change, DateTime.now(), principal);
-        metadataEventService.notify(event);
+        if (JcrMetadataAccess.hasActiveSession()) {
+            JcrMetadataAccess.addPostTransactionAction(committed -> {
+                if (committed) {
+                    metadataEventService.notify(event);
+                }
+            });
+        } else {
+            metadataEventService.notify(event);
+        }
     }
 }
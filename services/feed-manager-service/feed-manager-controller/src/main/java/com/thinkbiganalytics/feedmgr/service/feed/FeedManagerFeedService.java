@@ -26,6 +26,7 @@ import com.thinkbiganalytics.feedmgr.rest.model.NifiFeed;
 import com.thinkbiganalytics.feedmgr.rest.model.UIFeed;
 import com.thinkbiganalytics.feedmgr.rest.model.UserField;
 import com.thinkbiganalytics.feedmgr.rest.model.UserProperty;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.api.feed.Feed;
 import com.thinkbiganalytics.policy.rest.model.FieldRuleProperty;
 
@@ -86,6 +87,17 @@ public interface FeedManagerFeedService {
      */
     List<FeedSummary> getFeedSummaryData();
 
+    /**
+     * Return a page of feed summaries matching the filter.
+     *
+     * @param sort   the summary property to sort by, prefixed with "-" for descending order, or empty for the default order
+     * @param limit  the maximum number of summaries to return, or a negative number for no limit
+     * @param start  the index of the first summary to return
+     * @param filter text that the feed, category, or template name or the feed state must contain, or empty for all feeds
+     * @return the matching feed summaries
+     */
+    SearchResult getFeedSummaryData(String sort, int limit, int start, String filter);
+
     /**
      * Return a list of feeds in a given category
      *
@@ -0,0 +1,299 @@
+package com.thinkbiganalytics.feedmgr.service.feed;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.feedmgr.rest.model.FeedSummary;
+import com.thinkbiganalytics.json.ObjectMapperSerializer;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChangeEvent;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * A materialized view of the {@link FeedSummary} of every feed.
+ *
+ * <p>The summaries are loaded from the metadata repository on first use. Afterwards only the summaries of feeds that are
+ * created, updated, deleted, or change state are reloaded, the next time the summaries are requested. The cached summaries
+ * are periodically compared against the repository to repair any changes that were made without an event.</p>
+ *
+ * <p>Methods that read summaries must be called within a metadata transaction.</p>
+ */
+public class FeedSummaryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedSummaryCache.class);
+
+    /**
+     * Default order of the summaries
+     */
+    private static final Comparator<FeedSummary> DEFAULT_ORDER = Comparator.comparing(FeedSummary::getSystemCategoryName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+        .thenComparing(FeedSummary::getSystemFeedName, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private FeedManagerFeedProvider feedManagerFeedProvider;
+
+    @Inject
+    private FeedModelTransform feedModelTransform;
+
+    @Inject
+    private MetadataEventService metadataEventService;
+
+    /**
+     * seconds between consistency checks against the metadata repository, or 0 to disable the checks
+     */
+    @Value("${kylo.feed.summary.cache.check.interval:600}")
+    private long checkIntervalSeconds;
+
+    /**
+     * summaries by feed id, or {@code null} if not loaded
+     */
+    private volatile ConcurrentMap<String, FeedSummary> summaries;
+
+    /**
+     * ids of the feeds that have changed since their summaries were loaded
+     */
+    private final Set<String> staleFeedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * number of changes received, used to detect changes made while checking consistency
+     */
+    private final AtomicLong changeCount = new AtomicLong();
+
+    private final FeedChangeListener changeListener = new FeedChangeListener();
+
+    private ScheduledExecutorService checkExecutor;
+
+    @PostConstruct
+    public void init() {
+        metadataEventService.addListener(changeListener);
+
+        if (checkIntervalSeconds > 0) {
+            checkExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "FeedSummaryCache-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkExecutor.scheduleWithFixedDelay(this::scheduledCheck, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        metadataEventService.removeListener(changeListener);
+
+        if (checkExecutor != null) {
+            checkExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the summaries of all feeds, ordered by category and feed system name. The summaries are shared and must not be modified.
+     *
+     * @return the feed summaries
+     */
+    @Nonnull
+    public List<FeedSummary> getFeedSummaries() {
+        final List<FeedSummary> result = new ArrayList<>(getSummaries().values());
+        result.sort(DEFAULT_ORDER);
+        return result;
+    }
+
+    /**
+     * Marks the summary of the specified feed to be reloaded.
+     *
+     * @param feedId the feed id
+     */
+    public void invalidate(@Nonnull final String feedId) {
+        changeCount.incrementAndGet();
+        staleFeedIds.add(feedId);
+    }
+
+    /**
+     * Marks the summaries of all feeds in the specified category to be reloaded.
+     *
+     * @param categoryId the category id
+     */
+    public void invalidateCategory(@Nonnull final String categoryId) {
+        final Map<String, FeedSummary> current = summaries;
+        if (current != null) {
+            current.values().stream()
+                .filter(summary -> categoryId.equals(summary.getCategoryId()))
+                .forEach(summary -> invalidate(summary.getId()));
+        }
+    }
+
+    /**
+     * Discards all summaries so they are reloaded the next time they are requested.
+     */
+    public void invalidateAll() {
+        changeCount.incrementAndGet();
+        summaries = null;
+    }
+
+    /**
+     * Compares the cached summaries against the metadata repository and repairs any differences.
+     *
+     * <p>The check is skipped if the summaries have not been loaded, or if a feed changes while the check is running.</p>
+     *
+     * @return the number of summaries that were repaired
+     */
+    public int checkConsistency() {
+        final ConcurrentMap<String, FeedSummary> current = summaries;
+        if (current == null) {
+            return 0;
+        }
+
+        final long changes = changeCount.get();
+        final Map<String, FeedSummary> actual = load();
+        if (changes != changeCount.get() || current != summaries) {
+            log.debug("Skipping the feed summary consistency check because feeds changed during the check");
+            return 0;
+        }
+
+        int repaired = 0;
+
+        for (final Map.Entry<String, FeedSummary> entry : actual.entrySet()) {
+            final FeedSummary cached = current.get(entry.getKey());
+            if (cached == null || !isSame(cached, entry.getValue())) {
+                final boolean replaced = (cached == null) ? current.putIfAbsent(entry.getKey(), entry.getValue()) == null : current.replace(entry.getKey(), cached, entry.getValue());
+                if (replaced && !staleFeedIds.contains(entry.getKey())) {
+                    log.warn("Repaired the cached summary of feed {} which did not match the metadata repository", entry.getKey());
+                    ++repaired;
+                }
+            }
+        }
+
+        for (final Map.Entry<String, FeedSummary> entry : current.entrySet()) {
+            if (!actual.containsKey(entry.getKey()) && current.remove(entry.getKey(), entry.getValue())) {
+                log.warn("Removed the cached summary of feed {} which no longer exists in the metadata repository", entry.getKey());
+                ++repaired;
+            }
+        }
+
+        return repaired;
+    }
+
+    /**
+     * Gets the summaries by feed id, loading all summaries if necessary and reloading those that are stale.
+     */
+    @Nonnull
+    private Map<String, FeedSummary> getSummaries() {
+        ConcurrentMap<String, FeedSummary> current = summaries;
+
+        if (current == null) {
+            synchronized (this) {
+                current = summaries;
+                if (current == null) {
+                    // Clear before loading so that changes made while loading are reloaded afterwards
+                    staleFeedIds.clear();
+                    current = new ConcurrentHashMap<>(load());
+                    summaries = current;
+                }
+            }
+        }
+
+        for (final String feedId : staleFeedIds) {
+            if (staleFeedIds.remove(feedId)) {
+                final FeedManagerFeed feed = feedManagerFeedProvider.findById(feedManagerFeedProvider.resolveId(feedId));
+                if (feed != null) {
+                    current.put(feedId, feedModelTransform.domainToFeedSummary(feed));
+                } else {
+                    current.remove(feedId);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Loads the summaries of all feeds from the metadata repository.
+     */
+    @Nonnull
+    private Map<String, FeedSummary> load() {
+        final Map<String, FeedSummary> result = new ConcurrentHashMap<>();
+        final List<FeedManagerFeed> feeds = feedManagerFeedProvider.findAll();
+        if (feeds != null) {
+            feeds.forEach(feed -> result.put(feed.getId().toString(), feedModelTransform.domainToFeedSummary(feed)));
+        }
+        return result;
+    }
+
+    /**
+     * Determines if the specified summaries have the same values.
+     */
+    private boolean isSame(@Nonnull final FeedSummary cached, @Nonnull final FeedSummary actual) {
+        return Objects.equals(ObjectMapperSerializer.serialize(cached), ObjectMapperSerializer.serialize(actual));
+    }
+
+    /**
+     * Runs the consistency check as the service user.
+     */
+    private void scheduledCheck() {
+        try {
+            final int repaired = metadataAccess.read(this::checkConsistency, MetadataAccess.SERVICE);
+            if (repaired > 0) {
+                log.info("Repaired {} cached feed summaries", repaired);
+            }
+        } catch (final Exception e) {
+            log.error("Failed to check the cached feed summaries against the metadata repository", e);
+        }
+    }
+
+    /**
+     * Marks the summaries of changed feeds to be reloaded.
+     */
+    private class FeedChangeListener implements MetadataEventListener<FeedChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedChangeEvent event) {
+            if (event.getData().getFeedId() != null) {
+                invalidate(event.getData().getFeedId().toString());
+            }
+        }
+    }
+}
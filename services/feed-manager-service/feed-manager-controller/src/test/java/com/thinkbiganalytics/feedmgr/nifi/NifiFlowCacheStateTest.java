@@ -0,0 +1,127 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.feedmgr.nifi.NifiFlowCacheState.ProcessGroupFlow;
+import com.thinkbiganalytics.metadata.rest.model.nifi.NifiFlowCacheSnapshot;
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessor;
+
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class NifiFlowCacheStateTest {
+
+    private static final String P1 = "00000000-0000-0000-0000-000000000001";
+    private static final String P2 = "00000000-0000-0000-0000-000000000002";
+
+    @Test
+    public void testFingerprint() {
+        ProcessGroupDTO group = processGroup(processor(P1, "GetFile"), processor(P2, "PutFile"));
+        String fingerprint = ProcessGroupFingerprint.of(group, null);
+
+        //the order of the processors does not matter
+        Assert.assertEquals(fingerprint, ProcessGroupFingerprint.of(processGroup(processor(P2, "PutFile"), processor(P1, "GetFile")), null));
+
+        Assert.assertNotEquals(fingerprint, ProcessGroupFingerprint.of(processGroup(processor(P1, "GetFile"), processor(P2, "Renamed")), null));
+        Assert.assertNotEquals(fingerprint, ProcessGroupFingerprint.of(processGroup(processor(P1, "GetFile")), null));
+        Assert.assertNotEquals(fingerprint, ProcessGroupFingerprint.of(group, "reusable"));
+    }
+
+    @Test
+    public void testVersions() {
+        ProcessGroupFlow reusableFlow = new ProcessGroupFlow("reusable-group", "reusable_templates.flow", false, "1", Collections.singletonList(flowProcessor("p1", "Reusable")), null, 5L);
+        ProcessGroupFlow feedFlow = new ProcessGroupFlow("feed-group", "category.feed", true, "2", Arrays.asList(flowProcessor("p2", "GetFile"), flowProcessor("p3", "PutFile")), null, 5L);
+
+        NifiFlowCacheState first = NifiFlowCacheState.EMPTY.toBuilder().processGroupFlow(reusableFlow).processGroupFlow(feedFlow).build();
+        Assert.assertEquals(1L, first.getVersion());
+        Assert.assertTrue(first.getSnapshotDate().isAfter(NifiFlowCacheState.EMPTY.getSnapshotDate()));
+        Assert.assertEquals("reusable_templates.flow", first.getProcessorIdToFeedProcessGroupId().get("p1"));
+        Assert.assertNull(first.getProcessorIdToFeedName().get("p1"));
+        Assert.assertEquals("feed-group", first.getProcessorIdToFeedProcessGroupId().get("p2"));
+        Assert.assertEquals("category.feed", first.getProcessorIdToFeedName().get("p3"));
+        Assert.assertEquals(new HashSet<>(Collections.singletonList("category.feed")), first.getAllFeeds());
+
+        //a newer version does not change the previous one
+        NifiFlowCacheState second = first.toBuilder().streamingFeed("category.feed").processGroupFlow(reusableFlow.asFeed(true)).build();
+        Assert.assertEquals(2L, second.getVersion());
+        Assert.assertEquals("reusable-group", second.getProcessorIdToFeedProcessGroupId().get("p1"));
+        Assert.assertTrue(second.getStreamingFeeds().contains("category.feed"));
+        Assert.assertEquals("reusable_templates.flow", first.getProcessorIdToFeedProcessGroupId().get("p1"));
+        Assert.assertTrue(first.getStreamingFeeds().isEmpty());
+    }
+
+    @Test
+    public void testChangeLog() {
+        NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+        NifiFlowCacheState first = NifiFlowCacheState.EMPTY.toBuilder()
+            .processGroupFlow(new ProcessGroupFlow("feed-1", "category.feed1", true, "1", Collections.singletonList(flowProcessor("p1", "GetFile")), null, 5L)).build();
+        changeLog.append(NifiFlowCacheState.EMPTY, first, 2);
+        NifiFlowCacheState second = first.toBuilder()
+            .processGroupFlow(new ProcessGroupFlow("feed-2", "category.feed2", true, "2", Collections.singletonList(flowProcessor("p2", "GetFile")), null, 5L)).build();
+        changeLog.append(first, second, 2);
+
+        NifiFlowCacheSnapshot changes = changeLog.changesSince(first.getVersion(), second);
+        Assert.assertEquals(Collections.singletonMap("p2", "category.feed2"), changes.getProcessorIdToFeedNameMap());
+        Assert.assertEquals(Collections.singleton("category.feed2"), changes.getAllFeeds());
+        Assert.assertEquals(second.getSnapshotDate(), changes.getSnapshotDate());
+        Assert.assertEquals(2, changeLog.changesSince(NifiFlowCacheState.EMPTY.getVersion(), second).getProcessorIdToFeedNameMap().size());
+
+        //renaming a processor only sends the new name
+        NifiFlowCacheState third = second.toBuilder()
+            .processGroupFlow(new ProcessGroupFlow("feed-2", "category.feed2", true, "3", Collections.singletonList(flowProcessor("p2", "Renamed")), null, 5L)).build();
+        changeLog.append(second, third, 2);
+        changes = changeLog.changesSince(second.getVersion(), third);
+        Assert.assertTrue(changes.getProcessorIdToFeedNameMap().isEmpty());
+        Assert.assertEquals(Collections.singletonMap("p2", "Renamed"), changes.getProcessorIdToProcessorName());
+
+        //the first version is no longer in the log
+        Assert.assertNull(changeLog.changesSince(NifiFlowCacheState.EMPTY.getVersion(), third));
+        Assert.assertEquals(Long.valueOf(first.getVersion()), changeLog.getHorizon());
+    }
+
+    private ProcessGroupDTO processGroup(ProcessorDTO... processors) {
+        ProcessGroupDTO group = new ProcessGroupDTO();
+        group.setId("group");
+        group.setName("feed");
+        group.setContents(new FlowSnippetDTO());
+        group.getContents().setProcessors(new HashSet<>(Arrays.asList(processors)));
+        return group;
+    }
+
+    private ProcessorDTO processor(String id, String name) {
+        ProcessorDTO processor = new ProcessorDTO();
+        processor.setId(id);
+        processor.setName(name);
+        processor.setType("org.apache.nifi.processors.standard." + name);
+        return processor;
+    }
+
+    private NifiFlowProcessor flowProcessor(String id, String name) {
+        return new NifiFlowProcessor(id, name);
+    }
+}
@@ -0,0 +1,217 @@
+package com.thinkbiganalytics.feedmgr.service.feed;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.feedmgr.rest.model.FeedSummary;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataChange;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChange;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChangeEvent;
+import com.thinkbiganalytics.metadata.api.feed.Feed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class FeedSummaryCacheTest {
+
+    /**
+     * Summaries of the feeds in the mock repository by feed id
+     */
+    private final Map<String, FeedSummary> repository = new LinkedHashMap<>();
+
+    @Mock
+    private MetadataAccess metadataAccess;
+
+    @Mock
+    private FeedManagerFeedProvider feedProvider;
+
+    @Mock
+    private FeedModelTransform feedModelTransform;
+
+    @Mock
+    private MetadataEventService eventService;
+
+    @InjectMocks
+    private FeedSummaryCache cache;
+
+    private MetadataEventListener<FeedChangeEvent> listener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        repository.put("1", summary("1", "sales", "orders", "ENABLED"));
+        repository.put("2", summary("2", "sales", "customers", "DISABLED"));
+
+        Mockito.when(feedProvider.findAll()).thenAnswer(invocation -> repository.keySet().stream().map(this::feed).collect(Collectors.toList()));
+        Mockito.when(feedProvider.resolveId(Mockito.any(Serializable.class))).thenAnswer(invocation -> new TestId(invocation.getArguments()[0].toString()));
+        Mockito.when(feedProvider.findById(Mockito.any(Feed.ID.class)))
+            .thenAnswer(invocation -> repository.containsKey(invocation.getArguments()[0].toString()) ? feed(invocation.getArguments()[0].toString()) : null);
+        Mockito.when(feedModelTransform.domainToFeedSummary(Mockito.any(Feed.class)))
+            .thenAnswer(invocation -> copy(repository.get(((Feed) invocation.getArguments()[0]).getId().toString())));
+
+        cache.init();
+
+        ArgumentCaptor<MetadataEventListener> captor = ArgumentCaptor.forClass(MetadataEventListener.class);
+        Mockito.verify(eventService).addListener(captor.capture());
+        listener = captor.getValue();
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    /**
+     * Verify the summaries are loaded once and ordered by category and feed.
+     */
+    @Test
+    public void testGetFeedSummaries() {
+        Assert.assertEquals("customers,orders", names(cache.getFeedSummaries()));
+        Assert.assertEquals("customers,orders", names(cache.getFeedSummaries()));
+        Mockito.verify(feedProvider, Mockito.times(1)).findAll();
+    }
+
+    /**
+     * Verify change events reload only the changed feeds.
+     */
+    @Test
+    public void testChangeEvents() {
+        cache.getFeedSummaries();
+
+        // Update a feed
+        repository.get("1").setState("DISABLED");
+        listener.notify(event("1", MetadataChange.ChangeType.UPDATE));
+        Assert.assertEquals("DISABLED", find(cache.getFeedSummaries(), "orders").getState());
+
+        // Create a feed
+        repository.put("3", summary("3", "hr", "employees", "ENABLED"));
+        listener.notify(event("3", MetadataChange.ChangeType.CREATE));
+        Assert.assertEquals("employees,customers,orders", names(cache.getFeedSummaries()));
+
+        // Delete a feed
+        repository.remove("2");
+        listener.notify(event("2", MetadataChange.ChangeType.DELETE));
+        Assert.assertEquals("employees,orders", names(cache.getFeedSummaries()));
+
+        Mockito.verify(feedProvider, Mockito.times(1)).findAll();
+        Mockito.verify(feedProvider, Mockito.times(3)).findById(Mockito.any(Feed.ID.class));
+    }
+
+    /**
+     * Verify the consistency check repairs changes made without events.
+     */
+    @Test
+    public void testCheckConsistency() {
+        Assert.assertEquals(0, cache.checkConsistency());
+        cache.getFeedSummaries();
+        Assert.assertEquals(0, cache.checkConsistency());
+
+        repository.get("1").setFeedName("purchases");
+        repository.remove("2");
+        repository.put("3", summary("3", "hr", "employees", "ENABLED"));
+        Assert.assertEquals(3, cache.checkConsistency());
+        Assert.assertEquals("employees,purchases", names(cache.getFeedSummaries()));
+        Assert.assertEquals(0, cache.checkConsistency());
+    }
+
+    /**
+     * Verify invalidating a category reloads its feeds.
+     */
+    @Test
+    public void testInvalidateCategory() {
+        cache.getFeedSummaries();
+        repository.values().forEach(summary -> summary.setCategoryName("Retail"));
+        cache.invalidateCategory("sales-id");
+        Assert.assertTrue(cache.getFeedSummaries().stream().allMatch(summary -> "Retail".equals(summary.getCategoryName())));
+    }
+
+    private FeedManagerFeed feed(String id) {
+        FeedManagerFeed feed = Mockito.mock(FeedManagerFeed.class);
+        Mockito.when(feed.getId()).thenReturn(new TestId(id));
+        return feed;
+    }
+
+    private FeedChangeEvent event(String id, MetadataChange.ChangeType type) {
+        return new FeedChangeEvent(new FeedChange(type, new TestId(id), null));
+    }
+
+    private FeedSummary summary(String id, String category, String name, String state) {
+        FeedSummary summary = new FeedSummary();
+        summary.setId(id);
+        summary.setFeedId(id);
+        summary.setCategoryId(category + "-id");
+        summary.setCategoryName(category);
+        summary.setSystemCategoryName(category);
+        summary.setFeedName(name);
+        summary.setSystemFeedName(name);
+        summary.setState(state);
+        return summary;
+    }
+
+    private FeedSummary copy(FeedSummary source) {
+        FeedSummary summary = summary(source.getId(), source.getSystemCategoryName(), source.getSystemFeedName(), source.getState());
+        summary.setCategoryName(source.getCategoryName());
+        summary.setFeedName(source.getFeedName());
+        return summary;
+    }
+
+    private FeedSummary find(List<FeedSummary> summaries, String name) {
+        return summaries.stream().filter(summary -> name.equals(summary.getFeedName())).findFirst().orElse(null);
+    }
+
+    private String names(List<FeedSummary> summaries) {
+        return summaries.stream().map(FeedSummary::getFeedName).collect(Collectors.joining(","));
+    }
+
+    private static class TestId implements Feed.ID {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        TestId(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+}
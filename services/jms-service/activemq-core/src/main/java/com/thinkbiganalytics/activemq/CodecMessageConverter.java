@@ -0,0 +1,79 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Converts messages encoded with a {@link JmsObjectCodec} back into objects.
+ * Any message that is not a {@link BytesMessage} with the {@link ActiveMqConstants#CODEC_HEADER} header is converted using the {@link SimpleMessageConverter} allowing both formats to be received
+ * on the same queue.
+ */
+public class CodecMessageConverter extends SimpleMessageConverter {
+
+    private static final Logger log = LoggerFactory.getLogger(CodecMessageConverter.class);
+
+    /**
+     * The registered codecs by name
+     */
+    private final Map<String, JmsObjectCodec> codecs = new HashMap<>();
+
+    public CodecMessageConverter(Collection<JmsObjectCodec> codecs) {
+        if (codecs != null) {
+            codecs.stream().forEach(codec -> this.codecs.put(codec.getName(), codec));
+            log.info("Registered JMS codecs {} ", this.codecs.keySet());
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (message instanceof BytesMessage && message.propertyExists(ActiveMqConstants.CODEC_HEADER)) {
+            String codecName = message.getStringProperty(ActiveMqConstants.CODEC_HEADER);
+            JmsObjectCodec codec = codecs.get(codecName);
+            if (codec == null) {
+                throw new MessageConversionException("Unable to decode JMS message.  No codec is registered with the name " + codecName);
+            }
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            try {
+                return codec.decode(bytes);
+            } catch (IOException e) {
+                throw new MessageConversionException("Unable to decode JMS message with codec " + codecName, e);
+            }
+        }
+        return super.fromMessage(message);
+    }
+}
@@ -0,0 +1,55 @@
+package com.thinkbiganalytics.activemq;
+
+/*-
+ * #%L
+ * thinkbig-activemq-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * Encodes objects into a compact binary form for sending over JMS as a {@link javax.jms.BytesMessage}.
+ *
+ * The name of the codec is sent as the {@link com.thinkbiganalytics.activemq.config.ActiveMqConstants#CODEC_HEADER} message property so the receiving {@link CodecMessageConverter} can pick the
+ * matching codec to decode it.  Messages without the header are treated as regular JMS messages.
+ */
+public interface JmsObjectCodec {
+
+    /**
+     * @return the unique name of this codec.  This is sent as the message header
+     */
+    String getName();
+
+    /**
+     * @param obj the object to check
+     * @return true if this codec is able to encode the object
+     */
+    boolean canEncode(Object obj);
+
+    /**
+     * @param obj the object to encode
+     * @return the encoded bytes
+     */
+    byte[] encode(Object obj) throws IOException;
+
+    /**
+     * @param bytes the bytes previously produced by {@link #encode(Object)}
+     * @return the decoded object
+     */
+    Object decode(byte[] bytes) throws IOException;
+}
@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.config.ActiveMqConstants;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,8 +32,10 @@ import org.springframework.jms.core.MessageCreator;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Session;
 import javax.jms.TextMessage;
@@ -65,6 +69,28 @@ public class SendJmsMessage {
     }
 
 
+    /**
+     * Send the object as a {@link BytesMessage} encoded with the supplied codec.  The name of the codec is set as the {@link ActiveMqConstants#CODEC_HEADER} header
+     *
+     * @param queueName the queue to send to
+     * @param obj       the object to send
+     * @param codec     the codec used to encode the object
+     */
+    public void sendEncodedObjectToQueue(String queueName, final Object obj, final JmsObjectCodec codec) throws JmsException, IOException {
+        log.info("Sending ActiveMQ message [" + obj + "] to queue [" + queueName + "] using codec [" + codec.getName() + "]");
+        final byte[] bytes = codec.encode(obj);
+        MessageCreator creator = new MessageCreator() {
+            @Override
+            public javax.jms.Message createMessage(Session session) throws JMSException {
+                BytesMessage message = session.createBytesMessage();
+                message.setStringProperty(ActiveMqConstants.CODEC_HEADER, codec.getName());
+                message.writeBytes(bytes);
+                return message;
+            }
+        };
+        this.jmsMessagingTemplate.getJmsTemplate().send(queueName, creator);
+    }
+
     public void sendObjectToQueue(String queueName, final Object obj, final String objectClassType) throws JmsException {
         log.info("Sending ActiveMQ message [" + obj + "] to queue [" + queueName + "]");
         MessageCreator creator = new MessageCreator() {
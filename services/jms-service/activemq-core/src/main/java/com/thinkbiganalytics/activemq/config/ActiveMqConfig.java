@@ -20,6 +20,8 @@ package com.thinkbiganalytics.activemq.config;
  * #L%
  */
 
+import com.thinkbiganalytics.activemq.CodecMessageConverter;
+import com.thinkbiganalytics.activemq.JmsObjectCodec;
 import com.thinkbiganalytics.activemq.ObjectMapperSerializer;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
@@ -38,7 +40,8 @@ import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
 import org.springframework.jms.core.JmsMessagingTemplate;
-import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.util.List;
 
 import javax.jms.ConnectionFactory;
 
@@ -59,6 +62,12 @@ public class ActiveMqConfig {
     @Autowired
     private Environment env;
 
+    /**
+     * Codecs able to decode binary messages.  Messages without a codec header are converted as regular JMS messages
+     */
+    @Autowired(required = false)
+    private List<JmsObjectCodec> codecs;
+
     @Bean
     public ConnectionFactory connectionFactory() {
         PooledConnectionFactory pool = new PooledConnectionFactory();
@@ -79,7 +88,7 @@ public class ActiveMqConfig {
         factory.setClientId(env.getProperty("jms.client.id:thinkbig.feedmgr"));
         factory.setConcurrency("1-1");
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(new SimpleMessageConverter());
+        factory.setMessageConverter(new CodecMessageConverter(codecs));
         return factory;
     }
 
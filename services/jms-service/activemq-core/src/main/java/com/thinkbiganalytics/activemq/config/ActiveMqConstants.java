@@ -26,4 +26,9 @@ public interface ActiveMqConstants {
 
     String JMS_CONTAINER_FACTORY = "jmsContainerFactory";
 
+    /**
+     * Message property holding the name of the {@link com.thinkbiganalytics.activemq.JmsObjectCodec} used to encode the message
+     */
+    String CODEC_HEADER = "kylo_codec";
+
 }
@@ -77,9 +77,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -100,6 +102,8 @@ public class MetadataClient {
     };
     public static final ParameterizedTypeReference<List<Datasource>> DATASOURCE_LIST = new ParameterizedTypeReference<List<Datasource>>() {
     };
+    public static final ParameterizedTypeReference<Map<String, String>> WATER_MARK_VALUES = new ParameterizedTypeReference<Map<String, String>>() {
+    };
     private static final Logger log = LoggerFactory.getLogger(MetadataClient.class);
     private static final Function<UriComponentsBuilder, UriComponentsBuilder> ALL_DATASOURCES = new TargetDatasourceCriteria();
     private static final Function<UriComponentsBuilder, UriComponentsBuilder> ALL_FEEDS = new TargetFeedCriteria();
@@ -245,6 +249,28 @@ public class MetadataClient {
         put(path("feed", feedId, "watermark", waterMarkName), value, MediaType.TEXT_PLAIN);
     }
 
+    /**
+     * get several named high water marks for the feed given by feedId in a single request
+     *
+     * @param feedId         the id of the feed
+     * @param waterMarkNames the names of the water marks, or an empty collection for all of the feed's water marks
+     * @return the values of the water marks that exist by name
+     */
+    public Map<String, String> getHighWaterMarkValues(String feedId, Collection<String> waterMarkNames) {
+        Map<String, String> values = get(path("feed", feedId, "watermarks"), new WaterMarkNameParameters(waterMarkNames), WATER_MARK_VALUES);
+        return values != null ? values : Collections.emptyMap();
+    }
+
+    /**
+     * Update several named high water marks, for the feed given by feedId, in a single transaction
+     *
+     * @param feedId the id of the feed
+     * @param values the new values by water mark name.  A null value removes the water mark
+     */
+    public void updateHighWaterMarkValues(String feedId, Map<String, String> values) {
+        put(path("feed", feedId, "watermarks"), values, MediaType.APPLICATION_JSON);
+    }
+
     /**
      * Find out if the feed given has been initialized
      *
@@ -750,6 +776,27 @@ public class MetadataClient {
 
     }
 
+    private static class WaterMarkNameParameters implements Function<UriComponentsBuilder, UriComponentsBuilder> {
+
+        private Collection<String> waterMarkNames;
+
+        public WaterMarkNameParameters(Collection<String> waterMarkNames) {
+            this.waterMarkNames = waterMarkNames;
+        }
+
+        public UriComponentsBuilder apply(UriComponentsBuilder target) {
+            UriComponentsBuilder result = target;
+
+            if (this.waterMarkNames != null) {
+                for (String name : this.waterMarkNames) {
+                    result = result.queryParam("name", name);
+                }
+            }
+            return result;
+        }
+
+    }
+
     private static class TargetDatasourceCriteria implements DatasourceCriteria, Function<UriComponentsBuilder, UriComponentsBuilder> {
 
         private String name;
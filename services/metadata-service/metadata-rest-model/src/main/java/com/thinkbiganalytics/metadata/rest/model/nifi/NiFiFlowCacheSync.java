@@ -42,6 +42,10 @@ public class NiFiFlowCacheSync {
     private String syncId;
     private NifiFlowCacheSnapshot snapshot;
     private DateTime lastSync;
+    /**
+     * The version of the Kylo flow cache last sent to this sync. Only the changes after it are sent on the next sync
+     */
+    private Long sequence;
     private String message;
     private boolean updated = false;
 
@@ -159,9 +163,18 @@ public class NiFiFlowCacheSync {
         this.lastSync = lastSync;
     }
 
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
     public void reset() {
         this.snapshot = null;
         this.lastSync = null;
+        this.sequence = null;
     }
 
     public String getSyncId() {
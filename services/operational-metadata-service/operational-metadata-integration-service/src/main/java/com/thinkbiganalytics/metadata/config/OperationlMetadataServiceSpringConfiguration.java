@@ -22,11 +22,13 @@ package com.thinkbiganalytics.metadata.config;
 
 import com.thinkbiganalytics.alerts.api.AlertProvider;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsJmsReceiver;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsRetentionScheduler;
 import com.thinkbiganalytics.metadata.sla.DefaultServiceLevelAgreementScheduler;
 import com.thinkbiganalytics.metadata.sla.JpaJcrServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.ServiceLevelAgreementActionAlertResponderFactory;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementScheduler;
+import com.thinkbiganalytics.nifi.activemq.ProvenanceEventBinaryCodec;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -43,6 +45,20 @@ public class OperationlMetadataServiceSpringConfiguration {
         return new NifiStatsJmsReceiver();
     }
 
+    @Bean
+    public NifiStatsRetentionScheduler nifiStatsRetentionScheduler() {
+        return new NifiStatsRetentionScheduler();
+    }
+
+    /**
+     * Decodes the provenance events and statistics NiFi sends using the binary format.
+     * Messages sent using Java serialization are still handled by the default converter.
+     */
+    @Bean
+    public ProvenanceEventBinaryCodec provenanceEventBinaryCodec() {
+        return new ProvenanceEventBinaryCodec();
+    }
+
     @Bean
     public ServiceLevelAgreementScheduler serviceLevelAgreementScheduler() {
         return new DefaultServiceLevelAgreementScheduler();
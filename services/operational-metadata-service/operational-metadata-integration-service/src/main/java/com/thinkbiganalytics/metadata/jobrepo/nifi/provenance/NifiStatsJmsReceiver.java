@@ -29,6 +29,11 @@ import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
 import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.jms.annotation.JmsListener;
 
 import java.util.ArrayList;
@@ -41,6 +46,7 @@ import javax.inject.Inject;
  */
 public class NifiStatsJmsReceiver {
 
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsJmsReceiver.class);
 
     @Inject
     private NifiFeedProcessorStatisticsProvider nifiEventStatisticsProvider;
@@ -48,18 +54,45 @@ public class NifiStatsJmsReceiver {
     @Inject
     private MetadataAccess metadataAccess;
 
+    /**
+     * The amount of retry attempts if the stats could not be saved because the rollups were updated by another Kylo instance at the same time
+     */
+    private int lockAcquisitionRetryAmount = 4;
+
 
     @JmsListener(destination = Queues.PROVENANCE_EVENT_STATS_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY)
     public void receiveTopic(AggregatedFeedProcessorStatisticsHolder stats) {
+        saveStats(stats, 0);
+    }
 
-        metadataAccess.commit(() -> {
-            List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats);
-            for (NifiFeedProcessorStats stat : summaryStats) {
-                nifiEventStatisticsProvider.create(stat);
+    /**
+     * Save the stats and add them to the rollups.  If another Kylo instance inserted the same rollup first, or the database detected a deadlock, the transaction is rolled back
+     * and the stats are saved again until it hits the {@link #lockAcquisitionRetryAmount}
+     *
+     * @param stats        the stats sent from NiFi
+     * @param retryAttempt the retry number
+     */
+    private void saveStats(AggregatedFeedProcessorStatisticsHolder stats, int retryAttempt) {
+        try {
+            metadataAccess.commit(() -> {
+                List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats);
+                return nifiEventStatisticsProvider.create(summaryStats);
+            }, MetadataAccess.SERVICE);
+        } catch (RuntimeException e) {
+            boolean concurrentUpdate = ExceptionUtils.indexOfType(e, LockAcquisitionException.class) != -1 || ExceptionUtils.indexOfType(e, ConstraintViolationException.class) != -1;
+            if (concurrentUpdate && retryAttempt < lockAcquisitionRetryAmount) {
+                retryAttempt++;
+                log.warn("Concurrent update of the feed processor stats rollups.  Retry attempt # {} ", retryAttempt, e);
+                try {
+                    Thread.sleep(300L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                saveStats(stats, retryAttempt);
+            } else {
+                throw e;
             }
-            return summaryStats;
-        }, MetadataAccess.SERVICE);
-
+        }
     }
 
     private List<NifiFeedProcessorStats> createSummaryStats(AggregatedFeedProcessorStatisticsHolder holder) {
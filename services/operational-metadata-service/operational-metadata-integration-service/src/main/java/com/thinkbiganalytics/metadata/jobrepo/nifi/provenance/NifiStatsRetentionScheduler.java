@@ -0,0 +1,76 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
+import com.thinkbiganalytics.scheduler.JobIdentifier;
+import com.thinkbiganalytics.scheduler.JobScheduler;
+import com.thinkbiganalytics.scheduler.JobSchedulerException;
+import com.thinkbiganalytics.scheduler.model.DefaultJobIdentifier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+/**
+ * Periodically deletes the feed processor statistics and rollups that are older than their retention
+ */
+public class NifiStatsRetentionScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsRetentionScheduler.class);
+
+    private static final String DEFAULT_CRON = "0 15 0/1 1/1 * ? *";// every hour
+
+    @Value("${kylo.ops.mgr.stats.retention.cron:0 15 0/1 1/1 * ? *}")
+    private String cron;
+
+    @Inject
+    private JobScheduler jobScheduler;
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider nifiFeedProcessorStatisticsProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @PostConstruct
+    public void scheduleRetention() {
+        JobIdentifier jobIdentifier = new DefaultJobIdentifier("NiFi Stats Retention", "KYLO");
+        try {
+            jobScheduler.scheduleWithCronExpression(jobIdentifier, this::deleteExpiredStatistics, (StringUtils.isBlank(cron) ? DEFAULT_CRON : cron));
+        } catch (JobSchedulerException e) {
+            log.error("Unable to schedule the retention of the NiFi feed processor statistics", e);
+        }
+    }
+
+    public void deleteExpiredStatistics() {
+        try {
+            metadataAccess.commit(() -> nifiFeedProcessorStatisticsProvider.deleteExpiredStatistics(), MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.error("Unable to delete the expired NiFi feed processor statistics", e);
+        }
+    }
+}
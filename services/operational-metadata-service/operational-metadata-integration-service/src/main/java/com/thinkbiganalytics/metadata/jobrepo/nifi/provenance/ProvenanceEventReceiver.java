@@ -51,11 +51,18 @@ import org.hibernate.exception.LockAcquisitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -178,19 +185,91 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
      * if it is a stream just write to the Nifi_event table.
      * When either are marked as the last event Notify the event bus for the trigger feed mechanism to work.
      *
+     * The events in the JMS message are processed together.  Duplicates are removed, the events already saved are found with a single query, and the events, jobs and steps are written in one
+     * transaction.  If that fails each event is processed on its own.
+     *
      * @param events The events obtained from JMS
      */
     @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10")
     public void receiveEvents(ProvenanceEventRecordDTOHolder events) {
         log.info("About to process {} events from the {} queue ", events.getEvents().size(), Queues.FEED_MANAGER_QUEUE);
+        Map<String, ProvenanceEventRecordDTO> registeredEvents = new LinkedHashMap<>();
         events.getEvents().stream()
             .filter(this::isRegisteredWithFeedManager)
-            .filter(this::ensureNewEvent)
-            .forEach(event -> processEvent(event, 0));
+            .forEach(event -> registeredEvents.putIfAbsent(eventKey(event), event));
+        if (!registeredEvents.isEmpty()) {
+            List<ProvenanceEventRecordDTO> newEvents = metadataAccess.read(() -> nifiEventProvider.findNewEvents(registeredEvents.values()), MetadataAccess.SERVICE);
+            if (!newEvents.isEmpty()) {
+                processEvents(newEvents);
+            }
+        }
+    }
+
+    /**
+     * Process the events in a single transaction.
+     * The job executions are created first, each in their own transaction, so other listeners processing events for the same job will find them.
+     * If anything fails the events are processed one at a time via {@link #processEvent(ProvenanceEventRecordDTO, int)}
+     *
+     * @param events new provenance events
+     */
+    private void processEvents(List<ProvenanceEventRecordDTO> events) {
+        try {
+            Map<ProvenanceEventRecordDTO, Long> jobExecutionIds = createJobExecutions(events);
+            metadataAccess.commit(() -> {
+                List<ProvenanceEventRecordDTO> streamingEvents = new ArrayList<>();
+                for (ProvenanceEventRecordDTO event : events) {
+                    if (event.isBatchJob()) {
+                        Long jobExecutionId = jobExecutionIds.get(event);
+                        BatchJobExecution jobExecution = jobExecutionId != null ? batchJobExecutionProvider.findByJobExecutionId(jobExecutionId)
+                                                                                : batchJobExecutionProvider.getOrCreateJobExecution(event);
+                        receiveBatchEvent(jobExecution, event);
+                    } else {
+                        streamingEvents.add(event);
+                    }
+                }
+                if (!streamingEvents.isEmpty()) {
+                    nifiEventProvider.create(streamingEvents);
+                }
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            log.warn("Unable to process {} events in a single transaction.  Processing each event on its own. {}", events.size(), e.getMessage());
+            events.forEach(event -> processEvent(event, 0));
+            return;
+        }
+        events.stream().filter(ProvenanceEventRecordDTO::isFinalJobEvent).forEach(this::notifyJobFinished);
+    }
+
+    /**
+     * Get or create the job execution for each job in the events, in a transaction per job.
+     *
+     * @param events provenance events
+     * @return the job execution id for the first event of each job. Any other events for the job are applied in the batch transaction
+     */
+    private Map<ProvenanceEventRecordDTO, Long> createJobExecutions(List<ProvenanceEventRecordDTO> events) {
+        Map<ProvenanceEventRecordDTO, Long> jobExecutionIds = new IdentityHashMap<>();
+        Set<String> jobFlowFiles = Collections.newSetFromMap(new HashMap<>());
+        for (ProvenanceEventRecordDTO event : events) {
+            if (event.isBatchJob() && jobFlowFiles.add(event.getJobFlowFileId())) {
+                BatchJobExecution jobExecution = metadataAccess.commit(() -> batchJobExecutionProvider.getOrCreateJobExecution(event), MetadataAccess.SERVICE);
+                jobExecutionIds.put(event, jobExecution.getJobExecutionId());
+            }
+        }
+        return jobExecutionIds;
+    }
+
+    /**
+     * Unique key for the Event
+     *
+     * @param event a provenance event
+     * @return the key matching the primary key of the saved event
+     */
+    private String eventKey(ProvenanceEventRecordDTO event) {
+        return event.getEventId() + "_" + event.getFlowFileUuid();
     }
 
     /**
      * process the event and persist it along with creating the Job and Step.  If there is a lock error it will retry until it hits the {@link this#lockAcquisitionRetryAmount}
+     * If the event was saved by another listener in the meantime it is skipped.
      *
      * @param event        a provenance event
      * @param retryAttempt the retry number.  If there is a lock error it will retry until it hits the {@link this#lockAcquisitionRetryAmount}
@@ -226,6 +305,13 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
             } else {
                 log.error("LockAcquisitionException found.  Unsuccessful after retrying {} times.  This event {} will not be processed. ", retryAttempt, event, lae);
             }
+        } catch (DataIntegrityViolationException e) {
+            //another listener may have saved the same event after it was checked in receiveEvents
+            if (metadataAccess.read(() -> nifiEventProvider.exists(event), MetadataAccess.SERVICE)) {
+                log.debug("Event {} was already processed.  Skipping it. ", event);
+            } else {
+                log.error("Error processing Event {}", event, e);
+            }
         } catch (Exception e) {
             log.error("Error processing Event ", event, e);
         }
@@ -383,16 +469,6 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
         nifiBulletinExceptionExtractor.addErrorMessagesToStep(stepExecution, flowFileId, componentId);
     }
 
-    /*
-     * Indicates if the specified event hasn't already been processed.
-     *
-     * @param event the event to check
-     * @return {@code true} if the event is new, or {@code false otherwise}
-     */
-    private boolean ensureNewEvent(ProvenanceEventRecordDTO event) {
-        return metadataAccess.read(() -> !nifiEventProvider.exists(event), MetadataAccess.SERVICE);
-    }
-
     /**
      * When a feed is deleted remove it from the cache of feed names
      *
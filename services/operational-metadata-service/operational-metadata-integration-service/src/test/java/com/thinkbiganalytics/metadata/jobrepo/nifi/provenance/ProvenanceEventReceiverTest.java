@@ -0,0 +1,116 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.security.Principal;
+import java.util.Arrays;
+
+/**
+ * Checks the events of a JMS message are processed on their own if the batch fails, skipping events saved by another listener in the meantime
+ */
+public class ProvenanceEventReceiverTest {
+
+    @Mock
+    private OpsManagerFeedProvider opsManagerFeedProvider;
+
+    @Mock
+    private NifiEventProvider nifiEventProvider;
+
+    @Mock
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    @Mock
+    private MetadataAccess metadataAccess;
+
+    @Mock
+    private MetadataEventService eventService;
+
+    @InjectMocks
+    private ProvenanceEventReceiver receiver;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(metadataAccess.commit(Mockito.any(MetadataCommand.class), Mockito.<Principal>anyVararg()))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+        Mockito.doAnswer(invocation -> {
+            ((MetadataAction) invocation.getArguments()[0]).execute();
+            return null;
+        }).when(metadataAccess).commit(Mockito.any(MetadataAction.class), Mockito.<Principal>anyVararg());
+        Mockito.when(metadataAccess.read(Mockito.any(MetadataCommand.class), Mockito.<Principal>anyVararg()))
+            .thenAnswer(invocation -> ((MetadataCommand<?>) invocation.getArguments()[0]).execute());
+        Mockito.when(opsManagerFeedProvider.findByName("category.feed")).thenReturn(Mockito.mock(OpsManagerFeed.class));
+    }
+
+    /**
+     * Another listener saves an event after it was found to be new but before the batch is committed
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDuplicateDuringBatch() {
+        ProvenanceEventRecordDTO duplicate = event(1L, "flowfile-1");
+        ProvenanceEventRecordDTO event = event(2L, "flowfile-2");
+        Mockito.when(nifiEventProvider.findNewEvents(Mockito.anyCollection())).thenReturn(Arrays.asList(duplicate, event));
+        Mockito.when(nifiEventProvider.create(Mockito.anyListOf(ProvenanceEventRecordDTO.class))).thenThrow(new DataIntegrityViolationException("NIFI_EVENT_PK"));
+        Mockito.when(nifiEventProvider.create(duplicate)).thenThrow(new DataIntegrityViolationException("NIFI_EVENT_PK"));
+        Mockito.when(nifiEventProvider.exists(duplicate)).thenReturn(true);
+
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(Arrays.asList(duplicate, event));
+        receiver.receiveEvents(holder);
+
+        // The duplicate is skipped and only the other event is saved and notified
+        Mockito.verify(nifiEventProvider).exists(duplicate);
+        Mockito.verify(nifiEventProvider).create(event);
+        Mockito.verify(eventService, Mockito.times(1)).notify(Mockito.any(FeedOperationStatusEvent.class));
+    }
+
+    private ProvenanceEventRecordDTO event(long eventId, String flowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFlowFileUuid(flowFileId);
+        event.setJobFlowFileId(flowFileId);
+        event.setFeedName("category.feed");
+        event.setIsFinalJobEvent(true);
+        return event;
+    }
+}